@@ -82,6 +82,19 @@ public final class Currency implements Comparable<Currency>
       }
    }
    
+   /**
+    * Get number of decimal places.
+    * 
+    * @return number of decimal places
+    */
+   public int getDecimalPlaces()
+   {
+      synchronized (lock)
+      {
+         return digits;
+      }
+   }
+   
    /**
     * Formats a number with specified decimal places.
     * 
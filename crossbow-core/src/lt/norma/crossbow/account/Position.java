@@ -22,19 +22,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.core.StaticSettings;
 import lt.norma.crossbow.orders.Direction;
 import lt.norma.crossbow.trading.FilledBlock;
 
 /**
- * Stores information about a position.
+ * Stores information about a position. Average price is calculated exactly from the prices of the
+ * open blocks. Fixed-point value of the position is scaled to the price scale of the contract, or
+ * to the scale of the most precise open block if it is larger, so prices are never rounded.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
 public final class Position
 {
    private final Contract contract;
+   private PriceScale priceScale;
    private int size;
+   private long openValue;
+   private boolean openValueValid;
    private BigDecimal averagePrice;
    private final List<FilledBlock> openBlocks;
    private final Object lock;
@@ -48,8 +54,11 @@ public final class Position
    public Position(Contract contract)
    {
       this.contract = contract;
+      priceScale = contract.getPriceScale();
       openBlocks = new ArrayList<FilledBlock>();
       size = 0;
+      openValue = 0;
+      openValueValid = true;
       averagePrice = null;
       lock = new Object();
    }
@@ -86,7 +95,8 @@ public final class Position
                {
                   FilledBlock replaceBlock = new FilledBlock(
                         firstBlock.getDirection(), firstBlock.getSize() - blockSize,
-                        firstBlock.getAveragePrice(), firstBlock.getTime());
+                        firstBlock.getScaledAveragePrice(), firstBlock.getPriceScale(),
+                        firstBlock.getTime());
                   blockSize = 0;
                   openBlocks.add(0, replaceBlock);
                }
@@ -95,7 +105,7 @@ public final class Position
             {
                FilledBlock replaceBlock = new FilledBlock(
                      block.getDirection(), blockSize,
-                     block.getAveragePrice(), block.getTime());
+                     block.getScaledAveragePrice(), block.getPriceScale(), block.getTime());
                openBlocks.add(replaceBlock);
             }
          }
@@ -108,25 +118,21 @@ public final class Position
    private void updateSizePrice()
    {
       int total = 0;
+      PriceScale scale = contract.getPriceScale();
       for (FilledBlock block : openBlocks)
       {
          if (block.getDirection() == Direction.LONG)
             total += block.getSize();
          else
             total -= block.getSize();
+         if (block.getPriceScale().getDecimalPlaces() > scale.getDecimalPlaces())
+            scale = block.getPriceScale();
       }
       size = total;
-      
-      BigDecimal totalValue = BigDecimal.ZERO;
-      for (FilledBlock block : openBlocks)
-      {
-         totalValue = totalValue.add(block.calculateValue());
-      }
-      if (size == 0)
-         averagePrice = null;
-      else
-         averagePrice =
-               totalValue.divide(new BigDecimal(Math.abs(size)), StaticSettings.priceMathContext);
+      priceScale = scale;
+      // Average price and value are calculated on demand.
+      averagePrice = null;
+      openValueValid = false;
    }
    
    /**
@@ -149,10 +155,56 @@ public final class Position
    {
       synchronized (lock)
       {
+         if (averagePrice == null && size != 0)
+         {
+            BigDecimal totalValue = BigDecimal.ZERO;
+            for (FilledBlock block : openBlocks)
+            {
+               totalValue = totalValue.add(block.calculateValue());
+            }
+            averagePrice = totalValue.divide(new BigDecimal(Math.abs(size)),
+                  StaticSettings.priceMathContext);
+         }
          return averagePrice;
       }
    }
    
+   /**
+    * @return total value of the open blocks (sum of size multiplied by price), scaled to
+    *         <code>getPriceScale()</code>. Value is positive for both long and short positions.
+    * @throws ArithmeticException
+    *            if the value overflows a <code>long</code>
+    */
+   public long getScaledOpenValue()
+   {
+      synchronized (lock)
+      {
+         if (!openValueValid)
+         {
+            long totalValue = 0;
+            for (FilledBlock block : openBlocks)
+            {
+               totalValue = PriceScale.addExact(totalValue, block.calculateScaledValue(priceScale));
+            }
+            openValue = totalValue;
+            openValueValid = true;
+         }
+         return openValue;
+      }
+   }
+   
+   /**
+    * @return scale of <code>getScaledOpenValue()</code>, the price scale of the contract or the
+    *         scale of the most precise open block if it is larger
+    */
+   public PriceScale getPriceScale()
+   {
+      synchronized (lock)
+      {
+         return priceScale;
+      }
+   }
+   
    /**
     * @return the contract of this position
     */
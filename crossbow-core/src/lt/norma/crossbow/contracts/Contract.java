@@ -17,16 +17,26 @@
 
 package lt.norma.crossbow.contracts;
 
+import java.math.BigDecimal;
+
 import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 /**
  * Base class for all contracts. Extend this class to create custom contract types.
+ * <p>
+ * Contracts interned by a <code>ContractRegistry</code> have a dense integer id, which can be used
+ * as an index of arrays holding per-contract state of that registry.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
 public abstract class Contract
 {
+   /** Id of a contract, which is not interned by <code>ContractRegistry</code>. */
+   public static final int NO_ID = -1;
+   
    /** Contract symbol. */
    protected final String symbol;
    /**
@@ -38,6 +48,16 @@ public abstract class Contract
    protected final Exchange exchange;
    /** Contract`s base currency. */
    protected final Currency currency;
+   /** Minimum price increment. Null if not specified. */
+   private volatile BigDecimal tickSize;
+   /** Scale of the fixed-point prices of this contract. */
+   private volatile PriceScale priceScale;
+   /** Hash code, computed once. */
+   private final int hashCode;
+   /** Registry which interned this contract, null if not interned. */
+   private volatile ContractRegistry registry;
+   /** Id assigned by <code>registry</code>, <code>NO_ID</code> if not interned. */
+   private volatile int id;
    
    /**
     * Constructor.
@@ -79,6 +99,12 @@ public abstract class Contract
       this.type = type;
       this.exchange = exchange;
       this.currency = currency;
+      tickSize = null;
+      priceScale = PriceScale.valueOf(Math.min(Math.max(currency.getDecimalPlaces(), 0),
+            PriceScale.MAX_DECIMAL_PLACES));
+      hashCode = symbol.hashCode() * 31 + getClass().hashCode();
+      registry = null;
+      id = NO_ID;
    }
    
    /**
@@ -100,7 +126,7 @@ public abstract class Contract
    @Override
    public final int hashCode()
    {
-      return symbol.hashCode() * 31 + getClass().hashCode();
+      return hashCode;
    }
    
    /**
@@ -115,6 +141,9 @@ public abstract class Contract
     * <p>
     * Field <code>type</code> is not used in comparison, contracts are compared by class instead.
     * Contracts with different classes cannot be equal.
+    * <p>
+    * Two distinct contracts interned by the same <code>ContractRegistry</code> are never equal,
+    * the registry keeps a single instance of equal contracts.
     * 
     * @param object
     *           a contract to be compared to this contract
@@ -133,7 +162,13 @@ public abstract class Contract
          return false;
       }
       Contract contract = (Contract)object;
-      return symbol.equals(contract.symbol)
+      if (registry != null && registry == contract.registry)
+      {
+         // The registry keeps a single instance of equal contracts
+         return false;
+      }
+      return hashCode == contract.hashCode
+             && symbol.equals(contract.symbol)
              && exchange.equals(contract.exchange)
              && currency.equals(contract.currency)
              && contractEquals(contract);
@@ -158,6 +193,40 @@ public abstract class Contract
     */
    protected abstract boolean contractEquals(Contract contract);
    
+   /**
+    * Gets id of the contract assigned by <code>getRegistry()</code>. Ids of the contracts interned
+    * by a registry are dense, starting from 0.
+    * 
+    * @return id of the contract, <code>NO_ID</code> if the contract is not interned
+    */
+   public final int getId()
+   {
+      return id;
+   }
+   
+   /**
+    * @return registry which interned this contract, null if the contract is not interned
+    */
+   public final ContractRegistry getRegistry()
+   {
+      return registry;
+   }
+   
+   /**
+    * Sets id of the contract. Called by <code>ContractRegistry</code> only.
+    * 
+    * @param registry
+    *           registry interning the contract
+    * @param id
+    *           id of the contract
+    */
+   final void setId(ContractRegistry registry, int id)
+   {
+      // Registry is published last, a contract of a registry always has its id
+      this.id = id;
+      this.registry = registry;
+   }
+   
    /**
     * Get symbol.
     * 
@@ -198,4 +267,46 @@ public abstract class Contract
       return currency;
    }
    
+   /**
+    * Sets minimum price increment of the contract. Price scale of the contract is extended to the
+    * decimal places of the tick size, e.g. tick size of 0.0001 requires at least 4 decimal places.
+    * Tick size should be set before any prices of the contract are created.
+    * 
+    * @param tickSize
+    *           minimum price increment. Must be a positive number.
+    */
+   public final void setTickSize(BigDecimal tickSize)
+   {
+      if (tickSize == null || tickSize.signum() <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("tickSize", String.valueOf(tickSize),
+               "Must be a positive number.");
+      }
+      int decimalPlaces = Math.max(tickSize.stripTrailingZeros().scale(),
+            currency.getDecimalPlaces());
+      this.priceScale = PriceScale.valueOf(Math.max(decimalPlaces, 0));
+      this.tickSize = tickSize;
+   }
+   
+   /**
+    * Gets minimum price increment.
+    * 
+    * @return minimum price increment, null if not specified
+    */
+   public final BigDecimal getTickSize()
+   {
+      return tickSize;
+   }
+   
+   /**
+    * Gets scale of the fixed-point prices of this contract. It is set to the decimal places of the
+    * currency when the contract is created and extended by <code>setTickSize</code>.
+    * 
+    * @return price scale
+    */
+   public final PriceScale getPriceScale()
+   {
+      return priceScale;
+   }
+   
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.contracts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Keeps a single instance of every contract, exchange and currency in use. Interned contracts get
+ * a dense integer id, returned by <code>Contract.getId()</code>. Per-contract state may then be
+ * stored in plain arrays indexed by id, and contracts interned by the same registry are compared by
+ * id.
+ * <p>
+ * A registry is owned by a trading session or a backtest and is discarded with it, so ids and
+ * interned instances do not leak from one run to the next. A contract can be interned by a single
+ * registry only. Contracts are never removed from a registry.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class ContractRegistry
+{
+   private final Object lock;
+   private final Map<Contract, Contract> contractMap;
+   private final Map<String, Exchange> exchanges;
+   private final Map<String, Currency> currencies;
+   /** Interned contracts by id. Replaced by a larger copy when full. */
+   private volatile Contract[] contracts;
+   private int size;
+   
+   /**
+    * Constructor. Creates an empty registry.
+    */
+   public ContractRegistry()
+   {
+      lock = new Object();
+      contractMap = new HashMap<Contract, Contract>();
+      exchanges = new HashMap<String, Exchange>();
+      currencies = new HashMap<String, Currency>();
+      contracts = new Contract[64];
+      size = 0;
+   }
+   
+   /**
+    * Gets the registered instance of the contract. Registers the specified contract and assigns an
+    * id to it if no equal contract is registered.
+    * 
+    * @param contract
+    *           contract to be interned
+    * @return registered contract equal to the specified one
+    * @throws InvalidArgumentRuntimeException
+    *            if the contract is interned by another registry, which has no equal contract
+    */
+   public Contract intern(Contract contract)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      if (contract.getRegistry() == this)
+      {
+         return contract;
+      }
+      
+      synchronized (lock)
+      {
+         Contract registered = contractMap.get(contract);
+         if (registered != null)
+         {
+            return registered;
+         }
+         if (contract.getRegistry() != null)
+         {
+            throw new InvalidArgumentRuntimeException("contract", contract,
+                  "Contract is interned by another registry.");
+         }
+         if (size == contracts.length)
+         {
+            contracts = Arrays.copyOf(contracts, size * 2);
+         }
+         contracts[size] = contract;
+         contractMap.put(contract, contract);
+         // Contract is published last, an interned contract is always found by getContract
+         contract.setId(this, size);
+         size++;
+         return contract;
+      }
+   }
+   
+   /**
+    * Gets interned contract by id.
+    * 
+    * @param id
+    *           id of the contract
+    * @return interned contract
+    */
+   public Contract getContract(int id)
+   {
+      Contract[] snapshot = contracts;
+      if (id < 0 || id >= snapshot.length || snapshot[id] == null)
+      {
+         throw new InvalidArgumentRuntimeException("id", id, "No such contract.");
+      }
+      return snapshot[id];
+   }
+   
+   /**
+    * Gets the registered instance of the exchange. Registers the specified exchange if no exchange
+    * with the same name is registered.
+    * 
+    * @param exchange
+    *           exchange to be interned
+    * @return registered exchange with the same name
+    */
+   public Exchange intern(Exchange exchange)
+   {
+      if (exchange == null)
+      {
+         throw new InvalidArgumentRuntimeException("exchange", "null");
+      }
+      
+      synchronized (lock)
+      {
+         Exchange registered = exchanges.get(exchange.getName());
+         if (registered != null)
+         {
+            return registered;
+         }
+         exchanges.put(exchange.getName(), exchange);
+         return exchange;
+      }
+   }
+   
+   /**
+    * Gets the registered instance of the currency. Registers the specified currency if no currency
+    * with the same code is registered.
+    * 
+    * @param currency
+    *           currency to be interned
+    * @return registered currency with the same code
+    */
+   public Currency intern(Currency currency)
+   {
+      if (currency == null)
+      {
+         throw new InvalidArgumentRuntimeException("currency", "null");
+      }
+      
+      synchronized (lock)
+      {
+         Currency registered = currencies.get(currency.getCode());
+         if (registered != null)
+         {
+            return registered;
+         }
+         currencies.put(currency.getCode(), currency);
+         return currency;
+      }
+   }
+   
+   /**
+    * Gets the number of interned contracts. Ids of the interned contracts are in range 0 -
+    * <code>size() - 1</code>.
+    * 
+    * @return number of interned contracts
+    */
+   public int size()
+   {
+      synchronized (lock)
+      {
+         return size;
+      }
+   }
+}
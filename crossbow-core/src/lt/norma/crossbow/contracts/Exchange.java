@@ -17,10 +17,13 @@
 
 package lt.norma.crossbow.contracts;
 
+import lt.norma.crossbow.core.StaticSettings;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 
 /**
  * Information about an exchange.
@@ -29,6 +32,11 @@ import org.joda.time.LocalTime;
  */
 public final class Exchange implements Comparable<Exchange>
 {
+   private static final Exchange NASDAQ = new Exchange("Nasdaq",
+         DateTimeZone.forID("America/New_York"), new LocalTime(9, 30, 0), new LocalTime(16, 0, 0));
+   private static final Exchange NYSE = new Exchange("Nyse", DateTimeZone.forID("America/New_York"),
+         new LocalTime(9, 30, 0), new LocalTime(16, 0, 0));
+   
    /** Exchange name. */
    private final String name;
    /** Time zone of the exchange. */
@@ -39,6 +47,8 @@ public final class Exchange implements Comparable<Exchange>
    private final LocalTime tradingEnds;
    /** Does the exchange have closing hours. */
    private final boolean doesClose;
+   /** Date-time formatter in the time zone of the exchange. */
+   private final DateTimeFormatter dateTimeFormatter;
    
    /**
     * Constructor.
@@ -82,28 +92,30 @@ public final class Exchange implements Comparable<Exchange>
       this.tradingStarts = tradingStarts;
       this.tradingEnds = tradingEnds;
       doesClose = !tradingEnds.equals(new LocalTime(0, 0, 0));
+      dateTimeFormatter =
+            DateTimeFormat.forPattern(StaticSettings.dateTimeFormat).withZone(timeZone);
    }
    
    /**
-    * Creates an exchange with time zone set to "America/New_York" and trading hours 09:30 - 16:00.
+    * Gets an exchange with time zone set to "America/New_York" and trading hours 09:30 - 16:00.
+    * Exchanges are immutable, the same instance is returned on every call.
     * 
     * @return Nasdaq exchange
     */
    public static Exchange createNasdaq()
    {
-      return new Exchange("Nasdaq", DateTimeZone.forID("America/New_York"),
-            new LocalTime(9, 30, 0), new LocalTime(16, 0, 0));
+      return NASDAQ;
    }
    
    /**
-    * Creates an exchange with time zone set to "America/New_York" and trading hours 09:30 - 16:00.
+    * Gets an exchange with time zone set to "America/New_York" and trading hours 09:30 - 16:00.
+    * Exchanges are immutable, the same instance is returned on every call.
     * 
     * @return Nyse exchange
     */
    public static Exchange createNyse()
    {
-      return new Exchange("Nyse", DateTimeZone.forID("America/New_York"), new LocalTime(9, 30, 0),
-            new LocalTime(16, 0, 0));
+      return NYSE;
    }
    
    /**
@@ -204,4 +216,36 @@ public final class Exchange implements Comparable<Exchange>
    {
       return timeZone;
    }
+   
+   /**
+    * Get beginning of trading day in the time zone of the exchange.
+    * 
+    * @return beginning of trading day
+    */
+   public LocalTime getTradingStarts()
+   {
+      return tradingStarts;
+   }
+   
+   /**
+    * Get end of trading day in the time zone of the exchange. Trading ends on the next day if the
+    * end is not after the beginning, 00:00 stands for midnight.
+    * 
+    * @return end of trading day
+    */
+   public LocalTime getTradingEnds()
+   {
+      return tradingEnds;
+   }
+   
+   /**
+    * Get date-time formatter of <code>StaticSettings.dateTimeFormat</code> in the time zone of the
+    * exchange. The formatter is shared by all users of the exchange.
+    * 
+    * @return date-time formatter
+    */
+   public DateTimeFormatter getDateTimeFormatter()
+   {
+      return dateTimeFormatter;
+   }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Fixed-point representation of prices. A scaled price is a <code>long</code> holding the price
+ * multiplied by <code>10^decimalPlaces</code>, e.g. 30.25 is stored as 3025 at scale 2. Scaled
+ * prices of the same scale can be added, subtracted and compared without allocating any objects.
+ * <p>
+ * Instances are immutable and shared, use <code>valueOf</code> to get one. Rounding follows
+ * <code>StaticSettings.priceMathContext</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class PriceScale
+{
+   /** Maximum number of decimal places. */
+   public static final int MAX_DECIMAL_PLACES = 18;
+   
+   private static final PriceScale[] instances;
+   static
+   {
+      instances = new PriceScale[MAX_DECIMAL_PLACES + 1];
+      long multiplier = 1;
+      for (int i = 0; i <= MAX_DECIMAL_PLACES; i++)
+      {
+         instances[i] = new PriceScale(i, multiplier);
+         multiplier *= 10;
+      }
+   }
+   
+   private final int decimalPlaces;
+   private final long multiplier;
+   
+   private PriceScale(int decimalPlaces, long multiplier)
+   {
+      this.decimalPlaces = decimalPlaces;
+      this.multiplier = multiplier;
+   }
+   
+   /**
+    * Gets price scale of the specified number of decimal places.
+    * 
+    * @param decimalPlaces
+    *           number of decimal places, 0 to <code>MAX_DECIMAL_PLACES</code>
+    * @return price scale
+    */
+   public static PriceScale valueOf(int decimalPlaces)
+   {
+      if (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES)
+      {
+         throw new InvalidArgumentRuntimeException("decimalPlaces", decimalPlaces,
+               "Must be in range 0 - " + MAX_DECIMAL_PLACES + ".");
+      }
+      return instances[decimalPlaces];
+   }
+   
+   /**
+    * Gets the smallest price scale at which the specified price is exact, but not smaller than the
+    * specified minimum scale.
+    * 
+    * @param price
+    *           price
+    * @param minimum
+    *           minimum scale
+    * @return price scale
+    * @throws InvalidArgumentRuntimeException
+    *            if the price has more than <code>MAX_DECIMAL_PLACES</code> decimal places
+    */
+   public static PriceScale forPrice(BigDecimal price, PriceScale minimum)
+   {
+      if (price.signum() == 0)
+      {
+         return minimum;
+      }
+      int decimalPlaces = price.stripTrailingZeros().scale();
+      if (decimalPlaces > MAX_DECIMAL_PLACES)
+      {
+         throw new InvalidArgumentRuntimeException("price", price,
+               "Has more than " + MAX_DECIMAL_PLACES + " decimal places.");
+      }
+      return decimalPlaces > minimum.decimalPlaces ? instances[decimalPlaces] : minimum;
+   }
+   
+   /**
+    * Gets the finer of two price scales. Prices of both scales are exact at the returned scale.
+    * 
+    * @param scale1
+    *           the first scale
+    * @param scale2
+    *           the second scale
+    * @return the scale of more decimal places
+    */
+   public static PriceScale max(PriceScale scale1, PriceScale scale2)
+   {
+      return scale2.decimalPlaces > scale1.decimalPlaces ? scale2 : scale1;
+   }
+   
+   /**
+    * Converts a price to a scaled price. Extra decimal places are rounded.
+    * 
+    * @param price
+    *           price
+    * @return scaled price
+    */
+   public long toScaled(BigDecimal price)
+   {
+      return toLong(price,
+            price.setScale(decimalPlaces, StaticSettings.priceMathContext.getRoundingMode()));
+   }
+   
+   /**
+    * Converts a price to a scaled price without rounding.
+    * 
+    * @param price
+    *           price
+    * @return scaled price
+    * @throws InvalidArgumentRuntimeException
+    *            if the price has more decimal places than this scale or is out of range
+    */
+   public long toScaledExact(BigDecimal price)
+   {
+      BigDecimal scaled;
+      try
+      {
+         scaled = price.setScale(decimalPlaces, RoundingMode.UNNECESSARY);
+      }
+      catch (ArithmeticException exception)
+      {
+         throw new InvalidArgumentRuntimeException("price", price,
+               "Has more than " + decimalPlaces + " decimal places.");
+      }
+      return toLong(price, scaled);
+   }
+   
+   /**
+    * Converts a scaled price to <code>BigDecimal</code>.
+    * 
+    * @param scaledPrice
+    *           scaled price
+    * @return price with <code>getDecimalPlaces()</code> decimal places
+    */
+   public BigDecimal toBigDecimal(long scaledPrice)
+   {
+      return BigDecimal.valueOf(scaledPrice, decimalPlaces);
+   }
+   
+   /**
+    * Converts a scaled price to <code>double</code>. The result may be inexact.
+    * 
+    * @param scaledPrice
+    *           scaled price
+    * @return price
+    */
+   public double toDouble(long scaledPrice)
+   {
+      return (double)scaledPrice / multiplier;
+   }
+   
+   /**
+    * Converts a scaled price of other scale to this scale. Extra decimal places are rounded.
+    * 
+    * @param scaledPrice
+    *           scaled price
+    * @param scale
+    *           scale of the specified price
+    * @return price scaled to this scale
+    */
+   public long rescale(long scaledPrice, PriceScale scale)
+   {
+      if (scale.decimalPlaces == decimalPlaces)
+      {
+         return scaledPrice;
+      }
+      if (scale.decimalPlaces < decimalPlaces)
+      {
+         long factor = instances[decimalPlaces - scale.decimalPlaces].multiplier;
+         long result = scaledPrice * factor;
+         if (result / factor != scaledPrice)
+         {
+            throw new InvalidArgumentRuntimeException("scaledPrice", scaledPrice,
+                  "Price is out of range of scale " + decimalPlaces + ".");
+         }
+         return result;
+      }
+      long divisor = instances[scale.decimalPlaces - decimalPlaces].multiplier;
+      long result = scaledPrice / divisor;
+      long remainder = Math.abs(scaledPrice % divisor);
+      // Half up, same as StaticSettings.priceMathContext.
+      if (remainder >= divisor - remainder)
+      {
+         result += scaledPrice < 0 ? -1 : 1;
+      }
+      return result;
+   }
+   
+   /**
+    * Converts a scaled price of other scale to this scale without rounding.
+    * 
+    * @param scaledPrice
+    *           scaled price
+    * @param scale
+    *           scale of the specified price
+    * @return price scaled to this scale
+    * @throws InvalidArgumentRuntimeException
+    *            if the price has more decimal places than this scale or is out of range
+    */
+   public long rescaleExact(long scaledPrice, PriceScale scale)
+   {
+      if (scale.decimalPlaces > decimalPlaces
+          && scaledPrice % instances[scale.decimalPlaces - decimalPlaces].multiplier != 0)
+      {
+         throw new InvalidArgumentRuntimeException("scaledPrice", scaledPrice,
+               "Has more than " + decimalPlaces + " decimal places.");
+      }
+      return rescale(scaledPrice, scale);
+   }
+   
+   /**
+    * Multiplies two numbers, throws an exception instead of overflowing.
+    * 
+    * @param x
+    *           the first number
+    * @param y
+    *           the second number
+    * @return product of the numbers
+    * @throws ArithmeticException
+    *            if the result overflows a <code>long</code>
+    */
+   public static long multiplyExact(long x, long y)
+   {
+      long result = x * y;
+      if (x != 0 && (result / x != y || x == -1 && y == Long.MIN_VALUE))
+      {
+         throw new ArithmeticException("long overflow");
+      }
+      return result;
+   }
+   
+   /**
+    * Adds two numbers, throws an exception instead of overflowing.
+    * 
+    * @param x
+    *           the first number
+    * @param y
+    *           the second number
+    * @return sum of the numbers
+    * @throws ArithmeticException
+    *            if the result overflows a <code>long</code>
+    */
+   public static long addExact(long x, long y)
+   {
+      long result = x + y;
+      // Overflow if both arguments have the opposite sign of the result.
+      if (((x ^ result) & (y ^ result)) < 0)
+      {
+         throw new ArithmeticException("long overflow");
+      }
+      return result;
+   }
+   
+   /**
+    * @return number of decimal places
+    */
+   public int getDecimalPlaces()
+   {
+      return decimalPlaces;
+   }
+   
+   /**
+    * @return <code>10^decimalPlaces</code>, the scaled value of 1
+    */
+   public long getMultiplier()
+   {
+      return multiplier;
+   }
+   
+   @Override
+   public String toString()
+   {
+      return "scale " + decimalPlaces;
+   }
+   
+   private long toLong(BigDecimal price, BigDecimal scaled)
+   {
+      if (scaled.unscaledValue().bitLength() > 63)
+      {
+         throw new InvalidArgumentRuntimeException("price", price,
+               "Price is out of range of scale " + decimalPlaces + ".");
+      }
+      return scaled.unscaledValue().longValue();
+   }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Ring buffer between data providers and slow consumers, such as strategies. The bus listens to
+ * trade and quote providers, copies every tick into a pre-allocated slot and returns
+ * immediately. Each consumer runs in its own thread and receives all ticks in the order they were
+ * published.
+ * <p>
+ * The bus has a single producer: all providers feeding the bus must fire their events from the
+ * same thread. If the slowest consumer falls behind by the capacity of the bus, the producer
+ * either drops the new tick and counts it, or waits for free space, depending on
+ * <code>dropWhenFull</code>.
+ * <p>
+ * Consumers receive reused flyweight <code>Trade</code> and <code>Quote</code> instances, which are
+ * valid only until the listener returns. Use <code>Trade.copy()</code> or
+ * <code>Quote.copy()</code> to keep a tick.
+ * <p>
+ * A runtime exception thrown by a listener does not stop its consumer. The exception is counted
+ * and passed to the exception handler of the bus, or to the uncaught exception handler of the
+ * consumer thread if the bus has none, and the consumer continues with the next tick.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see WaitStrategy
+ */
+public final class DataBus implements DataListener
+{
+   private static final byte TRADE = 0;
+   private static final byte QUOTE = 1;
+   
+   private final int capacity;
+   private final int mask;
+   private final WaitStrategy waitStrategy;
+   private final boolean dropWhenFull;
+   
+   // Slots, one array per field. Written by the producer before the cursor is advanced.
+   private final byte[] types;
+   private final Contract[] contracts;
+   private final long[] times;
+   private final PriceScale[] scales;
+   private final long[] prices;
+   private final int[] sizes;
+   private final long[] bidPrices;
+   private final int[] bidSizes;
+   
+   private final List<Consumer> consumers;
+   private final Object lock;
+   /** Sequence of the last published tick. */
+   private volatile long cursor;
+   /** Lowest consumer sequence seen by the producer. */
+   private long gatingSequence;
+   private volatile long droppedCount;
+   private volatile boolean running;
+   private boolean started;
+   private volatile Thread.UncaughtExceptionHandler exceptionHandler;
+   
+   /**
+    * Constructor.
+    * 
+    * @param capacity
+    *           number of slots. Must be a power of two.
+    * @param waitStrategy
+    *           strategy used by the consumers waiting for ticks and by the producer waiting for
+    *           free space
+    * @param dropWhenFull
+    *           true to drop new ticks when the bus is full, false to wait for free space
+    */
+   public DataBus(int capacity, WaitStrategy waitStrategy, boolean dropWhenFull)
+   {
+      if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+      {
+         throw new InvalidArgumentRuntimeException("capacity", capacity,
+               "Must be a power of two.");
+      }
+      if (waitStrategy == null)
+      {
+         throw new InvalidArgumentRuntimeException("waitStrategy", "null");
+      }
+      
+      this.capacity = capacity;
+      this.waitStrategy = waitStrategy;
+      this.dropWhenFull = dropWhenFull;
+      mask = capacity - 1;
+      types = new byte[capacity];
+      contracts = new Contract[capacity];
+      times = new long[capacity];
+      scales = new PriceScale[capacity];
+      prices = new long[capacity];
+      sizes = new int[capacity];
+      bidPrices = new long[capacity];
+      bidSizes = new int[capacity];
+      consumers = new ArrayList<Consumer>();
+      lock = new Object();
+      cursor = -1;
+      gatingSequence = -1;
+      droppedCount = 0;
+      running = false;
+      started = false;
+      exceptionHandler = null;
+   }
+   
+   /**
+    * Adds a consumer. Consumers must be added before the bus is started.
+    * 
+    * @param tradeListener
+    *           listener of the trades, can be null
+    * @param quoteListener
+    *           listener of the quotes, can be null
+    * @return index of the consumer, used to query its lag
+    */
+   public int addConsumer(TradeListener tradeListener, QuoteListener quoteListener)
+   {
+      synchronized (lock)
+      {
+         if (started)
+         {
+            throw new InvalidArgumentRuntimeException("tradeListener",
+                  String.valueOf(tradeListener), "Bus is already started.");
+         }
+         consumers.add(new Consumer(consumers.size(), tradeListener, quoteListener));
+         return consumers.size() - 1;
+      }
+   }
+   
+   /**
+    * Adds a consumer of trades and quotes. Consumers must be added before the bus is started.
+    * 
+    * @param listener
+    *           listener of the trades and quotes
+    * @return index of the consumer, used to query its lag
+    */
+   public int addConsumer(DataListener listener)
+   {
+      return addConsumer(listener, listener);
+   }
+   
+   /**
+    * Sets the handler of runtime exceptions thrown by the listeners. The handler is called on the
+    * consumer thread.
+    * 
+    * @param exceptionHandler
+    *           exception handler, null to use the uncaught exception handler of the consumer
+    *           thread
+    */
+   public void setExceptionHandler(Thread.UncaughtExceptionHandler exceptionHandler)
+   {
+      this.exceptionHandler = exceptionHandler;
+   }
+   
+   /**
+    * Starts consumer threads.
+    */
+   public void start()
+   {
+      synchronized (lock)
+      {
+         if (started)
+         {
+            return;
+         }
+         started = true;
+         running = true;
+         for (Consumer consumer : consumers)
+         {
+            consumer.thread.start();
+         }
+      }
+   }
+   
+   /**
+    * Stops consumer threads. Ticks published before this call are delivered before the threads
+    * exit. Waits for all consumer threads to finish.
+    * 
+    * @throws InterruptedException
+    *            if interrupted while waiting for consumer threads
+    */
+   public void stop() throws InterruptedException
+   {
+      running = false;
+      for (Consumer consumer : consumers)
+      {
+         consumer.thread.join();
+      }
+   }
+   
+   /**
+    * Publishes a trade to the consumers. Called by trade providers on the producer thread.
+    * 
+    * @param event
+    *           trade event
+    */
+   @Override
+   public void tradeReceived(TradeEvent event)
+   {
+      Trade trade = event.getTrade();
+      Contract contract = trade.getContract();
+      long sequence = cursor + 1;
+      if (!claim(sequence))
+      {
+         return;
+      }
+      int index = (int)sequence & mask;
+      types[index] = TRADE;
+      contracts[index] = contract;
+      times[index] = trade.getTimeMillis();
+      PriceScale scale = getScale(contract, trade.getPriceScale());
+      scales[index] = scale;
+      prices[index] = scale.rescale(trade.getScaledPrice(), trade.getPriceScale());
+      sizes[index] = trade.getSize();
+      cursor = sequence;
+   }
+   
+   /**
+    * Publishes a quote to the consumers. Called by quote providers on the producer thread.
+    * 
+    * @param event
+    *           quote event
+    */
+   @Override
+   public void quoteReceived(QuoteEvent event)
+   {
+      Quote quote = event.getQuote();
+      Contract contract = quote.getContract();
+      long sequence = cursor + 1;
+      if (!claim(sequence))
+      {
+         return;
+      }
+      int index = (int)sequence & mask;
+      types[index] = QUOTE;
+      contracts[index] = contract;
+      times[index] = quote.getTimeMillis();
+      PriceScale scale = getScale(contract, quote.getPriceScale());
+      scales[index] = scale;
+      prices[index] = scale.rescale(quote.getScaledAskPrice(), quote.getPriceScale());
+      sizes[index] = quote.getAskSize();
+      bidPrices[index] = scale.rescale(quote.getScaledBidPrice(), quote.getPriceScale());
+      bidSizes[index] = quote.getBidSize();
+      cursor = sequence;
+   }
+   
+   /**
+    * Gets the number of ticks published but not yet processed by the consumer.
+    * 
+    * @param consumer
+    *           index of the consumer
+    * @return lag of the consumer in ticks
+    */
+   public long getLag(int consumer)
+   {
+      if (consumer < 0 || consumer >= consumers.size())
+      {
+         throw new InvalidArgumentRuntimeException("consumer", consumer,
+               "No such consumer.");
+      }
+      return cursor - consumers.get(consumer).sequence;
+   }
+   
+   /**
+    * Gets the number of ticks the listeners of the consumer failed to process by throwing an
+    * exception.
+    * 
+    * @param consumer
+    *           index of the consumer
+    * @return number of failed ticks
+    */
+   public long getFailedCount(int consumer)
+   {
+      if (consumer < 0 || consumer >= consumers.size())
+      {
+         throw new InvalidArgumentRuntimeException("consumer", consumer,
+               "No such consumer.");
+      }
+      return consumers.get(consumer).failedCount;
+   }
+   
+   /**
+    * @return number of ticks dropped because the bus was full
+    */
+   public long getDroppedCount()
+   {
+      return droppedCount;
+   }
+   
+   /**
+    * @return number of ticks published
+    */
+   public long getPublishedCount()
+   {
+      return cursor + 1;
+   }
+   
+   /**
+    * @return number of slots
+    */
+   public int getCapacity()
+   {
+      return capacity;
+   }
+   
+   /**
+    * @return wait strategy of the bus
+    */
+   public WaitStrategy getWaitStrategy()
+   {
+      return waitStrategy;
+   }
+   
+   /**
+    * Checks if the slot of the specified sequence is free, waits if necessary.
+    * 
+    * @param sequence
+    *           sequence to be published
+    * @return true if the slot can be written, false if the tick is dropped
+    */
+   private boolean claim(long sequence)
+   {
+      long wrapPoint = sequence - capacity;
+      while (wrapPoint > gatingSequence)
+      {
+         gatingSequence = getMinimumSequence(sequence - 1);
+         if (wrapPoint <= gatingSequence)
+         {
+            break;
+         }
+         if (dropWhenFull || !running)
+         {
+            droppedCount++;
+            return false;
+         }
+         waitStrategy.idle();
+      }
+      return true;
+   }
+   
+   /**
+    * Gets the scale a tick is published at: the price scale of the contract, or the scale of the
+    * tick if it is more precise, so prices are never rounded.
+    * 
+    * @param contract
+    *           contract of the tick
+    * @param tickScale
+    *           price scale of the tick
+    * @return scale of the published prices
+    */
+   private static PriceScale getScale(Contract contract, PriceScale tickScale)
+   {
+      return PriceScale.max(contract.getPriceScale(), tickScale);
+   }
+   
+   private long getMinimumSequence(long minimum)
+   {
+      for (int i = 0; i < consumers.size(); i++)
+      {
+         minimum = Math.min(minimum, consumers.get(i).sequence);
+      }
+      return minimum;
+   }
+   
+   /**
+    * Consumer thread with its own sequence and reused tick objects.
+    */
+   private final class Consumer implements Runnable
+   {
+      private final TradeListener tradeListener;
+      private final QuoteListener quoteListener;
+      private final Thread thread;
+      /** Sequence of the last processed tick. */
+      private volatile long sequence;
+      private volatile long failedCount;
+      private Trade trade;
+      private Quote quote;
+      private TradeEvent tradeEvent;
+      private QuoteEvent quoteEvent;
+      
+      private Consumer(int index, TradeListener tradeListener, QuoteListener quoteListener)
+      {
+         this.tradeListener = tradeListener;
+         this.quoteListener = quoteListener;
+         sequence = -1;
+         failedCount = 0;
+         thread = new Thread(this, "DataBus consumer " + index);
+         thread.setDaemon(true);
+      }
+      
+      @Override
+      public void run()
+      {
+         long next = sequence + 1;
+         while (true)
+         {
+            boolean stopping = !running;
+            long available = cursor;
+            if (next <= available)
+            {
+               for (; next <= available; next++)
+               {
+                  try
+                  {
+                     deliver((int)next & mask);
+                  }
+                  catch (RuntimeException exception)
+                  {
+                     // A failed tick is skipped, the producer must not wait for a dead consumer.
+                     failedCount++;
+                     Thread.UncaughtExceptionHandler handler = exceptionHandler;
+                     if (handler == null)
+                     {
+                        handler = thread.getUncaughtExceptionHandler();
+                     }
+                     handler.uncaughtException(thread, exception);
+                  }
+               }
+               sequence = available;
+            }
+            else if (stopping)
+            {
+               return;
+            }
+            else
+            {
+               waitStrategy.idle();
+            }
+         }
+      }
+      
+      private void deliver(int index)
+      {
+         if (types[index] == TRADE)
+         {
+            if (tradeListener == null)
+            {
+               return;
+            }
+            if (trade == null)
+            {
+               trade = new Trade(contracts[index], prices[index], sizes[index], times[index]);
+               tradeEvent = new TradeEvent(DataBus.this, trade);
+            }
+            trade.set(contracts[index], prices[index], scales[index], sizes[index], times[index]);
+            tradeListener.tradeReceived(tradeEvent);
+         }
+         else
+         {
+            if (quoteListener == null)
+            {
+               return;
+            }
+            if (quote == null)
+            {
+               quote = new Quote(contracts[index], prices[index], sizes[index], bidPrices[index],
+                     bidSizes[index], times[index]);
+               quoteEvent = new QuoteEvent(DataBus.this, quote);
+            }
+            quote.set(contracts[index], prices[index], sizes[index], bidPrices[index],
+                  bidSizes[index], scales[index], times[index]);
+            quoteListener.quoteReceived(quoteEvent);
+         }
+      }
+   }
+}
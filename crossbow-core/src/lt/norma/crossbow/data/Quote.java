@@ -20,34 +20,43 @@ package lt.norma.crossbow.data;
 import java.math.BigDecimal;
 
 import lt.norma.crossbow.contracts.Contract;
-import lt.norma.crossbow.core.StaticSettings;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 
 /**
- * Quote data.
+ * Quote data. Prices are stored as fixed-point numbers scaled to the price scale of the contract
+ * and the time as milliseconds, <code>BigDecimal</code> prices and <code>DateTime</code> are
+ * created on demand. <code>BigDecimal</code> prices with more decimal places than the contract are
+ * stored at their own scale, they are never rounded.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
 public final class Quote
 {
-   /** Time of the quote. */
-   private final DateTime time;
+   /** Time of the quote in milliseconds since 1970-01-01T00:00:00Z. */
+   private long time;
+   /** Time of the quote. Created on demand if the quote was constructed from milliseconds. */
+   private DateTime dateTime;
    /** Contract specification. */
-   private final Contract contract;
-   /** Ask price. */
-   private final BigDecimal askPrice;
+   private Contract contract;
+   /** Ask price. Created on demand if the quote was constructed from scaled prices. */
+   private BigDecimal askPrice;
+   /** Ask price, scaled to <code>priceScale</code>. */
+   private long scaledAskPrice;
    /** Ask size. */
-   private final int askSize;
-   /** Bid price. */
-   private final BigDecimal bidPrice;
+   private int askSize;
+   /** Bid price. Created on demand if the quote was constructed from scaled prices. */
+   private BigDecimal bidPrice;
+   /** Bid price, scaled to <code>priceScale</code>. */
+   private long scaledBidPrice;
+   /** Scale of the prices. */
+   private PriceScale priceScale;
    /** Bid size. */
-   private final int bidSize;
-   /** Maturity date formatter. */
-   private final DateTimeFormatter timeFormatter;
+   private int bidSize;
+   /** True if the instance is reused by a quote provider in flyweight mode. */
+   private boolean flyweight;
    
    /**
     * Constructor.
@@ -90,10 +99,193 @@ public final class Quote
       this.askSize = askSize;
       this.bidPrice = bidPrice;
       this.bidSize = bidSize;
-      this.time = time;
+      this.time = time.getMillis();
+      dateTime = time;
+      priceScale =
+            PriceScale.forPrice(bidPrice, PriceScale.forPrice(askPrice, contract.getPriceScale()));
+      scaledAskPrice = priceScale.toScaledExact(askPrice);
+      scaledBidPrice = priceScale.toScaledExact(bidPrice);
+      flyweight = false;
+   }
+   
+   /**
+    * Constructor. Creates a quote from fixed-point prices without allocating
+    * <code>BigDecimal</code> objects.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledAskPrice
+    *           ask price, scaled to the price scale of the contract
+    * @param askSize
+    *           ask size
+    * @param scaledBidPrice
+    *           bid price, scaled to the price scale of the contract
+    * @param bidSize
+    *           bid size
+    * @param time
+    *           time of the quote
+    */
+   public Quote(Contract contract, long scaledAskPrice, int askSize, long scaledBidPrice,
+         int bidSize, DateTime time)
+   {
+      this(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize, getMillis(time));
+      dateTime = time;
+   }
+   
+   /**
+    * Constructor. Creates a quote from fixed-point prices and a time in milliseconds without
+    * allocating <code>BigDecimal</code> or <code>DateTime</code> objects.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledAskPrice
+    *           ask price, scaled to the price scale of the contract
+    * @param askSize
+    *           ask size
+    * @param scaledBidPrice
+    *           bid price, scaled to the price scale of the contract
+    * @param bidSize
+    *           bid size
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public Quote(Contract contract, long scaledAskPrice, int askSize, long scaledBidPrice,
+         int bidSize, long time)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", String.valueOf(contract));
+      }
       
-      timeFormatter = DateTimeFormat.forPattern(StaticSettings.dateTimeFormat).withZone(
-            contract.getExchange().getTimeZone());
+      this.contract = contract;
+      this.scaledAskPrice = scaledAskPrice;
+      this.askSize = askSize;
+      this.scaledBidPrice = scaledBidPrice;
+      this.bidSize = bidSize;
+      this.time = time;
+      priceScale = contract.getPriceScale();
+      askPrice = null;
+      bidPrice = null;
+      dateTime = null;
+      flyweight = false;
+   }
+   
+   /**
+    * Constructor. Creates a quote from fixed-point prices of the specified scale, which may be
+    * finer than the price scale of the contract.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledAskPrice
+    *           ask price, scaled to <code>priceScale</code>
+    * @param askSize
+    *           ask size
+    * @param scaledBidPrice
+    *           bid price, scaled to <code>priceScale</code>
+    * @param bidSize
+    *           bid size
+    * @param priceScale
+    *           scale of the prices
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public Quote(Contract contract, long scaledAskPrice, int askSize, long scaledBidPrice,
+         int bidSize, PriceScale priceScale, long time)
+   {
+      this(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize, time);
+      if (priceScale == null)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", "null");
+      }
+      this.priceScale = priceScale;
+   }
+   
+   /**
+    * Overwrites data of a reused quote. Used by <code>QuoteProvider</code> in flyweight mode.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledAskPrice
+    *           ask price, scaled to the price scale of the contract
+    * @param askSize
+    *           ask size
+    * @param scaledBidPrice
+    *           bid price, scaled to the price scale of the contract
+    * @param bidSize
+    *           bid size
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    */
+   void set(Contract contract, long scaledAskPrice, int askSize, long scaledBidPrice, int bidSize,
+         long time)
+   {
+      set(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize, contract.getPriceScale(),
+            time);
+   }
+   
+   /**
+    * Overwrites data of a reused quote with prices of the specified scale. Used by
+    * <code>DataBus</code> and <code>QuoteProvider</code> in flyweight mode.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledAskPrice
+    *           ask price, scaled to <code>priceScale</code>
+    * @param askSize
+    *           ask size
+    * @param scaledBidPrice
+    *           bid price, scaled to <code>priceScale</code>
+    * @param bidSize
+    *           bid size
+    * @param priceScale
+    *           scale of the prices
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    */
+   void set(Contract contract, long scaledAskPrice, int askSize, long scaledBidPrice, int bidSize,
+         PriceScale priceScale, long time)
+   {
+      this.contract = contract;
+      this.scaledAskPrice = scaledAskPrice;
+      this.askSize = askSize;
+      this.scaledBidPrice = scaledBidPrice;
+      this.bidSize = bidSize;
+      this.time = time;
+      this.priceScale = priceScale;
+      askPrice = null;
+      bidPrice = null;
+      dateTime = null;
+      flyweight = true;
+   }
+   
+   /**
+    * Gets a quote, which can be safely kept after the listener returns. Listeners of a
+    * <code>QuoteProvider</code> in flyweight mode must copy every quote they keep, because the
+    * provider overwrites the same instance with the next quote.
+    * 
+    * @return a new copy of this quote if it is a reused flyweight instance, this quote otherwise
+    */
+   public Quote copy()
+   {
+      if (!flyweight)
+      {
+         return this;
+      }
+      Quote copy = new Quote(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize, time);
+      copy.priceScale = priceScale;
+      copy.askPrice = askPrice;
+      copy.bidPrice = bidPrice;
+      copy.dateTime = dateTime;
+      return copy;
+   }
+   
+   /**
+    * @return true if this instance is reused by a quote provider in flyweight mode, false if the
+    *         quote is immutable
+    */
+   public boolean isFlyweight()
+   {
+      return flyweight;
    }
    
    /**
@@ -103,17 +295,29 @@ public final class Quote
     */
    public BigDecimal spread()
    {
-      return askPrice.subtract(bidPrice);
+      return getAskPrice().subtract(getBidPrice());
    }
    
    /**
-    * Checks if bid and ask prices are crossed {@literal (AskPrice < BidPrice)} .
+    * Calculates spread of the quote as a fixed-point number. Spread = AskPrice - BidPrice.
+    * 
+    * @return size of spread, scaled to <code>getPriceScale()</code>. Value may be negative in case
+    *         of a crossed market.
+    */
+   public long scaledSpread()
+   {
+      return scaledAskPrice - scaledBidPrice;
+   }
+   
+   /**
+    * Checks if bid and ask prices are crossed {@literal (AskPrice < BidPrice)} . Prices are
+    * compared as fixed-point numbers.
     * 
     * @return true if ask price is less than bid price, false otherwise.
     */
    public boolean isCrossed()
    {
-      return askPrice.compareTo(bidPrice) < 0;
+      return scaledAskPrice < scaledBidPrice;
    }
    
    /**
@@ -127,9 +331,9 @@ public final class Quote
    public String toString()
    {
       return contract.toString() + "  ask: " + askSize + " @ "
-             + contract.getCurrency().formatNumber(askPrice) + "  bid: " + bidSize + " @ "
-             + contract.getCurrency().formatNumber(bidPrice) + "  [" + time.toString(timeFormatter)
-             + "]";
+             + contract.getCurrency().formatNumber(getAskPrice()) + "  bid: " + bidSize + " @ "
+             + contract.getCurrency().formatNumber(getBidPrice()) + "  ["
+             + contract.getExchange().getDateTimeFormatter().print(time) + "]";
    }
    
    /**
@@ -149,9 +353,23 @@ public final class Quote
     */
    public BigDecimal getAskPrice()
    {
+      if (askPrice == null)
+      {
+         askPrice = priceScale.toBigDecimal(scaledAskPrice);
+      }
       return askPrice;
    }
    
+   /**
+    * Get ask price as a fixed-point number.
+    * 
+    * @return ask price, scaled to <code>getPriceScale()</code>
+    */
+   public long getScaledAskPrice()
+   {
+      return scaledAskPrice;
+   }
+   
    /**
     * Get ask size.
     * 
@@ -169,9 +387,34 @@ public final class Quote
     */
    public BigDecimal getBidPrice()
    {
+      if (bidPrice == null)
+      {
+         bidPrice = priceScale.toBigDecimal(scaledBidPrice);
+      }
       return bidPrice;
    }
    
+   /**
+    * Get bid price as a fixed-point number.
+    * 
+    * @return bid price, scaled to <code>getPriceScale()</code>
+    */
+   public long getScaledBidPrice()
+   {
+      return scaledBidPrice;
+   }
+   
+   /**
+    * Get scale of the fixed-point prices. It is the price scale of the contract at the time the
+    * quote was created, or the scale of the <code>BigDecimal</code> prices if it is larger.
+    * 
+    * @return price scale
+    */
+   public PriceScale getPriceScale()
+   {
+      return priceScale;
+   }
+   
    /**
     * Get bid size.
     * 
@@ -183,12 +426,36 @@ public final class Quote
    }
    
    /**
-    * Gets time of the quote.
+    * Gets time of the quote. If the quote was constructed from milliseconds, the time is created
+    * in the time zone of the exchange.
     * 
     * @return time of the quote
     */
    public DateTime getTime()
+   {
+      if (dateTime == null)
+      {
+         dateTime = new DateTime(time, contract.getExchange().getTimeZone());
+      }
+      return dateTime;
+   }
+   
+   /**
+    * Gets time of the quote without creating a <code>DateTime</code>.
+    * 
+    * @return time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public long getTimeMillis()
    {
       return time;
    }
+   
+   private static long getMillis(DateTime time)
+   {
+      if (time == null)
+      {
+         throw new InvalidArgumentRuntimeException("time", String.valueOf(time));
+      }
+      return time.getMillis();
+   }
 }
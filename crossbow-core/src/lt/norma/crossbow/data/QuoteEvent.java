@@ -27,7 +27,7 @@ import java.util.EventObject;
  */
 public final class QuoteEvent extends EventObject
 {
-   private final Quote quote;
+   private Quote quote;
    
    /**
     * Constructor.
@@ -50,4 +50,15 @@ public final class QuoteEvent extends EventObject
    {
       return quote;
    }
+   
+   /**
+    * Replaces quote data of a reused event. Used by providers in flyweight mode.
+    * 
+    * @param quote
+    *           quote data
+    */
+   void setQuote(Quote quote)
+   {
+      this.quote = quote;
+   }
 }
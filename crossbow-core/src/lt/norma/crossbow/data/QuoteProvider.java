@@ -17,19 +17,39 @@
 
 package lt.norma.crossbow.data;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 /**
  * Base class for all quote data providers.
+ * <p>
+ * Listeners are stored in a copy-on-write array. Events are dispatched without locking, adding or
+ * removing a listener during dispatch takes effect from the next event. Providers may work in
+ * flyweight mode, see <code>setFlyweight</code>.
+ * <p>
+ * A listener may subscribe to quotes of a single contract, see
+ * <code>addListener(QuoteListener, Contract)</code>. Such listeners are kept in a table keyed by
+ * contract and receive only the quotes of their contract.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
 public abstract class QuoteProvider
 {
-   private final List<QuoteListener> listeners = new ArrayList<QuoteListener>();
    private final Object lock = new Object();
+   /** Snapshot of the listeners. Replaced on every change, never modified. */
+   private volatile QuoteListener[] listeners = new QuoteListener[0];
+   /** Snapshots of the listeners subscribed to single contracts, by contract. */
+   private final ConcurrentHashMap<Contract, QuoteListener[]> contractListeners =
+         new ConcurrentHashMap<Contract, QuoteListener[]>();
+   /** Guards reused objects of the flyweight mode. */
+   private final Object flyweightLock = new Object();
+   private volatile boolean flyweight = false;
+   private Quote reusedQuote = null;
+   private QuoteEvent reusedEvent = null;
    
    /**
     * Adds quote listener.
@@ -41,7 +61,9 @@ public abstract class QuoteProvider
    {
       synchronized (lock)
       {
-         listeners.add(listener);
+         QuoteListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+         updated[listeners.length] = listener;
+         listeners = updated;
       }
    }
    
@@ -55,10 +77,97 @@ public abstract class QuoteProvider
    {
       synchronized (lock)
       {
-         listeners.remove(listener);
+         listeners = remove(listeners, listener);
+      }
+   }
+   
+   /**
+    * Adds quote listener, which receives quotes of the specified contract only. Quotes of other
+    * contracts are not dispatched to the listener, so it does not need to filter them. A listener
+    * added both by this method and by <code>addListener(QuoteListener)</code> receives
+    * quotes of the contract twice.
+    * 
+    * @param listener
+    *           quote listener
+    * @param contract
+    *           contract of the quotes to be received
+    */
+   public final void addListener(QuoteListener listener, Contract contract)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      
+      synchronized (lock)
+      {
+         QuoteListener[] current = contractListeners.get(contract);
+         if (current == null)
+         {
+            current = new QuoteListener[0];
+         }
+         QuoteListener[] updated = Arrays.copyOf(current, current.length + 1);
+         updated[current.length] = listener;
+         contractListeners.put(contract, updated);
+      }
+   }
+   
+   /**
+    * Removes quote listener subscribed to the specified contract.
+    * 
+    * @param listener
+    *           quote listener
+    * @param contract
+    *           contract the listener is subscribed to
+    */
+   public final void removeListener(QuoteListener listener, Contract contract)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      
+      synchronized (lock)
+      {
+         QuoteListener[] current = contractListeners.get(contract);
+         if (current != null)
+         {
+            QuoteListener[] updated = remove(current, listener);
+            if (updated.length == 0)
+            {
+               contractListeners.remove(contract);
+            }
+            else
+            {
+               contractListeners.put(contract, updated);
+            }
+         }
       }
    }
    
+   /**
+    * Enables or disables flyweight mode. In flyweight mode the provider reuses a single
+    * <code>QuoteEvent</code> for all events and a single <code>Quote</code> for quotes fired from
+    * primitive data. Such objects are valid only until the listener returns. Listeners must not
+    * keep references to them, <code>Quote.copy()</code> must be used to keep a quote. Events of a
+    * flyweight provider are dispatched one at a time. Flyweight mode is disabled by default.
+    * 
+    * @param flyweight
+    *           true to reuse event and quote objects, false to create new ones for every event
+    */
+   public final void setFlyweight(boolean flyweight)
+   {
+      this.flyweight = flyweight;
+   }
+   
+   /**
+    * @return true if the provider works in flyweight mode
+    */
+   public final boolean isFlyweight()
+   {
+      return flyweight;
+   }
+   
    /**
     * Fires quote event. Call this method from concrete quote providers.
     * 
@@ -67,15 +176,142 @@ public abstract class QuoteProvider
     */
    protected final void fireQuoteEvent(Quote quote)
    {
-      QuoteEvent quoteEvent = new QuoteEvent(this, quote);
+      if (flyweight)
+      {
+         synchronized (flyweightLock)
+         {
+            dispatch(reuseEvent(quote));
+         }
+      }
+      else
+      {
+         dispatch(new QuoteEvent(this, quote));
+      }
+   }
+   
+   /**
+    * Fires quote event from primitive data. In flyweight mode the quote is written into a reused
+    * instance, no objects are allocated. Call this method from concrete quote providers.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledAskPrice
+    *           ask price, scaled to the price scale of the contract
+    * @param askSize
+    *           ask size
+    * @param scaledBidPrice
+    *           bid price, scaled to the price scale of the contract
+    * @param bidSize
+    *           bid size
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    */
+   protected final void fireQuoteEvent(Contract contract, long scaledAskPrice, int askSize,
+         long scaledBidPrice, int bidSize, long time)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      fireQuoteEvent(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize,
+            contract.getPriceScale(), time);
+   }
+   
+   /**
+    * Fires quote event from primitive data with prices of the specified scale, which may be finer
+    * than the price scale of the contract. In flyweight mode the quote is written into a reused
+    * instance, no objects are allocated. Call this method from concrete quote providers.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledAskPrice
+    *           ask price, scaled to <code>priceScale</code>
+    * @param askSize
+    *           ask size
+    * @param scaledBidPrice
+    *           bid price, scaled to <code>priceScale</code>
+    * @param bidSize
+    *           bid size
+    * @param priceScale
+    *           scale of the prices
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    */
+   protected final void fireQuoteEvent(Contract contract, long scaledAskPrice, int askSize,
+         long scaledBidPrice, int bidSize, PriceScale priceScale, long time)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      if (priceScale == null)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", "null");
+      }
       
-      synchronized (lock)
+      if (flyweight)
+      {
+         synchronized (flyweightLock)
+         {
+            if (reusedQuote == null)
+            {
+               reusedQuote = new Quote(contract, scaledAskPrice, askSize, scaledBidPrice,
+                     bidSize, time);
+            }
+            reusedQuote.set(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize,
+                  priceScale, time);
+            dispatch(reuseEvent(reusedQuote));
+         }
+      }
+      else
+      {
+         dispatch(new QuoteEvent(this, new Quote(contract, scaledAskPrice, askSize,
+               scaledBidPrice, bidSize, priceScale, time)));
+      }
+   }
+   
+   private QuoteEvent reuseEvent(Quote quote)
+   {
+      if (reusedEvent == null)
+      {
+         reusedEvent = new QuoteEvent(this, quote);
+      }
+      reusedEvent.setQuote(quote);
+      return reusedEvent;
+   }
+   
+   private void dispatch(QuoteEvent event)
+   {
+      QuoteListener[] snapshot = listeners;
+      for (int i = 0; i < snapshot.length; i++)
+      {
+         snapshot[i].quoteReceived(event);
+      }
+      if (!contractListeners.isEmpty())
+      {
+         snapshot = contractListeners.get(event.getQuote().getContract());
+         if (snapshot != null)
+         {
+            for (int i = 0; i < snapshot.length; i++)
+            {
+               snapshot[i].quoteReceived(event);
+            }
+         }
+      }
+   }
+   
+   private static QuoteListener[] remove(QuoteListener[] array, QuoteListener listener)
+   {
+      for (int i = 0; i < array.length; i++)
       {
-         Iterator<QuoteListener> iterator = listeners.iterator();
-         while (iterator.hasNext())
+         if (array[i] == null ? listener == null : array[i].equals(listener))
          {
-            ((QuoteListener)iterator.next()).quoteReceived(quoteEvent);
+            QuoteListener[] updated = new QuoteListener[array.length - 1];
+            System.arraycopy(array, 0, updated, 0, i);
+            System.arraycopy(array, i + 1, updated, i, updated.length - i);
+            return updated;
          }
       }
+      return array;
    }
 }
@@ -20,16 +20,19 @@ package lt.norma.crossbow.data;
 import java.math.BigDecimal;
 
 import lt.norma.crossbow.contracts.Contract;
-import lt.norma.crossbow.core.StaticSettings;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 
 /**
  * Trade data. Together with <code>Quote</code> carries information about events on the exchange.
  * Usually trade data is delivered by <code>TradeEvent</code>.
+ * <p>
+ * The price is stored as a fixed-point number scaled to the price scale of the contract and the
+ * time as milliseconds, <code>BigDecimal</code> price and <code>DateTime</code> are created on
+ * demand. A <code>BigDecimal</code> price with more decimal places than the contract is stored at
+ * its own scale, it is never rounded.
  * 
  * @author Vilius Normantas <code@norma.lt>
  * @see Quote
@@ -37,16 +40,22 @@ import org.joda.time.format.DateTimeFormatter;
  */
 public final class Trade
 {
-   /** Time of the quote. */
-   private final DateTime time;
+   /** Time of the trade in milliseconds since 1970-01-01T00:00:00Z. */
+   private long time;
+   /** Time of the trade. Created on demand if the trade was constructed from milliseconds. */
+   private DateTime dateTime;
    /** Contract specification. */
-   private final Contract contract;
-   /** Price of the trade. */
-   private final BigDecimal price;
+   private Contract contract;
+   /** Price of the trade. Created on demand if the trade was constructed from a scaled price. */
+   private BigDecimal price;
+   /** Price of the trade, scaled to <code>priceScale</code>. */
+   private long scaledPrice;
+   /** Scale of the price. */
+   private PriceScale priceScale;
    /** Size of the trade. */
-   private final int size;
-   /** Maturity date formatter. */
-   private final DateTimeFormatter timeFormatter;
+   private int size;
+   /** True if the instance is reused by a trade provider in flyweight mode. */
+   private boolean flyweight;
    
    /**
     * Constructor.
@@ -77,10 +86,157 @@ public final class Trade
       this.contract = contract;
       this.price = price;
       this.size = size;
+      this.time = time.getMillis();
+      dateTime = time;
+      priceScale = PriceScale.forPrice(price, contract.getPriceScale());
+      scaledPrice = priceScale.toScaledExact(price);
+      flyweight = false;
+   }
+   
+   /**
+    * Constructor. Creates a trade from a fixed-point price without allocating a
+    * <code>BigDecimal</code>.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledPrice
+    *           price of the trade, scaled to the price scale of the contract
+    * @param size
+    *           size of the trade
+    * @param time
+    *           time of the trade
+    */
+   public Trade(Contract contract, long scaledPrice, int size, DateTime time)
+   {
+      this(contract, scaledPrice, size, getMillis(time));
+      dateTime = time;
+   }
+   
+   /**
+    * Constructor. Creates a trade from a fixed-point price and a time in milliseconds without
+    * allocating <code>BigDecimal</code> or <code>DateTime</code> objects.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledPrice
+    *           price of the trade, scaled to the price scale of the contract
+    * @param size
+    *           size of the trade
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public Trade(Contract contract, long scaledPrice, int size, long time)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", String.valueOf(contract));
+      }
+      this.contract = contract;
+      this.scaledPrice = scaledPrice;
+      this.size = size;
+      this.time = time;
+      priceScale = contract.getPriceScale();
+      price = null;
+      dateTime = null;
+      flyweight = false;
+   }
+   
+   /**
+    * Constructor. Creates a trade from a fixed-point price of the specified scale, which may be
+    * finer than the price scale of the contract.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledPrice
+    *           price of the trade, scaled to <code>priceScale</code>
+    * @param priceScale
+    *           scale of the price
+    * @param size
+    *           size of the trade
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public Trade(Contract contract, long scaledPrice, PriceScale priceScale, int size, long time)
+   {
+      this(contract, scaledPrice, size, time);
+      if (priceScale == null)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", "null");
+      }
+      this.priceScale = priceScale;
+   }
+   
+   /**
+    * Overwrites data of a reused trade. Used by <code>TradeProvider</code> in flyweight mode.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledPrice
+    *           price of the trade, scaled to the price scale of the contract
+    * @param size
+    *           size of the trade
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    */
+   void set(Contract contract, long scaledPrice, int size, long time)
+   {
+      set(contract, scaledPrice, contract.getPriceScale(), size, time);
+   }
+   
+   /**
+    * Overwrites data of a reused trade with a price of the specified scale. Used by
+    * <code>DataBus</code> and <code>TradeProvider</code> in flyweight mode.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledPrice
+    *           price of the trade, scaled to <code>priceScale</code>
+    * @param priceScale
+    *           scale of the price
+    * @param size
+    *           size of the trade
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    */
+   void set(Contract contract, long scaledPrice, PriceScale priceScale, int size, long time)
+   {
+      this.contract = contract;
+      this.scaledPrice = scaledPrice;
+      this.size = size;
       this.time = time;
-      timeFormatter =
-            DateTimeFormat.forPattern(StaticSettings.dateTimeFormat).withZone(
-            contract.getExchange().getTimeZone());
+      this.priceScale = priceScale;
+      price = null;
+      dateTime = null;
+      flyweight = true;
+   }
+   
+   /**
+    * Gets a trade, which can be safely kept after the listener returns. Listeners of a
+    * <code>TradeProvider</code> in flyweight mode must copy every trade they keep, because the
+    * provider overwrites the same instance with the next trade.
+    * 
+    * @return a new copy of this trade if it is a reused flyweight instance, this trade otherwise
+    */
+   public Trade copy()
+   {
+      if (!flyweight)
+      {
+         return this;
+      }
+      Trade copy = new Trade(contract, scaledPrice, size, time);
+      copy.priceScale = priceScale;
+      copy.price = price;
+      copy.dateTime = dateTime;
+      return copy;
+   }
+   
+   /**
+    * @return true if this instance is reused by a trade provider in flyweight mode, false if the
+    *         trade is immutable
+    */
+   public boolean isFlyweight()
+   {
+      return flyweight;
    }
    
    /**
@@ -93,8 +249,8 @@ public final class Trade
    @Override
    public String toString()
    {
-      return contract.toString() + "  " + size + " @ " + price + "  ["
-             + time.toString(timeFormatter) + "]";
+      return contract.toString() + "  " + size + " @ " + getPrice() + "  ["
+             + contract.getExchange().getDateTimeFormatter().print(time) + "]";
    }
    
    /**
@@ -114,9 +270,34 @@ public final class Trade
     */
    public BigDecimal getPrice()
    {
+      if (price == null)
+      {
+         price = priceScale.toBigDecimal(scaledPrice);
+      }
       return price;
    }
    
+   /**
+    * Get trade price as a fixed-point number.
+    * 
+    * @return trade price, scaled to <code>getPriceScale()</code>
+    */
+   public long getScaledPrice()
+   {
+      return scaledPrice;
+   }
+   
+   /**
+    * Get scale of the fixed-point price. It is the price scale of the contract at the time the
+    * trade was created, or the scale of the <code>BigDecimal</code> price if it is larger.
+    * 
+    * @return price scale
+    */
+   public PriceScale getPriceScale()
+   {
+      return priceScale;
+   }
+   
    /**
     * Get trade size.
     * 
@@ -128,12 +309,36 @@ public final class Trade
    }
    
    /**
-    * Gets time of the quote.
+    * Gets time of the quote. If the trade was constructed from milliseconds, the time is created
+    * in the time zone of the exchange.
     * 
     * @return time of the quote
     */
    public DateTime getTime()
+   {
+      if (dateTime == null)
+      {
+         dateTime = new DateTime(time, contract.getExchange().getTimeZone());
+      }
+      return dateTime;
+   }
+   
+   /**
+    * Gets time of the trade without creating a <code>DateTime</code>.
+    * 
+    * @return time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public long getTimeMillis()
    {
       return time;
    }
+   
+   private static long getMillis(DateTime time)
+   {
+      if (time == null)
+      {
+         throw new InvalidArgumentRuntimeException("time", String.valueOf(time));
+      }
+      return time.getMillis();
+   }
 }
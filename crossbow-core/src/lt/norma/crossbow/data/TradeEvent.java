@@ -27,7 +27,7 @@ import java.util.EventObject;
  */
 public final class TradeEvent extends EventObject
 {
-   private final Trade trade;
+   private Trade trade;
    
    /**
     * Constructor.
@@ -50,4 +50,15 @@ public final class TradeEvent extends EventObject
    {
       return trade;
    }
+   
+   /**
+    * Replaces trade data of a reused event. Used by providers in flyweight mode.
+    * 
+    * @param trade
+    *           trade data
+    */
+   void setTrade(Trade trade)
+   {
+      this.trade = trade;
+   }
 }
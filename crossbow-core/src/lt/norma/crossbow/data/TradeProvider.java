@@ -17,19 +17,39 @@
 
 package lt.norma.crossbow.data;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 /**
  * Base class for all trade data providers.
+ * <p>
+ * Listeners are stored in a copy-on-write array. Events are dispatched without locking, adding or
+ * removing a listener during dispatch takes effect from the next event. Providers may work in
+ * flyweight mode, see <code>setFlyweight</code>.
+ * <p>
+ * A listener may subscribe to trades of a single contract, see
+ * <code>addListener(TradeListener, Contract)</code>. Such listeners are kept in a table keyed by
+ * contract and receive only the trades of their contract.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
 public abstract class TradeProvider
 {
-   private final List<TradeListener> listeners = new ArrayList<TradeListener>();
    private final Object lock = new Object();
+   /** Snapshot of the listeners. Replaced on every change, never modified. */
+   private volatile TradeListener[] listeners = new TradeListener[0];
+   /** Snapshots of the listeners subscribed to single contracts, by contract. */
+   private final ConcurrentHashMap<Contract, TradeListener[]> contractListeners =
+         new ConcurrentHashMap<Contract, TradeListener[]>();
+   /** Guards reused objects of the flyweight mode. */
+   private final Object flyweightLock = new Object();
+   private volatile boolean flyweight = false;
+   private Trade reusedTrade = null;
+   private TradeEvent reusedEvent = null;
    
    /**
     * Adds trade listener.
@@ -41,7 +61,9 @@ public abstract class TradeProvider
    {
       synchronized (lock)
       {
-         listeners.add(listener);
+         TradeListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+         updated[listeners.length] = listener;
+         listeners = updated;
       }
    }
    
@@ -55,10 +77,97 @@ public abstract class TradeProvider
    {
       synchronized (lock)
       {
-         listeners.remove(listener);
+         listeners = remove(listeners, listener);
+      }
+   }
+   
+   /**
+    * Adds trade listener, which receives trades of the specified contract only. Trades of other
+    * contracts are not dispatched to the listener, so it does not need to filter them. A listener
+    * added both by this method and by <code>addListener(TradeListener)</code> receives
+    * trades of the contract twice.
+    * 
+    * @param listener
+    *           trade listener
+    * @param contract
+    *           contract of the trades to be received
+    */
+   public final void addListener(TradeListener listener, Contract contract)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      
+      synchronized (lock)
+      {
+         TradeListener[] current = contractListeners.get(contract);
+         if (current == null)
+         {
+            current = new TradeListener[0];
+         }
+         TradeListener[] updated = Arrays.copyOf(current, current.length + 1);
+         updated[current.length] = listener;
+         contractListeners.put(contract, updated);
+      }
+   }
+   
+   /**
+    * Removes trade listener subscribed to the specified contract.
+    * 
+    * @param listener
+    *           trade listener
+    * @param contract
+    *           contract the listener is subscribed to
+    */
+   public final void removeListener(TradeListener listener, Contract contract)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      
+      synchronized (lock)
+      {
+         TradeListener[] current = contractListeners.get(contract);
+         if (current != null)
+         {
+            TradeListener[] updated = remove(current, listener);
+            if (updated.length == 0)
+            {
+               contractListeners.remove(contract);
+            }
+            else
+            {
+               contractListeners.put(contract, updated);
+            }
+         }
       }
    }
    
+   /**
+    * Enables or disables flyweight mode. In flyweight mode the provider reuses a single
+    * <code>TradeEvent</code> for all events and a single <code>Trade</code> for trades fired from
+    * primitive data. Such objects are valid only until the listener returns. Listeners must not
+    * keep references to them, <code>Trade.copy()</code> must be used to keep a trade. Events of a
+    * flyweight provider are dispatched one at a time. Flyweight mode is disabled by default.
+    * 
+    * @param flyweight
+    *           true to reuse event and trade objects, false to create new ones for every event
+    */
+   public final void setFlyweight(boolean flyweight)
+   {
+      this.flyweight = flyweight;
+   }
+   
+   /**
+    * @return true if the provider works in flyweight mode
+    */
+   public final boolean isFlyweight()
+   {
+      return flyweight;
+   }
+   
    /**
     * Fires trade event. Call this method from concrete trade providers.
     * 
@@ -67,15 +176,129 @@ public abstract class TradeProvider
     */
    protected final void fireTradeEvent(Trade trade)
    {
-      TradeEvent tradeEvent = new TradeEvent(this, trade);
+      if (flyweight)
+      {
+         synchronized (flyweightLock)
+         {
+            dispatch(reuseEvent(trade));
+         }
+      }
+      else
+      {
+         dispatch(new TradeEvent(this, trade));
+      }
+   }
+   
+   /**
+    * Fires trade event from primitive data. In flyweight mode the trade is written into a reused
+    * instance, no objects are allocated. Call this method from concrete trade providers.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledPrice
+    *           price of the trade, scaled to the price scale of the contract
+    * @param size
+    *           size of the trade
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    */
+   protected final void fireTradeEvent(Contract contract, long scaledPrice, int size, long time)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      fireTradeEvent(contract, scaledPrice, contract.getPriceScale(), size, time);
+   }
+   
+   /**
+    * Fires trade event from primitive data with a price of the specified scale, which may be finer
+    * than the price scale of the contract. In flyweight mode the trade is written into a reused
+    * instance, no objects are allocated. Call this method from concrete trade providers.
+    * 
+    * @param contract
+    *           contract specification
+    * @param scaledPrice
+    *           price of the trade, scaled to <code>priceScale</code>
+    * @param priceScale
+    *           scale of the price
+    * @param size
+    *           size of the trade
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    */
+   protected final void fireTradeEvent(Contract contract, long scaledPrice, PriceScale priceScale,
+         int size, long time)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      if (priceScale == null)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", "null");
+      }
       
-      synchronized (lock)
+      if (flyweight)
+      {
+         synchronized (flyweightLock)
+         {
+            if (reusedTrade == null)
+            {
+               reusedTrade = new Trade(contract, scaledPrice, size, time);
+            }
+            reusedTrade.set(contract, scaledPrice, priceScale, size, time);
+            dispatch(reuseEvent(reusedTrade));
+         }
+      }
+      else
+      {
+         dispatch(new TradeEvent(this, new Trade(contract, scaledPrice, priceScale, size, time)));
+      }
+   }
+   
+   private TradeEvent reuseEvent(Trade trade)
+   {
+      if (reusedEvent == null)
+      {
+         reusedEvent = new TradeEvent(this, trade);
+      }
+      reusedEvent.setTrade(trade);
+      return reusedEvent;
+   }
+   
+   private void dispatch(TradeEvent event)
+   {
+      TradeListener[] snapshot = listeners;
+      for (int i = 0; i < snapshot.length; i++)
+      {
+         snapshot[i].tradeReceived(event);
+      }
+      if (!contractListeners.isEmpty())
+      {
+         snapshot = contractListeners.get(event.getTrade().getContract());
+         if (snapshot != null)
+         {
+            for (int i = 0; i < snapshot.length; i++)
+            {
+               snapshot[i].tradeReceived(event);
+            }
+         }
+      }
+   }
+   
+   private static TradeListener[] remove(TradeListener[] array, TradeListener listener)
+   {
+      for (int i = 0; i < array.length; i++)
       {
-         Iterator<TradeListener> iterator = listeners.iterator();
-         while (iterator.hasNext())
+         if (array[i] == null ? listener == null : array[i].equals(listener))
          {
-            ((TradeListener)iterator.next()).tradeReceived(tradeEvent);
+            TradeListener[] updated = new TradeListener[array.length - 1];
+            System.arraycopy(array, 0, updated, 0, i);
+            System.arraycopy(array, i + 1, updated, i, updated.length - i);
+            return updated;
          }
       }
+      return array;
    }
 }
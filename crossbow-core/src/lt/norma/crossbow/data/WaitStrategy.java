@@ -0,0 +1,72 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.data;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines how threads of a <code>DataBus</code> wait for events or free space. Strategies trade
+ * latency for CPU usage.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see DataBus
+ */
+public enum WaitStrategy
+{
+   /**
+    * Spins in a tight loop. Lowest latency, occupies a CPU core per waiting thread.
+    */
+   BUSY_SPIN
+   {
+      @Override
+      void idle()
+      {
+      }
+   },
+   /**
+    * Yields the CPU to other threads between checks. Low latency while cores are available.
+    */
+   YIELD
+   {
+      @Override
+      void idle()
+      {
+         Thread.yield();
+      }
+   },
+   /**
+    * Parks the thread for <code>PARK_NANOS</code> between checks. Lowest CPU usage, adds up to
+    * the park time of latency.
+    */
+   PARK
+   {
+      @Override
+      void idle()
+      {
+         LockSupport.parkNanos(PARK_NANOS);
+      }
+   };
+   
+   /** Time to park a thread in PARK strategy, in nanoseconds. */
+   public static final long PARK_NANOS = 50000;
+   
+   /**
+    * Called by a waiting thread between checks of the condition it waits for.
+    */
+   abstract void idle();
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of compressed tick files. A compressed tick file starts with a fixed size header followed
+ * by blocks of ticks of a single type. Every block is decoded independently of the others.
+ * 
+ * <pre>
+ * header: magic (int), version (short), tick type (byte), price scale (byte), price step (long),
+ *         reserved (8 bytes)
+ * block:  payload size in bytes (int), tick count (int), payload
+ * trade:  time delta, price delta, size
+ * quote:  time delta, ask price delta, ask size, bid price delta, bid size
+ * </pre>
+ * 
+ * Header and block headers are stored in big-endian byte order. Tick fields are variable-length
+ * integers of 7 bits per byte, least significant group first. Time delta is the number of
+ * milliseconds since the previous tick of the block. Price deltas are the differences from the
+ * previous price of the block in price steps, zigzag encoded. Sizes are zigzag encoded. The first
+ * tick of a block is encoded as a delta from zero.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+final class CompressedTickFormat
+{
+   /** Identifies compressed tick files, "CBTZ" in ASCII. */
+   static final int MAGIC = 0x4342545A;
+   /** Version of the file format. */
+   static final short VERSION = 1;
+   /** Size of the header in bytes. */
+   static final int HEADER_SIZE = 24;
+   /** Size of the block header in bytes. */
+   static final int BLOCK_HEADER_SIZE = 8;
+   /** Maximum size of an encoded trade in bytes. */
+   static final int MAX_TRADE_SIZE = 10 + 10 + 5;
+   /** Maximum size of an encoded quote in bytes. */
+   static final int MAX_QUOTE_SIZE = 10 + 10 + 5 + 10 + 5;
+   
+   /**
+    * A private constructor. This class cannot not be instantiated.
+    */
+   private CompressedTickFormat()
+   {
+   }
+   
+   /**
+    * @param type
+    *           tick type
+    * @return maximum size of a single encoded tick in bytes
+    */
+   static int getMaxTickSize(TickType type)
+   {
+      return type == TickType.TRADE ? MAX_TRADE_SIZE : MAX_QUOTE_SIZE;
+   }
+   
+   /**
+    * Puts file header into the specified buffer.
+    * 
+    * @param buffer
+    *           destination buffer
+    * @param type
+    *           type of the ticks stored in the file
+    * @param priceScale
+    *           number of decimal places of the scaled prices
+    * @param priceStep
+    *           minimal price change in scaled units
+    */
+   static void putHeader(ByteBuffer buffer, TickType type, int priceScale, long priceStep)
+   {
+      buffer.putInt(MAGIC);
+      buffer.putShort(VERSION);
+      buffer.put((byte)type.ordinal());
+      buffer.put((byte)priceScale);
+      buffer.putLong(priceStep);
+      buffer.putLong(0);
+   }
+   
+   /**
+    * Reads and validates tick type from the file header.
+    * 
+    * @param header
+    *           buffer positioned at the beginning of the header
+    * @return type of the ticks stored in the file
+    * @throws IOException
+    *            if the header is not a valid compressed tick file header
+    */
+   static TickType getTickType(ByteBuffer header) throws IOException
+   {
+      if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+      {
+         throw new IOException("Not a compressed tick file.");
+      }
+      short version = header.getShort();
+      if (version != VERSION)
+      {
+         throw new IOException("Unsupported compressed tick file version " + version + ".");
+      }
+      int type = header.get();
+      if (type < 0 || type >= TickType.values().length)
+      {
+         throw new IOException("Unknown tick type " + type + ".");
+      }
+      return TickType.values()[type];
+   }
+   
+   /**
+    * Reads and validates price scale from the file header. Must be called right after
+    * <code>getTickType</code>.
+    * 
+    * @param header
+    *           buffer positioned after the tick type
+    * @return number of decimal places of the scaled prices
+    * @throws IOException
+    *            if the price scale is not valid
+    */
+   static int getPriceScale(ByteBuffer header) throws IOException
+   {
+      int priceScale = header.get();
+      if (priceScale < 0 || priceScale > TickFileFormat.MAX_PRICE_SCALE)
+      {
+         throw new IOException("Invalid price scale " + priceScale + ".");
+      }
+      return priceScale;
+   }
+   
+   /**
+    * Reads and validates price step from the file header. Must be called right after
+    * <code>getPriceScale</code>.
+    * 
+    * @param header
+    *           buffer positioned after the price scale
+    * @return minimal price change in scaled units
+    * @throws IOException
+    *            if the price step is not valid
+    */
+   static long getPriceStep(ByteBuffer header) throws IOException
+   {
+      long priceStep = header.getLong();
+      if (priceStep <= 0)
+      {
+         throw new IOException("Invalid price step " + priceStep + ".");
+      }
+      return priceStep;
+   }
+   
+   /**
+    * Puts a variable-length unsigned integer.
+    * 
+    * @param buffer
+    *           destination buffer
+    * @param value
+    *           value, treated as unsigned
+    */
+   static void putVarLong(ByteBuffer buffer, long value)
+   {
+      while ((value & ~0x7FL) != 0)
+      {
+         buffer.put((byte)((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      buffer.put((byte)value);
+   }
+   
+   /**
+    * @param value
+    *           signed value
+    * @return value mapped to an unsigned one, small absolute values to small results
+    */
+   static long zigzag(long value)
+   {
+      return (value << 1) ^ (value >> 63);
+   }
+   
+   /**
+    * @param value
+    *           value mapped by <code>zigzag</code>
+    * @return original signed value
+    */
+   static long unzigzag(long value)
+   {
+      return (value >>> 1) ^ -(value & 1);
+   }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Reads ticks from a compressed tick file written by <code>CompressedTickWriter</code>. Blocks are
+ * read into a reused byte array one at a time and decoded directly from the array.
+ * <p>
+ * Corrupt and truncated files are detected: a block with an invalid header, a block ending in the
+ * middle of a tick or holding more bytes than its ticks, and an incomplete trailing block left by
+ * an interrupted writer cause an <code>IOException</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see CompressedTickWriter
+ * @see CompressedTickFormat
+ */
+public final class CompressedTickReader implements TickReader
+{
+   private final FileChannel channel;
+   private final TickType tickType;
+   private final int priceScale;
+   private final long priceStep;
+   private final ByteBuffer blockHeader;
+   
+   private byte[] block;
+   private int payloadSize;
+   private long blockStart;
+   private int blockPosition;
+   private int blockTicksLeft;
+   private long blockCount;
+   
+   private long time;
+   private long price;
+   private int size;
+   private long bidPrice;
+   private int bidSize;
+   
+   /**
+    * Constructor.
+    * 
+    * @param file
+    *           compressed tick file
+    * @throws IOException
+    *            if the file cannot be opened or is not a valid compressed tick file
+    */
+   public CompressedTickReader(File file) throws IOException
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      
+      channel = new RandomAccessFile(file, "r").getChannel();
+      try
+      {
+         ByteBuffer header = ByteBuffer.allocate(CompressedTickFormat.HEADER_SIZE);
+         read(header);
+         header.flip();
+         tickType = CompressedTickFormat.getTickType(header);
+         priceScale = CompressedTickFormat.getPriceScale(header);
+         priceStep = CompressedTickFormat.getPriceStep(header);
+      }
+      catch (IOException exception)
+      {
+         channel.close();
+         throw exception;
+      }
+      blockHeader = ByteBuffer.allocate(CompressedTickFormat.BLOCK_HEADER_SIZE);
+      block = new byte[0];
+      blockTicksLeft = 0;
+      blockCount = 0;
+   }
+   
+   @Override
+   public boolean next() throws IOException
+   {
+      if (blockTicksLeft == 0 && !readBlock())
+      {
+         return false;
+      }
+      
+      byte[] bytes = block;
+      int p = blockPosition;
+      long value;
+      int shift;
+      byte b;
+      
+      try
+      {
+         // Variable-length integers are decoded inline, it is the hot path of the replay
+         value = 0;
+         shift = 0;
+         do
+         {
+            b = bytes[p++];
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+         }
+         while (b < 0);
+         time += value;
+         
+         value = 0;
+         shift = 0;
+         do
+         {
+            b = bytes[p++];
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+         }
+         while (b < 0);
+         price += CompressedTickFormat.unzigzag(value) * priceStep;
+         
+         value = 0;
+         shift = 0;
+         do
+         {
+            b = bytes[p++];
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+         }
+         while (b < 0);
+         size = (int)CompressedTickFormat.unzigzag(value);
+         
+         if (tickType == TickType.QUOTE)
+         {
+            value = 0;
+            shift = 0;
+            do
+            {
+               b = bytes[p++];
+               value |= (long)(b & 0x7F) << shift;
+               shift += 7;
+            }
+            while (b < 0);
+            bidPrice += CompressedTickFormat.unzigzag(value) * priceStep;
+            
+            value = 0;
+            shift = 0;
+            do
+            {
+               b = bytes[p++];
+               value |= (long)(b & 0x7F) << shift;
+               shift += 7;
+            }
+            while (b < 0);
+            bidSize = (int)CompressedTickFormat.unzigzag(value);
+         }
+      }
+      catch (ArrayIndexOutOfBoundsException exception)
+      {
+         throw corruptBlock();
+      }
+      if (p > payloadSize)
+      {
+         throw corruptBlock();
+      }
+      
+      blockPosition = p;
+      blockTicksLeft--;
+      if (blockTicksLeft == 0 && p != payloadSize)
+      {
+         throw corruptBlock();
+      }
+      return true;
+   }
+   
+   /**
+    * @return number of blocks read so far
+    */
+   public long getBlockCount()
+   {
+      return blockCount;
+   }
+   
+   /**
+    * @return minimal price change in scaled units
+    */
+   public long getPriceStep()
+   {
+      return priceStep;
+   }
+   
+   @Override
+   public void close() throws IOException
+   {
+      channel.close();
+   }
+   
+   @Override
+   public TickType getTickType()
+   {
+      return tickType;
+   }
+   
+   @Override
+   public int getPriceScale()
+   {
+      return priceScale;
+   }
+   
+   @Override
+   public long getTime()
+   {
+      return time;
+   }
+   
+   @Override
+   public long getPrice()
+   {
+      return price;
+   }
+   
+   @Override
+   public int getSize()
+   {
+      return size;
+   }
+   
+   @Override
+   public long getAskPrice()
+   {
+      return price;
+   }
+   
+   @Override
+   public int getAskSize()
+   {
+      return size;
+   }
+   
+   @Override
+   public long getBidPrice()
+   {
+      return bidPrice;
+   }
+   
+   @Override
+   public int getBidSize()
+   {
+      return bidSize;
+   }
+   
+   /**
+    * Reads the next block and resets the decoding state.
+    * 
+    * @return true if a block has been read, false at the end of the file
+    * @throws IOException
+    *            on read error or if the block is corrupt or truncated
+    */
+   private boolean readBlock() throws IOException
+   {
+      blockStart = channel.position();
+      blockHeader.clear();
+      int read = read(blockHeader);
+      if (read == 0)
+      {
+         return false;
+      }
+      if (read < CompressedTickFormat.BLOCK_HEADER_SIZE)
+      {
+         throw new IOException("Truncated block header at " + blockStart + ".");
+      }
+      blockHeader.flip();
+      payloadSize = blockHeader.getInt();
+      int tickCount = blockHeader.getInt();
+      // Every field of a tick takes at least one byte, a tick at most the maximum tick size.
+      int fieldCount = tickType == TickType.TRADE ? 3 : 5;
+      if (payloadSize <= 0 || tickCount <= 0 || (long)tickCount * fieldCount > payloadSize
+          || (long)tickCount * CompressedTickFormat.getMaxTickSize(tickType) < payloadSize)
+      {
+         throw corruptBlock();
+      }
+      // A corrupt size must not allocate more than the rest of the file.
+      if (payloadSize > channel.size() - channel.position())
+      {
+         throw new IOException("Truncated block at " + blockStart + ".");
+      }
+      if (block.length < payloadSize)
+      {
+         block = new byte[payloadSize];
+      }
+      ByteBuffer payload = ByteBuffer.wrap(block, 0, payloadSize);
+      if (read(payload) < payloadSize)
+      {
+         throw new IOException("Truncated block at " + blockStart + ".");
+      }
+      blockPosition = 0;
+      blockTicksLeft = tickCount;
+      blockCount++;
+      time = 0;
+      price = 0;
+      bidPrice = 0;
+      return true;
+   }
+   
+   private IOException corruptBlock()
+   {
+      return new IOException("Corrupt block at " + blockStart + ".");
+   }
+   
+   private int read(ByteBuffer destination) throws IOException
+   {
+      int total = 0;
+      while (destination.hasRemaining())
+      {
+         int read = channel.read(destination);
+         if (read < 0)
+         {
+            break;
+         }
+         total += read;
+      }
+      return total;
+   }
+}
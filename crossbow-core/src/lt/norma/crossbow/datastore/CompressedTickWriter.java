@@ -0,0 +1,367 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Writes ticks into a compressed tick file. Ticks are delta encoded into blocks of up to
+ * <code>blockSize</code> ticks, every block can be decoded without the preceding ones. Ticks must
+ * be written in the order of time.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see CompressedTickReader
+ * @see CompressedTickFormat
+ */
+public final class CompressedTickWriter implements Closeable
+{
+   /** Default maximum number of ticks in a block. */
+   public static final int DEFAULT_BLOCK_SIZE = 4096;
+   
+   private final FileChannel channel;
+   private final ByteBuffer buffer;
+   private final TickType tickType;
+   private final int priceScale;
+   private final long priceStep;
+   private final int blockSize;
+   private long lastTime;
+   private long tickCount;
+   
+   private int blockTickCount;
+   private long previousTime;
+   private long previousPrice;
+   private long previousBidPrice;
+   
+   /**
+    * Constructor. Creates a new file or truncates an existing one. Writes blocks of
+    * <code>DEFAULT_BLOCK_SIZE</code> ticks.
+    * 
+    * @param file
+    *           compressed tick file
+    * @param tickType
+    *           type of the ticks to be stored
+    * @param priceScale
+    *           number of decimal places of the scaled prices, 0 to 18
+    * @param priceStep
+    *           minimal price change in scaled units, for example 1 for a tick size of 0.01 and
+    *           price scale of 2. All prices must be multiples of the step.
+    * @throws IOException
+    *            if the file cannot be created
+    */
+   public CompressedTickWriter(File file, TickType tickType, int priceScale, long priceStep)
+         throws IOException
+   {
+      this(file, tickType, priceScale, priceStep, DEFAULT_BLOCK_SIZE);
+   }
+   
+   /**
+    * Constructor. Creates a new file or truncates an existing one.
+    * 
+    * @param file
+    *           compressed tick file
+    * @param tickType
+    *           type of the ticks to be stored
+    * @param priceScale
+    *           number of decimal places of the scaled prices, 0 to 18
+    * @param priceStep
+    *           minimal price change in scaled units, for example 1 for a tick size of 0.01 and
+    *           price scale of 2. All prices must be multiples of the step.
+    * @param blockSize
+    *           maximum number of ticks in a block
+    * @throws IOException
+    *            if the file cannot be created
+    */
+   public CompressedTickWriter(File file, TickType tickType, int priceScale, long priceStep,
+         int blockSize) throws IOException
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      if (tickType == null)
+      {
+         throw new InvalidArgumentRuntimeException("tickType", "null");
+      }
+      if (priceScale < 0 || priceScale > TickFileFormat.MAX_PRICE_SCALE)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", priceScale,
+               "Must be in range 0 - " + TickFileFormat.MAX_PRICE_SCALE + ".");
+      }
+      if (priceStep <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("priceStep", priceStep,
+               "Must be a positive integer.");
+      }
+      if (blockSize <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("blockSize", blockSize,
+               "Must be a positive integer.");
+      }
+      
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(0);
+      channel = randomAccessFile.getChannel();
+      this.tickType = tickType;
+      this.priceScale = priceScale;
+      this.priceStep = priceStep;
+      this.blockSize = blockSize;
+      buffer = ByteBuffer.allocate(CompressedTickFormat.BLOCK_HEADER_SIZE + blockSize
+                                   * CompressedTickFormat.getMaxTickSize(tickType));
+      lastTime = Long.MIN_VALUE;
+      tickCount = 0;
+      
+      ByteBuffer header = ByteBuffer.allocate(CompressedTickFormat.HEADER_SIZE);
+      CompressedTickFormat.putHeader(header, tickType, priceScale, priceStep);
+      header.flip();
+      write(header);
+      startBlock();
+   }
+   
+   /**
+    * Writes a trade.
+    * 
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    * @param price
+    *           scaled price of the trade
+    * @param size
+    *           size of the trade
+    * @throws IOException
+    *            on write error
+    */
+   public void writeTrade(long time, long price, int size) throws IOException
+   {
+      checkTick(TickType.TRADE, time);
+      checkPrice("price", price);
+      CompressedTickFormat.putVarLong(buffer, time - previousTime);
+      CompressedTickFormat.putVarLong(buffer,
+            CompressedTickFormat.zigzag((price - previousPrice) / priceStep));
+      CompressedTickFormat.putVarLong(buffer, CompressedTickFormat.zigzag(size));
+      previousTime = time;
+      previousPrice = price;
+      endTick();
+   }
+   
+   /**
+    * Writes a quote.
+    * 
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    * @param askPrice
+    *           scaled ask price
+    * @param askSize
+    *           ask size
+    * @param bidPrice
+    *           scaled bid price
+    * @param bidSize
+    *           bid size
+    * @throws IOException
+    *            on write error
+    */
+   public void writeQuote(long time, long askPrice, int askSize, long bidPrice, int bidSize)
+         throws IOException
+   {
+      checkTick(TickType.QUOTE, time);
+      checkPrice("askPrice", askPrice);
+      checkPrice("bidPrice", bidPrice);
+      CompressedTickFormat.putVarLong(buffer, time - previousTime);
+      CompressedTickFormat.putVarLong(buffer,
+            CompressedTickFormat.zigzag((askPrice - previousPrice) / priceStep));
+      CompressedTickFormat.putVarLong(buffer, CompressedTickFormat.zigzag(askSize));
+      CompressedTickFormat.putVarLong(buffer,
+            CompressedTickFormat.zigzag((bidPrice - previousBidPrice) / priceStep));
+      CompressedTickFormat.putVarLong(buffer, CompressedTickFormat.zigzag(bidSize));
+      previousTime = time;
+      previousPrice = askPrice;
+      previousBidPrice = bidPrice;
+      endTick();
+   }
+   
+   /**
+    * Writes all remaining ticks of the specified reader. Can be used to compress an uncompressed
+    * tick file.
+    * 
+    * @param reader
+    *           source of the ticks. Must provide ticks of the same type and price scale as this
+    *           file. Reader is not closed by this method.
+    * @return number of ticks written
+    * @throws IOException
+    *            on read or write error
+    */
+   public long writeAll(TickReader reader) throws IOException
+   {
+      if (reader.getTickType() != tickType)
+      {
+         throw new InvalidArgumentRuntimeException("reader", reader.getTickType(),
+               "The file stores " + tickType + " ticks.");
+      }
+      if (reader.getPriceScale() != priceScale)
+      {
+         throw new InvalidArgumentRuntimeException("reader", reader.getPriceScale(),
+               "Price scale of the reader does not match price scale of the file.");
+      }
+      
+      long count = 0;
+      while (reader.next())
+      {
+         if (tickType == TickType.TRADE)
+         {
+            writeTrade(reader.getTime(), reader.getPrice(), reader.getSize());
+         }
+         else
+         {
+            writeQuote(reader.getTime(), reader.getAskPrice(), reader.getAskSize(),
+                  reader.getBidPrice(), reader.getBidSize());
+         }
+         count++;
+      }
+      return count;
+   }
+   
+   /**
+    * Ends the current block and writes it to the file. The following ticks start a new block.
+    * 
+    * @throws IOException
+    *            on write error
+    */
+   public void flush() throws IOException
+   {
+      if (blockTickCount == 0)
+      {
+         return;
+      }
+      buffer.putInt(0, buffer.position() - CompressedTickFormat.BLOCK_HEADER_SIZE);
+      buffer.putInt(4, blockTickCount);
+      buffer.flip();
+      write(buffer);
+      startBlock();
+   }
+   
+   /**
+    * Flushes the current block and closes the file.
+    * 
+    * @throws IOException
+    *            on write error
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (channel.isOpen())
+      {
+         try
+         {
+            flush();
+         }
+         finally
+         {
+            channel.close();
+         }
+      }
+   }
+   
+   /**
+    * @return type of the ticks stored in the file
+    */
+   public TickType getTickType()
+   {
+      return tickType;
+   }
+   
+   /**
+    * @return number of decimal places of the scaled prices
+    */
+   public int getPriceScale()
+   {
+      return priceScale;
+   }
+   
+   /**
+    * @return minimal price change in scaled units
+    */
+   public long getPriceStep()
+   {
+      return priceStep;
+   }
+   
+   /**
+    * @return number of ticks written so far
+    */
+   public long getTickCount()
+   {
+      return tickCount;
+   }
+   
+   private void startBlock()
+   {
+      buffer.clear();
+      buffer.position(CompressedTickFormat.BLOCK_HEADER_SIZE);
+      blockTickCount = 0;
+      previousTime = 0;
+      previousPrice = 0;
+      previousBidPrice = 0;
+   }
+   
+   private void endTick() throws IOException
+   {
+      tickCount++;
+      blockTickCount++;
+      if (blockTickCount >= blockSize)
+      {
+         flush();
+      }
+   }
+   
+   private void write(ByteBuffer source) throws IOException
+   {
+      while (source.hasRemaining())
+      {
+         channel.write(source);
+      }
+   }
+   
+   private void checkTick(TickType type, long time)
+   {
+      if (type != tickType)
+      {
+         throw new InvalidArgumentRuntimeException("tickType", type,
+               "The file stores " + tickType + " ticks.");
+      }
+      if (time < lastTime)
+      {
+         throw new InvalidArgumentRuntimeException("time", time,
+               "Ticks must be written in time order.");
+      }
+      lastTime = time;
+   }
+   
+   private void checkPrice(String name, long price)
+   {
+      if (price % priceStep != 0)
+      {
+         throw new InvalidArgumentRuntimeException(name, price,
+               "Must be a multiple of the price step " + priceStep + ".");
+      }
+   }
+}
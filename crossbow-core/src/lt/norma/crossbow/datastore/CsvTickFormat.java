@@ -0,0 +1,223 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTimeZone;
+
+/**
+ * Describes layout of a CSV tick file. By default columns are separated by commas, there are no
+ * header lines, time is stored as local date and time of the exchange and columns go in the
+ * following order:
+ * <ul>
+ * <li>trades: time, price, size</li>
+ * <li>quotes: time, ask price, ask size, bid price, bid size</li>
+ * </ul>
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see CsvTickReader
+ */
+public final class CsvTickFormat
+{
+   private final TickType tickType;
+   private final int priceScale;
+   private final DateTimeZone timeZone;
+   private char delimiter;
+   private int headerLines;
+   private CsvTimeFormat timeFormat;
+   private int[] columns;
+   
+   /**
+    * Constructor.
+    * 
+    * @param tickType
+    *           type of the ticks stored in the file
+    * @param priceScale
+    *           number of decimal places of the scaled prices. Prices with more non-zero decimal
+    *           places are rejected by the reader.
+    * @param timeZone
+    *           time zone of the <code>DATE_TIME</code> values, usually the exchange time zone
+    */
+   public CsvTickFormat(TickType tickType, int priceScale, DateTimeZone timeZone)
+   {
+      if (tickType == null)
+      {
+         throw new InvalidArgumentRuntimeException("tickType", "null");
+      }
+      if (priceScale < 0 || priceScale > TickFileFormat.MAX_PRICE_SCALE)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", priceScale,
+               "Must be in range 0 - " + TickFileFormat.MAX_PRICE_SCALE + ".");
+      }
+      if (timeZone == null)
+      {
+         throw new InvalidArgumentRuntimeException("timeZone", "null");
+      }
+      
+      this.tickType = tickType;
+      this.priceScale = priceScale;
+      this.timeZone = timeZone;
+      delimiter = ',';
+      headerLines = 0;
+      timeFormat = CsvTimeFormat.DATE_TIME;
+      columns = new int[getFieldCount()];
+      for (int i = 0; i < columns.length; i++)
+      {
+         columns[i] = i;
+      }
+   }
+   
+   /**
+    * @return number of fields of a single tick: 3 for trades and 5 for quotes
+    */
+   public int getFieldCount()
+   {
+      return tickType == TickType.TRADE ? 3 : 5;
+   }
+   
+   /**
+    * Sets column numbers of the tick fields.
+    * 
+    * @param columns
+    *           zero based column numbers of the fields, in the default column order: time, price,
+    *           size for trades; time, ask price, ask size, bid price, bid size for quotes
+    */
+   public void setColumns(int... columns)
+   {
+      if (columns == null || columns.length != getFieldCount())
+      {
+         throw new InvalidArgumentRuntimeException("columns", String.valueOf(columns),
+               "Exactly " + getFieldCount() + " columns must be specified.");
+      }
+      for (int i = 0; i < columns.length; i++)
+      {
+         if (columns[i] < 0)
+         {
+            throw new InvalidArgumentRuntimeException("columns", columns[i],
+                  "Column numbers cannot be negative.");
+         }
+         for (int j = 0; j < i; j++)
+         {
+            if (columns[i] == columns[j])
+            {
+               throw new InvalidArgumentRuntimeException("columns", columns[i],
+                     "Column is used by more than one field.");
+            }
+         }
+      }
+      this.columns = columns.clone();
+   }
+   
+   /**
+    * @return zero based column numbers of the fields
+    */
+   public int[] getColumns()
+   {
+      return columns.clone();
+   }
+   
+   /**
+    * @param delimiter
+    *           column delimiter, must be an ASCII character
+    */
+   public void setDelimiter(char delimiter)
+   {
+      if (delimiter > 127 || delimiter == '\n' || delimiter == '\r')
+      {
+         throw new InvalidArgumentRuntimeException("delimiter", String.valueOf((int)delimiter),
+               "Must be an ASCII character other than a line break.");
+      }
+      this.delimiter = delimiter;
+   }
+   
+   /**
+    * @return column delimiter
+    */
+   public char getDelimiter()
+   {
+      return delimiter;
+   }
+   
+   /**
+    * @param headerLines
+    *           number of lines to be skipped at the beginning of the file
+    */
+   public void setHeaderLines(int headerLines)
+   {
+      if (headerLines < 0)
+      {
+         throw new InvalidArgumentRuntimeException("headerLines", headerLines,
+               "Cannot be negative.");
+      }
+      this.headerLines = headerLines;
+   }
+   
+   /**
+    * @return number of lines to be skipped at the beginning of the file
+    */
+   public int getHeaderLines()
+   {
+      return headerLines;
+   }
+   
+   /**
+    * @param timeFormat
+    *           format of the time column
+    */
+   public void setTimeFormat(CsvTimeFormat timeFormat)
+   {
+      if (timeFormat == null)
+      {
+         throw new InvalidArgumentRuntimeException("timeFormat", "null");
+      }
+      this.timeFormat = timeFormat;
+   }
+   
+   /**
+    * @return format of the time column
+    */
+   public CsvTimeFormat getTimeFormat()
+   {
+      return timeFormat;
+   }
+   
+   /**
+    * @return type of the ticks stored in the file
+    */
+   public TickType getTickType()
+   {
+      return tickType;
+   }
+   
+   /**
+    * @return number of decimal places of the scaled prices
+    */
+   public int getPriceScale()
+   {
+      return priceScale;
+   }
+   
+   /**
+    * @return time zone of the <code>DATE_TIME</code> values
+    */
+   public DateTimeZone getTimeZone()
+   {
+      return timeZone;
+   }
+}
@@ -0,0 +1,491 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.Chronology;
+import org.joda.time.chrono.ISOChronology;
+
+/**
+ * Streams ticks from a CSV file. The file is read through a fixed size buffer, so files larger
+ * than the heap are supported. Numbers and times are parsed directly from the bytes of the
+ * buffer, no strings or other objects are created per line.
+ * <p>
+ * The file must be ASCII compatible. Lines may end with "\n" or "\r\n", blank lines are skipped.
+ * Spaces and double quotes inside of the numeric columns are ignored. Prices must not have more
+ * decimals than the price scale of the format, except for trailing zeros.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see CsvTickFormat
+ */
+public final class CsvTickReader implements TickReader
+{
+   /** Default size of the read buffer in bytes. */
+   public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+   
+   private final FileChannel channel;
+   private final ByteBuffer buffer;
+   private final TickType tickType;
+   private final int priceScale;
+   private final byte delimiter;
+   private final int headerLines;
+   private final CsvTimeFormat timeFormat;
+   private final Chronology chronology;
+   private final int fieldCount;
+   private final int[] fieldOfColumn;
+   private final long[] values;
+   private final int[] timeParts;
+   private long lineNumber;
+   private boolean endOfFile;
+   
+   /**
+    * Constructor. Uses buffer of <code>DEFAULT_BUFFER_SIZE</code> bytes.
+    * 
+    * @param file
+    *           CSV file
+    * @param format
+    *           layout of the file
+    * @throws IOException
+    *            if the file cannot be opened
+    */
+   public CsvTickReader(File file, CsvTickFormat format) throws IOException
+   {
+      this(file, format, DEFAULT_BUFFER_SIZE);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param file
+    *           CSV file
+    * @param format
+    *           layout of the file. Later changes of the format do not affect this reader.
+    * @param bufferSize
+    *           size of the read buffer in bytes. Must be larger than the longest line.
+    * @throws IOException
+    *            if the file cannot be opened
+    */
+   public CsvTickReader(File file, CsvTickFormat format, int bufferSize) throws IOException
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      if (format == null)
+      {
+         throw new InvalidArgumentRuntimeException("format", "null");
+      }
+      if (bufferSize <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("bufferSize", bufferSize,
+               "Must be a positive integer.");
+      }
+      
+      tickType = format.getTickType();
+      priceScale = format.getPriceScale();
+      delimiter = (byte)format.getDelimiter();
+      headerLines = format.getHeaderLines();
+      timeFormat = format.getTimeFormat();
+      chronology = ISOChronology.getInstance(format.getTimeZone());
+      fieldCount = format.getFieldCount();
+      values = new long[fieldCount];
+      timeParts = new int[7];
+      
+      int[] columns = format.getColumns();
+      int columnCount = 0;
+      for (int column : columns)
+      {
+         columnCount = Math.max(columnCount, column + 1);
+      }
+      fieldOfColumn = new int[columnCount];
+      for (int i = 0; i < columnCount; i++)
+      {
+         fieldOfColumn[i] = -1;
+      }
+      for (int i = 0; i < columns.length; i++)
+      {
+         fieldOfColumn[columns[i]] = i;
+      }
+      
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+      buffer.flip();
+      lineNumber = 0;
+      endOfFile = false;
+      channel = new RandomAccessFile(file, "r").getChannel();
+   }
+   
+   @Override
+   public boolean next() throws IOException
+   {
+      while (true)
+      {
+         int end = findLineEnd();
+         if (end < 0)
+         {
+            if (!endOfFile)
+            {
+               fill();
+               continue;
+            }
+            if (!buffer.hasRemaining())
+            {
+               return false;
+            }
+            end = buffer.limit();
+         }
+         
+         int start = buffer.position();
+         buffer.position(end < buffer.limit() ? end + 1 : end);
+         lineNumber++;
+         if (lineNumber > headerLines && !isBlank(start, end))
+         {
+            parseLine(start, end);
+            return true;
+         }
+      }
+   }
+   
+   /**
+    * @return number of the last line read, starting from 1
+    */
+   public long getLineNumber()
+   {
+      return lineNumber;
+   }
+   
+   @Override
+   public void close() throws IOException
+   {
+      channel.close();
+   }
+   
+   @Override
+   public TickType getTickType()
+   {
+      return tickType;
+   }
+   
+   @Override
+   public int getPriceScale()
+   {
+      return priceScale;
+   }
+   
+   @Override
+   public long getTime()
+   {
+      return values[0];
+   }
+   
+   @Override
+   public long getPrice()
+   {
+      return values[1];
+   }
+   
+   @Override
+   public int getSize()
+   {
+      return (int)values[2];
+   }
+   
+   @Override
+   public long getAskPrice()
+   {
+      return values[1];
+   }
+   
+   @Override
+   public int getAskSize()
+   {
+      return (int)values[2];
+   }
+   
+   @Override
+   public long getBidPrice()
+   {
+      return values[3];
+   }
+   
+   @Override
+   public int getBidSize()
+   {
+      return (int)values[4];
+   }
+   
+   private int findLineEnd()
+   {
+      for (int i = buffer.position(); i < buffer.limit(); i++)
+      {
+         if (buffer.get(i) == '\n')
+         {
+            return i;
+         }
+      }
+      return -1;
+   }
+   
+   private void fill() throws IOException
+   {
+      buffer.compact();
+      if (!buffer.hasRemaining())
+      {
+         buffer.flip();
+         throw new IOException("Line " + (lineNumber + 1) + " is longer than the buffer.");
+      }
+      int read = channel.read(buffer);
+      buffer.flip();
+      if (read < 0)
+      {
+         endOfFile = true;
+      }
+   }
+   
+   private boolean isBlank(int start, int end)
+   {
+      for (int i = start; i < end; i++)
+      {
+         byte b = buffer.get(i);
+         if (b != ' ' && b != '\t' && b != '\r')
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+   
+   private void parseLine(int start, int end) throws IOException
+   {
+      if (end > start && buffer.get(end - 1) == '\r')
+      {
+         end--;
+      }
+      
+      int parsed = 0;
+      int column = 0;
+      int fieldStart = start;
+      for (int i = start; i <= end && column < fieldOfColumn.length; i++)
+      {
+         if (i == end || buffer.get(i) == delimiter)
+         {
+            int field = fieldOfColumn[column];
+            if (field == 0)
+            {
+               values[field] = parseTime(fieldStart, i);
+               parsed++;
+            }
+            else if (field > 0)
+            {
+               values[field] = field % 2 == 1 ? parsePrice(fieldStart, i)
+                                              : parseSize(fieldStart, i);
+               parsed++;
+            }
+            column++;
+            fieldStart = i + 1;
+         }
+      }
+      
+      if (parsed < fieldCount)
+      {
+         throw new IOException("Missing columns at line " + lineNumber + ".");
+      }
+   }
+   
+   private long parseTime(int start, int end) throws IOException
+   {
+      if (timeFormat == CsvTimeFormat.EPOCH_MILLIS)
+      {
+         return parseInteger(start, end);
+      }
+      
+      int parts = 0;
+      int fractionDigits = 0;
+      boolean inNumber = false;
+      for (int i = 0; i < timeParts.length; i++)
+      {
+         timeParts[i] = 0;
+      }
+      for (int i = start; i < end; i++)
+      {
+         byte b = buffer.get(i);
+         if (b >= '0' && b <= '9')
+         {
+            if (!inNumber)
+            {
+               if (parts == timeParts.length)
+               {
+                  throw invalidValue("time");
+               }
+               parts++;
+               inNumber = true;
+            }
+            if (parts == timeParts.length)
+            {
+               // Only milliseconds of the fraction are used.
+               if (fractionDigits < 3)
+               {
+                  timeParts[parts - 1] = timeParts[parts - 1] * 10 + b - '0';
+                  fractionDigits++;
+               }
+            }
+            else
+            {
+               timeParts[parts - 1] = timeParts[parts - 1] * 10 + b - '0';
+            }
+         }
+         else
+         {
+            inNumber = false;
+         }
+      }
+      if (parts < 3)
+      {
+         throw invalidValue("time");
+      }
+      int millis = timeParts[6];
+      for (int i = fractionDigits; i < 3 && parts == timeParts.length; i++)
+      {
+         millis *= 10;
+      }
+      
+      try
+      {
+         return chronology.getDateTimeMillis(timeParts[0], timeParts[1], timeParts[2],
+               timeParts[3], timeParts[4], timeParts[5], millis);
+      }
+      catch (IllegalArgumentException exception)
+      {
+         throw new IOException("Invalid time at line " + lineNumber + ". "
+                               + exception.getMessage());
+      }
+   }
+   
+   private long parsePrice(int start, int end) throws IOException
+   {
+      long value = 0;
+      boolean negative = false;
+      boolean hasDigits = false;
+      int fractionDigits = -1;
+      for (int i = start; i < end; i++)
+      {
+         byte b = buffer.get(i);
+         if (b >= '0' && b <= '9')
+         {
+            if (fractionDigits < 0 || fractionDigits < priceScale)
+            {
+               if (value > (Long.MAX_VALUE - 9) / 10)
+               {
+                  throw invalidValue("price");
+               }
+               value = value * 10 + b - '0';
+               if (fractionDigits >= 0)
+               {
+                  fractionDigits++;
+               }
+            }
+            else if (b != '0')
+            {
+               // The price cannot be represented at the scale of the format.
+               throw invalidValue("price");
+            }
+            hasDigits = true;
+         }
+         else if (b == '.' && fractionDigits < 0)
+         {
+            fractionDigits = 0;
+         }
+         else if (b == '-' && !hasDigits && !negative && fractionDigits < 0)
+         {
+            negative = true;
+         }
+         else if (b != ' ' && b != '"' && b != '+')
+         {
+            throw invalidValue("price");
+         }
+      }
+      if (!hasDigits)
+      {
+         throw invalidValue("price");
+      }
+      
+      for (int i = Math.max(fractionDigits, 0); i < priceScale; i++)
+      {
+         if (value > Long.MAX_VALUE / 10)
+         {
+            throw invalidValue("price");
+         }
+         value *= 10;
+      }
+      return negative ? -value : value;
+   }
+   
+   private long parseSize(int start, int end) throws IOException
+   {
+      long value = parseInteger(start, end);
+      if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+      {
+         throw invalidValue("size");
+      }
+      return value;
+   }
+   
+   private long parseInteger(int start, int end) throws IOException
+   {
+      long value = 0;
+      boolean negative = false;
+      boolean hasDigits = false;
+      for (int i = start; i < end; i++)
+      {
+         byte b = buffer.get(i);
+         if (b >= '0' && b <= '9')
+         {
+            if (value > (Long.MAX_VALUE - 9) / 10)
+            {
+               throw invalidValue("number");
+            }
+            value = value * 10 + b - '0';
+            hasDigits = true;
+         }
+         else if (b == '-' && !hasDigits && !negative)
+         {
+            negative = true;
+         }
+         else if (b != ' ' && b != '"' && b != '+')
+         {
+            throw invalidValue("number");
+         }
+      }
+      if (!hasDigits)
+      {
+         throw invalidValue("number");
+      }
+      return negative ? -value : value;
+   }
+   
+   private IOException invalidValue(String name)
+   {
+      return new IOException("Invalid " + name + " at line " + lineNumber + ".");
+   }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+/**
+ * Format of the time column in CSV tick files.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see CsvTickFormat
+ */
+public enum CsvTimeFormat
+{
+   /**
+    * Milliseconds since 1970-01-01T00:00:00Z.
+    */
+   EPOCH_MILLIS,
+   /**
+    * Local date and time of the exchange: year, month, day, hour, minute, second and optional
+    * fraction of the second, for example "2010-01-29 15:59:58.250". Any non-digit characters are
+    * accepted as separators.
+    */
+   DATE_TIME
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
+import lt.norma.crossbow.data.QuoteListener;
+import lt.norma.crossbow.data.QuoteProvider;
+import lt.norma.crossbow.data.TradeListener;
+import lt.norma.crossbow.data.TradeProvider;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Replays stored trades and quotes of many contracts as a single stream ordered by time. Sources
+ * are merged by a binary heap keyed by the time of the next tick of every source, so only the
+ * read-ahead buffers of the sources are kept in memory. Each source must be ordered by time. Ticks
+ * with equal time are replayed in the order the sources were added.
+ * <p>
+ * Trades are dispatched by <code>getTradeProvider()</code>, quotes by
+ * <code>getQuoteProvider()</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see TickReplayTradeProvider
+ * @see TickReplayQuoteProvider
+ */
+public final class MergedTickReplay
+{
+   /** Default number of ticks read ahead from every source. */
+   public static final int DEFAULT_BUFFER_SIZE = 1024;
+   
+   private final int bufferSize;
+   private final List<Source> sources;
+   private final ReplayTradeProvider tradeProvider;
+   private final ReplayQuoteProvider quoteProvider;
+   
+   /**
+    * Constructor. Reads ahead <code>DEFAULT_BUFFER_SIZE</code> ticks from every source.
+    */
+   public MergedTickReplay()
+   {
+      this(DEFAULT_BUFFER_SIZE);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param bufferSize
+    *           number of ticks read ahead from every source
+    */
+   public MergedTickReplay(int bufferSize)
+   {
+      if (bufferSize <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("bufferSize", bufferSize,
+               "Must be a positive integer.");
+      }
+      
+      this.bufferSize = bufferSize;
+      sources = new ArrayList<Source>();
+      tradeProvider = new ReplayTradeProvider();
+      quoteProvider = new ReplayQuoteProvider();
+   }
+   
+   /**
+    * Adds a source of ticks.
+    * 
+    * @param reader
+    *           source of trades or quotes, ordered by time. Reader is not closed by this class.
+    * @param contract
+    *           contract of the stored ticks
+    */
+   public void addSource(TickReader reader, Contract contract)
+   {
+      if (reader == null)
+      {
+         throw new InvalidArgumentRuntimeException("reader", "null");
+      }
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      
+      sources.add(new Source(reader, contract, bufferSize));
+   }
+   
+   /**
+    * Adds trade listener.
+    * 
+    * @param listener
+    *           trade listener
+    */
+   public void addTradeListener(TradeListener listener)
+   {
+      tradeProvider.addListener(listener);
+   }
+   
+   /**
+    * Adds quote listener.
+    * 
+    * @param listener
+    *           quote listener
+    */
+   public void addQuoteListener(QuoteListener listener)
+   {
+      quoteProvider.addListener(listener);
+   }
+   
+   /**
+    * Replays all remaining ticks of all sources in the order of time. Prices are never rounded,
+    * ticks of a source are fired at the finer of the price scales of its contract and its reader.
+    * 
+    * @return number of ticks replayed
+    * @throws IOException
+    *            on read error
+    */
+   public long replay() throws IOException
+   {
+      // Binary min-heap of the sources having buffered ticks
+      Source[] heap = new Source[sources.size()];
+      int heapSize = 0;
+      for (int i = 0; i < sources.size(); i++)
+      {
+         Source source = sources.get(i);
+         source.order = i;
+         if (source.fill())
+         {
+            heap[heapSize] = source;
+            siftUp(heap, heapSize);
+            heapSize++;
+         }
+      }
+      
+      long count = 0;
+      while (heapSize > 0)
+      {
+         Source source = heap[0];
+         dispatch(source);
+         count++;
+         source.position++;
+         if (source.position >= source.count && !source.fill())
+         {
+            heapSize--;
+            heap[0] = heap[heapSize];
+            heap[heapSize] = null;
+         }
+         siftDown(heap, heapSize);
+      }
+      return count;
+   }
+   
+   /**
+    * @return provider of the replayed trades
+    */
+   public TradeProvider getTradeProvider()
+   {
+      return tradeProvider;
+   }
+   
+   /**
+    * @return provider of the replayed quotes
+    */
+   public QuoteProvider getQuoteProvider()
+   {
+      return quoteProvider;
+   }
+   
+   /**
+    * @return number of ticks read ahead from every source
+    */
+   public int getBufferSize()
+   {
+      return bufferSize;
+   }
+   
+   private void dispatch(Source source)
+   {
+      int i = source.position;
+      if (source.tickType == TickType.TRADE)
+      {
+         tradeProvider.fire(source.contract, source.prices[i], source.priceScale, source.sizes[i],
+               source.times[i]);
+      }
+      else
+      {
+         quoteProvider.fire(source.contract, source.prices[i], source.sizes[i],
+               source.bidPrices[i], source.bidSizes[i], source.priceScale, source.times[i]);
+      }
+   }
+   
+   private static void siftUp(Source[] heap, int index)
+   {
+      Source source = heap[index];
+      while (index > 0)
+      {
+         int parent = (index - 1) >>> 1;
+         if (!before(source, heap[parent]))
+         {
+            break;
+         }
+         heap[index] = heap[parent];
+         index = parent;
+      }
+      heap[index] = source;
+   }
+   
+   private static void siftDown(Source[] heap, int size)
+   {
+      if (size == 0)
+      {
+         return;
+      }
+      Source source = heap[0];
+      int index = 0;
+      int half = size >>> 1;
+      while (index < half)
+      {
+         int child = 2 * index + 1;
+         if (child + 1 < size && before(heap[child + 1], heap[child]))
+         {
+            child++;
+         }
+         if (!before(heap[child], source))
+         {
+            break;
+         }
+         heap[index] = heap[child];
+         index = child;
+      }
+      heap[index] = source;
+   }
+   
+   private static boolean before(Source a, Source b)
+   {
+      long timeA = a.times[a.position];
+      long timeB = b.times[b.position];
+      return timeA < timeB || (timeA == timeB && a.order < b.order);
+   }
+   
+   /**
+    * Tick source with a read-ahead buffer. Prices are stored in the finer of the price scales of
+    * the contract and the reader.
+    */
+   private static final class Source
+   {
+      private final TickReader reader;
+      private final Contract contract;
+      private final TickType tickType;
+      private final PriceScale fileScale;
+      private final PriceScale priceScale;
+      private final long[] times;
+      private final long[] prices;
+      private final int[] sizes;
+      private final long[] bidPrices;
+      private final int[] bidSizes;
+      private int count;
+      private int position;
+      private int order;
+      
+      private Source(TickReader reader, Contract contract, int bufferSize)
+      {
+         this.reader = reader;
+         this.contract = contract;
+         tickType = reader.getTickType();
+         fileScale = PriceScale.valueOf(reader.getPriceScale());
+         priceScale = PriceScale.max(contract.getPriceScale(), fileScale);
+         times = new long[bufferSize];
+         prices = new long[bufferSize];
+         sizes = new int[bufferSize];
+         if (tickType == TickType.QUOTE)
+         {
+            bidPrices = new long[bufferSize];
+            bidSizes = new int[bufferSize];
+         }
+         else
+         {
+            bidPrices = null;
+            bidSizes = null;
+         }
+      }
+      
+      /**
+       * Reads the next ticks into the buffer.
+       * 
+       * @return true if at least one tick has been read
+       * @throws IOException
+       *            on read error
+       */
+      private boolean fill() throws IOException
+      {
+         count = 0;
+         position = 0;
+         while (count < times.length && reader.next())
+         {
+            times[count] = reader.getTime();
+            if (tickType == TickType.TRADE)
+            {
+               prices[count] = priceScale.rescale(reader.getPrice(), fileScale);
+               sizes[count] = reader.getSize();
+            }
+            else
+            {
+               prices[count] = priceScale.rescale(reader.getAskPrice(), fileScale);
+               sizes[count] = reader.getAskSize();
+               bidPrices[count] = priceScale.rescale(reader.getBidPrice(), fileScale);
+               bidSizes[count] = reader.getBidSize();
+            }
+            count++;
+         }
+         return count > 0;
+      }
+   }
+   
+   private static final class ReplayTradeProvider extends TradeProvider
+   {
+      private void fire(Contract contract, long scaledPrice, PriceScale priceScale, int size,
+            long time)
+      {
+         fireTradeEvent(contract, scaledPrice, priceScale, size, time);
+      }
+   }
+   
+   private static final class ReplayQuoteProvider extends QuoteProvider
+   {
+      private void fire(Contract contract, long scaledAskPrice, int askSize, long scaledBidPrice,
+            int bidSize, PriceScale priceScale, long time)
+      {
+         fireQuoteEvent(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize, priceScale,
+               time);
+      }
+   }
+}
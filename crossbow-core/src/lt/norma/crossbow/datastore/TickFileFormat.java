@@ -0,0 +1,137 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import lt.norma.crossbow.core.PriceScale;
+
+/**
+ * Layout of binary tick files. A tick file starts with a fixed size header followed by fixed size
+ * records of a single tick type. All numbers are stored in big-endian byte order.
+ * 
+ * <pre>
+ * header: magic (int), version (short), tick type (byte), price scale (byte), reserved (8 bytes)
+ * trade:  time (long), price (long), size (int)
+ * quote:  time (long), ask price (long), ask size (int), bid price (long), bid size (int)
+ * </pre>
+ * 
+ * Prices are stored as scaled longs, time as milliseconds since 1970-01-01T00:00:00Z.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+final class TickFileFormat
+{
+   /** Identifies tick files, "CBTK" in ASCII. */
+   static final int MAGIC = 0x4342544B;
+   /** Version of the file format. */
+   static final short VERSION = 1;
+   /** Size of the header in bytes. */
+   static final int HEADER_SIZE = 16;
+   /** Size of a trade record in bytes. */
+   static final int TRADE_RECORD_SIZE = 20;
+   /** Size of a quote record in bytes. */
+   static final int QUOTE_RECORD_SIZE = 32;
+   /** Maximum number of decimal places of scaled prices. */
+   static final int MAX_PRICE_SCALE = PriceScale.MAX_DECIMAL_PLACES;
+   
+   /**
+    * A private constructor. This class cannot not be instantiated.
+    */
+   private TickFileFormat()
+   {
+   }
+   
+   /**
+    * @param type
+    *           tick type
+    * @return size of a single record in bytes
+    */
+   static int getRecordSize(TickType type)
+   {
+      return type == TickType.TRADE ? TRADE_RECORD_SIZE : QUOTE_RECORD_SIZE;
+   }
+   
+   /**
+    * Puts file header into the specified buffer.
+    * 
+    * @param buffer
+    *           destination buffer
+    * @param type
+    *           type of the ticks stored in the file
+    * @param priceScale
+    *           number of decimal places of the scaled prices
+    */
+   static void putHeader(ByteBuffer buffer, TickType type, int priceScale)
+   {
+      buffer.putInt(MAGIC);
+      buffer.putShort(VERSION);
+      buffer.put((byte)type.ordinal());
+      buffer.put((byte)priceScale);
+      buffer.putLong(0);
+   }
+   
+   /**
+    * Reads and validates tick type from the file header.
+    * 
+    * @param header
+    *           buffer positioned at the beginning of the header
+    * @return type of the ticks stored in the file
+    * @throws IOException
+    *            if the header is not a valid tick file header
+    */
+   static TickType getTickType(ByteBuffer header) throws IOException
+   {
+      if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+      {
+         throw new IOException("Not a tick file.");
+      }
+      short version = header.getShort();
+      if (version != VERSION)
+      {
+         throw new IOException("Unsupported tick file version " + version + ".");
+      }
+      int type = header.get();
+      if (type < 0 || type >= TickType.values().length)
+      {
+         throw new IOException("Unknown tick type " + type + ".");
+      }
+      return TickType.values()[type];
+   }
+   
+   /**
+    * Reads and validates price scale from the file header. Must be called right after
+    * <code>getTickType</code>.
+    * 
+    * @param header
+    *           buffer positioned after the tick type
+    * @return number of decimal places of the scaled prices
+    * @throws IOException
+    *            if the price scale is not valid
+    */
+   static int getPriceScale(ByteBuffer header) throws IOException
+   {
+      int priceScale = header.get();
+      if (priceScale < 0 || priceScale > MAX_PRICE_SCALE)
+      {
+         throw new IOException("Invalid price scale " + priceScale + ".");
+      }
+      return priceScale;
+   }
+}
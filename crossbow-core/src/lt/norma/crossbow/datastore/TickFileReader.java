@@ -0,0 +1,300 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Reads ticks from a binary tick file written by <code>TickFileWriter</code>. The file is memory
+ * mapped window by window, records are decoded directly from the mapped buffer. Files larger than
+ * the address space of a single mapping are supported.
+ * <p>
+ * A trailing incomplete record, left by an interrupted writer, is ignored.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see TickFileWriter
+ */
+public final class TickFileReader implements TickReader
+{
+   /** Default size of a memory mapped window in bytes. */
+   public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+   
+   private final FileChannel channel;
+   private final TickType tickType;
+   private final int priceScale;
+   private final int recordSize;
+   private final long recordCount;
+   private final long windowCapacity;
+   
+   private MappedByteBuffer window;
+   private long windowStart;
+   private long windowEnd;
+   private long position;
+   
+   private long time;
+   private long price;
+   private int size;
+   private long askPrice;
+   private int askSize;
+   private long bidPrice;
+   private int bidSize;
+   
+   /**
+    * Constructor. Uses windows of <code>DEFAULT_WINDOW_SIZE</code> bytes.
+    * 
+    * @param file
+    *           tick file
+    * @throws IOException
+    *            if the file cannot be opened or is not a valid tick file
+    */
+   public TickFileReader(File file) throws IOException
+   {
+      this(file, DEFAULT_WINDOW_SIZE);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param file
+    *           tick file
+    * @param windowSize
+    *           size of a memory mapped window in bytes. Rounded down to the whole number of
+    *           records, but at least one record is mapped at a time.
+    * @throws IOException
+    *            if the file cannot be opened or is not a valid tick file
+    */
+   public TickFileReader(File file, int windowSize) throws IOException
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      if (windowSize <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("windowSize", windowSize,
+               "Must be a positive integer.");
+      }
+      
+      channel = new RandomAccessFile(file, "r").getChannel();
+      try
+      {
+         ByteBuffer header = ByteBuffer.allocate(TickFileFormat.HEADER_SIZE);
+         int read = 0;
+         while (header.hasRemaining() && read >= 0)
+         {
+            read = channel.read(header);
+         }
+         header.flip();
+         tickType = TickFileFormat.getTickType(header);
+         priceScale = TickFileFormat.getPriceScale(header);
+         recordSize = TickFileFormat.getRecordSize(tickType);
+         recordCount = (channel.size() - TickFileFormat.HEADER_SIZE) / recordSize;
+         windowCapacity = Math.max(1, windowSize / recordSize);
+      }
+      catch (IOException exception)
+      {
+         channel.close();
+         throw exception;
+      }
+      position = 0;
+   }
+   
+   @Override
+   public boolean next() throws IOException
+   {
+      if (position >= recordCount)
+      {
+         return false;
+      }
+      if (window == null || position >= windowEnd || position < windowStart)
+      {
+         map(position);
+      }
+      
+      time = window.getLong();
+      if (tickType == TickType.TRADE)
+      {
+         price = window.getLong();
+         size = window.getInt();
+      }
+      else
+      {
+         askPrice = window.getLong();
+         askSize = window.getInt();
+         bidPrice = window.getLong();
+         bidSize = window.getInt();
+      }
+      position++;
+      return true;
+   }
+   
+   /**
+    * Moves to the specified record. The record is read by the following call to
+    * <code>next()</code>.
+    * 
+    * @param record
+    *           index of the record, 0 to <code>getRecordCount()</code>
+    */
+   public void setPosition(long record)
+   {
+      if (record < 0 || record > recordCount)
+      {
+         throw new InvalidArgumentRuntimeException("record", record,
+               "Must be in range 0 - " + recordCount + ".");
+      }
+      position = record;
+      if (window != null && position >= windowStart && position < windowEnd)
+      {
+         window.position((int)((position - windowStart) * recordSize));
+      }
+   }
+   
+   /**
+    * Moves to the first record with time equal to or later than the specified time. Ticks are
+    * stored in the order of time and records have fixed size, so the record is found by a binary
+    * search reading O(log n) timestamps. The record is read by the following call to
+    * <code>next()</code>.
+    * 
+    * @param time
+    *           time in milliseconds since 1970-01-01T00:00:00Z
+    * @return index of the found record, <code>getRecordCount()</code> if all ticks are earlier
+    * @throws IOException
+    *            on read error
+    */
+   public long seek(long time) throws IOException
+   {
+      long low = 0;
+      long high = recordCount;
+      while (low < high)
+      {
+         long middle = (low + high) >>> 1;
+         if (readTime(middle) < time)
+         {
+            low = middle + 1;
+         }
+         else
+         {
+            high = middle;
+         }
+      }
+      setPosition(low);
+      return low;
+   }
+   
+   /**
+    * @return index of the record to be read by the following call to <code>next()</code>
+    */
+   public long getPosition()
+   {
+      return position;
+   }
+   
+   /**
+    * @return number of complete records in the file
+    */
+   public long getRecordCount()
+   {
+      return recordCount;
+   }
+   
+   @Override
+   public void close() throws IOException
+   {
+      window = null;
+      channel.close();
+   }
+   
+   @Override
+   public TickType getTickType()
+   {
+      return tickType;
+   }
+   
+   @Override
+   public int getPriceScale()
+   {
+      return priceScale;
+   }
+   
+   @Override
+   public long getTime()
+   {
+      return time;
+   }
+   
+   @Override
+   public long getPrice()
+   {
+      return price;
+   }
+   
+   @Override
+   public int getSize()
+   {
+      return size;
+   }
+   
+   @Override
+   public long getAskPrice()
+   {
+      return askPrice;
+   }
+   
+   @Override
+   public int getAskSize()
+   {
+      return askSize;
+   }
+   
+   @Override
+   public long getBidPrice()
+   {
+      return bidPrice;
+   }
+   
+   @Override
+   public int getBidSize()
+   {
+      return bidSize;
+   }
+   
+   private long readTime(long record) throws IOException
+   {
+      if (window == null || record >= windowEnd || record < windowStart)
+      {
+         map(record);
+      }
+      return window.getLong((int)((record - windowStart) * recordSize));
+   }
+   
+   private void map(long firstRecord) throws IOException
+   {
+      long count = Math.min(windowCapacity, recordCount - firstRecord);
+      long offset = TickFileFormat.HEADER_SIZE + firstRecord * recordSize;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, offset, count * recordSize);
+      windowStart = firstRecord;
+      windowEnd = firstRecord + count;
+   }
+}
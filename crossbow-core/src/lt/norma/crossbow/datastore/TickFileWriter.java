@@ -0,0 +1,313 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lt.norma.crossbow.core.PriceScale;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Writes ticks to a binary tick file. A tick file stores ticks of a single type and a single
+ * contract. Ticks must be written in time order. See <code>TickFileFormat</code> for the layout of
+ * the file.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see TickFileReader
+ */
+public final class TickFileWriter implements Closeable
+{
+   /** Size of the output buffer in bytes. */
+   private static final int BUFFER_SIZE = 64 * 1024;
+   
+   private final FileChannel channel;
+   private final ByteBuffer buffer;
+   private final TickType tickType;
+   private final int priceScale;
+   private final PriceScale scale;
+   private long lastTime;
+   private long tickCount;
+   
+   /**
+    * Constructor. Creates a new tick file or truncates an existing one.
+    * 
+    * @param file
+    *           tick file
+    * @param tickType
+    *           type of the ticks to be stored
+    * @param priceScale
+    *           number of decimal places of the scaled prices, 0 to 18
+    * @throws IOException
+    *            if the file cannot be created
+    */
+   public TickFileWriter(File file, TickType tickType, int priceScale) throws IOException
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      if (tickType == null)
+      {
+         throw new InvalidArgumentRuntimeException("tickType", "null");
+      }
+      if (priceScale < 0 || priceScale > TickFileFormat.MAX_PRICE_SCALE)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", priceScale,
+               "Must be in range 0 - " + TickFileFormat.MAX_PRICE_SCALE + ".");
+      }
+      
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(0);
+      channel = randomAccessFile.getChannel();
+      buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      this.tickType = tickType;
+      this.priceScale = priceScale;
+      scale = PriceScale.valueOf(priceScale);
+      lastTime = Long.MIN_VALUE;
+      tickCount = 0;
+      
+      TickFileFormat.putHeader(buffer, tickType, priceScale);
+   }
+   
+   /**
+    * Writes a trade.
+    * 
+    * @param time
+    *           time of the trade in milliseconds since 1970-01-01T00:00:00Z
+    * @param price
+    *           scaled price of the trade
+    * @param size
+    *           size of the trade
+    * @throws IOException
+    *            on write error
+    */
+   public void writeTrade(long time, long price, int size) throws IOException
+   {
+      checkTick(TickType.TRADE, time);
+      prepareBuffer(TickFileFormat.TRADE_RECORD_SIZE);
+      buffer.putLong(time);
+      buffer.putLong(price);
+      buffer.putInt(size);
+      tickCount++;
+   }
+   
+   /**
+    * Writes a quote.
+    * 
+    * @param time
+    *           time of the quote in milliseconds since 1970-01-01T00:00:00Z
+    * @param askPrice
+    *           scaled ask price
+    * @param askSize
+    *           ask size
+    * @param bidPrice
+    *           scaled bid price
+    * @param bidSize
+    *           bid size
+    * @throws IOException
+    *            on write error
+    */
+   public void writeQuote(long time, long askPrice, int askSize, long bidPrice, int bidSize)
+         throws IOException
+   {
+      checkTick(TickType.QUOTE, time);
+      prepareBuffer(TickFileFormat.QUOTE_RECORD_SIZE);
+      buffer.putLong(time);
+      buffer.putLong(askPrice);
+      buffer.putInt(askSize);
+      buffer.putLong(bidPrice);
+      buffer.putInt(bidSize);
+      tickCount++;
+   }
+   
+   /**
+    * Writes a trade. The price is rounded to the price scale of this file. Fixed-point price of
+    * the trade is copied without conversion if the scales match.
+    * 
+    * @param trade
+    *           trade to be written
+    * @throws IOException
+    *            on write error
+    */
+   public void write(Trade trade) throws IOException
+   {
+      long price = trade.getPriceScale() == scale ? trade.getScaledPrice()
+                                                   : scale.toScaled(trade.getPrice());
+      writeTrade(trade.getTimeMillis(), price, trade.getSize());
+   }
+   
+   /**
+    * Writes a quote. Prices are rounded to the price scale of this file. Fixed-point prices of the
+    * quote are copied without conversion if the scales match.
+    * 
+    * @param quote
+    *           quote to be written
+    * @throws IOException
+    *            on write error
+    */
+   public void write(Quote quote) throws IOException
+   {
+      long askPrice;
+      long bidPrice;
+      if (quote.getPriceScale() == scale)
+      {
+         askPrice = quote.getScaledAskPrice();
+         bidPrice = quote.getScaledBidPrice();
+      }
+      else
+      {
+         askPrice = scale.toScaled(quote.getAskPrice());
+         bidPrice = scale.toScaled(quote.getBidPrice());
+      }
+      writeQuote(quote.getTimeMillis(), askPrice, quote.getAskSize(), bidPrice,
+            quote.getBidSize());
+   }
+   
+   /**
+    * Writes all remaining ticks of the specified reader. Can be used to convert ticks from other
+    * formats, for example <code>CsvTickReader</code>, into a tick file.
+    * 
+    * @param reader
+    *           source of the ticks. Must provide ticks of the same type and price scale as this
+    *           file. Reader is not closed by this method.
+    * @return number of ticks written
+    * @throws IOException
+    *            on read or write error
+    */
+   public long writeAll(TickReader reader) throws IOException
+   {
+      if (reader.getTickType() != tickType)
+      {
+         throw new InvalidArgumentRuntimeException("reader", reader.getTickType(),
+               "The file stores " + tickType + " ticks.");
+      }
+      if (reader.getPriceScale() != priceScale)
+      {
+         throw new InvalidArgumentRuntimeException("reader", reader.getPriceScale(),
+               "Price scale of the reader does not match price scale of the file.");
+      }
+      
+      long count = 0;
+      while (reader.next())
+      {
+         if (tickType == TickType.TRADE)
+         {
+            writeTrade(reader.getTime(), reader.getPrice(), reader.getSize());
+         }
+         else
+         {
+            writeQuote(reader.getTime(), reader.getAskPrice(), reader.getAskSize(),
+                  reader.getBidPrice(), reader.getBidSize());
+         }
+         count++;
+      }
+      return count;
+   }
+   
+   /**
+    * Writes buffered ticks to the file.
+    * 
+    * @throws IOException
+    *            on write error
+    */
+   public void flush() throws IOException
+   {
+      buffer.flip();
+      while (buffer.hasRemaining())
+      {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+   
+   /**
+    * Flushes buffered ticks and closes the file.
+    * 
+    * @throws IOException
+    *            on write error
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (channel.isOpen())
+      {
+         try
+         {
+            flush();
+         }
+         finally
+         {
+            channel.close();
+         }
+      }
+   }
+   
+   /**
+    * @return type of the ticks stored in the file
+    */
+   public TickType getTickType()
+   {
+      return tickType;
+   }
+   
+   /**
+    * @return number of decimal places of the scaled prices
+    */
+   public int getPriceScale()
+   {
+      return priceScale;
+   }
+   
+   /**
+    * @return number of ticks written so far
+    */
+   public long getTickCount()
+   {
+      return tickCount;
+   }
+   
+   private void checkTick(TickType type, long time)
+   {
+      if (type != tickType)
+      {
+         throw new InvalidArgumentRuntimeException("tickType", type,
+               "The file stores " + tickType + " ticks.");
+      }
+      if (time < lastTime)
+      {
+         throw new InvalidArgumentRuntimeException("time", time,
+               "Ticks must be written in time order.");
+      }
+      lastTime = time;
+   }
+   
+   private void prepareBuffer(int recordSize) throws IOException
+   {
+      if (buffer.remaining() < recordSize)
+      {
+         flush();
+      }
+   }
+   }
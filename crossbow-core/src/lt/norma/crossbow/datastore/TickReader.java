@@ -0,0 +1,86 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sequential reader of stored ticks. Ticks are read one by one into the reader itself, fields of
+ * the current tick are accessed by primitive getters. No objects are created per tick.
+ * <p>
+ * Prices are scaled long values: the real price equals <code>price / 10^priceScale</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public interface TickReader extends Closeable
+{
+   /**
+    * @return type of the ticks provided by this reader
+    */
+   public TickType getTickType();
+   
+   /**
+    * @return number of decimal places of the scaled prices
+    */
+   public int getPriceScale();
+   
+   /**
+    * Moves to the next tick.
+    * 
+    * @return true if the next tick has been read, false if there are no more ticks
+    * @throws IOException
+    *            on read error
+    */
+   public boolean next() throws IOException;
+   
+   /**
+    * @return time of the current tick in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public long getTime();
+   
+   /**
+    * @return scaled price of the current trade
+    */
+   public long getPrice();
+   
+   /**
+    * @return size of the current trade
+    */
+   public int getSize();
+   
+   /**
+    * @return scaled ask price of the current quote
+    */
+   public long getAskPrice();
+   
+   /**
+    * @return ask size of the current quote
+    */
+   public int getAskSize();
+   
+   /**
+    * @return scaled bid price of the current quote
+    */
+   public long getBidPrice();
+   
+   /**
+    * @return bid size of the current quote
+    */
+   public int getBidSize();
+}
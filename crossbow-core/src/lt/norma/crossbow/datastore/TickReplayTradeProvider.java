@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.IOException;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
+import lt.norma.crossbow.data.TradeProvider;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Trade provider, which replays stored trades of a single contract to the listeners.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see TickFileReader
+ */
+public final class TickReplayTradeProvider extends TradeProvider
+{
+   private final TickReader reader;
+   private final Contract contract;
+   
+   /**
+    * Constructor.
+    * 
+    * @param reader
+    *           source of the trades. Reader is not closed by this provider.
+    * @param contract
+    *           contract of the stored trades
+    */
+   public TickReplayTradeProvider(TickReader reader, Contract contract)
+   {
+      if (reader == null)
+      {
+         throw new InvalidArgumentRuntimeException("reader", "null");
+      }
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      if (reader.getTickType() != TickType.TRADE)
+      {
+         throw new InvalidArgumentRuntimeException("reader", reader.getTickType(),
+               "Reader must provide trades.");
+      }
+      
+      this.reader = reader;
+      this.contract = contract;
+   }
+   
+   /**
+    * Replays all remaining trades of the reader. Prices are never rounded, they are fired at the
+    * finer of the price scales of the contract and the reader.
+    * 
+    * @return number of trades replayed
+    * @throws IOException
+    *            on read error
+    */
+   public long replay() throws IOException
+   {
+      PriceScale fileScale = PriceScale.valueOf(reader.getPriceScale());
+      PriceScale priceScale = PriceScale.max(contract.getPriceScale(), fileScale);
+      long count = 0;
+      while (reader.next())
+      {
+         fireTradeEvent(contract, priceScale.rescale(reader.getPrice(), fileScale), priceScale,
+               reader.getSize(), reader.getTime());
+         count++;
+      }
+      return count;
+   }
+   
+   /**
+    * @return contract of the stored trades
+    */
+   public Contract getContract()
+   {
+      return contract;
+   }
+}
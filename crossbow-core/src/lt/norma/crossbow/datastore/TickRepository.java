@@ -0,0 +1,380 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Repository of tick files partitioned by contract, tick type and trading date. Every trading day
+ * of a contract is stored in a separate tick file:
+ * <p>
+ * <code>root/exchange/type/symbol/yyyy-MM-dd.trade.tick</code>
+ * <p>
+ * Trading dates are in the time zone of the exchange. A replay of a time range opens only the
+ * partitions of the dates in the range and seeks to the start time inside the first partition by
+ * a binary search over the fixed-size records, see <code>TickFileReader.seek</code>. Readers
+ * returned by the repository are ordinary <code>TickReader</code>s, replayed by
+ * <code>TickReplayTradeProvider</code>, <code>TickReplayQuoteProvider</code> or
+ * <code>MergedTickReplay</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see TickFileReader
+ */
+public final class TickRepository
+{
+   /** Extension of the partition files. */
+   public static final String EXTENSION = ".tick";
+   
+   private static final DateTimeFormatter DATE_FORMATTER = ISODateTimeFormat.date();
+   
+   private final File root;
+   
+   /**
+    * Constructor.
+    * 
+    * @param root
+    *           root directory of the repository. Created on the first write if it does not exist.
+    */
+   public TickRepository(File root)
+   {
+      if (root == null)
+      {
+         throw new InvalidArgumentRuntimeException("root", "null");
+      }
+      this.root = root;
+   }
+   
+   /**
+    * Creates a writer of a single partition. An existing partition is overwritten.
+    * 
+    * @param contract
+    *           contract of the ticks
+    * @param tickType
+    *           type of the ticks
+    * @param date
+    *           trading date in the time zone of the exchange
+    * @return writer of the partition
+    * @throws IOException
+    *            if the partition cannot be created
+    */
+   public TickFileWriter createWriter(Contract contract, TickType tickType, LocalDate date)
+         throws IOException
+   {
+      File file = getPartition(contract, tickType, date);
+      File directory = file.getParentFile();
+      if (!directory.isDirectory() && !directory.mkdirs())
+      {
+         throw new IOException("Cannot create directory " + directory + ".");
+      }
+      return new TickFileWriter(file, tickType, contract.getPriceScale().getDecimalPlaces());
+   }
+   
+   /**
+    * Gets trading dates of the stored partitions.
+    * 
+    * @param contract
+    *           contract of the ticks
+    * @param tickType
+    *           type of the ticks
+    * @return sorted list of dates
+    */
+   public List<LocalDate> getDates(Contract contract, TickType tickType)
+   {
+      checkArguments(contract, tickType);
+      List<LocalDate> dates = new ArrayList<LocalDate>();
+      String suffix = "." + tickType.name().toLowerCase() + EXTENSION;
+      String[] names = getDirectory(contract).list();
+      if (names != null)
+      {
+         for (String name : names)
+         {
+            if (name.endsWith(suffix))
+            {
+               try
+               {
+                  dates.add(DATE_FORMATTER.parseLocalDate(name.substring(0, name.length()
+                        - suffix.length())));
+               }
+               catch (IllegalArgumentException e)
+               {
+                  // Not a partition
+               }
+            }
+         }
+      }
+      Collections.sort(dates);
+      return dates;
+   }
+   
+   /**
+    * Opens stored ticks of the specified time range. Only partitions of the trading dates within
+    * the range are opened. Prices are never rounded, they are converted to the finest of the price
+    * scales of the contract and the partitions.
+    * 
+    * @param contract
+    *           contract of the ticks
+    * @param tickType
+    *           type of the ticks
+    * @param start
+    *           start of the range, inclusive
+    * @param end
+    *           end of the range, exclusive
+    * @return reader of the ticks. Must be closed by the caller.
+    * @throws IOException
+    *            if a partition cannot be opened
+    */
+   public TickReader openReader(Contract contract, TickType tickType, DateTime start, DateTime end)
+         throws IOException
+   {
+      checkArguments(contract, tickType);
+      if (start == null)
+      {
+         throw new InvalidArgumentRuntimeException("start", "null");
+      }
+      if (end == null)
+      {
+         throw new InvalidArgumentRuntimeException("end", "null");
+      }
+      LocalDate startDate = start.withZone(contract.getExchange().getTimeZone()).toLocalDate();
+      LocalDate endDate = end.withZone(contract.getExchange().getTimeZone()).toLocalDate();
+      List<File> files = new ArrayList<File>();
+      PriceScale priceScale = contract.getPriceScale();
+      for (LocalDate date : getDates(contract, tickType))
+      {
+         if (!date.isBefore(startDate) && !date.isAfter(endDate))
+         {
+            File file = getPartition(contract, tickType, date);
+            files.add(file);
+            // Only the header is read, the records are not mapped.
+            TickFileReader reader = new TickFileReader(file);
+            try
+            {
+               priceScale =
+                     PriceScale.max(priceScale, PriceScale.valueOf(reader.getPriceScale()));
+            }
+            finally
+            {
+               reader.close();
+            }
+         }
+      }
+      return new PartitionReader(files, tickType, priceScale, start.getMillis(), end.getMillis());
+   }
+   
+   /**
+    * Gets a partition file.
+    * 
+    * @param contract
+    *           contract of the ticks
+    * @param tickType
+    *           type of the ticks
+    * @param date
+    *           trading date in the time zone of the exchange
+    * @return partition file, which may not exist
+    */
+   public File getPartition(Contract contract, TickType tickType, LocalDate date)
+   {
+      checkArguments(contract, tickType);
+      if (date == null)
+      {
+         throw new InvalidArgumentRuntimeException("date", "null");
+      }
+      return new File(getDirectory(contract), DATE_FORMATTER.print(date) + "."
+                                              + tickType.name().toLowerCase() + EXTENSION);
+   }
+   
+   /**
+    * @return root directory of the repository
+    */
+   public File getRoot()
+   {
+      return root;
+   }
+   
+   private File getDirectory(Contract contract)
+   {
+      File exchange = new File(root, contract.getExchange().getName());
+      return new File(new File(exchange, contract.getType()), contract.getSymbol());
+   }
+   
+   private static void checkArguments(Contract contract, TickType tickType)
+   {
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      if (tickType == null)
+      {
+         throw new InvalidArgumentRuntimeException("tickType", "null");
+      }
+   }
+   
+   /**
+    * Reads partitions one after another. Skips ticks before the start time by seeking in the first
+    * partition and stops at the end time. Prices of every partition are converted to a common
+    * scale, which is not coarser than the scale of any partition.
+    */
+   private static final class PartitionReader implements TickReader
+   {
+      private final List<File> files;
+      private final TickType tickType;
+      private final PriceScale priceScale;
+      private final long start;
+      private final long end;
+      private int nextFile;
+      private TickFileReader reader;
+      private PriceScale fileScale;
+      private boolean finished;
+      
+      private PartitionReader(List<File> files, TickType tickType, PriceScale priceScale,
+            long start, long end)
+      {
+         this.files = files;
+         this.tickType = tickType;
+         this.priceScale = priceScale;
+         this.start = start;
+         this.end = end;
+         nextFile = 0;
+         finished = false;
+      }
+      
+      @Override
+      public boolean next() throws IOException
+      {
+         while (!finished)
+         {
+            if (reader == null && !open())
+            {
+               finished = true;
+            }
+            else if (reader.next())
+            {
+               if (reader.getTime() < end)
+               {
+                  return true;
+               }
+               finished = true;
+            }
+            else
+            {
+               reader.close();
+               reader = null;
+            }
+         }
+         return false;
+      }
+      
+      private boolean open() throws IOException
+      {
+         if (nextFile >= files.size())
+         {
+            return false;
+         }
+         reader = new TickFileReader(files.get(nextFile));
+         nextFile++;
+         if (reader.getTickType() != tickType)
+         {
+            reader.close();
+            reader = null;
+            throw new IOException("Partition " + files.get(nextFile - 1) + " contains "
+                                  + "ticks of a wrong type.");
+         }
+         fileScale = PriceScale.valueOf(reader.getPriceScale());
+         reader.seek(start);
+         return true;
+      }
+      
+      @Override
+      public void close() throws IOException
+      {
+         finished = true;
+         if (reader != null)
+         {
+            reader.close();
+            reader = null;
+         }
+      }
+      
+      @Override
+      public TickType getTickType()
+      {
+         return tickType;
+      }
+      
+      @Override
+      public int getPriceScale()
+      {
+         return priceScale.getDecimalPlaces();
+      }
+      
+      @Override
+      public long getTime()
+      {
+         return reader.getTime();
+      }
+      
+      @Override
+      public long getPrice()
+      {
+         return priceScale.rescale(reader.getPrice(), fileScale);
+      }
+      
+      @Override
+      public int getSize()
+      {
+         return reader.getSize();
+      }
+      
+      @Override
+      public long getAskPrice()
+      {
+         return priceScale.rescale(reader.getAskPrice(), fileScale);
+      }
+      
+      @Override
+      public int getAskSize()
+      {
+         return reader.getAskSize();
+      }
+      
+      @Override
+      public long getBidPrice()
+      {
+         return priceScale.rescale(reader.getBidPrice(), fileScale);
+      }
+      
+      @Override
+      public int getBidSize()
+      {
+         return reader.getBidSize();
+      }
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+
+/**
+ * Base class for period splitters closing periods by market activity instead of time. Every trade
+ * is added to the current period, the period ends right after the trade completing it and the next
+ * period starts. Quotes do not affect the periods.
+ * <p>
+ * The first trade starts the first period. If a single trade completes the first period, the end
+ * of it is reported before the next trade. Results are allocated only when a period changes.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public abstract class ActivityPeriodSplitter implements PeriodSplitter
+{
+   private boolean isFirstPeriod;
+   private boolean restartPending;
+   private PeriodSplitterResult continuation;
+   private PeriodSplitterResult lastResult;
+   private final Object lock;
+   
+   /**
+    * Constructor.
+    */
+   protected ActivityPeriodSplitter()
+   {
+      isFirstPeriod = true;
+      restartPending = false;
+      lock = new Object();
+   }
+   
+   @Override
+   public final PeriodSplitterResult checkEndOfPeriod(Trade trade)
+   {
+      synchronized (lock)
+      {
+         PeriodSplitterAction action = PeriodSplitterAction.NO_ACTION;
+         if (isFirstPeriod)
+         {
+            action = PeriodSplitterAction.START_BEFORE;
+            isFirstPeriod = false;
+         }
+         else if (restartPending)
+         {
+            action = PeriodSplitterAction.RESTART_BEFORE;
+            restartPending = false;
+         }
+         
+         if (add(trade))
+         {
+            reset();
+            if (action == PeriodSplitterAction.NO_ACTION)
+            {
+               action = PeriodSplitterAction.RESTART_AFTER;
+            }
+            else
+            {
+               // The trade both starts and completes a period.
+               restartPending = true;
+            }
+         }
+         
+         if (action == PeriodSplitterAction.NO_ACTION)
+         {
+            lastResult = continuation;
+         }
+         else
+         {
+            lastResult = new PeriodSplitterResult(action, trade.getTime());
+            continuation = new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION,
+                  trade.getTime());
+         }
+         return lastResult;
+      }
+   }
+   
+   @Override
+   public final PeriodSplitterResult checkEndOfPeriod(Quote quote)
+   {
+      synchronized (lock)
+      {
+         if (continuation == null)
+         {
+            continuation = new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION,
+                  quote.getTime());
+         }
+         lastResult = continuation;
+         return lastResult;
+      }
+   }
+   
+   @Override
+   public final PeriodSplitterResult getLastResult()
+   {
+      synchronized (lock)
+      {
+         return lastResult;
+      }
+   }
+   
+   /**
+    * Adds a trade to the current period. Called while holding the lock of the splitter.
+    * 
+    * @param trade
+    *           trade of the current period
+    * @return true if the trade completes the current period
+    */
+   protected abstract boolean add(Trade trade);
+   
+   /**
+    * Clears the activity accumulated during the completed period. Called while holding the lock of
+    * the splitter.
+    */
+   protected abstract void reset();
+}
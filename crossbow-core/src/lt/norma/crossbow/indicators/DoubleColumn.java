@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of periodic <code>double</code> values. Values are kept in an array on the heap.
+ * Subclasses may store them elsewhere by overriding <code>setElement</code>,
+ * <code>getElement</code> and <code>resize</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see PeriodicColumn
+ */
+public class DoubleColumn extends PeriodicColumn
+{
+   private double[] values;
+   
+   /**
+    * Constructor.
+    * 
+    * @param retention
+    *           maximum number of periods kept, or <code>UNLIMITED_RETENTION</code>
+    */
+   public DoubleColumn(int retention)
+   {
+      super(retention);
+      values = new double[0];
+   }
+   
+   /**
+    * Adds the value of the next period.
+    * 
+    * @param value
+    *           value, ignored if not set
+    * @param set
+    *           true if the value is set
+    */
+   public final synchronized void add(double value, boolean set)
+   {
+      // The array may be replaced by addPeriod, it must be read after the call.
+      int element = addPeriod(set);
+      setElement(element, set ? value : 0);
+   }
+   
+   /**
+    * @param index
+    *           index of a retained period, 0 for the oldest one
+    * @return value of the period, 0 if not set
+    */
+   public final synchronized double get(int index)
+   {
+      return getElement(element(index));
+   }
+   
+   /**
+    * @param periodsAgo
+    *           number of periods ago, 0 for the most recent period
+    * @return value of the period, 0 if not set
+    */
+   public final synchronized double getAgo(int periodsAgo)
+   {
+      return get(size() - 1 - periodsAgo);
+   }
+   
+   /**
+    * Stores a value in the specified element.
+    * 
+    * @param element
+    *           index of the element returned by <code>addPeriod</code>
+    * @param value
+    *           value to be stored
+    */
+   protected void setElement(int element, double value)
+   {
+      values[element] = value;
+   }
+   
+   /**
+    * @param element
+    *           index of the element
+    * @return value stored in the element
+    */
+   protected double getElement(int element)
+   {
+      return values[element];
+   }
+   
+   @Override
+   protected final void writeElement(DataOutput out, int element) throws IOException
+   {
+      out.writeDouble(getElement(element));
+   }
+   
+   @Override
+   protected final void readElement(DataInput in, int element) throws IOException
+   {
+      setElement(element, in.readDouble());
+   }
+   
+   @Override
+   protected void resize(int newCapacity)
+   {
+      values = Arrays.copyOf(values, newCapacity);
+   }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.exceptions.ValueNotSetRuntimeException;
+
+/**
+ * Base class for indicators of <code>double</code> values. The value is stored in a primitive
+ * field, <code>getDouble</code> and <code>setDouble</code> neither box the value nor take a lock,
+ * so dependent indicators can read it on every tick without allocating objects. The value is
+ * volatile, it is visible to other threads as soon as it is set.
+ * <p>
+ * Periodic data is stored in a <code>DoubleColumn</code>, kept on the heap by default or supplied
+ * by the subclass, for example a <code>MappedDoubleColumn</code>. <code>getValue</code>,
+ * <code>getPeriodicData</code> and other generic accessors remain available, they box the values on
+ * access.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public abstract class DoubleIndicator extends Indicator<Double>
+{
+   private volatile double doubleValue;
+   private volatile boolean doubleValueSet;
+   
+   private final DoubleColumn periodicValues;
+   
+   /**
+    * Constructor.
+    * 
+    * @param title
+    *           short human readable title of this indicator
+    * @param collectPeriodicData
+    *           specifies if this indicator collects periodic data
+    */
+   public DoubleIndicator(String title, boolean collectPeriodicData)
+   {
+      this(title, collectPeriodicData, PeriodicColumn.UNLIMITED_RETENTION);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param title
+    *           short human readable title of this indicator
+    * @param collectPeriodicData
+    *           specifies if this indicator collects periodic data
+    * @param retention
+    *           maximum number of periods kept in periodic data, or
+    *           <code>PeriodicColumn.UNLIMITED_RETENTION</code>
+    */
+   public DoubleIndicator(String title, boolean collectPeriodicData, int retention)
+   {
+      super(title, collectPeriodicData, retention);
+      doubleValueSet = false;
+      periodicValues = new DoubleColumn(retention);
+   }
+   
+   /**
+    * Constructor. Collects periodic data into the specified column, for example a
+    * <code>MappedDoubleColumn</code> keeping long histories outside the heap.
+    * 
+    * @param title
+    *           short human readable title of this indicator
+    * @param periodicColumn
+    *           empty column to store periodic data in
+    */
+   public DoubleIndicator(String title, DoubleColumn periodicColumn)
+   {
+      super(title, true, checkColumn(periodicColumn).getRetention());
+      doubleValueSet = false;
+      periodicValues = periodicColumn;
+   }
+   
+   /**
+    * @return value of this indicator
+    * @throws ValueNotSetRuntimeException
+    *            if value of this indicator is not set yet
+    */
+   public final double getDouble()
+   {
+      if (!doubleValueSet)
+      {
+         throw new ValueNotSetRuntimeException("indicator " + getTitle());
+      }
+      return doubleValue;
+   }
+   
+   /**
+    * Sets value of this indicator.
+    * 
+    * @param value
+    *           new value
+    */
+   public final void setDouble(double value)
+   {
+      // The value is written before the flag, a reader seeing the flag sees the value.
+      doubleValue = value;
+      doubleValueSet = true;
+   }
+   
+   @Override
+   public final Double getValue()
+   {
+      return getDouble();
+   }
+   
+   /**
+    * Sets value of this indicator.
+    * 
+    * @param value
+    *           new value, not null
+    */
+   @Override
+   public final void setValue(Double value)
+   {
+      if (value == null)
+      {
+         throw new InvalidArgumentRuntimeException("value", "null");
+      }
+      setDouble(value);
+   }
+   
+   @Override
+   public final boolean isSet()
+   {
+      return doubleValueSet;
+   }
+   
+   @Override
+   public final void unsetValue()
+   {
+      doubleValueSet = false;
+   }
+   
+   @Override
+   protected final void writeValue(DataOutput out) throws IOException
+   {
+      boolean set = doubleValueSet;
+      out.writeBoolean(set);
+      out.writeDouble(set ? doubleValue : 0);
+   }
+   
+   @Override
+   protected final void readValue(DataInput in) throws IOException
+   {
+      boolean set = in.readBoolean();
+      doubleValue = in.readDouble();
+      doubleValueSet = set;
+   }
+   
+   @Override
+   protected final void addPeriodicValue()
+   {
+      boolean set = doubleValueSet;
+      periodicValues.add(set ? doubleValue : 0, set);
+   }
+   
+   @Override
+   public DoubleColumn getPeriodicColumn()
+   {
+      return hasPeriodicData() ? periodicValues : null;
+   }
+   
+   /**
+    * Gets value of this indicator at the end of a period without boxing. Takes constant time.
+    * 
+    * @param periodsAgo
+    *           number of periods ago, 0 for the most recent period
+    * @return value of this indicator at the end of the specified period
+    * @throws ValueNotSetRuntimeException
+    *            if periodic data is not collected or value was not set at the end of the period
+    */
+   public final double getPeriodicDouble(int periodsAgo)
+   {
+      synchronized (periodicValues)
+      {
+         checkPeriodicValue(periodsAgo);
+         return periodicValues.getAgo(periodsAgo);
+      }
+   }
+   
+   @Override
+   public final Double getPeriodicValue(int periodsAgo)
+   {
+      return getPeriodicDouble(periodsAgo);
+   }
+   
+   private static DoubleColumn checkColumn(DoubleColumn column)
+   {
+      if (column == null)
+      {
+         throw new InvalidArgumentRuntimeException("periodicColumn", "null");
+      }
+      if (column.getPeriodCount() > 0)
+      {
+         throw new InvalidArgumentRuntimeException("periodicColumn", column,
+               "Column must be empty.");
+      }
+      return column;
+   }
+}
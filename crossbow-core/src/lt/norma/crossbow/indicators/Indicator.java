@@ -17,6 +17,10 @@
 
 package lt.norma.crossbow.indicators;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,6 +33,14 @@ import org.joda.time.DateTime;
 
 /**
  * Base class for all indicators. Extend this class to create custom indicators.
+ * <p>
+ * Periodic data is stored in a <code>PeriodicColumn</code>. The number of periods kept may be
+ * limited by the retention, older periods are dropped as new ones are added.
+ * <p>
+ * State of an indicator - the value, periodic data and internal state of subclasses - is saved by
+ * <code>writeState</code> and restored by <code>readState</code>, so a restarted strategy does not
+ * need to warm its indicators up on historical data. Subclasses keeping state in their own fields
+ * override both methods, calling the overridden methods first.
  * 
  * @param <Type>
  *           type of the value
@@ -51,8 +63,7 @@ public abstract class Indicator<Type>
    
    // Periodic data.
    private final boolean collectPeriodicData;
-   private final List<Type> periodicData;
-   private final List<Boolean> periodicDataFlags;
+   private final ObjectColumn<Type> periodicData;
    private final Object periodicDataLock;
    
    /**
@@ -64,6 +75,22 @@ public abstract class Indicator<Type>
     *           specifies if this indicator collects periodic data
     */
    public Indicator(String title, boolean collectPeriodicData)
+   {
+      this(title, collectPeriodicData, PeriodicColumn.UNLIMITED_RETENTION);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param title
+    *           short human readable title of this indicator
+    * @param collectPeriodicData
+    *           specifies if this indicator collects periodic data
+    * @param retention
+    *           maximum number of periods kept in periodic data, or
+    *           <code>PeriodicColumn.UNLIMITED_RETENTION</code>
+    */
+   public Indicator(String title, boolean collectPeriodicData, int retention)
    {
       this.originalTitle = String.valueOf(title);
       description = "";
@@ -75,8 +102,7 @@ public abstract class Indicator<Type>
       valueLock = new Object();
       
       this.collectPeriodicData = collectPeriodicData;
-      periodicData = new ArrayList<Type>();
-      periodicDataFlags = new ArrayList<Boolean>();
+      periodicData = new ObjectColumn<Type>(retention);
       periodicDataLock = new Object();
    }
    
@@ -143,7 +169,7 @@ public abstract class Indicator<Type>
     *            if value of this indicator is not set yet
     * @see #isSet()
     */
-   public final Type getValue()
+   public Type getValue()
    {
       synchronized (valueLock)
       {
@@ -160,7 +186,7 @@ public abstract class Indicator<Type>
     * @param value
     *           new value
     */
-   public final void setValue(Type value)
+   public void setValue(Type value)
    {
       synchronized (valueLock)
       {
@@ -172,7 +198,7 @@ public abstract class Indicator<Type>
    /**
     * @return true if value of the indicator is set, false otherwise
     */
-   public final boolean isSet()
+   public boolean isSet()
    {
       synchronized (valueLock)
       {
@@ -184,7 +210,7 @@ public abstract class Indicator<Type>
     * Marks value of this indicator as not set. Further calls to <code>getValue()</code> will throw
     * an exception until value of this indicator is not set again by <code>setValue()</code>.
     */
-   public final void unsetValue()
+   public void unsetValue()
    {
       synchronized (valueLock)
       {
@@ -193,36 +219,120 @@ public abstract class Indicator<Type>
    }
    
    /**
-    * Updates periodic data at the end of period.
+    * Updates periodic data at the end of period and notifies this indicator by calling
+    * <code>endOfPeriod</code>. The notification is sent even if periodic data is not collected.
     * 
     * @param time
     *           time of the data period
     */
    public final void updateEndOfPeriod(DateTime time)
    {
-      if (collectPeriodicData)
+      synchronized (valueLock)
       {
-         synchronized (valueLock)
+         synchronized (periodicDataLock)
          {
-            synchronized (periodicDataLock)
+            if (collectPeriodicData)
             {
-               if (isValueSet)
-               {
-                  periodicData.add(value);
-                  periodicDataFlags.add(true);
-               }
-               else
-               {
-                  periodicData.add(null);
-                  periodicDataFlags.add(false);
-               }
-               
-               endOfPeriod(time);
+               addPeriodicValue();
             }
+            endOfPeriod(time);
+         }
+      }
+   }
+   
+   /**
+    * Appends the current value of this indicator to periodic data. Called at the end of every
+    * period, before <code>endOfPeriod</code>. Subclasses storing values in their own fields must
+    * override this method together with the value and periodic data accessors.
+    */
+   protected void addPeriodicValue()
+   {
+      periodicData.add(value, isValueSet);
+   }
+   
+   /**
+    * Writes state of this indicator. Override this method to write internal state of the
+    * subclass, after calling <code>super.writeState</code>.
+    * 
+    * @param out
+    *           destination
+    * @throws IOException
+    *            on write error
+    */
+   public void writeState(DataOutput out) throws IOException
+   {
+      writeValue(out);
+      PeriodicColumn column = getPeriodicColumn();
+      out.writeBoolean(column != null);
+      if (column != null)
+      {
+         column.writeState(out);
+      }
+   }
+   
+   /**
+    * Restores state of this indicator written by <code>writeState</code> of an indicator of the
+    * same class and parameters. Override this method to read internal state of the subclass, after
+    * calling <code>super.readState</code>.
+    * 
+    * @param in
+    *           source
+    * @throws IOException
+    *            on read error or if the state does not match this indicator
+    */
+   public void readState(DataInput in) throws IOException
+   {
+      readValue(in);
+      PeriodicColumn column = getPeriodicColumn();
+      if (in.readBoolean() != (column != null))
+      {
+         throw new IOException("Periodic data of indicator " + getTitle() + " does not match.");
+      }
+      if (column != null)
+      {
+         column.readState(in);
+      }
+   }
+   
+   /**
+    * Writes the value of this indicator. Subclasses storing values in their own fields must
+    * override this method together with <code>readValue</code>.
+    * 
+    * @param out
+    *           destination
+    * @throws IOException
+    *            on write error
+    */
+   protected void writeValue(DataOutput out) throws IOException
+   {
+      synchronized (valueLock)
+      {
+         out.writeBoolean(isValueSet);
+         if (isValueSet)
+         {
+            ValueCodec.write(out, value);
          }
       }
    }
    
+   /**
+    * Reads the value of this indicator written by <code>writeValue</code>.
+    * 
+    * @param in
+    *           source
+    * @throws IOException
+    *            on read error
+    */
+   @SuppressWarnings("unchecked")
+   protected void readValue(DataInput in) throws IOException
+   {
+      synchronized (valueLock)
+      {
+         isValueSet = in.readBoolean();
+         value = isValueSet ? (Type)ValueCodec.read(in) : null;
+      }
+   }
+   
    /**
     * @return true if periodic data is collected for this indicator
     */
@@ -232,39 +342,136 @@ public abstract class Indicator<Type>
    }
    
    /**
-    * @return periodic data of null if periodic data is not collected for this indicator
+    * @return storage of periodic data or null if periodic data is not collected for this indicator
     */
-   public final List<Type> getPeriodicData()
+   public PeriodicColumn getPeriodicColumn()
+   {
+      return collectPeriodicData ? periodicData : null;
+   }
+   
+   /**
+    * @return maximum number of periods kept in periodic data, or
+    *         <code>PeriodicColumn.UNLIMITED_RETENTION</code>
+    */
+   public final int getRetention()
+   {
+      return periodicData.getRetention();
+   }
+   
+   /**
+    * @param periodsAgo
+    *           number of periods ago, 0 for the most recent period
+    * @return true if value of this indicator was set at the end of the specified period
+    * @throws ValueNotSetRuntimeException
+    *            if periodic data is not collected for this indicator
+    */
+   public final boolean isPeriodicValueSet(int periodsAgo)
+   {
+      return checkPeriodicData().isSetAgo(periodsAgo);
+   }
+   
+   /**
+    * Gets value of this indicator at the end of a period. Takes constant time.
+    * 
+    * @param periodsAgo
+    *           number of periods ago, 0 for the most recent period
+    * @return value of this indicator at the end of the specified period
+    * @throws ValueNotSetRuntimeException
+    *            if periodic data is not collected or value was not set at the end of the period
+    */
+   public Type getPeriodicValue(int periodsAgo)
    {
-      if (collectPeriodicData)
+      synchronized (periodicData)
       {
-         synchronized (periodicDataLock)
-         {
-            return periodicData;
-         }
+         checkPeriodicValue(periodsAgo);
+         return periodicData.getAgo(periodsAgo);
       }
-      else
+   }
+   
+   /**
+    * @return periodic data of null if periodic data is not collected for this indicator. The list
+    *         is a read-only view of the retained periods, the oldest one first.
+    */
+   public final List<Type> getPeriodicData()
+   {
+      if (!collectPeriodicData)
       {
          return null;
       }
+      return new AbstractList<Type>()
+      {
+         @Override
+         public Type get(int index)
+         {
+            PeriodicColumn column = getPeriodicColumn();
+            synchronized (column)
+            {
+               int periodsAgo = column.size() - 1 - index;
+               return column.isSet(index) ? getPeriodicValue(periodsAgo) : null;
+            }
+         }
+         
+         @Override
+         public int size()
+         {
+            return getPeriodicColumn().size();
+         }
+      };
    }
    
    /**
-    * @return periodic data flags of null if periodic data is not collected for this indicator
+    * @return periodic data flags of null if periodic data is not collected for this indicator. The
+    *         list is a read-only view of the retained periods, the oldest one first.
     */
    public final List<Boolean> getPeriodicDataFlags()
    {
-      if (collectPeriodicData)
+      if (!collectPeriodicData)
       {
-         synchronized (periodicDataLock)
+         return null;
+      }
+      return new AbstractList<Boolean>()
+      {
+         @Override
+         public Boolean get(int index)
          {
-            return periodicDataFlags;
+            return getPeriodicColumn().isSet(index);
          }
+         
+         @Override
+         public int size()
+         {
+            return getPeriodicColumn().size();
+         }
+      };
+   }
+   
+   /**
+    * Checks that the value of the specified period is stored and set. Used by subclasses
+    * overriding <code>getPeriodicValue</code>.
+    * 
+    * @param periodsAgo
+    *           number of periods ago, 0 for the most recent period
+    * @throws ValueNotSetRuntimeException
+    *            if periodic data is not collected or value was not set at the end of the period
+    */
+   protected final void checkPeriodicValue(int periodsAgo)
+   {
+      if (!checkPeriodicData().isSetAgo(periodsAgo))
+      {
+         throw new ValueNotSetRuntimeException("indicator " + getTitle(), periodsAgo
+                                                                          + " periods ago.");
       }
-      else
+   }
+   
+   private PeriodicColumn checkPeriodicData()
+   {
+      PeriodicColumn column = getPeriodicColumn();
+      if (column == null)
       {
-         return null;
+         throw new ValueNotSetRuntimeException("periodic data of indicator " + getTitle(),
+               "Periodic data is not collected.");
       }
+      return column;
    }
    
    /**
@@ -17,29 +17,106 @@
 
 package lt.norma.crossbow.indicators;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import lt.norma.crossbow.data.Quote;
 import lt.norma.crossbow.data.QuoteEvent;
 import lt.norma.crossbow.data.QuoteListener;
+import lt.norma.crossbow.data.Trade;
 import lt.norma.crossbow.data.TradeEvent;
 import lt.norma.crossbow.data.TradeListener;
+import lt.norma.crossbow.exceptions.CrossbowRuntimeException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
 
 /**
- * Stores list of indicators.
+ * Stores list of indicators. Indicators are kept in topological order of their dependency graph,
+ * every indicator is placed after all of its dependencies and receives market data after them.
+ * <p>
+ * Indicators are grouped into evaluation levels. Indicators without dependencies are at level 0,
+ * any other indicator is one level above the highest of its dependencies. Indicators of the same
+ * level do not depend on each other. Levels are calculated when an indicator is added, so
+ * dependencies of an indicator must be set up before it is added to the list.
+ * <p>
+ * By default indicators are updated one by one in the calling thread. If an executor is
+ * specified, trades and quotes are sent to the indicators of a level in parallel, and the next
+ * level is started only when all indicators of the previous one are updated. Levels with fewer
+ * indicators than the parallel threshold are still updated in the calling thread, as handing
+ * them over to the executor costs more than updating light indicators directly. Period actions
+ * are always performed in the calling thread.
+ * <p>
+ * Indicators receive period events of the list's period splitter, unless they are added with a
+ * splitter of their own timeframe, for example one of <code>MultiTimeframeSplitter</code>
+ * timeframes. A single list may then hold indicators of several timeframes, each splitter is
+ * checked once per trade or quote.
+ * <p>
+ * Period splitters keep their own state, so a splitter must not be checked by several lists.
+ * Lists receiving the same data, such as indicators and measures of a strategy, share timeframes
+ * by naming one of them the timeframe owner of the others. The owner checks splitters of the
+ * timeframes subscribed in any of the lists and must receive every trade or quote before the other
+ * lists. A splitter used as the own splitter of one of the lists may not be subscribed to as a
+ * timeframe.
+ * <p>
+ * Periods of <code>PeriodTimer</code> splitters are also ended by the timer, the list is the
+ * listener of a timer of its own splitter.
+ * <p>
+ * State of all indicators may be saved into a single binary file by <code>saveState</code> and
+ * restored by <code>restoreState</code> into a list of the same indicators, added in the same
+ * order. State of the period splitters is not saved, the first trade or quote after the restore
+ * starts a new period.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
-public class IndicatorList implements TradeListener, QuoteListener
+public class IndicatorList implements TradeListener, QuoteListener, PeriodTimerListener
 {
+   /** Identifies files written by <code>saveState</code>. */
+   private static final int STATE_MAGIC = 0x43425354;
+   private static final int STATE_VERSION = 1;
+   
    /**
     * List of indicators.
     */
    protected final List<Indicator<?>> indicators;
    private final Object lock;
-   private final PeriodSplitter periodSplitter;
+   private final PeriodEngine periodEngine;
+   private final PeriodDispatcher periodDispatcher;
+   /** Period engines of the indicators subscribed to a timeframe other than the list's own. */
+   private final Map<Indicator<?>, PeriodEngine> subscriptions;
+   /** Timeframes shared with the timeframe owner of this list. */
+   private final Timeframes timeframes;
+   /** Whether this list checks splitters of the shared timeframes. */
+   private final boolean ownsTimeframes;
+   /** Dispatchers of the subscribed timeframes, in order of subscription. */
+   private final List<PeriodDispatcher> timeframeDispatchers;
+   /** Cached levels of the added indicators and all of their dependencies. */
+   private final Map<Indicator<?>, Integer> levels;
+   /** Indicators grouped by level, rebuilt on demand after an indicator is added. */
+   private List<List<Indicator<?>>> levelGroups;
+   private final ExecutorService executor;
+   private final int parallelThreshold;
+   /** Reusable update tasks grouped by level, null if the levels have changed. */
+   private List<List<UpdateTask>> levelTasks;
    
    /**
     * Constructor.
@@ -50,138 +127,626 @@ public class IndicatorList implements TradeListener, QuoteListener
     */
    public IndicatorList(PeriodSplitter periodSplitter)
    {
-      this.periodSplitter = periodSplitter;
+      this(periodSplitter, null, 1);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param periodSplitter
+    *           used to check for end and beginning of data periods. If set to null, data periods
+    *           will not be generated for any of indicators in this list.
+    * @param executor
+    *           executor used to update indicators of a level in parallel. If set to null, all
+    *           indicators are updated in the calling thread. The executor is not shut down by
+    *           this list.
+    * @param parallelThreshold
+    *           minimal number of indicators in a level for the level to be updated in parallel
+    */
+   public IndicatorList(PeriodSplitter periodSplitter, ExecutorService executor,
+         int parallelThreshold)
+   {
+      this(periodSplitter, executor, parallelThreshold, null);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param periodSplitter
+    *           used to check for end and beginning of data periods. If set to null, data periods
+    *           will not be generated for any of indicators in this list.
+    * @param timeframeOwner
+    *           list checking splitters of the timeframes subscribed in this list. If set to null,
+    *           this list checks its own timeframes.
+    */
+   public IndicatorList(PeriodSplitter periodSplitter, IndicatorList timeframeOwner)
+   {
+      this(periodSplitter, null, 1, timeframeOwner);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param periodSplitter
+    *           used to check for end and beginning of data periods. If set to null, data periods
+    *           will not be generated for any of indicators in this list.
+    * @param executor
+    *           executor used to update indicators of a level in parallel. If set to null, all
+    *           indicators are updated in the calling thread. The executor is not shut down by
+    *           this list.
+    * @param parallelThreshold
+    *           minimal number of indicators in a level for the level to be updated in parallel
+    * @param timeframeOwner
+    *           list checking splitters of the timeframes subscribed in this list. If set to null,
+    *           this list checks its own timeframes.
+    * @throws InvalidArgumentRuntimeException
+    *            if the period splitter is a timeframe of the owner's lists
+    */
+   public IndicatorList(PeriodSplitter periodSplitter, ExecutorService executor,
+         int parallelThreshold, IndicatorList timeframeOwner)
+   {
+      if (parallelThreshold < 1)
+      {
+         throw new InvalidArgumentRuntimeException("parallelThreshold", parallelThreshold,
+               "Must be a positive integer.");
+      }
+      
+      if (timeframeOwner == null)
+      {
+         timeframes = new Timeframes();
+         ownsTimeframes = true;
+      }
+      else
+      {
+         timeframes = timeframeOwner.timeframes;
+         ownsTimeframes = false;
+      }
+      timeframes.addPeriodSplitter(periodSplitter);
+      periodEngine = new PeriodEngine(periodSplitter);
+      periodDispatcher = new PeriodDispatcher(periodEngine, -1);
+      subscriptions = new IdentityHashMap<Indicator<?>, PeriodEngine>();
+      timeframeDispatchers = new ArrayList<PeriodDispatcher>();
+      this.executor = executor;
+      this.parallelThreshold = parallelThreshold;
       indicators = new ArrayList<Indicator<?>>();
       lock = new Object();
+      levels = new IdentityHashMap<Indicator<?>, Integer>();
+      levelGroups = null;
+      levelTasks = null;
    }
    
    /**
+    * Adds an indicator after all indicators of the same or lower level. Levels of the indicators
+    * already in the list are not recalculated.
+    * 
     * @param indicator
     *           indicator to be added to this list
+    * @throws InvalidArgumentRuntimeException
+    *            if the indicator is null or its dependencies are circular
     */
    public final void add(Indicator<?> indicator)
    {
+      if (indicator == null)
+      {
+         throw new InvalidArgumentRuntimeException("indicator", "null");
+      }
+      
       synchronized (lock)
       {
-         indicators.add(indicator);
-         Collections.sort(indicators, new IndicatorComparator());
+         int level = calculateLevel(indicator, new ArrayList<Indicator<?>>());
+         
+         // Binary search for the first indicator of a higher level.
+         int low = 0;
+         int high = indicators.size();
+         while (low < high)
+         {
+            int middle = (low + high) >>> 1;
+            if (levels.get(indicators.get(middle)) <= level)
+            {
+               low = middle + 1;
+            }
+            else
+            {
+               high = middle;
+            }
+         }
+         indicators.add(low, indicator);
+         levelGroups = null;
+         levelTasks = null;
       }
    }
    
-   @Override
-   public final void tradeReceived(TradeEvent event)
+   /**
+    * Adds an indicator receiving period events of the specified period splitter instead of the
+    * splitter of this list. Indicators subscribed to the same splitter instance, in this list or in
+    * any list sharing the timeframes, share a single evaluation of the splitter per trade or
+    * quote.
+    * 
+    * @param indicator
+    *           indicator to be added to this list
+    * @param timeframe
+    *           period splitter of the timeframe of the indicator
+    * @throws InvalidArgumentRuntimeException
+    *            if the indicator or the splitter is null, dependencies of the indicator are
+    *            circular or the splitter is the own splitter of another list sharing the
+    *            timeframes
+    */
+   public final void add(Indicator<?> indicator, PeriodSplitter timeframe)
    {
+      if (timeframe == null)
+      {
+         throw new InvalidArgumentRuntimeException("timeframe", "null");
+      }
+      
       synchronized (lock)
       {
-         // Update period actions, if they occur before the trade.
-         if (periodSplitter != null)
+         if (timeframe == periodEngine.getPeriodSplitter())
+         {
+            add(indicator);
+            return;
+         }
+         if (timeframes.isPeriodSplitter(timeframe))
+         {
+            throw new InvalidArgumentRuntimeException("timeframe", timeframe,
+                  "The splitter is checked by another list.");
+         }
+         add(indicator);
+         int index = timeframes.getIndex(timeframe);
+         PeriodDispatcher dispatcher = null;
+         for (PeriodDispatcher timeframeDispatcher : timeframeDispatchers)
+         {
+            if (timeframeDispatcher.engine.getPeriodSplitter() == timeframe)
+            {
+               dispatcher = timeframeDispatcher;
+            }
+         }
+         if (dispatcher == null)
+         {
+            dispatcher = new PeriodDispatcher(timeframes.getEngine(index), index);
+            timeframeDispatchers.add(dispatcher);
+         }
+         subscriptions.put(indicator, dispatcher.engine);
+      }
+   }
+   
+   /**
+    * @param indicator
+    *           indicator of this list
+    * @return period splitter the indicator receives period events of
+    * @throws InvalidArgumentRuntimeException
+    *            if the indicator is not in this list
+    */
+   public final PeriodSplitter getPeriodSplitter(Indicator<?> indicator)
+   {
+      synchronized (lock)
+      {
+         if (!indicators.contains(indicator))
+         {
+            throw new InvalidArgumentRuntimeException("indicator", indicator,
+                  "The indicator is not in the list.");
+         }
+         return getEngine(indicator).getPeriodSplitter();
+      }
+   }
+   
+   /**
+    * Gets indicators of this list grouped by evaluation level, lowest level first. Indicators of a
+    * group do not depend on each other and may be updated in any order, once all the preceding
+    * groups are up to date.
+    * 
+    * @return unmodifiable list of indicator groups
+    */
+   public final List<List<Indicator<?>>> getLevels()
+   {
+      synchronized (lock)
+      {
+         if (levelGroups == null)
          {
-            PeriodSplitterResult result = periodSplitter.checkEndOfPeriod(event.getTrade());
+            List<List<Indicator<?>>> groups = new ArrayList<List<Indicator<?>>>();
+            List<Indicator<?>> group = null;
+            int groupLevel = -1;
             for (Indicator<?> indicator : indicators)
             {
-               switch (result.getAction())
+               int level = levels.get(indicator);
+               if (group == null || level != groupLevel)
                {
-                  case START_BEFORE:
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
-                  case END_BEFORE:
-                     indicator.endOfPeriod(result.getTime());
-                     break;
-                  case RESTART_BEFORE:
-                     indicator.endOfPeriod(result.getTime());
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
+                  group = new ArrayList<Indicator<?>>();
+                  groups.add(Collections.unmodifiableList(group));
+                  groupLevel = level;
                }
+               group.add(indicator);
             }
+            levelGroups = Collections.unmodifiableList(groups);
          }
-         
-         // Send trade.
-         for (Indicator<?> indicator : indicators)
+         return levelGroups;
+      }
+   }
+   
+   /**
+    * Gets evaluation level of an indicator of this list.
+    * 
+    * @param indicator
+    *           indicator of this list
+    * @return evaluation level of the indicator, 0 if it has no dependencies
+    */
+   public final int getLevel(Indicator<?> indicator)
+   {
+      synchronized (lock)
+      {
+         Integer level = indicators.contains(indicator) ? levels.get(indicator) : null;
+         if (level == null)
+         {
+            throw new InvalidArgumentRuntimeException("indicator", indicator,
+                  "The indicator is not in the list.");
+         }
+         return level;
+      }
+   }
+   
+   @Override
+   public final void tradeReceived(TradeEvent event)
+   {
+      synchronized (lock)
+      {
+         tradeReceived(event, periodEngine.evaluate(event.getTrade()));
+      }
+   }
+   
+   /**
+    * Sends a trade to all indicators, using period split result evaluated by the caller. Lets a
+    * single evaluation of the period splitter be shared by several lists.
+    * 
+    * @param event
+    *           trade event
+    * @param result
+    *           result of the period splitter of this list for the trade, null if period events
+    *           are not generated. Splitters of subscribed timeframes are checked by the list.
+    */
+   public final void tradeReceived(TradeEvent event, PeriodSplitterResult result)
+   {
+      synchronized (lock)
+      {
+         // Update period actions, if they occur before the trade.
+         if (ownsTimeframes)
          {
-            indicator.tradeReceived(event.getTrade());
+            timeframes.evaluate(event.getTrade());
+         }
+         PeriodEngine.fireBefore(result, periodDispatcher);
+         for (PeriodDispatcher dispatcher : timeframeDispatchers)
+         {
+            PeriodEngine.fireBefore(timeframes.getResult(dispatcher.index), dispatcher);
          }
          
-         // Update period actions, if they occur after the trade.
-         if (periodSplitter != null)
+         // Send trade.
+         if (executor == null)
          {
-            PeriodSplitterResult result = periodSplitter.checkEndOfPeriod(event.getTrade());
             for (Indicator<?> indicator : indicators)
             {
-               switch (result.getAction())
-               {
-                  case START_AFTER:
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
-                  case END_AFTER:
-                     indicator.endOfPeriod(result.getTime());
-                     break;
-                  case RESTART_AFTER:
-                     indicator.endOfPeriod(result.getTime());
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
-               }
+               indicator.tradeReceived(event.getTrade());
             }
          }
+         else
+         {
+            update(event.getTrade(), null);
+         }
+         
+         // Update period actions, if they occur after the trade.
+         PeriodEngine.fireAfter(result, periodDispatcher);
+         for (PeriodDispatcher dispatcher : timeframeDispatchers)
+         {
+            PeriodEngine.fireAfter(timeframes.getResult(dispatcher.index), dispatcher);
+         }
       }
    }
    
    @Override
    public final void quoteReceived(QuoteEvent event)
+   {
+      synchronized (lock)
+      {
+         quoteReceived(event, periodEngine.evaluate(event.getQuote()));
+      }
+   }
+   
+   /**
+    * Sends a quote to all indicators, using period split result evaluated by the caller. Lets a
+    * single evaluation of the period splitter be shared by several lists.
+    * 
+    * @param event
+    *           quote event
+    * @param result
+    *           result of the period splitter of this list for the quote, null if period events
+    *           are not generated. Splitters of subscribed timeframes are checked by the list.
+    */
+   public final void quoteReceived(QuoteEvent event, PeriodSplitterResult result)
    {
       synchronized (lock)
       {
          // Update period actions, if they occur before the quote.
-         if (periodSplitter != null)
+         if (ownsTimeframes)
+         {
+            timeframes.evaluate(event.getQuote());
+         }
+         PeriodEngine.fireBefore(result, periodDispatcher);
+         for (PeriodDispatcher dispatcher : timeframeDispatchers)
+         {
+            PeriodEngine.fireBefore(timeframes.getResult(dispatcher.index), dispatcher);
+         }
+         
+         // Send quote.
+         if (executor == null)
          {
-            PeriodSplitterResult result = periodSplitter.checkEndOfPeriod(event.getQuote());
             for (Indicator<?> indicator : indicators)
             {
-               switch (result.getAction())
-               {
-                  case START_BEFORE:
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
-                  case END_BEFORE:
-                     indicator.endOfPeriod(result.getTime());
-                     break;
-                  case RESTART_BEFORE:
-                     indicator.endOfPeriod(result.getTime());
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
-               }
+               indicator.quoteReceived(event.getQuote());
             }
          }
+         else
+         {
+            update(null, event.getQuote());
+         }
          
-         // Send quote.
+         // Update period actions, if they occur after the quote.
+         PeriodEngine.fireAfter(result, periodDispatcher);
+         for (PeriodDispatcher dispatcher : timeframeDispatchers)
+         {
+            PeriodEngine.fireAfter(timeframes.getResult(dispatcher.index), dispatcher);
+         }
+      }
+   }
+   
+   @Override
+   public final void periodTimerExpired(long time)
+   {
+      synchronized (lock)
+      {
+         periodTimerExpired(time, periodEngine.evaluateTime(time));
+      }
+   }
+   
+   /**
+    * Ends the periods ended by the wall clock, using period split result evaluated by the caller.
+    * 
+    * @param time
+    *           time of the period boundary in milliseconds since 1970-01-01T00:00:00Z
+    * @param result
+    *           result of the period splitter of this list for the time, null if the splitter does
+    *           not end periods by time. Splitters of subscribed timeframes are checked by the
+    *           list.
+    */
+   public final void periodTimerExpired(long time, PeriodSplitterResult result)
+   {
+      synchronized (lock)
+      {
+         if (ownsTimeframes)
+         {
+            timeframes.evaluateTime(time);
+         }
+         PeriodEngine.fireBefore(result, periodDispatcher);
+         for (PeriodDispatcher dispatcher : timeframeDispatchers)
+         {
+            PeriodEngine.fireBefore(timeframes.getResult(dispatcher.index), dispatcher);
+         }
+      }
+   }
+   
+   /**
+    * Saves state of all indicators into a file. Creates a new file or overwrites an existing one.
+    * The state is written into a temporary file of the same directory first, which then replaces
+    * the destination, so a failed save leaves the previous state intact.
+    * 
+    * @param file
+    *           destination file
+    * @throws IOException
+    *            on write error
+    */
+   public final void saveState(File file) throws IOException
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      
+      File target = file.getAbsoluteFile();
+      File temp = File.createTempFile("." + target.getName() + ".", ".tmp", target.getParentFile());
+      boolean saved = false;
+      try
+      {
+         FileOutputStream stream = new FileOutputStream(temp);
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+         try
+         {
+            writeState(out);
+            out.flush();
+            stream.getFD().sync();
+         }
+         finally
+         {
+            out.close();
+         }
+         
+         // Rename replaces the destination atomically where the file system allows it. On
+         // platforms refusing to rename over an existing file the old state is deleted first.
+         if (!temp.renameTo(target) && !(target.delete() && temp.renameTo(target)))
+         {
+            throw new IOException("Failed to replace " + target + ".");
+         }
+         saved = true;
+      }
+      finally
+      {
+         if (!saved)
+         {
+            temp.delete();
+         }
+      }
+   }
+   
+   /**
+    * Restores state of all indicators from a file written by <code>saveState</code>.
+    * 
+    * @param file
+    *           source file
+    * @throws IOException
+    *            on read error or if the file was saved by a list of different indicators. State of
+    *            the indicators is then left unchanged.
+    */
+   public final void restoreState(File file) throws IOException
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try
+      {
+         readState(in);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+   
+   /**
+    * Writes state of all indicators. Every indicator is written with its title and the length of
+    * its state, so a mismatching or corrupt state is detected on restore.
+    * 
+    * @param out
+    *           destination
+    * @throws IOException
+    *            on write error
+    */
+   public final void writeState(DataOutput out) throws IOException
+   {
+      synchronized (lock)
+      {
+         out.writeInt(STATE_MAGIC);
+         out.writeInt(STATE_VERSION);
+         out.writeInt(indicators.size());
+         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+         DataOutputStream state = new DataOutputStream(buffer);
          for (Indicator<?> indicator : indicators)
          {
-            indicator.quoteReceived(event.getQuote());
+            buffer.reset();
+            indicator.writeState(state);
+            state.flush();
+            out.writeUTF(indicator.getTitle());
+            out.writeInt(buffer.size());
+            out.write(buffer.toByteArray());
+         }
+      }
+   }
+   
+   /**
+    * Restores state of all indicators written by <code>writeState</code>. States of all indicators
+    * are read and checked before any of them is restored. If an indicator rejects its state, the
+    * indicators already restored are rolled back to their previous state.
+    * 
+    * @param in
+    *           source
+    * @throws IOException
+    *            on read error or if the state was written by a list of different indicators.
+    *            State of the indicators is then left unchanged.
+    */
+   public final void readState(DataInput in) throws IOException
+   {
+      synchronized (lock)
+      {
+         if (in.readInt() != STATE_MAGIC)
+         {
+            throw new IOException("Not an indicator state.");
+         }
+         int version = in.readInt();
+         if (version != STATE_VERSION)
+         {
+            throw new IOException("Unsupported version " + version + " of indicator state.");
+         }
+         int count = in.readInt();
+         if (count != indicators.size())
+         {
+            throw new IOException("State of " + count + " indicators does not match "
+                                  + indicators.size() + " indicators of the list.");
          }
          
-         // Update period actions, if they occur after the trade.
-         if (periodSplitter != null)
+         // Read states of all indicators before changing any of them.
+         byte[][] states = new byte[count][];
+         for (int i = 0; i < count; i++)
          {
-            PeriodSplitterResult result = periodSplitter.checkEndOfPeriod(event.getQuote());
-            for (Indicator<?> indicator : indicators)
+            Indicator<?> indicator = indicators.get(i);
+            String title = in.readUTF();
+            if (!title.equals(indicator.getTitle()))
+            {
+               throw new IOException("State of indicator " + title
+                                     + " does not match indicator " + indicator.getTitle() + ".");
+            }
+            int length = in.readInt();
+            if (length < 0)
             {
-               switch (result.getAction())
+               throw new IOException("Corrupt state of indicator " + title + ".");
+            }
+            states[i] = new byte[length];
+            in.readFully(states[i]);
+         }
+         
+         // Keep the current states to roll back to if an indicator rejects its new state.
+         byte[][] previousStates = new byte[count][];
+         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+         DataOutputStream state = new DataOutputStream(buffer);
+         for (int i = 0; i < count; i++)
+         {
+            buffer.reset();
+            indicators.get(i).writeState(state);
+            state.flush();
+            previousStates[i] = buffer.toByteArray();
+         }
+         
+         int restored = 0;
+         boolean done = false;
+         try
+         {
+            for (; restored < count; restored++)
+            {
+               readState(indicators.get(restored), states[restored]);
+            }
+            done = true;
+         }
+         finally
+         {
+            if (!done)
+            {
+               // The failed indicator may be partially restored, so it is rolled back as well.
+               for (int i = Math.min(restored, count - 1); i >= 0; i--)
                {
-                  case START_AFTER:
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
-                  case END_AFTER:
-                     indicator.endOfPeriod(result.getTime());
-                     break;
-                  case RESTART_AFTER:
-                     indicator.endOfPeriod(result.getTime());
-                     indicator.beginningOfPeriod(result.getTime());
-                     break;
+                  readState(indicators.get(i), previousStates[i]);
                }
             }
          }
       }
    }
    
+   /**
+    * Restores state of a single indicator.
+    * 
+    * @param indicator
+    *           indicator to be restored
+    * @param state
+    *           state written by <code>writeState</code> of the indicator
+    * @throws IOException
+    *            if the state does not match the indicator
+    */
+   private static void readState(Indicator<?> indicator, byte[] state) throws IOException
+   {
+      ByteArrayInputStream buffer = new ByteArrayInputStream(state);
+      indicator.readState(new DataInputStream(buffer));
+      if (buffer.available() > 0)
+      {
+         throw new IOException("State of indicator " + indicator.getTitle()
+                               + " is longer than expected.");
+      }
+   }
+   
    /**
     * @return list of indicators
     */
@@ -198,41 +763,420 @@ public class IndicatorList implements TradeListener, QuoteListener
     */
    public final PeriodSplitter getPeriodSplitter()
    {
-      return periodSplitter;
+      return periodEngine.getPeriodSplitter();
+   }
+   
+   /**
+    * @return executor used to update indicators in parallel, null if indicators are updated in the
+    *         calling thread
+    */
+   public final ExecutorService getExecutor()
+   {
+      return executor;
+   }
+   
+   /**
+    * @return minimal number of indicators in a level for the level to be updated in parallel
+    */
+   public final int getParallelThreshold()
+   {
+      return parallelThreshold;
    }
    
    /**
-    * Compares two indicators by total number of dependencies.
+    * Sends a trade or a quote to all indicators level by level. Must be called while holding the
+    * lock.
+    * 
+    * @param trade
+    *           trade to be sent, null if a quote is sent
+    * @param quote
+    *           quote to be sent, null if a trade is sent
+    */
+   private void update(Trade trade, Quote quote)
+   {
+      if (levelTasks == null)
+      {
+         levelTasks = new ArrayList<List<UpdateTask>>();
+         for (List<Indicator<?>> level : getLevels())
+         {
+            List<UpdateTask> tasks = new ArrayList<UpdateTask>(level.size());
+            for (Indicator<?> indicator : level)
+            {
+               tasks.add(new UpdateTask(indicator));
+            }
+            levelTasks.add(tasks);
+         }
+      }
+      
+      for (List<UpdateTask> tasks : levelTasks)
+      {
+         if (tasks.size() < parallelThreshold)
+         {
+            for (UpdateTask task : tasks)
+            {
+               task.update(trade, quote);
+            }
+            continue;
+         }
+         
+         // Submission to the executor publishes the event to the worker threads.
+         for (UpdateTask task : tasks)
+         {
+            task.trade = trade;
+            task.quote = quote;
+         }
+         List<Future<Void>> futures;
+         try
+         {
+            // Returns when all tasks are completed, acting as a barrier between levels.
+            futures = executor.invokeAll(tasks);
+         }
+         catch (InterruptedException exception)
+         {
+            Thread.currentThread().interrupt();
+            throw new CrossbowRuntimeException("Interrupted while updating indicators.",
+                  exception);
+         }
+         for (Future<Void> future : futures)
+         {
+            try
+            {
+               future.get();
+            }
+            catch (InterruptedException exception)
+            {
+               Thread.currentThread().interrupt();
+               throw new CrossbowRuntimeException("Interrupted while updating indicators.",
+                     exception);
+            }
+            catch (ExecutionException exception)
+            {
+               if (exception.getCause() instanceof RuntimeException)
+               {
+                  throw (RuntimeException)exception.getCause();
+               }
+               if (exception.getCause() instanceof Error)
+               {
+                  throw (Error)exception.getCause();
+               }
+               throw new CrossbowRuntimeException("Failed to update indicators.", exception);
+            }
+         }
+      }
+   }
+   
+   /**
+    * Calculates level of the indicator by depth-first traversal of its dependencies. Levels of
+    * all visited indicators are cached, so every indicator is visited only once.
+    * 
+    * @param indicator
+    *           indicator
+    * @param path
+    *           indicators being visited, used to detect circular dependencies
+    * @return level of the indicator
+    */
+   private int calculateLevel(Indicator<?> indicator, List<Indicator<?>> path)
+   {
+      Integer cached = levels.get(indicator);
+      if (cached != null)
+      {
+         return cached;
+      }
+      for (int i = 0; i < path.size(); i++)
+      {
+         if (path.get(i) == indicator)
+         {
+            StringBuilder cycle = new StringBuilder();
+            for (int j = i; j < path.size(); j++)
+            {
+               cycle.append(path.get(j).getTitle()).append(" -> ");
+            }
+            cycle.append(indicator.getTitle());
+            throw new InvalidArgumentRuntimeException("indicator", indicator.getTitle(),
+                  "Circular dependency " + cycle + ".");
+         }
+      }
+      
+      path.add(indicator);
+      int level = 0;
+      for (Indicator<?> dependency : indicator.getDependencies())
+      {
+         level = Math.max(level, calculateLevel(dependency, path) + 1);
+      }
+      path.remove(path.size() - 1);
+      
+      levels.put(indicator, level);
+      return level;
+   }
+   
+   /**
+    * Sends the current trade or quote to a single indicator.
     * 
     * @author Vilius Normantas <code@norma.lt>
     */
-   private class IndicatorComparator implements Comparator<Indicator<?>>
+   private static class UpdateTask implements Callable<Void>
    {
+      private final Indicator<?> indicator;
+      private Trade trade;
+      private Quote quote;
+      
+      /**
+       * Constructor.
+       * 
+       * @param indicator
+       *           indicator to be updated
+       */
+      public UpdateTask(Indicator<?> indicator)
+      {
+         this.indicator = indicator;
+      }
+      
       @Override
-      public int compare(Indicator<?> indicator1, Indicator<?> indicator2)
+      public Void call()
       {
-         return countTotalDependencies(indicator1) - countTotalDependencies(indicator2);
+         update(trade, quote);
+         return null;
       }
       
       /**
-       * @param indicator
-       *           indicator
-       * @return total number of dependencies of the specified indicator
+       * @param trade
+       *           trade to be sent, null if a quote is sent
+       * @param quote
+       *           quote to be sent, null if a trade is sent
        */
-      private int countTotalDependencies(Indicator<?> indicator)
+      public void update(Trade trade, Quote quote)
       {
-         int count = 0;
-         
-         // Recursively calculate number of sub-dependencies.
-         for (Indicator<?> subindicator : indicator.getDependencies())
+         if (trade != null)
          {
-            count += countTotalDependencies(subindicator);
+            indicator.tradeReceived(trade);
          }
-         
-         // Add number of dependencies of the specified indicator.
-         count += indicator.getDependencies().size();
-         
-         return count;
+         else
+         {
+            indicator.quoteReceived(quote);
+         }
+      }
+   }
+   
+   /**
+    * Gets period engine of the timeframe the indicator is subscribed to. Must be called while
+    * holding the lock.
+    * 
+    * @param indicator
+    *           indicator of this list
+    * @return period engine of the indicator
+    */
+   private PeriodEngine getEngine(Indicator<?> indicator)
+   {
+      if (subscriptions.isEmpty())
+      {
+         return periodEngine;
+      }
+      PeriodEngine engine = subscriptions.get(indicator);
+      return engine == null ? periodEngine : engine;
+   }
+   
+   /**
+    * Sends period events of a single period engine to the indicators receiving them. Called while
+    * holding the lock.
+    */
+   private class PeriodDispatcher implements PeriodListener
+   {
+      private final PeriodEngine engine;
+      private final int index;
+      
+      /**
+       * Constructor.
+       * 
+       * @param engine
+       *           period engine the events come from
+       * @param index
+       *           index of the engine in the shared timeframes, -1 for the list's own engine
+       */
+      public PeriodDispatcher(PeriodEngine engine, int index)
+      {
+         this.engine = engine;
+         this.index = index;
+      }
+      
+      @Override
+      public void periodStarted(DateTime time)
+      {
+         for (Indicator<?> indicator : indicators)
+         {
+            if (getEngine(indicator) == engine)
+            {
+               indicator.beginningOfPeriod(time);
+            }
+         }
+      }
+      
+      @Override
+      public void periodEnded(DateTime time)
+      {
+         for (Indicator<?> indicator : indicators)
+         {
+            if (getEngine(indicator) == engine)
+            {
+               indicator.updateEndOfPeriod(time);
+            }
+         }
+      }
+   }
+   
+   /**
+    * Period engines of the timeframes subscribed in a group of lists sharing the timeframes. The
+    * engines are evaluated once per trade or quote by the owner of the group, the results are
+    * kept for the other lists until the next evaluation.
+    */
+   private static final class Timeframes
+   {
+      /** Engines of the subscribed timeframes, in order of subscription. */
+      private final List<PeriodEngine> engines;
+      /** Results of the last evaluation, in order of the engines. */
+      private final List<PeriodSplitterResult> results;
+      /** Own splitters of the lists of the group, checked outside of the group. */
+      private final List<PeriodSplitter> periodSplitters;
+      
+      /**
+       * Constructor.
+       */
+      public Timeframes()
+      {
+         engines = new ArrayList<PeriodEngine>();
+         results = new ArrayList<PeriodSplitterResult>();
+         periodSplitters = new ArrayList<PeriodSplitter>();
+      }
+      
+      /**
+       * Registers own splitter of a list of the group.
+       * 
+       * @param periodSplitter
+       *           period splitter of the list, may be null
+       * @throws InvalidArgumentRuntimeException
+       *            if the splitter is a timeframe of the group
+       */
+      public synchronized void addPeriodSplitter(PeriodSplitter periodSplitter)
+      {
+         if (periodSplitter == null)
+         {
+            return;
+         }
+         if (indexOf(periodSplitter) >= 0)
+         {
+            throw new InvalidArgumentRuntimeException("periodSplitter", periodSplitter,
+                  "The splitter is a timeframe of the timeframe owner.");
+         }
+         periodSplitters.add(periodSplitter);
+      }
+      
+      /**
+       * @param timeframe
+       *           period splitter
+       * @return true if the splitter is own splitter of a list of the group
+       */
+      public synchronized boolean isPeriodSplitter(PeriodSplitter timeframe)
+      {
+         for (PeriodSplitter periodSplitter : periodSplitters)
+         {
+            if (periodSplitter == timeframe)
+            {
+               return true;
+            }
+         }
+         return false;
+      }
+      
+      /**
+       * Gets index of the engine of a timeframe, creating the engine if the timeframe is new.
+       * 
+       * @param timeframe
+       *           period splitter of the timeframe
+       * @return index of the engine
+       */
+      public synchronized int getIndex(PeriodSplitter timeframe)
+      {
+         int index = indexOf(timeframe);
+         if (index >= 0)
+         {
+            return index;
+         }
+         engines.add(new PeriodEngine(timeframe));
+         results.add(null);
+         return engines.size() - 1;
+      }
+      
+      /**
+       * @param index
+       *           index of the engine
+       * @return period engine of a timeframe
+       */
+      public synchronized PeriodEngine getEngine(int index)
+      {
+         return engines.get(index);
+      }
+      
+      /**
+       * @param index
+       *           index of the engine
+       * @return result of the last evaluation of the engine, null if not evaluated
+       */
+      public synchronized PeriodSplitterResult getResult(int index)
+      {
+         return results.get(index);
+      }
+      
+      /**
+       * Checks splitters of all timeframes for the specified trade.
+       * 
+       * @param trade
+       *           trade to be checked
+       */
+      public synchronized void evaluate(Trade trade)
+      {
+         for (int i = 0; i < engines.size(); i++)
+         {
+            results.set(i, engines.get(i).evaluate(trade));
+         }
+      }
+      
+      /**
+       * Checks splitters of all timeframes for the specified quote.
+       * 
+       * @param quote
+       *           quote to be checked
+       */
+      public synchronized void evaluate(Quote quote)
+      {
+         for (int i = 0; i < engines.size(); i++)
+         {
+            results.set(i, engines.get(i).evaluate(quote));
+         }
+      }
+      
+      /**
+       * Checks splitters of all timeframes for the end of periods by time.
+       * 
+       * @param time
+       *           time in milliseconds since 1970-01-01T00:00:00Z
+       */
+      public synchronized void evaluateTime(long time)
+      {
+         for (int i = 0; i < engines.size(); i++)
+         {
+            results.set(i, engines.get(i).evaluateTime(time));
+         }
+      }
+      
+      private int indexOf(PeriodSplitter timeframe)
+      {
+         for (int i = 0; i < engines.size(); i++)
+         {
+            if (engines.get(i).getPeriodSplitter() == timeframe)
+            {
+               return i;
+            }
+         }
+         return -1;
       }
    }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lt.norma.crossbow.exceptions.CrossbowRuntimeException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * File of fixed size elements accessed through memory-mapped segments. Elements are appended in
+ * the order of index. The segment being written stays mapped, older segments are mapped again on
+ * read, one at a time. Mapped memory is outside the heap and is paged in and out by the operating
+ * system.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+final class MappedFile implements Closeable
+{
+   /** Default number of elements in a segment. */
+   static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+   
+   private final File file;
+   private final FileChannel channel;
+   private final int elementSize;
+   private final int segmentSize;
+   
+   private MappedByteBuffer writeSegment;
+   private int writeSegmentIndex;
+   private MappedByteBuffer readSegment;
+   private int readSegmentIndex;
+   
+   /**
+    * Constructor. Creates a new file or truncates an existing one.
+    * 
+    * @param file
+    *           file to store the elements in
+    * @param elementSize
+    *           size of an element in bytes
+    * @param segmentSize
+    *           number of elements in a segment; a segment must not exceed
+    *           <code>Integer.MAX_VALUE</code> bytes
+    */
+   MappedFile(File file, int elementSize, int segmentSize)
+   {
+      if (file == null)
+      {
+         throw new InvalidArgumentRuntimeException("file", "null");
+      }
+      if (segmentSize <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("segmentSize", segmentSize,
+               "Must be a positive integer.");
+      }
+      if (segmentSize > Integer.MAX_VALUE / elementSize)
+      {
+         throw new InvalidArgumentRuntimeException("segmentSize", segmentSize,
+               "Segment must not exceed " + Integer.MAX_VALUE + " bytes.");
+      }
+      
+      RandomAccessFile randomAccessFile = null;
+      try
+      {
+         randomAccessFile = new RandomAccessFile(file, "rw");
+         randomAccessFile.setLength(0);
+         channel = randomAccessFile.getChannel();
+      }
+      catch (IOException exception)
+      {
+         if (randomAccessFile != null)
+         {
+            try
+            {
+               randomAccessFile.close();
+            }
+            catch (IOException closeException)
+            {
+               // The original exception is reported.
+            }
+         }
+         throw new CrossbowRuntimeException("Cannot create file " + file + ".", exception);
+      }
+      this.file = file;
+      this.elementSize = elementSize;
+      this.segmentSize = segmentSize;
+      writeSegmentIndex = -1;
+      readSegmentIndex = -1;
+   }
+   
+   /**
+    * Gets the segment to write the specified element to. Maps the next segment when the element
+    * is past the current one.
+    * 
+    * @param index
+    *           index of the element
+    * @return mapped segment
+    */
+   MappedByteBuffer writeSegment(int index)
+   {
+      int segmentIndex = index / segmentSize;
+      if (segmentIndex != writeSegmentIndex)
+      {
+         writeSegment = map(segmentIndex);
+         writeSegmentIndex = segmentIndex;
+      }
+      return writeSegment;
+   }
+   
+   /**
+    * Gets the segment to read the specified element from. Maps the segment if it is neither the
+    * one being written nor the last one read.
+    * 
+    * @param index
+    *           index of the element
+    * @return mapped segment
+    */
+   MappedByteBuffer readSegment(int index)
+   {
+      int segmentIndex = index / segmentSize;
+      if (segmentIndex == writeSegmentIndex)
+      {
+         return writeSegment;
+      }
+      if (segmentIndex != readSegmentIndex)
+      {
+         readSegment = map(segmentIndex);
+         readSegmentIndex = segmentIndex;
+      }
+      return readSegment;
+   }
+   
+   /**
+    * @param index
+    *           index of the element
+    * @return position of the element in its segment, in bytes
+    */
+   int offset(int index)
+   {
+      return (index % segmentSize) * elementSize;
+   }
+   
+   /**
+    * @return file the elements are stored in
+    */
+   File getFile()
+   {
+      return file;
+   }
+   
+   /**
+    * Closes the file. Mapped segments are released when garbage collected.
+    * 
+    * @throws IOException
+    *            if the file cannot be closed
+    */
+   @Override
+   public void close() throws IOException
+   {
+      channel.close();
+      writeSegment = null;
+      readSegment = null;
+      writeSegmentIndex = -1;
+      readSegmentIndex = -1;
+   }
+   
+   private MappedByteBuffer map(int segmentIndex)
+   {
+      long bytes = (long)segmentSize * elementSize;
+      try
+      {
+         // Mapping beyond the end of the file extends the file.
+         return channel.map(FileChannel.MapMode.READ_WRITE, segmentIndex * bytes, bytes);
+      }
+      catch (IOException exception)
+      {
+         throw new CrossbowRuntimeException("Cannot map segment " + segmentIndex + " of file "
+                                            + file + ".", exception);
+      }
+   }
+}
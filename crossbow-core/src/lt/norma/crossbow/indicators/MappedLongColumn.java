@@ -0,0 +1,105 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Columnar storage of periodic <code>long</code> values in a memory-mapped file. Keeps all
+ * periods, up to <code>Integer.MAX_VALUE</code>, without holding the values on the heap. The file
+ * is split into segments of <code>segmentSize</code> values. The segment of the most recent periods
+ * stays mapped, older segments are mapped lazily when read. Only the flags of the periods, one bit
+ * per period, are kept on the heap.
+ * <p>
+ * The file is created when the column is created and is not deleted when the column is closed.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see LongIndicator#LongIndicator(String, LongColumn)
+ */
+public final class MappedLongColumn extends LongColumn implements Closeable
+{
+   private static final int VALUE_SIZE = 8;
+   
+   private final MappedFile mappedFile;
+   
+   /**
+    * Constructor. Creates a new file or truncates an existing one. Uses segments of
+    * <code>MappedFile.DEFAULT_SEGMENT_SIZE</code> values.
+    * 
+    * @param file
+    *           file to store the values in
+    */
+   public MappedLongColumn(File file)
+   {
+      this(file, MappedFile.DEFAULT_SEGMENT_SIZE);
+   }
+   
+   /**
+    * Constructor. Creates a new file or truncates an existing one.
+    * 
+    * @param file
+    *           file to store the values in
+    * @param segmentSize
+    *           number of values in a mapped segment
+    */
+   public MappedLongColumn(File file, int segmentSize)
+   {
+      super(UNLIMITED_RETENTION);
+      mappedFile = new MappedFile(file, VALUE_SIZE, segmentSize);
+   }
+   
+   /**
+    * @return file the values are stored in
+    */
+   public File getFile()
+   {
+      return mappedFile.getFile();
+   }
+   
+   /**
+    * Closes the file. Values cannot be added or read after the column is closed.
+    * 
+    * @throws IOException
+    *            if the file cannot be closed
+    */
+   @Override
+   public synchronized void close() throws IOException
+   {
+      mappedFile.close();
+   }
+   
+   @Override
+   protected void setElement(int element, long value)
+   {
+      mappedFile.writeSegment(element).putLong(mappedFile.offset(element), value);
+   }
+   
+   @Override
+   protected long getElement(int element)
+   {
+      return mappedFile.readSegment(element).getLong(mappedFile.offset(element));
+   }
+   
+   @Override
+   protected void resize(int newCapacity)
+   {
+      // Segments are mapped as values are added.
+   }
+}
@@ -43,6 +43,22 @@ public class MeasureList extends IndicatorList implements TradeExecutorListener
       lock = new Object();
    }
    
+   /**
+    * Constructor.
+    * 
+    * @param periodSplitter
+    *           used to check for end and beginning of data periods. If set to null, data periods
+    *           will not be generated for any of indicators in this list.
+    * @param timeframeOwner
+    *           list checking splitters of the timeframes subscribed in this list. If set to null,
+    *           this list checks its own timeframes.
+    */
+   public MeasureList(PeriodSplitter periodSplitter, IndicatorList timeframeOwner)
+   {
+      super(periodSplitter, timeframeOwner);
+      lock = new Object();
+   }
+   
    @Override
    public final void orderExecuted(OrderExecutedEvent event)
    {
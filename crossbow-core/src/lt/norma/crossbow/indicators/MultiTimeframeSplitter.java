@@ -0,0 +1,261 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Splits data into periods of several lengths at once, for example 1 minute, 5 minute, hourly and
+ * daily periods. Time of a trade or quote is converted once per timestamp and the periods of all
+ * timeframes are derived from it with integer arithmetic. Periods are aligned the same way as by
+ * <code>TimePeriodSplitter</code>.
+ * <p>
+ * This splitter reports periods of the first timeframe. Splitters of any timeframe are created by
+ * <code>createTimeframe</code>. Like any other period splitter, every instance tracks its own
+ * current period and is meant to be checked by a single consumer once per trade or quote.
+ * Splitters of the same <code>MultiTimeframeSplitter</code> share the period computation: checking
+ * another splitter with the same timestamp reuses the periods computed by the first one. Results
+ * are allocated only when a period changes.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see IndicatorList#add(Indicator, PeriodSplitter)
+ */
+public final class MultiTimeframeSplitter implements PeriodSplitter
+{
+   private final DateTimeZone timeZone;
+   private final long zeroDate;
+   private final long[] periodLengths;
+   /** Beginning of the period of every timeframe at the last computed timestamp. */
+   private final long[] periodTimes;
+   private final PeriodSplitterResult[] startResults;
+   private final PeriodSplitterResult[] restartResults;
+   private final PeriodSplitterResult[] continuations;
+   private final Timeframe primary;
+   private boolean computed;
+   private long lastMillis;
+   private final Object lock;
+   
+   /**
+    * Constructor.
+    * 
+    * @param timeZone
+    *           time zone of the data source (for example - exchange)
+    * @param periodLengths
+    *           lengths of the time periods of every timeframe in milliseconds
+    */
+   public MultiTimeframeSplitter(DateTimeZone timeZone, long... periodLengths)
+   {
+      if (periodLengths.length == 0)
+      {
+         throw new InvalidArgumentRuntimeException("periodLengths", "empty",
+               "At least one timeframe is required.");
+      }
+      for (long periodLength : periodLengths)
+      {
+         if (periodLength <= 0)
+         {
+            throw new InvalidArgumentRuntimeException("periodLength", periodLength,
+                  "Must be a positive integer.");
+         }
+      }
+      
+      this.timeZone = timeZone;
+      this.periodLengths = periodLengths.clone();
+      zeroDate = (new DateTime(1900, 1, 1, 0, 0, 0, 0, timeZone)).getMillis();
+      periodTimes = new long[periodLengths.length];
+      startResults = new PeriodSplitterResult[periodLengths.length];
+      restartResults = new PeriodSplitterResult[periodLengths.length];
+      continuations = new PeriodSplitterResult[periodLengths.length];
+      computed = false;
+      lock = new Object();
+      primary = new Timeframe(0);
+   }
+   
+   @Override
+   public PeriodSplitterResult checkEndOfPeriod(Trade trade)
+   {
+      return primary.checkEndOfPeriod(trade);
+   }
+   
+   @Override
+   public PeriodSplitterResult checkEndOfPeriod(Quote quote)
+   {
+      return primary.checkEndOfPeriod(quote);
+   }
+   
+   @Override
+   public PeriodSplitterResult getLastResult()
+   {
+      return primary.getLastResult();
+   }
+   
+   /**
+    * Creates a period splitter of the specified timeframe. Every call returns a new splitter
+    * tracking its own current period.
+    * 
+    * @param index
+    *           index of the timeframe, in order of the constructor arguments
+    * @return period splitter of the specified timeframe
+    */
+   public PeriodSplitter createTimeframe(int index)
+   {
+      checkIndex(index);
+      return new Timeframe(index);
+   }
+   
+   /**
+    * @param index
+    *           index of the timeframe, in order of the constructor arguments
+    * @return length of the time periods of the specified timeframe in milliseconds
+    */
+   public long getPeriodLength(int index)
+   {
+      checkIndex(index);
+      return periodLengths[index];
+   }
+   
+   /**
+    * @return number of timeframes
+    */
+   public int getTimeframeCount()
+   {
+      return periodLengths.length;
+   }
+   
+   /**
+    * Computes periods of all timeframes at the specified time, unless they are computed already.
+    * Must be called while holding the lock.
+    * 
+    * @param millis
+    *           time in milliseconds since 1970-01-01T00:00:00Z
+    */
+   private void compute(long millis)
+   {
+      if (computed && millis == lastMillis)
+      {
+         return;
+      }
+      computed = true;
+      lastMillis = millis;
+      
+      long offset = millis - zeroDate;
+      for (int i = 0; i < periodLengths.length; i++)
+      {
+         long periodLength = periodLengths[i];
+         long nper = offset / periodLength;
+         if (offset % periodLength < 0)
+         {
+            nper--;
+         }
+         long periodTime = zeroDate + nper * periodLength;
+         if (continuations[i] == null || periodTime != periodTimes[i])
+         {
+            DateTime periodStart = new DateTime(periodTime, timeZone);
+            periodTimes[i] = periodTime;
+            startResults[i] = new PeriodSplitterResult(PeriodSplitterAction.START_BEFORE,
+                  periodStart);
+            restartResults[i] = new PeriodSplitterResult(PeriodSplitterAction.RESTART_BEFORE,
+                  periodStart);
+            continuations[i] =
+                  new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, periodStart);
+         }
+      }
+   }
+   
+   private void checkIndex(int index)
+   {
+      if (index < 0 || index >= periodLengths.length)
+      {
+         throw new InvalidArgumentRuntimeException("index", index, "No such timeframe.");
+      }
+   }
+   
+   /**
+    * Period splitter of a single timeframe.
+    */
+   private class Timeframe implements PeriodSplitter
+   {
+      private final int index;
+      private boolean isFirstPeriod;
+      private long previousPeriodTime;
+      private PeriodSplitterResult lastResult;
+      
+      /**
+       * Constructor.
+       * 
+       * @param index
+       *           index of the timeframe
+       */
+      public Timeframe(int index)
+      {
+         this.index = index;
+         isFirstPeriod = true;
+      }
+      
+      @Override
+      public PeriodSplitterResult checkEndOfPeriod(Trade trade)
+      {
+         return checkEndOfPeriod(trade.getTimeMillis());
+      }
+      
+      @Override
+      public PeriodSplitterResult checkEndOfPeriod(Quote quote)
+      {
+         return checkEndOfPeriod(quote.getTimeMillis());
+      }
+      
+      @Override
+      public PeriodSplitterResult getLastResult()
+      {
+         synchronized (lock)
+         {
+            return lastResult;
+         }
+      }
+      
+      private PeriodSplitterResult checkEndOfPeriod(long millis)
+      {
+         synchronized (lock)
+         {
+            compute(millis);
+            long periodTime = periodTimes[index];
+            if (isFirstPeriod)
+            {
+               isFirstPeriod = false;
+               previousPeriodTime = periodTime;
+               lastResult = startResults[index];
+            }
+            else if (periodTime != previousPeriodTime)
+            {
+               previousPeriodTime = periodTime;
+               lastResult = restartResults[index];
+            }
+            else
+            {
+               lastResult = continuations[index];
+            }
+            return lastResult;
+         }
+      }
+   }
+}
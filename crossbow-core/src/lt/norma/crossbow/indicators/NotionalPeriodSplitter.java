@@ -0,0 +1,73 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Splits data into periods of a fixed traded notional value, the sum of price times size of the
+ * trades. A period ends with the trade bringing the notional value of the period to the specified
+ * one or above it. The excess is not carried over to the next period. Notional value is
+ * calculated in <code>double</code> from the scaled price of the trade.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class NotionalPeriodSplitter extends ActivityPeriodSplitter
+{
+   private final double notional;
+   private double periodNotional;
+   
+   /**
+    * Constructor.
+    * 
+    * @param notional
+    *           notional value traded in a period, in the currency of the prices
+    */
+   public NotionalPeriodSplitter(double notional)
+   {
+      if (!(notional > 0) || Double.isInfinite(notional))
+      {
+         throw new InvalidArgumentRuntimeException("notional", notional,
+               "Must be a positive number.");
+      }
+      this.notional = notional;
+      periodNotional = 0;
+   }
+   
+   /**
+    * @return notional value traded in a period
+    */
+   public double getNotional()
+   {
+      return notional;
+   }
+   
+   @Override
+   protected boolean add(Trade trade)
+   {
+      periodNotional += trade.getPriceScale().toDouble(trade.getScaledPrice()) * trade.getSize();
+      return periodNotional >= notional;
+   }
+   
+   @Override
+   protected void reset()
+   {
+      periodNotional = 0;
+   }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of periodic values of any type. Only values of <code>Double</code>,
+ * <code>Long</code>, <code>Integer</code>, <code>Boolean</code>, <code>String</code> and
+ * <code>BigDecimal</code> types can be saved by <code>writeState</code>.
+ * 
+ * @param <Type>
+ *           type of the values
+ * @author Vilius Normantas <code@norma.lt>
+ * @see PeriodicColumn
+ */
+public final class ObjectColumn<Type> extends PeriodicColumn
+{
+   private Object[] values;
+   
+   /**
+    * Constructor.
+    * 
+    * @param retention
+    *           maximum number of periods kept, or <code>UNLIMITED_RETENTION</code>
+    */
+   public ObjectColumn(int retention)
+   {
+      super(retention);
+      values = new Object[0];
+   }
+   
+   /**
+    * Adds the value of the next period.
+    * 
+    * @param value
+    *           value, ignored if not set
+    * @param set
+    *           true if the value is set
+    */
+   public synchronized void add(Type value, boolean set)
+   {
+      // The array may be replaced by addPeriod, it must be read after the call.
+      int element = addPeriod(set);
+      values[element] = set ? value : null;
+   }
+   
+   /**
+    * @param index
+    *           index of a retained period, 0 for the oldest one
+    * @return value of the period, null if not set
+    */
+   @SuppressWarnings("unchecked")
+   public synchronized Type get(int index)
+   {
+      return (Type)values[element(index)];
+   }
+   
+   /**
+    * @param periodsAgo
+    *           number of periods ago, 0 for the most recent period
+    * @return value of the period, null if not set
+    */
+   public synchronized Type getAgo(int periodsAgo)
+   {
+      return get(size() - 1 - periodsAgo);
+   }
+   
+   @Override
+   protected void writeElement(DataOutput out, int element) throws IOException
+   {
+      ValueCodec.write(out, values[element]);
+   }
+   
+   @Override
+   protected void readElement(DataInput in, int element) throws IOException
+   {
+      values[element] = ValueCodec.read(in);
+   }
+   
+   @Override
+   protected void resize(int newCapacity)
+   {
+      values = Arrays.copyOf(values, newCapacity);
+   }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+
+/**
+ * Evaluates period boundaries once per trade or quote. The result of a single evaluation is then
+ * passed to every consumer of the event: indicators, measures and the strategy. Period splitters
+ * may change their state on every check, so checking the same event again may give a different
+ * result.
+ * <p>
+ * Period events of a result are split into two phases. <code>fireBefore</code> dispatches the
+ * events occurring before the trade or quote, <code>fireAfter</code> dispatches the events
+ * occurring after it.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class PeriodEngine
+{
+   private final PeriodSplitter periodSplitter;
+   private volatile PeriodSplitterResult lastResult;
+   
+   /**
+    * Constructor.
+    * 
+    * @param periodSplitter
+    *           used to check for end and beginning of data periods. If set to null, no period
+    *           events are generated.
+    */
+   public PeriodEngine(PeriodSplitter periodSplitter)
+   {
+      this.periodSplitter = periodSplitter;
+      lastResult = null;
+   }
+   
+   /**
+    * Checks if the specified trade ends the current period.
+    * 
+    * @param trade
+    *           trade to be checked
+    * @return period split result, null if no period splitter is used
+    */
+   public PeriodSplitterResult evaluate(Trade trade)
+   {
+      if (periodSplitter == null)
+      {
+         return null;
+      }
+      PeriodSplitterResult result = periodSplitter.checkEndOfPeriod(trade);
+      lastResult = result;
+      return result;
+   }
+   
+   /**
+    * Checks if the specified quote ends the current period.
+    * 
+    * @param quote
+    *           quote to be checked
+    * @return period split result, null if no period splitter is used
+    */
+   public PeriodSplitterResult evaluate(Quote quote)
+   {
+      if (periodSplitter == null)
+      {
+         return null;
+      }
+      PeriodSplitterResult result = periodSplitter.checkEndOfPeriod(quote);
+      lastResult = result;
+      return result;
+   }
+   
+   /**
+    * Checks if the current period has ended by the specified time, without a trade or quote. Only
+    * <code>PeriodTimer</code> detects the end of a period by time alone.
+    * 
+    * @param time
+    *           time in milliseconds since 1970-01-01T00:00:00Z
+    * @return period split result, null if the period splitter is not a <code>PeriodTimer</code>
+    */
+   public PeriodSplitterResult evaluateTime(long time)
+   {
+      if (!(periodSplitter instanceof PeriodTimer))
+      {
+         return null;
+      }
+      PeriodSplitterResult result = ((PeriodTimer)periodSplitter).checkTime(time);
+      lastResult = result;
+      return result;
+   }
+   
+   /**
+    * @return result of the last evaluation, null if nothing has been evaluated yet
+    */
+   public PeriodSplitterResult getLastResult()
+   {
+      return lastResult;
+   }
+   
+   /**
+    * @return period splitter used by this engine, null if period events are not generated
+    */
+   public PeriodSplitter getPeriodSplitter()
+   {
+      return periodSplitter;
+   }
+   
+   /**
+    * Dispatches period events occurring before the trade or quote.
+    * 
+    * @param result
+    *           period split result, may be null
+    * @param listener
+    *           receiver of the period events
+    */
+   public static void fireBefore(PeriodSplitterResult result, PeriodListener listener)
+   {
+      if (result == null)
+      {
+         return;
+      }
+      switch (result.getAction())
+      {
+         case START_BEFORE:
+            listener.periodStarted(result.getTime());
+            break;
+         case END_BEFORE:
+            listener.periodEnded(result.getTime());
+            break;
+         case RESTART_BEFORE:
+            listener.periodEnded(result.getTime());
+            listener.periodStarted(result.getTime());
+            break;
+      }
+   }
+   
+   /**
+    * Dispatches period events occurring after the trade or quote.
+    * 
+    * @param result
+    *           period split result, may be null
+    * @param listener
+    *           receiver of the period events
+    */
+   public static void fireAfter(PeriodSplitterResult result, PeriodListener listener)
+   {
+      if (result == null)
+      {
+         return;
+      }
+      switch (result.getAction())
+      {
+         case START_AFTER:
+            listener.periodStarted(result.getTime());
+            break;
+         case END_AFTER:
+            listener.periodEnded(result.getTime());
+            break;
+         case RESTART_AFTER:
+            listener.periodEnded(result.getTime());
+            listener.periodStarted(result.getTime());
+            break;
+      }
+   }
+}
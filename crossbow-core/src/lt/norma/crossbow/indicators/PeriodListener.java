@@ -0,0 +1,45 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import org.joda.time.DateTime;
+
+/**
+ * Receives period events dispatched by <code>PeriodEngine</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see PeriodEngine
+ */
+public interface PeriodListener
+{
+   /**
+    * Called at the beginning of period.
+    * 
+    * @param time
+    *           time of the period split
+    */
+   public void periodStarted(DateTime time);
+   
+   /**
+    * Called at the end of period.
+    * 
+    * @param time
+    *           time of the period split
+    */
+   public void periodEnded(DateTime time);
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+
+/**
+ * Time period splitter ending periods by the wall clock, for live trading. Without a timer the end
+ * of a period is detected only as the first trade or quote of the next period arrives, which may
+ * be much later for an illiquid contract.
+ * <p>
+ * Periods are split by the wrapped <code>TimePeriodSplitter</code>. Once started, the timer calls
+ * its listener at every period boundary, the listener then checks the boundary with
+ * <code>checkTime</code>. A period ended by the timer is not ended again by the next trade or
+ * quote, which starts the next period instead. A period ended by a trade or quote is not ended
+ * again by the timer. Trades and quotes of an ended period, delayed past the boundary, do not
+ * start a period.
+ * <p>
+ * <code>Strategy</code> and <code>IndicatorList</code> are timer listeners. A timer must be
+ * started with the owner of the splitter as the listener, for example
+ * <code>timer.start(strategy)</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class PeriodTimer implements PeriodSplitter
+{
+   private final TimePeriodSplitter splitter;
+   private final ScheduledExecutorService executor;
+   private final long delay;
+   
+   /** True if the current period has started and has not ended yet. */
+   private boolean open;
+   /** End of the current period, exclusive. */
+   private long periodEnd;
+   private PeriodSplitterResult lastResult;
+   private PeriodTimerListener listener;
+   private ScheduledFuture<?> scheduled;
+   /** Incremented as the timer is stopped, lets running tasks of a stopped timer expire. */
+   private int generation;
+   private final Object lock;
+   
+   /**
+    * Constructor. Periods are ended exactly at the boundaries.
+    * 
+    * @param splitter
+    *           splitter of the periods
+    * @param executor
+    *           executor running the timer. It is not shut down by the timer.
+    */
+   public PeriodTimer(TimePeriodSplitter splitter, ScheduledExecutorService executor)
+   {
+      this(splitter, executor, 0);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param splitter
+    *           splitter of the periods
+    * @param executor
+    *           executor running the timer. It is not shut down by the timer.
+    * @param delay
+    *           time in milliseconds the timer waits after a boundary, lets trades and quotes
+    *           delayed by the data feed end the period instead
+    */
+   public PeriodTimer(TimePeriodSplitter splitter, ScheduledExecutorService executor, long delay)
+   {
+      if (splitter == null)
+      {
+         throw new InvalidArgumentRuntimeException("splitter", "null");
+      }
+      if (executor == null)
+      {
+         throw new InvalidArgumentRuntimeException("executor", "null");
+      }
+      if (delay < 0)
+      {
+         throw new InvalidArgumentRuntimeException("delay", delay,
+               "Must be a non-negative integer.");
+      }
+      
+      this.splitter = splitter;
+      this.executor = executor;
+      this.delay = delay;
+      open = false;
+      generation = 0;
+      lock = new Object();
+   }
+   
+   /**
+    * Starts calling the listener at every period boundary. Restarts the timer if it is already
+    * started.
+    * 
+    * @param listener
+    *           receiver of the period boundaries, the owner of this splitter
+    */
+   public void start(PeriodTimerListener listener)
+   {
+      if (listener == null)
+      {
+         throw new InvalidArgumentRuntimeException("listener", "null");
+      }
+      
+      synchronized (lock)
+      {
+         stop();
+         this.listener = listener;
+         schedule(splitter.getPeriodEnd(System.currentTimeMillis() - delay));
+      }
+   }
+   
+   /**
+    * Stops the timer. Periods are then ended by trades and quotes only.
+    */
+   public void stop()
+   {
+      synchronized (lock)
+      {
+         if (scheduled != null)
+         {
+            scheduled.cancel(false);
+            scheduled = null;
+         }
+         listener = null;
+         generation++;
+      }
+   }
+   
+   /**
+    * @return true if the timer is started
+    */
+   public boolean isStarted()
+   {
+      synchronized (lock)
+      {
+         return listener != null;
+      }
+   }
+   
+   /**
+    * Checks if the current period has ended by the specified time.
+    * 
+    * @param time
+    *           time in milliseconds since 1970-01-01T00:00:00Z
+    * @return <code>END_BEFORE</code> result if the period has ended and has not been ended before,
+    *         <code>NO_ACTION</code> result otherwise
+    */
+   public PeriodSplitterResult checkTime(long time)
+   {
+      synchronized (lock)
+      {
+         if (open && time >= periodEnd)
+         {
+            open = false;
+            lastResult =
+                  new PeriodSplitterResult(PeriodSplitterAction.END_BEFORE, new DateTime(
+                        periodEnd, splitter.getTimeZone()));
+         }
+         else
+         {
+            lastResult =
+                  new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, new DateTime(time,
+                        splitter.getTimeZone()));
+         }
+         return lastResult;
+      }
+   }
+   
+   @Override
+   public PeriodSplitterResult checkEndOfPeriod(Trade trade)
+   {
+      synchronized (lock)
+      {
+         return check(splitter.checkEndOfPeriod(trade), trade.getTimeMillis());
+      }
+   }
+   
+   @Override
+   public PeriodSplitterResult checkEndOfPeriod(Quote quote)
+   {
+      synchronized (lock)
+      {
+         return check(splitter.checkEndOfPeriod(quote), quote.getTimeMillis());
+      }
+   }
+   
+   @Override
+   public PeriodSplitterResult getLastResult()
+   {
+      synchronized (lock)
+      {
+         return lastResult;
+      }
+   }
+   
+   /**
+    * @return splitter of the periods
+    */
+   public TimePeriodSplitter getSplitter()
+   {
+      return splitter;
+   }
+   
+   /**
+    * @return time in milliseconds the timer waits after a boundary
+    */
+   public long getDelay()
+   {
+      return delay;
+   }
+   
+   /**
+    * Adjusts result of the wrapped splitter to the periods ended by the timer. Must be called
+    * while holding the lock.
+    * 
+    * @param result
+    *           result of the wrapped splitter
+    * @param time
+    *           time of the trade or quote in milliseconds
+    * @return adjusted result
+    */
+   private PeriodSplitterResult check(PeriodSplitterResult result, long time)
+   {
+      if (result.getAction() != PeriodSplitterAction.NO_ACTION)
+      {
+         if (!open && result.getAction() == PeriodSplitterAction.RESTART_BEFORE)
+         {
+            // The previous period has already been ended by the timer.
+            result = new PeriodSplitterResult(PeriodSplitterAction.START_BEFORE, result.getTime());
+         }
+         open = true;
+         periodEnd = splitter.getPeriodEnd(time);
+      }
+      lastResult = result;
+      return result;
+   }
+   
+   /**
+    * Schedules the listener to be called at the specified boundary. Must be called while holding
+    * the lock.
+    * 
+    * @param boundary
+    *           time of the boundary in milliseconds
+    */
+   private void schedule(final long boundary)
+   {
+      final PeriodTimerListener target = listener;
+      final int scheduleGeneration = generation;
+      long wait = Math.max(0, boundary + delay - System.currentTimeMillis());
+      scheduled = executor.schedule(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               target.periodTimerExpired(boundary);
+            }
+            finally
+            {
+               synchronized (lock)
+               {
+                  // A stopped or restarted timer is not scheduled again.
+                  if (generation == scheduleGeneration)
+                  {
+                     // Boundaries missed by a late timer are skipped.
+                     long now = System.currentTimeMillis() - delay;
+                     schedule(splitter.getPeriodEnd(Math.max(boundary, now)));
+                  }
+               }
+            }
+         }
+      }, wait, TimeUnit.MILLISECONDS);
+   }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+/**
+ * Receives boundaries of time periods from a <code>PeriodTimer</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ * @see PeriodTimer
+ */
+public interface PeriodTimerListener
+{
+   /**
+    * Called by the timer thread as a period boundary is reached on the wall clock. Implementations
+    * check their period splitters with <code>PeriodEngine.evaluateTime</code> and dispatch the
+    * resulting period events.
+    * 
+    * @param time
+    *           time of the boundary in milliseconds since 1970-01-01T00:00:00Z
+    */
+   public void periodTimerExpired(long time);
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.BitSet;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Base class for columnar storage of periodic indicator values. Values are stored in an array
+ * indexed by period, whether the value was set in a period is stored in a bit set. With limited
+ * retention the array is a ring buffer holding the last <code>retention</code> periods, older
+ * periods are overwritten. With unlimited retention the array grows as needed.
+ * <p>
+ * Stored periods are accessed either by index, 0 being the oldest retained period, or by the
+ * number of periods ago, 0 being the most recent period. Both take constant time. All methods are
+ * synchronized on the column.
+ * <p>
+ * Retained periods may be saved by <code>writeState</code> and restored by <code>readState</code>,
+ * subclasses write and read the values of single elements.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public abstract class PeriodicColumn
+{
+   /** Retention of a column keeping all periods. */
+   public static final int UNLIMITED_RETENTION = 0;
+   private static final int INITIAL_CAPACITY = 16;
+   
+   private final int retention;
+   private final BitSet flags;
+   private int capacity;
+   private long periodCount;
+   
+   /**
+    * Constructor.
+    * 
+    * @param retention
+    *           maximum number of periods kept, or <code>UNLIMITED_RETENTION</code>
+    */
+   protected PeriodicColumn(int retention)
+   {
+      if (retention < 0)
+      {
+         throw new InvalidArgumentRuntimeException("retention", retention,
+               "Must be a positive integer or UNLIMITED_RETENTION.");
+      }
+      this.retention = retention;
+      flags = new BitSet();
+      capacity = 0;
+      periodCount = 0;
+   }
+   
+   /**
+    * Reserves storage for the next period, dropping the oldest period if the retention is reached.
+    * 
+    * @param set
+    *           true if the value is set in the period
+    * @return index of the array element to store the value of the period in
+    */
+   protected final synchronized int addPeriod(boolean set)
+   {
+      // The array grows only before the first wrap around, so periods keep their elements.
+      if (periodCount == capacity && (retention == UNLIMITED_RETENTION || capacity < retention))
+      {
+         int newCapacity = capacity == 0 ? INITIAL_CAPACITY : capacity * 2;
+         if (newCapacity < 0)
+         {
+            newCapacity = Integer.MAX_VALUE;
+         }
+         if (retention != UNLIMITED_RETENTION)
+         {
+            newCapacity = Math.min(newCapacity, retention);
+         }
+         resize(newCapacity);
+         capacity = newCapacity;
+      }
+      int element = (int)(periodCount % capacity);
+      flags.set(element, set);
+      periodCount++;
+      return element;
+   }
+   
+   /**
+    * Resizes the value array, keeping the existing values.
+    * 
+    * @param newCapacity
+    *           new size of the array
+    */
+   protected abstract void resize(int newCapacity);
+   
+   /**
+    * Writes a value stored in the specified element.
+    * 
+    * @param out
+    *           destination
+    * @param element
+    *           index of the element
+    * @throws IOException
+    *            on write error
+    */
+   protected abstract void writeElement(DataOutput out, int element) throws IOException;
+   
+   /**
+    * Reads a value written by <code>writeElement</code> and stores it in the specified element.
+    * 
+    * @param in
+    *           source
+    * @param element
+    *           index of the element
+    * @throws IOException
+    *            on read error
+    */
+   protected abstract void readElement(DataInput in, int element) throws IOException;
+   
+   /**
+    * Writes the retained periods and the number of periods added.
+    * 
+    * @param out
+    *           destination
+    * @throws IOException
+    *            on write error
+    */
+   public final synchronized void writeState(DataOutput out) throws IOException
+   {
+      int size = size();
+      out.writeInt(retention);
+      out.writeLong(periodCount);
+      out.writeInt(size);
+      for (int index = 0; index < size; index++)
+      {
+         int element = element(index);
+         out.writeBoolean(flags.get(element));
+         writeElement(out, element);
+      }
+   }
+   
+   /**
+    * Replaces the periods of this column by the periods written by <code>writeState</code>.
+    * 
+    * @param in
+    *           source
+    * @throws IOException
+    *            on read error, or if the periods were written by a column of different retention
+    */
+   public final synchronized void readState(DataInput in) throws IOException
+   {
+      int savedRetention = in.readInt();
+      long count = in.readLong();
+      int size = in.readInt();
+      if (savedRetention != retention)
+      {
+         throw new IOException("Retention " + savedRetention + " does not match retention "
+                               + retention + " of the column.");
+      }
+      // Only a column of limited retention drops periods, and only when it is full.
+      if (size < 0 || count < size
+          || (count > size && (retention == UNLIMITED_RETENTION || size != retention)))
+      {
+         throw new IOException("Corrupt periodic data of " + size + " periods out of " + count
+                               + ".");
+      }
+      
+      int required = 0;
+      if (size > 0)
+      {
+         required = INITIAL_CAPACITY;
+         while (required < size && required > 0)
+         {
+            required *= 2;
+         }
+         if (required < size)
+         {
+            required = Integer.MAX_VALUE;
+         }
+         if (retention != UNLIMITED_RETENTION)
+         {
+            required = Math.min(required, retention);
+         }
+      }
+      if (required > capacity)
+      {
+         resize(required);
+         capacity = required;
+      }
+      
+      flags.clear();
+      periodCount = count;
+      for (int index = 0; index < size; index++)
+      {
+         int element = (int)((count - size + index) % capacity);
+         flags.set(element, in.readBoolean());
+         readElement(in, element);
+      }
+   }
+   
+   /**
+    * @param index
+    *           index of a retained period, 0 for the oldest one
+    * @return index of the array element storing the value of the period
+    */
+   protected final synchronized int element(int index)
+   {
+      int size = size();
+      if (index < 0 || index >= size)
+      {
+         throw new InvalidArgumentRuntimeException("index", index, "Must be in range 0 - "
+                                                                  + (size - 1) + ".");
+      }
+      return (int)((periodCount - size + index) % capacity);
+   }
+   
+   /**
+    * @return number of retained periods
+    */
+   public final synchronized int size()
+   {
+      return (int)Math.min(periodCount, capacity);
+   }
+   
+   /**
+    * @return number of periods added since the column was created, including the ones dropped
+    */
+   public final synchronized long getPeriodCount()
+   {
+      return periodCount;
+   }
+   
+   /**
+    * @return maximum number of periods kept, or <code>UNLIMITED_RETENTION</code>
+    */
+   public final int getRetention()
+   {
+      return retention;
+   }
+   
+   /**
+    * @param index
+    *           index of a retained period, 0 for the oldest one
+    * @return true if the value was set in the period
+    */
+   public final synchronized boolean isSet(int index)
+   {
+      return flags.get(element(index));
+   }
+   
+   /**
+    * @param periodsAgo
+    *           number of periods ago, 0 for the most recent period
+    * @return true if the value was set in the period
+    */
+   public final synchronized boolean isSetAgo(int periodsAgo)
+   {
+      return isSet(size() - 1 - periodsAgo);
+   }
+}
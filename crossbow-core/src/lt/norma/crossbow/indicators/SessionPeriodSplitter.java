@@ -0,0 +1,255 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+/**
+ * Splits data into periods by trading sessions of an exchange. A session lasts from the beginning
+ * to the end of the trading day of the exchange, sessions ending past midnight are supported.
+ * Either every session is a single period, or sessions are divided into periods of a fixed length
+ * aligned to the opening of the session, the last period of a session ends at the close.
+ * <p>
+ * Trades and quotes outside of the sessions do not start periods. The first one of them after the
+ * close ends the current period. Boundaries of the current period, or of the time between
+ * sessions, are computed in milliseconds when it is entered, so a trade or quote of the same period
+ * is checked by comparing its time to the cached boundaries. Results are allocated only when a
+ * period changes. Trades and quotes are expected in the order of time.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class SessionPeriodSplitter implements PeriodSplitter
+{
+   /** Period length of a splitter making a single period of every session. */
+   public static final long WHOLE_SESSION = 0;
+   
+   private final Exchange exchange;
+   private final DateTimeZone timeZone;
+   private final LocalTime tradingStarts;
+   private final LocalTime tradingEnds;
+   private final long periodLength;
+   
+   /** True if the current interval is a period, false if it is the time between sessions. */
+   private boolean inPeriod;
+   /** Beginning of the current interval, inclusive. */
+   private long intervalStart;
+   /** End of the current interval, exclusive. */
+   private long intervalEnd;
+   private PeriodSplitterResult continuation;
+   private PeriodSplitterResult lastResult;
+   private final Object lock;
+   
+   /**
+    * Constructor. Every session is a single period.
+    * 
+    * @param exchange
+    *           exchange the sessions of which are used
+    */
+   public SessionPeriodSplitter(Exchange exchange)
+   {
+      this(exchange, WHOLE_SESSION);
+   }
+   
+   /**
+    * Constructor.
+    * 
+    * @param exchange
+    *           exchange the sessions of which are used
+    * @param periodLength
+    *           length of the periods in milliseconds, or <code>WHOLE_SESSION</code>
+    */
+   public SessionPeriodSplitter(Exchange exchange, long periodLength)
+   {
+      if (exchange == null)
+      {
+         throw new InvalidArgumentRuntimeException("exchange", "null");
+      }
+      if (periodLength < 0)
+      {
+         throw new InvalidArgumentRuntimeException("periodLength", periodLength,
+               "Must be a positive integer or WHOLE_SESSION.");
+      }
+      
+      this.exchange = exchange;
+      this.periodLength = periodLength;
+      timeZone = exchange.getTimeZone();
+      tradingStarts = exchange.getTradingStarts();
+      tradingEnds = exchange.getTradingEnds();
+      inPeriod = false;
+      // Empty interval, the first check locates the session
+      intervalStart = 0;
+      intervalEnd = 0;
+      lock = new Object();
+   }
+   
+   @Override
+   public PeriodSplitterResult checkEndOfPeriod(Trade trade)
+   {
+      return checkEndOfPeriod(trade.getTimeMillis());
+   }
+   
+   @Override
+   public PeriodSplitterResult checkEndOfPeriod(Quote quote)
+   {
+      return checkEndOfPeriod(quote.getTimeMillis());
+   }
+   
+   @Override
+   public PeriodSplitterResult getLastResult()
+   {
+      synchronized (lock)
+      {
+         return lastResult;
+      }
+   }
+   
+   /**
+    * @return exchange the sessions of which are used
+    */
+   public Exchange getExchange()
+   {
+      return exchange;
+   }
+   
+   /**
+    * @return length of the periods in milliseconds, or <code>WHOLE_SESSION</code>
+    */
+   public long getPeriodLength()
+   {
+      return periodLength;
+   }
+   
+   private PeriodSplitterResult checkEndOfPeriod(long millis)
+   {
+      synchronized (lock)
+      {
+         if (millis < intervalEnd && millis >= intervalStart)
+         {
+            lastResult = continuation;
+            return lastResult;
+         }
+         
+         boolean wasInPeriod = inPeriod;
+         long previousEnd = intervalEnd;
+         locate(millis);
+         PeriodSplitterAction action;
+         DateTime time;
+         if (inPeriod)
+         {
+            action =
+                  wasInPeriod ? PeriodSplitterAction.RESTART_BEFORE
+                              : PeriodSplitterAction.START_BEFORE;
+            time = new DateTime(intervalStart, timeZone);
+         }
+         else if (wasInPeriod)
+         {
+            action = PeriodSplitterAction.END_BEFORE;
+            time = new DateTime(previousEnd, timeZone);
+         }
+         else
+         {
+            action = PeriodSplitterAction.NO_ACTION;
+            time = new DateTime(intervalStart, timeZone);
+         }
+         continuation = new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, time);
+         lastResult =
+               action == PeriodSplitterAction.NO_ACTION ? continuation
+                                                        : new PeriodSplitterResult(action, time);
+         return lastResult;
+      }
+   }
+   
+   /**
+    * Finds the period or the time between sessions containing the specified time and stores its
+    * boundaries. Must be called while holding the lock.
+    * 
+    * @param millis
+    *           time in milliseconds since 1970-01-01T00:00:00Z
+    */
+   private void locate(long millis)
+   {
+      LocalDate date = new LocalDate(millis, timeZone);
+      long gapStart = Long.MIN_VALUE;
+      long gapEnd = Long.MAX_VALUE;
+      // A session containing the time opens on the same day or, if it ends after midnight, on the
+      // previous day.
+      for (int day = -1; day <= 1; day++)
+      {
+         LocalDate sessionDate = date.plusDays(day);
+         long open = getMillis(sessionDate, tradingStarts);
+         long close = getMillis(sessionDate, tradingEnds);
+         if (close <= open)
+         {
+            close = getMillis(sessionDate.plusDays(1), tradingEnds);
+         }
+         
+         if (millis >= open && millis < close)
+         {
+            inPeriod = true;
+            if (periodLength == WHOLE_SESSION)
+            {
+               intervalStart = open;
+               intervalEnd = close;
+            }
+            else
+            {
+               intervalStart = open + (millis - open) / periodLength * periodLength;
+               intervalEnd = Math.min(intervalStart + periodLength, close);
+            }
+            return;
+         }
+         if (close <= millis)
+         {
+            gapStart = Math.max(gapStart, close);
+         }
+         if (open > millis)
+         {
+            gapEnd = Math.min(gapEnd, open);
+         }
+      }
+      
+      inPeriod = false;
+      intervalStart = gapStart == Long.MIN_VALUE ? millis : gapStart;
+      intervalEnd = gapEnd;
+   }
+   
+   /**
+    * Converts local time of the exchange to milliseconds. A time skipped by a daylight saving
+    * transition is shifted forward by the length of the gap, an ambiguous time is resolved to the
+    * earlier instant.
+    * 
+    * @param date
+    *           local date of the exchange
+    * @param time
+    *           local time of the exchange
+    * @return time in milliseconds since 1970-01-01T00:00:00Z
+    */
+   private long getMillis(LocalDate date, LocalTime time)
+   {
+      long localMillis = date.toLocalDateTime(time).toDateTime(DateTimeZone.UTC).getMillis();
+      return timeZone.convertLocalToUTC(localMillis, false);
+   }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Splits data into periods of a fixed number of trades.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class TickPeriodSplitter extends ActivityPeriodSplitter
+{
+   private final int tradeCount;
+   private int count;
+   
+   /**
+    * Constructor.
+    * 
+    * @param tradeCount
+    *           number of trades in a period
+    */
+   public TickPeriodSplitter(int tradeCount)
+   {
+      if (tradeCount <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("tradeCount", tradeCount,
+               "Must be a positive integer.");
+      }
+      this.tradeCount = tradeCount;
+      count = 0;
+   }
+   
+   /**
+    * @return number of trades in a period
+    */
+   public int getTradeCount()
+   {
+      return tradeCount;
+   }
+   
+   @Override
+   protected boolean add(Trade trade)
+   {
+      count++;
+      return count >= tradeCount;
+   }
+   
+   @Override
+   protected void reset()
+   {
+      count = 0;
+   }
+}
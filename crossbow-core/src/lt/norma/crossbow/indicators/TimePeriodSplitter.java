@@ -25,6 +25,10 @@ import lt.norma.crossbow.data.Trade;
 
 /**
  * Splits data into periods by time of trade or quote.
+ * <p>
+ * Boundaries of the current period are kept in milliseconds, so a trade or quote of the same
+ * period is checked by comparing its time to them and gets a shared result. Results are allocated
+ * only when a period changes.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
@@ -32,9 +36,12 @@ public final class TimePeriodSplitter implements PeriodSplitter
 {
    private final long zeroDate;
    private final long periodLength;
-   private long previousPeriodTime;
-   private boolean isFirstPeriod;
    private final DateTimeZone timeZone;
+   /** Beginning of the current period, inclusive. */
+   private long periodStart;
+   /** End of the current period, exclusive. Equal to the beginning before the first period. */
+   private long periodEnd;
+   private PeriodSplitterResult continuation;
    private PeriodSplitterResult lastResult;
    private final Object lock;
    
@@ -51,34 +58,30 @@ public final class TimePeriodSplitter implements PeriodSplitter
       this.periodLength = periodLength;
       this.timeZone = timeZone;
       zeroDate = (new DateTime(1900, 1, 1, 0, 0, 0, 0, timeZone)).getMillis();
-      isFirstPeriod = true;
+      periodStart = 0;
+      periodEnd = 0;
       lock = new Object();
    }
    
-   private PeriodSplitterResult checkEndOfPeriod(DateTime time)
+   private PeriodSplitterResult checkEndOfPeriod(long millis)
    {
       synchronized (lock)
       {
-         long nper = (long)Math.floor((double)(time.getMillis() - zeroDate) / periodLength);
-         long periodTime = zeroDate + nper * periodLength;
-         
-         PeriodSplitterAction action = PeriodSplitterAction.NO_ACTION;
-         if (isFirstPeriod)
-         {
-            action = PeriodSplitterAction.START_BEFORE;
-            previousPeriodTime = periodTime;
-            isFirstPeriod = false;
-         }
-         else
+         if (millis < periodEnd && millis >= periodStart)
          {
-            if (periodTime != previousPeriodTime)
-            {
-               action = PeriodSplitterAction.RESTART_BEFORE;
-               previousPeriodTime = periodTime;
-            }
+            lastResult = continuation;
+            return lastResult;
          }
          
-         lastResult = new PeriodSplitterResult(action, new DateTime(periodTime, timeZone));
+         long periodTime = getPeriodStart(millis);
+         PeriodSplitterAction action =
+               continuation == null ? PeriodSplitterAction.START_BEFORE
+                                    : PeriodSplitterAction.RESTART_BEFORE;
+         DateTime time = new DateTime(periodTime, timeZone);
+         periodStart = periodTime;
+         periodEnd = periodTime + periodLength;
+         continuation = new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, time);
+         lastResult = new PeriodSplitterResult(action, time);
          return lastResult;
       }
    }
@@ -86,13 +89,13 @@ public final class TimePeriodSplitter implements PeriodSplitter
    @Override
    public PeriodSplitterResult checkEndOfPeriod(Quote quote)
    {
-      return checkEndOfPeriod(quote.getTime());
+      return checkEndOfPeriod(quote.getTimeMillis());
    }
    
    @Override
    public PeriodSplitterResult checkEndOfPeriod(Trade trade)
    {
-      return checkEndOfPeriod(trade.getTime());
+      return checkEndOfPeriod(trade.getTimeMillis());
    }
    
    @Override
@@ -103,4 +106,45 @@ public final class TimePeriodSplitter implements PeriodSplitter
          return lastResult;
       }
    }
+   
+   /**
+    * Gets the end of the period containing the specified time. Does not change the state of the
+    * splitter.
+    * 
+    * @param millis
+    *           time in milliseconds since 1970-01-01T00:00:00Z
+    * @return end of the period in milliseconds, exclusive. Equal to the beginning of the next
+    *         period.
+    */
+   public long getPeriodEnd(long millis)
+   {
+      return getPeriodStart(millis) + periodLength;
+   }
+   
+   /**
+    * @return length of the time period in milliseconds
+    */
+   public long getPeriodLength()
+   {
+      return periodLength;
+   }
+   
+   /**
+    * @return time zone of the data source
+    */
+   public DateTimeZone getTimeZone()
+   {
+      return timeZone;
+   }
+   
+   private long getPeriodStart(long millis)
+   {
+      long offset = millis - zeroDate;
+      long nper = offset / periodLength;
+      if (offset % periodLength < 0)
+      {
+         nper--;
+      }
+      return zeroDate + nper * periodLength;
+   }
 }
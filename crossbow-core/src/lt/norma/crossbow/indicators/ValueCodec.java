@@ -0,0 +1,137 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Writes indicator values of common types in a compact binary form, used to save state of
+ * indicators with values of a generic type. Every value is preceded by a single byte tag of its
+ * type.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+final class ValueCodec
+{
+   private static final byte NULL = 0;
+   private static final byte DOUBLE = 1;
+   private static final byte LONG = 2;
+   private static final byte INTEGER = 3;
+   private static final byte BOOLEAN = 4;
+   private static final byte STRING = 5;
+   private static final byte DECIMAL = 6;
+   
+   /**
+    * A private constructor. This class cannot not be instantiated.
+    */
+   private ValueCodec()
+   {
+   }
+   
+   /**
+    * Writes a value.
+    * 
+    * @param out
+    *           destination
+    * @param value
+    *           value of type <code>Double</code>, <code>Long</code>, <code>Integer</code>,
+    *           <code>Boolean</code>, <code>String</code>, <code>BigDecimal</code>, or null
+    * @throws IOException
+    *            on write error
+    */
+   static void write(DataOutput out, Object value) throws IOException
+   {
+      if (value == null)
+      {
+         out.writeByte(NULL);
+      }
+      else if (value instanceof Double)
+      {
+         out.writeByte(DOUBLE);
+         out.writeDouble((Double)value);
+      }
+      else if (value instanceof Long)
+      {
+         out.writeByte(LONG);
+         out.writeLong((Long)value);
+      }
+      else if (value instanceof Integer)
+      {
+         out.writeByte(INTEGER);
+         out.writeInt((Integer)value);
+      }
+      else if (value instanceof Boolean)
+      {
+         out.writeByte(BOOLEAN);
+         out.writeBoolean((Boolean)value);
+      }
+      else if (value instanceof String)
+      {
+         out.writeByte(STRING);
+         out.writeUTF((String)value);
+      }
+      else if (value instanceof BigDecimal)
+      {
+         out.writeByte(DECIMAL);
+         out.writeUTF(((BigDecimal)value).toString());
+      }
+      else
+      {
+         throw new InvalidArgumentRuntimeException("value", value.getClass().getName(),
+               "Values of this type cannot be saved.");
+      }
+   }
+   
+   /**
+    * Reads a value written by <code>write</code>.
+    * 
+    * @param in
+    *           source
+    * @return value read, may be null
+    * @throws IOException
+    *            on read error or unknown type of the value
+    */
+   static Object read(DataInput in) throws IOException
+   {
+      byte type = in.readByte();
+      switch (type)
+      {
+         case NULL:
+            return null;
+         case DOUBLE:
+            return in.readDouble();
+         case LONG:
+            return in.readLong();
+         case INTEGER:
+            return in.readInt();
+         case BOOLEAN:
+            return in.readBoolean();
+         case STRING:
+            return in.readUTF();
+         case DECIMAL:
+            return new BigDecimal(in.readUTF());
+         default:
+            throw new IOException("Unknown type of value " + type + ".");
+      }
+   }
+}
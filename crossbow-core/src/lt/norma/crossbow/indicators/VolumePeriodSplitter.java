@@ -0,0 +1,72 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Splits data into periods of a fixed traded volume. A period ends with the trade bringing the
+ * volume of the period to the specified one or above it. The excess is not carried over to the
+ * next period.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class VolumePeriodSplitter extends ActivityPeriodSplitter
+{
+   private final long volume;
+   private long periodVolume;
+   
+   /**
+    * Constructor.
+    * 
+    * @param volume
+    *           number of shares or contracts traded in a period
+    */
+   public VolumePeriodSplitter(long volume)
+   {
+      if (volume <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("volume", volume,
+               "Must be a positive integer.");
+      }
+      this.volume = volume;
+      periodVolume = 0;
+   }
+   
+   /**
+    * @return number of shares or contracts traded in a period
+    */
+   public long getVolume()
+   {
+      return volume;
+   }
+   
+   @Override
+   protected boolean add(Trade trade)
+   {
+      periodVolume += trade.getSize();
+      return periodVolume >= volume;
+   }
+   
+   @Override
+   protected void reset()
+   {
+      periodVolume = 0;
+   }
+}
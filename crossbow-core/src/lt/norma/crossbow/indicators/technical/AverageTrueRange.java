@@ -0,0 +1,164 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.joda.time.DateTime;
+
+/**
+ * Average true range (ATR) of a contract. High, low and closing prices of every data period are
+ * tracked from the trades. True range of a period is the greatest of the high-low range and the
+ * distances of the high and the low from the previous close. True ranges are smoothed by Wilder's
+ * method, seeded by a simple average of the first <code>period</code> ranges. Value is set once
+ * <code>period</code> periods with trades are closed. Periods without trades are skipped.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class AverageTrueRange extends DoubleIndicator
+{
+   private final Contract contract;
+   private final int period;
+   private final ExponentialSmoothing average;
+   private double high;
+   private double low;
+   private double close;
+   private double previousClose;
+   
+   /**
+    * Constructor.
+    * 
+    * @param contract
+    *           contract of the trades
+    * @param period
+    *           number of periods averaged
+    */
+   public AverageTrueRange(Contract contract, int period)
+   {
+      super("ATR (" + period + ")", true);
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      if (period < 1)
+      {
+         throw new InvalidArgumentRuntimeException("period", period,
+               "Must be a positive integer.");
+      }
+      this.contract = contract;
+      this.period = period;
+      average = new ExponentialSmoothing(1.0 / period, period);
+      high = Double.NaN;
+      low = Double.NaN;
+      close = Double.NaN;
+      previousClose = Double.NaN;
+   }
+   
+   @Override
+   public void tradeReceived(Trade trade)
+   {
+      if (trade.getContract().equals(contract))
+      {
+         double price = trade.getPriceScale().toDouble(trade.getScaledPrice());
+         if (Double.isNaN(high))
+         {
+            high = price;
+            low = price;
+         }
+         else if (price > high)
+         {
+            high = price;
+         }
+         else if (price < low)
+         {
+            low = price;
+         }
+         close = price;
+      }
+   }
+   
+   @Override
+   protected void endOfPeriod(DateTime time)
+   {
+      if (Double.isNaN(high))
+      {
+         return;
+      }
+      
+      double range = high - low;
+      if (!Double.isNaN(previousClose))
+      {
+         range = Math.max(range, Math.max(Math.abs(high - previousClose),
+                                          Math.abs(low - previousClose)));
+      }
+      average.add(range);
+      if (average.isReady())
+      {
+         setDouble(average.getValue());
+      }
+      
+      previousClose = close;
+      high = Double.NaN;
+      low = Double.NaN;
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      average.writeState(out);
+      out.writeDouble(high);
+      out.writeDouble(low);
+      out.writeDouble(close);
+      out.writeDouble(previousClose);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      average.readState(in);
+      high = in.readDouble();
+      low = in.readDouble();
+      close = in.readDouble();
+      previousClose = in.readDouble();
+   }
+   
+   /**
+    * @return contract of the trades
+    */
+   public final Contract getContract()
+   {
+      return contract;
+   }
+   
+   /**
+    * @return number of periods averaged
+    */
+   public final int getPeriod()
+   {
+      return period;
+   }
+}
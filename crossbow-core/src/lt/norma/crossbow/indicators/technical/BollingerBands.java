@@ -0,0 +1,130 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Bollinger bands of the last <code>period</code> values of the source. Value of the indicator is
+ * the middle band, a simple moving average. Upper and lower bands are <code>width</code> population
+ * standard deviations above and below the middle band. Value is set once <code>period</code>
+ * values are sampled.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class BollingerBands extends SampledIndicator
+{
+   private final RollingWindow window;
+   private final double width;
+   private double deviation;
+   
+   /**
+    * Constructor.
+    * 
+    * @param source
+    *           indicator providing the values
+    * @param period
+    *           number of values
+    * @param width
+    *           distance of the bands from the middle band in standard deviations
+    */
+   public BollingerBands(DoubleIndicator source, int period, double width)
+   {
+      super("Bollinger bands (" + period + ", " + width + ")", source);
+      if (period < 1)
+      {
+         throw new InvalidArgumentRuntimeException("period", period,
+               "Must be a positive integer.");
+      }
+      if (!(width > 0))
+      {
+         throw new InvalidArgumentRuntimeException("width", width, "Must be a positive number.");
+      }
+      window = new RollingWindow(period);
+      this.width = width;
+      deviation = 0;
+   }
+   
+   @Override
+   protected void sample(double value)
+   {
+      window.add(value);
+      if (window.isFull())
+      {
+         deviation = Math.sqrt(window.getVariance());
+         setDouble(window.getMean());
+      }
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      window.writeState(out);
+      out.writeDouble(deviation);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      window.readState(in);
+      deviation = in.readDouble();
+   }
+   
+   /**
+    * @return upper band
+    * @throws lt.norma.crossbow.exceptions.ValueNotSetRuntimeException
+    *            if value of this indicator is not set yet
+    */
+   public final double getUpper()
+   {
+      return getDouble() + width * deviation;
+   }
+   
+   /**
+    * @return lower band
+    * @throws lt.norma.crossbow.exceptions.ValueNotSetRuntimeException
+    *            if value of this indicator is not set yet
+    */
+   public final double getLower()
+   {
+      return getDouble() - width * deviation;
+   }
+   
+   /**
+    * @return number of values
+    */
+   public final int getPeriod()
+   {
+      return window.getCapacity();
+   }
+   
+   /**
+    * @return distance of the bands from the middle band in standard deviations
+    */
+   public final double getWidth()
+   {
+      return width;
+   }
+}
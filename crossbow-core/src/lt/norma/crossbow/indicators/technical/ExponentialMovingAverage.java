@@ -0,0 +1,90 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Exponential moving average (EMA) of the source values, smoothing factor is
+ * <code>2 / (period + 1)</code>. The average is seeded by a simple average of the first
+ * <code>period</code> values, value is set once they are sampled.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class ExponentialMovingAverage extends SampledIndicator
+{
+   private final int period;
+   private final ExponentialSmoothing average;
+   
+   /**
+    * Constructor.
+    * 
+    * @param source
+    *           indicator providing the values
+    * @param period
+    *           period of the average
+    */
+   public ExponentialMovingAverage(DoubleIndicator source, int period)
+   {
+      super("EMA (" + period + ")", source);
+      if (period < 1)
+      {
+         throw new InvalidArgumentRuntimeException("period", period,
+               "Must be a positive integer.");
+      }
+      this.period = period;
+      average = new ExponentialSmoothing(2.0 / (period + 1), period);
+   }
+   
+   @Override
+   protected void sample(double value)
+   {
+      average.add(value);
+      if (average.isReady())
+      {
+         setDouble(average.getValue());
+      }
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      average.writeState(out);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      average.readState(in);
+   }
+   
+   /**
+    * @return period of the average
+    */
+   public final int getPeriod()
+   {
+      return period;
+   }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Exponential smoothing of a series of values. The first value of the smoothed series is a simple
+ * average of the first <code>seedCount</code> values, following values are smoothed by
+ * <code>average += alpha * (value - average)</code>.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+final class ExponentialSmoothing
+{
+   private final double alpha;
+   private final int seedCount;
+   private int count;
+   private double sum;
+   private double average;
+   
+   /**
+    * Constructor.
+    * 
+    * @param alpha
+    *           smoothing factor, 2 / (period + 1) for an exponential moving average and 1 / period
+    *           for Wilder's smoothing
+    * @param seedCount
+    *           number of values averaged to get the first smoothed value
+    */
+   ExponentialSmoothing(double alpha, int seedCount)
+   {
+      this.alpha = alpha;
+      this.seedCount = seedCount;
+      count = 0;
+      sum = 0;
+      average = 0;
+   }
+   
+   /**
+    * @param value
+    *           next value of the series
+    */
+   void add(double value)
+   {
+      if (count < seedCount)
+      {
+         sum += value;
+         count++;
+         if (count == seedCount)
+         {
+            average = sum / seedCount;
+         }
+      }
+      else
+      {
+         average += alpha * (value - average);
+      }
+   }
+   
+   /**
+    * @return true if enough values are added to calculate the smoothed value
+    */
+   boolean isReady()
+   {
+      return count == seedCount;
+   }
+   
+   /**
+    * @return smoothed value, valid only if <code>isReady()</code>
+    */
+   double getValue()
+   {
+      return average;
+   }
+   
+   /**
+    * Writes state of the smoothing.
+    * 
+    * @param out
+    *           destination
+    * @throws IOException
+    *            on write error
+    */
+   void writeState(DataOutput out) throws IOException
+   {
+      out.writeInt(count);
+      out.writeDouble(sum);
+      out.writeDouble(average);
+   }
+   
+   /**
+    * Restores state of the smoothing written by <code>writeState</code>.
+    * 
+    * @param in
+    *           source
+    * @throws IOException
+    *            on read error or if the state does not match the seed count
+    */
+   void readState(DataInput in) throws IOException
+   {
+      int savedCount = in.readInt();
+      if (savedCount < 0 || savedCount > seedCount)
+      {
+         throw new IOException("Count " + savedCount + " does not match seed count " + seedCount
+                               + ".");
+      }
+      count = savedCount;
+      sum = in.readDouble();
+      average = in.readDouble();
+   }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Price of the last trade of a contract. At the end of a period the value is the closing price of
+ * the period.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class LastPrice extends DoubleIndicator
+{
+   private final Contract contract;
+   
+   /**
+    * Constructor.
+    * 
+    * @param contract
+    *           contract of the trades
+    */
+   public LastPrice(Contract contract)
+   {
+      super("Last price", true);
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      this.contract = contract;
+   }
+   
+   @Override
+   public void tradeReceived(Trade trade)
+   {
+      if (trade.getContract().equals(contract))
+      {
+         setDouble(trade.getPriceScale().toDouble(trade.getScaledPrice()));
+      }
+   }
+   
+   /**
+    * @return contract of the trades
+    */
+   public final Contract getContract()
+   {
+      return contract;
+   }
+}
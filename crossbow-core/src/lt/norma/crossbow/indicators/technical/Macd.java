@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.exceptions.ValueNotSetRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Moving average convergence divergence (MACD) of the source values. Value of the indicator is the
+ * MACD line, the difference between the fast and the slow exponential moving averages of the
+ * source. Value is set once the slow average is seeded. The signal line is an exponential moving
+ * average of the MACD line.
+ * <p>
+ * All three averages are calculated within this indicator, no separate EMA indicators have to be
+ * added to the indicator list.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class Macd extends SampledIndicator
+{
+   private final int fastPeriod;
+   private final int slowPeriod;
+   private final int signalPeriod;
+   private final ExponentialSmoothing fast;
+   private final ExponentialSmoothing slow;
+   private final ExponentialSmoothing signal;
+   
+   /**
+    * Constructor.
+    * 
+    * @param source
+    *           indicator providing the values
+    * @param fastPeriod
+    *           period of the fast average, usually 12
+    * @param slowPeriod
+    *           period of the slow average, usually 26
+    * @param signalPeriod
+    *           period of the signal line, usually 9
+    */
+   public Macd(DoubleIndicator source, int fastPeriod, int slowPeriod, int signalPeriod)
+   {
+      super("MACD (" + fastPeriod + ", " + slowPeriod + ", " + signalPeriod + ")", source);
+      if (fastPeriod < 1)
+      {
+         throw new InvalidArgumentRuntimeException("fastPeriod", fastPeriod,
+               "Must be a positive integer.");
+      }
+      if (slowPeriod <= fastPeriod)
+      {
+         throw new InvalidArgumentRuntimeException("slowPeriod", slowPeriod,
+               "Must be greater than the fast period.");
+      }
+      if (signalPeriod < 1)
+      {
+         throw new InvalidArgumentRuntimeException("signalPeriod", signalPeriod,
+               "Must be a positive integer.");
+      }
+      this.fastPeriod = fastPeriod;
+      this.slowPeriod = slowPeriod;
+      this.signalPeriod = signalPeriod;
+      fast = new ExponentialSmoothing(2.0 / (fastPeriod + 1), fastPeriod);
+      slow = new ExponentialSmoothing(2.0 / (slowPeriod + 1), slowPeriod);
+      signal = new ExponentialSmoothing(2.0 / (signalPeriod + 1), signalPeriod);
+   }
+   
+   @Override
+   protected void sample(double value)
+   {
+      fast.add(value);
+      slow.add(value);
+      if (slow.isReady())
+      {
+         double line = fast.getValue() - slow.getValue();
+         signal.add(line);
+         setDouble(line);
+      }
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      fast.writeState(out);
+      slow.writeState(out);
+      signal.writeState(out);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      fast.readState(in);
+      slow.readState(in);
+      signal.readState(in);
+   }
+   
+   /**
+    * @return true if the signal line is set
+    */
+   public final boolean isSignalSet()
+   {
+      return signal.isReady();
+   }
+   
+   /**
+    * @return signal line
+    * @throws ValueNotSetRuntimeException
+    *            if the signal line is not set yet
+    */
+   public final double getSignal()
+   {
+      if (!signal.isReady())
+      {
+         throw new ValueNotSetRuntimeException("signal of indicator " + getTitle());
+      }
+      return signal.getValue();
+   }
+   
+   /**
+    * @return difference between the MACD line and the signal line
+    * @throws ValueNotSetRuntimeException
+    *            if the signal line is not set yet
+    */
+   public final double getHistogram()
+   {
+      return getDouble() - getSignal();
+   }
+   
+   /**
+    * @return period of the fast average
+    */
+   public final int getFastPeriod()
+   {
+      return fastPeriod;
+   }
+   
+   /**
+    * @return period of the slow average
+    */
+   public final int getSlowPeriod()
+   {
+      return slowPeriod;
+   }
+   
+   /**
+    * @return period of the signal line
+    */
+   public final int getSignalPeriod()
+   {
+      return signalPeriod;
+   }
+}
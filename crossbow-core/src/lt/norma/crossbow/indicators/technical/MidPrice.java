@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Middle of the last bid and ask prices of a contract.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class MidPrice extends DoubleIndicator
+{
+   private final Contract contract;
+   
+   /**
+    * Constructor.
+    * 
+    * @param contract
+    *           contract of the quotes
+    */
+   public MidPrice(Contract contract)
+   {
+      super("Mid price", true);
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      this.contract = contract;
+   }
+   
+   @Override
+   public void quoteReceived(Quote quote)
+   {
+      if (quote.getContract().equals(contract))
+      {
+         setDouble(quote.getPriceScale().toDouble(quote.getScaledAskPrice()
+                                                 + quote.getScaledBidPrice()) / 2);
+      }
+   }
+   
+   /**
+    * @return contract of the quotes
+    */
+   public final Contract getContract()
+   {
+      return contract;
+   }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Relative strength index (RSI) of the source values, 0 to 100. Average gains and losses are
+ * smoothed by Wilder's method, seeded by simple averages of the first <code>period</code> changes.
+ * Value is set once <code>period + 1</code> values are sampled. If the values did not change over
+ * the period, RSI is 50.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class RelativeStrengthIndex extends SampledIndicator
+{
+   private final int period;
+   private final ExponentialSmoothing gains;
+   private final ExponentialSmoothing losses;
+   private double previous;
+   
+   /**
+    * Constructor.
+    * 
+    * @param source
+    *           indicator providing the values
+    * @param period
+    *           number of changes averaged
+    */
+   public RelativeStrengthIndex(DoubleIndicator source, int period)
+   {
+      super("RSI (" + period + ")", source);
+      if (period < 1)
+      {
+         throw new InvalidArgumentRuntimeException("period", period,
+               "Must be a positive integer.");
+      }
+      this.period = period;
+      gains = new ExponentialSmoothing(1.0 / period, period);
+      losses = new ExponentialSmoothing(1.0 / period, period);
+      previous = Double.NaN;
+   }
+   
+   @Override
+   protected void sample(double value)
+   {
+      if (!Double.isNaN(previous))
+      {
+         double change = value - previous;
+         gains.add(change > 0 ? change : 0);
+         losses.add(change < 0 ? -change : 0);
+         if (gains.isReady())
+         {
+            double gain = gains.getValue();
+            double loss = losses.getValue();
+            if (loss == 0)
+            {
+               setDouble(gain == 0 ? 50.0 : 100.0);
+            }
+            else
+            {
+               setDouble(100 - 100 / (1 + gain / loss));
+            }
+         }
+      }
+      previous = value;
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      gains.writeState(out);
+      losses.writeState(out);
+      out.writeDouble(previous);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      gains.readState(in);
+      losses.readState(in);
+      previous = in.readDouble();
+   }
+   
+   /**
+    * @return number of changes averaged
+    */
+   public final int getPeriod()
+   {
+      return period;
+   }
+}
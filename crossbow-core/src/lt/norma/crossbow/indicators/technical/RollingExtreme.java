@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Base class for the extreme value of the last <code>period</code> values of the source. Value is
+ * set once <code>period</code> values are sampled.
+ * <p>
+ * Candidate values are kept in a monotonic queue: a new value removes all the queued values it
+ * dominates, and the oldest value leaves the queue as it leaves the window. The head of the queue
+ * is the extreme of the window. Every value is queued and removed once, so an update takes
+ * constant amortized time.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public abstract class RollingExtreme extends SampledIndicator
+{
+   private final int period;
+   private final double[] values;
+   /** Sequence numbers of the queued values. */
+   private final long[] sequences;
+   private int head;
+   private int count;
+   private long sequence;
+   
+   /**
+    * Constructor.
+    * 
+    * @param title
+    *           short human readable title of this indicator
+    * @param source
+    *           indicator providing the values
+    * @param period
+    *           number of values
+    */
+   protected RollingExtreme(String title, DoubleIndicator source, int period)
+   {
+      super(title, source);
+      if (period < 1)
+      {
+         throw new InvalidArgumentRuntimeException("period", period,
+               "Must be a positive integer.");
+      }
+      this.period = period;
+      values = new double[period];
+      sequences = new long[period];
+      head = 0;
+      count = 0;
+      sequence = 0;
+   }
+   
+   @Override
+   protected final void sample(double value)
+   {
+      // Remove the oldest value if it leaves the window.
+      if (count > 0 && sequences[head] <= sequence - period)
+      {
+         head = (head + 1) % period;
+         count--;
+      }
+      
+      // Remove the values dominated by the new one.
+      while (count > 0 && dominates(value, values[(head + count - 1) % period]))
+      {
+         count--;
+      }
+      
+      int tail = (head + count) % period;
+      values[tail] = value;
+      sequences[tail] = sequence;
+      count++;
+      sequence++;
+      
+      if (sequence >= period)
+      {
+         setDouble(values[head]);
+      }
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      out.writeInt(period);
+      out.writeLong(sequence);
+      out.writeInt(count);
+      for (int i = 0; i < count; i++)
+      {
+         int element = (head + i) % period;
+         out.writeDouble(values[element]);
+         out.writeLong(sequences[element]);
+      }
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      int savedPeriod = in.readInt();
+      if (savedPeriod != period)
+      {
+         throw new IOException("Period " + savedPeriod + " does not match period " + period
+                               + " of indicator " + getTitle() + ".");
+      }
+      long savedSequence = in.readLong();
+      int savedCount = in.readInt();
+      if (savedCount < 0 || savedCount > period)
+      {
+         throw new IOException("Corrupt state of indicator " + getTitle() + ".");
+      }
+      // The queue is restored starting at the first element.
+      sequence = savedSequence;
+      count = savedCount;
+      head = 0;
+      for (int i = 0; i < count; i++)
+      {
+         values[i] = in.readDouble();
+         sequences[i] = in.readLong();
+      }
+   }
+   
+   /**
+    * @param value
+    *           new value
+    * @param queued
+    *           older value
+    * @return true if the older value can no longer be the extreme of a window containing the new
+    *         value
+    */
+   protected abstract boolean dominates(double value, double queued);
+   
+   /**
+    * @return number of values
+    */
+   public final int getPeriod()
+   {
+      return period;
+   }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * The lowest of the last <code>period</code> values of the source. Value is set once
+ * <code>period</code> values are sampled.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class RollingMinimum extends RollingExtreme
+{
+   /**
+    * Constructor.
+    * 
+    * @param source
+    *           indicator providing the values
+    * @param period
+    *           number of values
+    */
+   public RollingMinimum(DoubleIndicator source, int period)
+   {
+      super("Minimum (" + period + ")", source, period);
+   }
+   
+   @Override
+   protected boolean dominates(double value, double queued)
+   {
+      return value <= queued;
+   }
+}
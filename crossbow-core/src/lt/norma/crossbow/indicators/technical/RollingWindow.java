@@ -0,0 +1,252 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+/**
+ * Fixed size window of the most recent values. Values are stored in a ring buffer, adding a value
+ * to a full window replaces the oldest one. Mean and variance of the window are updated
+ * incrementally and recalculated from scratch once per full turn of the buffer, every operation
+ * takes constant amortized time.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public final class RollingWindow
+{
+   private final double[] values;
+   private int next;
+   private int size;
+   private double mean;
+   /** Sum of squared differences from the mean. */
+   private double squares;
+   
+   /**
+    * Constructor.
+    * 
+    * @param capacity
+    *           maximum number of values in the window
+    */
+   public RollingWindow(int capacity)
+   {
+      if (capacity < 1)
+      {
+         throw new InvalidArgumentRuntimeException("capacity", capacity,
+               "Must be a positive integer.");
+      }
+      values = new double[capacity];
+      clear();
+   }
+   
+   /**
+    * Adds a value to the window.
+    * 
+    * @param value
+    *           new value
+    * @return removed oldest value if the window was full, <code>Double.NaN</code> otherwise
+    */
+   public double add(double value)
+   {
+      double removed = Double.NaN;
+      if (size < values.length)
+      {
+         size++;
+         double delta = value - mean;
+         mean += delta / size;
+         squares += delta * (value - mean);
+      }
+      else
+      {
+         removed = values[next];
+         double previousMean = mean;
+         mean += (value - removed) / size;
+         squares += (value - removed) * (value - mean + removed - previousMean);
+      }
+      values[next] = value;
+      next = (next + 1) % values.length;
+      if (next == 0)
+      {
+         recalculate();
+      }
+      return removed;
+   }
+   
+   /**
+    * Gets a value of the window.
+    * 
+    * @param ago
+    *           position of the value, 0 for the most recent one
+    * @return value added <code>ago</code> values before the most recent one
+    */
+   public double get(int ago)
+   {
+      if (ago < 0 || ago >= size)
+      {
+         throw new InvalidArgumentRuntimeException("ago", ago, "Must be in range 0 - "
+                                                              + (size - 1) + ".");
+      }
+      int index = next - 1 - ago;
+      if (index < 0)
+      {
+         index += values.length;
+      }
+      return values[index];
+   }
+   
+   /**
+    * Removes all values.
+    */
+   public void clear()
+   {
+      next = 0;
+      size = 0;
+      mean = 0;
+      squares = 0;
+   }
+   
+   /**
+    * @return number of values in the window
+    */
+   public int size()
+   {
+      return size;
+   }
+   
+   /**
+    * @return maximum number of values in the window
+    */
+   public int getCapacity()
+   {
+      return values.length;
+   }
+   
+   /**
+    * @return true if the window holds <code>getCapacity()</code> values
+    */
+   public boolean isFull()
+   {
+      return size == values.length;
+   }
+   
+   /**
+    * Checks if the last added value completed a full turn of the ring buffer. Lets owners of
+    * incrementally updated sums over the window recalculate them once per turn.
+    * 
+    * @return true if the last added value was stored in the last slot of the buffer
+    */
+   public boolean isTurnCompleted()
+   {
+      return size > 0 && next == 0;
+   }
+   
+   /**
+    * @return mean of the values, 0 if the window is empty
+    */
+   public double getMean()
+   {
+      return mean;
+   }
+   
+   /**
+    * @return population variance of the values, 0 if the window is empty
+    */
+   public double getVariance()
+   {
+      // Rounding errors of the running sum of squares may make it slightly negative.
+      return size == 0 ? 0 : Math.max(0, squares / size);
+   }
+   
+   /**
+    * Writes values and state of the window.
+    * 
+    * @param out
+    *           destination
+    * @throws IOException
+    *            on write error
+    */
+   public void writeState(DataOutput out) throws IOException
+   {
+      out.writeInt(values.length);
+      out.writeInt(next);
+      out.writeInt(size);
+      out.writeDouble(mean);
+      out.writeDouble(squares);
+      for (int i = 0; i < size; i++)
+      {
+         out.writeDouble(values[i]);
+      }
+   }
+   
+   /**
+    * Replaces values and state of the window by the ones written by <code>writeState</code>.
+    * 
+    * @param in
+    *           source
+    * @throws IOException
+    *            on read error or if the state was written by a window of different capacity
+    */
+   public void readState(DataInput in) throws IOException
+   {
+      int capacity = in.readInt();
+      int savedNext = in.readInt();
+      int savedSize = in.readInt();
+      if (capacity != values.length)
+      {
+         throw new IOException("Capacity " + capacity + " does not match capacity "
+                               + values.length + " of the window.");
+      }
+      if (savedSize < 0 || savedSize > capacity || savedNext < 0 || savedNext >= capacity
+          || (savedSize < capacity && savedNext != savedSize))
+      {
+         throw new IOException("Corrupt window of " + savedSize + " values.");
+      }
+      next = savedNext;
+      size = savedSize;
+      mean = in.readDouble();
+      squares = in.readDouble();
+      for (int i = 0; i < size; i++)
+      {
+         values[i] = in.readDouble();
+      }
+   }
+   
+   /**
+    * Recalculates mean and variance from the stored values, discarding rounding errors accumulated
+    * by the incremental updates. Called once per <code>getCapacity()</code> added values, so the
+    * amortized cost of an update stays constant.
+    */
+   private void recalculate()
+   {
+      double sum = 0;
+      for (int i = 0; i < size; i++)
+      {
+         sum += values[i];
+      }
+      mean = sum / size;
+      squares = 0;
+      for (int i = 0; i < size; i++)
+      {
+         double delta = values[i] - mean;
+         squares += delta * delta;
+      }
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.joda.time.DateTime;
+
+/**
+ * Base class for indicators calculated from a series of periodic values of another indicator. The
+ * primitive value of the source indicator is sampled at the end of every data period. The source is
+ * registered as a dependency, so it is closed before this indicator when both are in the same
+ * <code>IndicatorList</code>. Periods for which the source has no value are skipped.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public abstract class SampledIndicator extends DoubleIndicator
+{
+   private final DoubleIndicator source;
+   
+   /**
+    * Constructor.
+    * 
+    * @param title
+    *           short human readable title of this indicator
+    * @param source
+    *           indicator providing the values
+    */
+   protected SampledIndicator(String title, DoubleIndicator source)
+   {
+      super(title, true);
+      if (source == null)
+      {
+         throw new InvalidArgumentRuntimeException("source", "null");
+      }
+      this.source = source;
+      getDependencies().add(source);
+   }
+   
+   @Override
+   protected final void endOfPeriod(DateTime time)
+   {
+      if (source.isSet())
+      {
+         sample(source.getDouble());
+      }
+   }
+   
+   /**
+    * Updates this indicator with the next value of the source. Called once per data period.
+    * 
+    * @param value
+    *           value of the source at the end of the period
+    */
+   protected abstract void sample(double value);
+   
+   /**
+    * @return indicator providing the values
+    */
+   public final DoubleIndicator getSource()
+   {
+      return source;
+   }
+}
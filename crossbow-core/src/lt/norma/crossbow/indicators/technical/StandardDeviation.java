@@ -0,0 +1,87 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Population standard deviation of the last <code>period</code> values of the source. Value is set
+ * once <code>period</code> values are sampled.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class StandardDeviation extends SampledIndicator
+{
+   private final RollingWindow window;
+   
+   /**
+    * Constructor.
+    * 
+    * @param source
+    *           indicator providing the values
+    * @param period
+    *           number of values
+    */
+   public StandardDeviation(DoubleIndicator source, int period)
+   {
+      super("Standard deviation (" + period + ")", source);
+      if (period < 1)
+      {
+         throw new InvalidArgumentRuntimeException("period", period,
+               "Must be a positive integer.");
+      }
+      window = new RollingWindow(period);
+   }
+   
+   @Override
+   protected void sample(double value)
+   {
+      window.add(value);
+      if (window.isFull())
+      {
+         setDouble(Math.sqrt(window.getVariance()));
+      }
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      window.writeState(out);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      window.readState(in);
+   }
+   
+   /**
+    * @return number of values
+    */
+   public final int getPeriod()
+   {
+      return window.getCapacity();
+   }
+}
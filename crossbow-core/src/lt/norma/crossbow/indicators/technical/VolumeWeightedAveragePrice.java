@@ -0,0 +1,111 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.joda.time.DateTime;
+
+/**
+ * Volume weighted average price (VWAP) of the trades of a contract since the beginning of the
+ * current data period. Value is updated on every trade and unset at the beginning of a period.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class VolumeWeightedAveragePrice extends DoubleIndicator
+{
+   private final Contract contract;
+   private double notional;
+   private long volume;
+   
+   /**
+    * Constructor.
+    * 
+    * @param contract
+    *           contract of the trades
+    */
+   public VolumeWeightedAveragePrice(Contract contract)
+   {
+      super("VWAP", true);
+      if (contract == null)
+      {
+         throw new InvalidArgumentRuntimeException("contract", "null");
+      }
+      this.contract = contract;
+      notional = 0;
+      volume = 0;
+   }
+   
+   @Override
+   public void tradeReceived(Trade trade)
+   {
+      if (trade.getContract().equals(contract) && trade.getSize() > 0)
+      {
+         notional += trade.getPriceScale().toDouble(trade.getScaledPrice()) * trade.getSize();
+         volume += trade.getSize();
+         setDouble(notional / volume);
+      }
+   }
+   
+   @Override
+   public void beginningOfPeriod(DateTime time)
+   {
+      notional = 0;
+      volume = 0;
+      unsetValue();
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      out.writeDouble(notional);
+      out.writeLong(volume);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      notional = in.readDouble();
+      volume = in.readLong();
+   }
+   
+   /**
+    * @return contract of the trades
+    */
+   public final Contract getContract()
+   {
+      return contract;
+   }
+   
+   /**
+    * @return traded volume since the beginning of the current period
+    */
+   public final long getVolume()
+   {
+      return volume;
+   }
+}
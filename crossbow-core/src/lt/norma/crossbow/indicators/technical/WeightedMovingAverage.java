@@ -0,0 +1,138 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+/**
+ * Linearly weighted moving average (WMA) of the last <code>period</code> values of the source. The
+ * most recent value has weight <code>period</code>, the oldest one has weight 1. Value is set once
+ * <code>period</code> values are sampled.
+ * <p>
+ * Sliding the window by one value lowers the weight of every value by one, so the weighted sum is
+ * updated by adding the new value with full weight and subtracting the plain sum of the previous
+ * window. Both sums are recalculated from the window once per full turn of its buffer, discarding
+ * the rounding errors of the incremental updates.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class WeightedMovingAverage extends SampledIndicator
+{
+   private final RollingWindow window;
+   private final double weightSum;
+   private double sum;
+   private double weightedSum;
+   
+   /**
+    * Constructor.
+    * 
+    * @param source
+    *           indicator providing the values
+    * @param period
+    *           number of values averaged
+    */
+   public WeightedMovingAverage(DoubleIndicator source, int period)
+   {
+      super("WMA (" + period + ")", source);
+      if (period < 1)
+      {
+         throw new InvalidArgumentRuntimeException("period", period,
+               "Must be a positive integer.");
+      }
+      window = new RollingWindow(period);
+      weightSum = period * (period + 1) / 2.0;
+      sum = 0;
+      weightedSum = 0;
+   }
+   
+   @Override
+   protected void sample(double value)
+   {
+      if (window.isFull())
+      {
+         double removed = window.add(value);
+         if (window.isTurnCompleted())
+         {
+            recalculate();
+         }
+         else
+         {
+            weightedSum += window.getCapacity() * value - sum;
+            sum += value - removed;
+         }
+         setDouble(weightedSum / weightSum);
+      }
+      else
+      {
+         window.add(value);
+         weightedSum += window.size() * value;
+         sum += value;
+         if (window.isFull())
+         {
+            setDouble(weightedSum / weightSum);
+         }
+      }
+   }
+   
+   @Override
+   public void writeState(DataOutput out) throws IOException
+   {
+      super.writeState(out);
+      window.writeState(out);
+      out.writeDouble(sum);
+      out.writeDouble(weightedSum);
+   }
+   
+   @Override
+   public void readState(DataInput in) throws IOException
+   {
+      super.readState(in);
+      window.readState(in);
+      sum = in.readDouble();
+      weightedSum = in.readDouble();
+   }
+   
+   /**
+    * @return number of values averaged
+    */
+   public final int getPeriod()
+   {
+      return window.getCapacity();
+   }
+   
+   /**
+    * Recalculates the sums from the values of the full window.
+    */
+   private void recalculate()
+   {
+      int period = window.getCapacity();
+      sum = 0;
+      weightedSum = 0;
+      for (int ago = 0; ago < period; ago++)
+      {
+         double value = window.get(ago);
+         sum += value;
+         weightedSum += (period - ago) * value;
+      }
+   }
+}
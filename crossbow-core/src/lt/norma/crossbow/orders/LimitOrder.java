@@ -20,6 +20,7 @@ package lt.norma.crossbow.orders;
 import java.math.BigDecimal;
 
 import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.OrderException;
 
 /**
@@ -31,6 +32,10 @@ public final class LimitOrder extends Order
 {
    /** Limit price. */
    private final BigDecimal limitPrice;
+   /** Limit price, scaled to <code>priceScale</code>. */
+   private final long scaledLimitPrice;
+   /** Scale of the fixed-point price. */
+   private final PriceScale priceScale;
    
    /** Order type. */
    private static final String ORDER_TYPE = "limit";
@@ -58,6 +63,43 @@ public final class LimitOrder extends Order
    {
       super(id, contract, ORDER_TYPE, direction, size);
       this.limitPrice = limitPrice;
+      if (limitPrice != null)
+      {
+         priceScale = PriceScale.forPrice(limitPrice, contract.getPriceScale());
+         scaledLimitPrice = priceScale.toScaledExact(limitPrice);
+      }
+      else
+      {
+         priceScale = contract.getPriceScale();
+         scaledLimitPrice = 0;
+      }
+   }
+   
+   /**
+    * Constructor. Creates an order from a fixed-point limit price.
+    * 
+    * @param id
+    *           local order ID. Make sure to set unique IDs for each order within context of the
+    *           application.
+    * @param contract
+    *           contract of a traded instrument
+    * @param direction
+    *           direction of the trade
+    * @param scaledLimitPrice
+    *           limit price, scaled to the price scale of the contract
+    * @param size
+    *           size of an order. Must be greater than zero. Use <code>direction</code> to set
+    *           direction of the order
+    * @throws OrderException
+    *            on invalid order details
+    */
+   public LimitOrder(long id, Contract contract, Direction direction, int size,
+         long scaledLimitPrice) throws OrderException
+   {
+      super(id, contract, ORDER_TYPE, direction, size);
+      priceScale = contract.getPriceScale();
+      limitPrice = priceScale.toBigDecimal(scaledLimitPrice);
+      this.scaledLimitPrice = scaledLimitPrice;
    }
    
    /**
@@ -70,6 +112,27 @@ public final class LimitOrder extends Order
       return limitPrice;
    }
    
+   /**
+    * Gets limit price as a fixed-point number.
+    * 
+    * @return limit price, scaled to <code>getPriceScale()</code>
+    */
+   public long getScaledLimitPrice()
+   {
+      return scaledLimitPrice;
+   }
+   
+   /**
+    * Gets scale of the fixed-point limit price.
+    * 
+    * @return price scale of the contract at the time the order was created, or the scale of the
+    *         <code>BigDecimal</code> price if it is larger
+    */
+   public PriceScale getPriceScale()
+   {
+      return priceScale;
+   }
+   
    @Override
    public String toString()
    {
@@ -20,6 +20,7 @@ package lt.norma.crossbow.orders;
 import java.math.BigDecimal;
 
 import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.OrderException;
 
 /**
@@ -31,6 +32,10 @@ public final class StopOrder extends Order
 {
    /** Stop price. */
    private final BigDecimal stopPrice;
+   /** Stop price, scaled to <code>priceScale</code>. */
+   private final long scaledStopPrice;
+   /** Scale of the fixed-point price. */
+   private final PriceScale priceScale;
    /** Order type. */
    private static final String ORDER_TYPE = "stop";
    
@@ -57,6 +62,43 @@ public final class StopOrder extends Order
    {
       super(id, contract, ORDER_TYPE, direction, size);
       this.stopPrice = stopPrice;
+      if (stopPrice != null)
+      {
+         priceScale = PriceScale.forPrice(stopPrice, contract.getPriceScale());
+         scaledStopPrice = priceScale.toScaledExact(stopPrice);
+      }
+      else
+      {
+         priceScale = contract.getPriceScale();
+         scaledStopPrice = 0;
+      }
+   }
+   
+   /**
+    * Constructor. Creates an order from a fixed-point stop price.
+    * 
+    * @param id
+    *           local order ID. Make sure to set unique IDs for each order within context of the
+    *           application.
+    * @param contract
+    *           contract of a traded instrument
+    * @param direction
+    *           direction of the trade
+    * @param scaledStopPrice
+    *           stop price, scaled to the price scale of the contract
+    * @param size
+    *           size of an order. Must be greater than zero. Use <code>direction</code> to set
+    *           direction of the order
+    * @throws OrderException
+    *            on invalid order details
+    */
+   public StopOrder(long id, Contract contract, Direction direction, int size,
+         long scaledStopPrice) throws OrderException
+   {
+      super(id, contract, ORDER_TYPE, direction, size);
+      priceScale = contract.getPriceScale();
+      stopPrice = priceScale.toBigDecimal(scaledStopPrice);
+      this.scaledStopPrice = scaledStopPrice;
    }
    
    /**
@@ -69,6 +111,27 @@ public final class StopOrder extends Order
       return stopPrice;
    }
    
+   /**
+    * Gets stop price as a fixed-point number.
+    * 
+    * @return stop price, scaled to <code>getPriceScale()</code>
+    */
+   public long getScaledStopPrice()
+   {
+      return scaledStopPrice;
+   }
+   
+   /**
+    * Gets scale of the fixed-point stop price.
+    * 
+    * @return price scale of the contract at the time the order was created, or the scale of the
+    *         <code>BigDecimal</code> price if it is larger
+    */
+   public PriceScale getPriceScale()
+   {
+      return priceScale;
+   }
+   
    @Override
    public String toString()
    {
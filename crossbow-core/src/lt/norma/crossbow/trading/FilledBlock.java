@@ -19,6 +19,7 @@ package lt.norma.crossbow.trading;
 
 import java.math.BigDecimal;
 
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 import lt.norma.crossbow.orders.Direction;
 
@@ -33,7 +34,9 @@ public final class FilledBlock
 {
    private final Direction direction;
    private final int size;
-   private final BigDecimal price;
+   private BigDecimal price;
+   private final long scaledPrice;
+   private final PriceScale priceScale;
    private final DateTime time;
    
    /**
@@ -44,7 +47,8 @@ public final class FilledBlock
     * @param size
     *           number of contracts filled. Must be greater that 0.
     * @param price
-    *           average price at which the block was filled
+    *           average price at which the block was filled. The fixed-point price is scaled to the
+    *           decimal places of the price, at most <code>PriceScale.MAX_DECIMAL_PLACES</code>.
     * @param time
     *           time when the block was filled
     */
@@ -56,10 +60,53 @@ public final class FilledBlock
                "Must be a positive integer.");
       }
       
+      if (price == null)
+      {
+         throw new InvalidArgumentRuntimeException("price", String.valueOf(price));
+      }
+      
       this.direction = direction;
       this.size = size;
       this.price = price;
       this.time = time;
+      priceScale = PriceScale.forPrice(price, PriceScale.valueOf(0));
+      scaledPrice = priceScale.toScaledExact(price);
+   }
+   
+   /**
+    * Constructor. Creates a block from a fixed-point price without allocating a
+    * <code>BigDecimal</code>.
+    * 
+    * @param direction
+    *           direction of a trade
+    * @param size
+    *           number of contracts filled. Must be greater that 0.
+    * @param scaledPrice
+    *           average price at which the block was filled, scaled to <code>priceScale</code>
+    * @param priceScale
+    *           scale of the price
+    * @param time
+    *           time when the block was filled
+    */
+   public FilledBlock(Direction direction, int size, long scaledPrice, PriceScale priceScale,
+         DateTime time)
+   {
+      if (size <= 0)
+      {
+         throw new InvalidArgumentRuntimeException("size", String.valueOf(size),
+               "Must be a positive integer.");
+      }
+      if (priceScale == null)
+      {
+         throw new InvalidArgumentRuntimeException("priceScale", String.valueOf(priceScale));
+      }
+      
+      this.direction = direction;
+      this.size = size;
+      this.scaledPrice = scaledPrice;
+      this.priceScale = priceScale;
+      this.time = time;
+      price = null;
    }
    
    /**
@@ -69,7 +116,23 @@ public final class FilledBlock
     */
    public BigDecimal calculateValue()
    {
-      return price.multiply(new BigDecimal(size));
+      return getAveragePrice().multiply(new BigDecimal(size));
+   }
+   
+   /**
+    * Calculates value of the block as a fixed-point number. Value = Size * Price
+    * 
+    * @param scale
+    *           scale of the result
+    * @return size multiplied by the price, scaled to the specified scale
+    * @throws InvalidArgumentRuntimeException
+    *            if the price has more decimal places than the specified scale
+    * @throws ArithmeticException
+    *            if the value overflows a <code>long</code>
+    */
+   public long calculateScaledValue(PriceScale scale)
+   {
+      return PriceScale.multiplyExact(scale.rescaleExact(scaledPrice, priceScale), size);
    }
    
    /**
@@ -93,9 +156,29 @@ public final class FilledBlock
     */
    public BigDecimal getAveragePrice()
    {
+      if (price == null)
+      {
+         price = priceScale.toBigDecimal(scaledPrice);
+      }
       return price;
    }
    
+   /**
+    * @return average price, scaled to <code>getPriceScale()</code>
+    */
+   public long getScaledAveragePrice()
+   {
+      return scaledPrice;
+   }
+   
+   /**
+    * @return scale of the fixed-point price
+    */
+   public PriceScale getPriceScale()
+   {
+      return priceScale;
+   }
+   
    /**
     * @return time when the block was filled
     */
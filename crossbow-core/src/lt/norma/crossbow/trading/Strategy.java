@@ -22,12 +22,18 @@ import lt.norma.crossbow.indicators.*;
 import lt.norma.crossbow.orders.Order;
 import lt.norma.crossbow.properties.Properties;
 
+import org.joda.time.DateTime;
+
 /**
  * Base class for trading strategies. Extend this class to create custom strategy.
+ * <p>
+ * Trades, quotes and period boundaries of a <code>PeriodTimer</code> are processed one at a time.
+ * A timer of the strategy's period splitters must be started with the strategy as the listener.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
-public abstract class Strategy implements TradeListener, QuoteListener, TradeExecutorListener
+public abstract class Strategy implements TradeListener, QuoteListener, TradeExecutorListener,
+      PeriodTimerListener
 {
    private String title;
    private String description;
@@ -38,6 +44,10 @@ public abstract class Strategy implements TradeListener, QuoteListener, TradeExe
    private final IndicatorList indicators;
    private final MeasureList measures;
    private final TradeExecutor tradeExecutor;
+   private final PeriodEngine indicatorPeriods;
+   private final PeriodEngine measurePeriods;
+   private final PeriodListener periodDispatcher;
+   private final Object eventLock;
    
    /**
     * Constructor.
@@ -45,7 +55,9 @@ public abstract class Strategy implements TradeListener, QuoteListener, TradeExe
     * @param indicatorPeriodSplitter
     *           used to split periodic data for indicators of this strategy
     * @param measurePeriodSplitter
-    *           used to split periodic data for measures of this strategy
+    *           used to split periodic data for measures of this strategy. May be the same
+    *           instance as <code>indicatorPeriodSplitter</code>, the splitter is then checked once
+    *           per trade or quote.
     * @param tradeExecutor
     */
    public Strategy(PeriodSplitter indicatorPeriodSplitter,
@@ -58,8 +70,21 @@ public abstract class Strategy implements TradeListener, QuoteListener, TradeExe
       
       parameters = new Properties();
       indicators = new IndicatorList(indicatorPeriodSplitter);
-      measures = new MeasureList(measurePeriodSplitter);
+      // Timeframes subscribed by indicators and measures are checked once per event.
+      measures = new MeasureList(measurePeriodSplitter, indicators);
       this.tradeExecutor = tradeExecutor;
+      indicatorPeriods = new PeriodEngine(indicatorPeriodSplitter);
+      if (measurePeriodSplitter == indicatorPeriodSplitter)
+      {
+         // A splitter shared by indicators and measures is checked only once per event.
+         measurePeriods = indicatorPeriods;
+      }
+      else
+      {
+         measurePeriods = new PeriodEngine(measurePeriodSplitter);
+      }
+      periodDispatcher = new PeriodDispatcher();
+      eventLock = new Object();
    }
    
    /**
@@ -110,98 +135,74 @@ public abstract class Strategy implements TradeListener, QuoteListener, TradeExe
    @Override
    public final void quoteReceived(QuoteEvent event)
    {
-      // Update indicators and measures.
-      indicators.quoteReceived(event);
-      measures.quoteReceived(event);
-      
-      // Check if any period events occurred before the quote.
-      if (indicators.getPeriodSplitter() != null)
+      synchronized (eventLock)
       {
-         PeriodSplitterResult result = indicators.getPeriodSplitter().getLastResult();
-         switch (result.getAction())
+         // Period boundary is evaluated once and shared by indicators, measures and this strategy.
+         PeriodSplitterResult result = indicatorPeriods.evaluate(event.getQuote());
+         PeriodSplitterResult measureResult = result;
+         if (measurePeriods != indicatorPeriods)
          {
-            case START_BEFORE:
-               periodStarted();
-               break;
-            case END_BEFORE:
-               periodEnded();
-               break;
-            case RESTART_BEFORE:
-               periodEnded();
-               periodStarted();
-               break;
-         }
-      }
-      
-      // Forward quoteReceived event to child strategy.
-      quoteReceived(event.getQuote());
-      
-      // Check if any period events occurred after the quote.
-      if (indicators.getPeriodSplitter() != null)
-      {
-         PeriodSplitterResult result = indicators.getPeriodSplitter().getLastResult();
-         switch (result.getAction())
-         {
-            case START_AFTER:
-               periodStarted();
-               break;
-            case END_AFTER:
-               periodEnded();
-               break;
-            case RESTART_AFTER:
-               periodEnded();
-               periodStarted();
-               break;
+            measureResult = measurePeriods.evaluate(event.getQuote());
          }
+         
+         // Update indicators and measures.
+         indicators.quoteReceived(event, result);
+         measures.quoteReceived(event, measureResult);
+         
+         // Check if any period events occurred before the quote.
+         PeriodEngine.fireBefore(result, periodDispatcher);
+         
+         // Forward quoteReceived event to child strategy.
+         quoteReceived(event.getQuote());
+         
+         // Check if any period events occurred after the quote.
+         PeriodEngine.fireAfter(result, periodDispatcher);
       }
    }
    
    @Override
    public final void tradeReceived(TradeEvent event)
    {
-      // Update indicators and measures.
-      indicators.tradeReceived(event);
-      measures.tradeReceived(event);
-      
-      // Check if any period events occurred before the trade.
-      if (indicators.getPeriodSplitter() != null)
+      synchronized (eventLock)
       {
-         PeriodSplitterResult result = indicators.getPeriodSplitter().getLastResult();
-         switch (result.getAction())
+         // Period boundary is evaluated once and shared by indicators, measures and this strategy.
+         PeriodSplitterResult result = indicatorPeriods.evaluate(event.getTrade());
+         PeriodSplitterResult measureResult = result;
+         if (measurePeriods != indicatorPeriods)
          {
-            case START_BEFORE:
-               periodStarted();
-               break;
-            case END_BEFORE:
-               periodEnded();
-               break;
-            case RESTART_BEFORE:
-               periodEnded();
-               periodStarted();
-               break;
+            measureResult = measurePeriods.evaluate(event.getTrade());
          }
+         
+         // Update indicators and measures.
+         indicators.tradeReceived(event, result);
+         measures.tradeReceived(event, measureResult);
+         
+         // Check if any period events occurred before the trade.
+         PeriodEngine.fireBefore(result, periodDispatcher);
+         
+         // Forward tradeReceived event to child strategy.
+         tradeReceived(event.getTrade());
+         
+         // Check if any period events occurred after the trade.
+         PeriodEngine.fireAfter(result, periodDispatcher);
       }
-      
-      // Forward tradeReceived event to child strategy.
-      tradeReceived(event.getTrade());
-      
-      // Check if any period events occurred after the quote.
-      if (indicators.getPeriodSplitter() != null)
+   }
+   
+   @Override
+   public final void periodTimerExpired(long time)
+   {
+      synchronized (eventLock)
       {
-         PeriodSplitterResult result = indicators.getPeriodSplitter().getLastResult();
-         switch (result.getAction())
+         PeriodSplitterResult result = indicatorPeriods.evaluateTime(time);
+         PeriodSplitterResult measureResult = result;
+         if (measurePeriods != indicatorPeriods)
          {
-            case START_AFTER:
-               periodStarted();
-               break;
-            case END_AFTER:
-               periodEnded();
-               break;
-            case RESTART_AFTER:
-               periodEnded();
-               periodStarted();
-               break;
+            measureResult = measurePeriods.evaluateTime(time);
          }
+         
+         indicators.periodTimerExpired(time, result);
+         measures.periodTimerExpired(time, measureResult);
+         PeriodEngine.fireBefore(result, periodDispatcher);
       }
    }
    
@@ -331,4 +332,22 @@ public abstract class Strategy implements TradeListener, QuoteListener, TradeExe
    {
       return measures;
    }
+   
+   /**
+    * Forwards period events to the child strategy.
+    */
+   private class PeriodDispatcher implements PeriodListener
+   {
+      @Override
+      public void periodStarted(DateTime time)
+      {
+         Strategy.this.periodStarted();
+      }
+      
+      @Override
+      public void periodEnded(DateTime time)
+      {
+         Strategy.this.periodEnded();
+      }
+   }
 }
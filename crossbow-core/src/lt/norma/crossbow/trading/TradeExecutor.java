@@ -17,9 +17,7 @@
 
 package lt.norma.crossbow.trading;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
 
 import lt.norma.crossbow.contracts.Contract;
 import lt.norma.crossbow.orders.Order;
@@ -27,13 +25,17 @@ import lt.norma.crossbow.orders.Order;
 /**
  * Interface for execution of trade. Trading systems use this interface to send trading instructions
  * and other communication with a trading destination (broker or trading simulator).
+ * <p>
+ * Listeners are stored in a copy-on-write array. Events are dispatched without locking, adding or
+ * removing a listener during dispatch takes effect from the next event.
  * 
  * @author Vilius Normantas <code@norma.lt>
  */
 public abstract class TradeExecutor
 {
-   private final List<TradeExecutorListener> listeners = new ArrayList<TradeExecutorListener>();
    private final Object lock = new Object();
+   /** Snapshot of the listeners. Replaced on every change, never modified. */
+   private volatile TradeExecutorListener[] listeners = new TradeExecutorListener[0];
    
    /**
     * Adds trade executor listener.
@@ -45,7 +47,9 @@ public abstract class TradeExecutor
    {
       synchronized (lock)
       {
-         listeners.add(listener);
+         TradeExecutorListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+         updated[listeners.length] = listener;
+         listeners = updated;
       }
    }
    
@@ -59,7 +63,17 @@ public abstract class TradeExecutor
    {
       synchronized (lock)
       {
-         listeners.remove(listener);
+         for (int i = 0; i < listeners.length; i++)
+         {
+            if (listeners[i] == null ? listener == null : listeners[i].equals(listener))
+            {
+               TradeExecutorListener[] updated = new TradeExecutorListener[listeners.length - 1];
+               System.arraycopy(listeners, 0, updated, 0, i);
+               System.arraycopy(listeners, i + 1, updated, i, updated.length - i);
+               listeners = updated;
+               return;
+            }
+         }
       }
    }
    
@@ -72,14 +86,10 @@ public abstract class TradeExecutor
    protected final void fireOrderUpdatedEvent(Order order)
    {
       OrderUpdatedEvent event = new OrderUpdatedEvent(this, order);
-      
-      synchronized (lock)
+      TradeExecutorListener[] snapshot = listeners;
+      for (int i = 0; i < snapshot.length; i++)
       {
-         Iterator<TradeExecutorListener> iterator = listeners.iterator();
-         while (iterator.hasNext())
-         {
-            ((TradeExecutorListener)iterator.next()).orderUpdated(event);
-         }
+         snapshot[i].orderUpdated(event);
       }
    }
    
@@ -92,14 +102,10 @@ public abstract class TradeExecutor
    protected final void fireOrderExecutedEvent(ExecutionReport report)
    {
       OrderExecutedEvent event = new OrderExecutedEvent(this, report);
-      
-      synchronized (lock)
+      TradeExecutorListener[] snapshot = listeners;
+      for (int i = 0; i < snapshot.length; i++)
       {
-         Iterator<TradeExecutorListener> iterator = listeners.iterator();
-         while (iterator.hasNext())
-         {
-            ((TradeExecutorListener)iterator.next()).orderExecuted(event);
-         }
+         snapshot[i].orderExecuted(event);
       }
    }
    
@@ -188,4 +188,17 @@ public class CurrencyTest
       Currency jpy = Currency.createJpy();
       assertEquals("JPY", jpy.getCode());
    }
+   
+   /**
+    * Test of getDecimalPlaces method, of class Currency.
+    */
+   @Test
+   public void testGetDecimalPlaces()
+   {
+      Currency c = new Currency("FFF");
+      assertEquals(2, c.getDecimalPlaces());
+      c.setDecimalPlaces(5);
+      assertEquals(5, c.getDecimalPlaces());
+      assertEquals(0, Currency.createJpy().getDecimalPlaces());
+   }
 }
@@ -29,6 +29,7 @@ import lt.norma.crossbow.account.Currency;
 import lt.norma.crossbow.account.Position;
 import lt.norma.crossbow.contracts.Exchange;
 import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.ContractException;
 import lt.norma.crossbow.orders.Direction;
 import lt.norma.crossbow.trading.FilledBlock;
@@ -294,4 +295,69 @@ public class PositionTest
    {
       return (List<FilledBlock>)Reflection.getField("openBlocks", position);
    }
+   
+   /**
+    * Test fixed-point value of the position.
+    */
+   @Test
+   public void testScaledOpenValue()
+   {
+      Position p = new Position(c);
+      assertEquals(PriceScale.valueOf(0), p.getPriceScale());
+      assertEquals(0, p.getScaledOpenValue());
+      
+      p.addFilledBlock(new FilledBlock(Direction.SHORT, 500, new BigDecimal(80),
+            new DateTime(100)));
+      p.addFilledBlock(new FilledBlock(Direction.SHORT, 300, 50, PriceScale.valueOf(0),
+            new DateTime(200)));
+      assertEquals(55000, p.getScaledOpenValue());
+      assertTrue(p.getAveragePrice().compareTo(new BigDecimal("68.75")) == 0);
+      
+      p.addFilledBlock(new FilledBlock(Direction.LONG, 600, 7000, PriceScale.valueOf(2),
+            new DateTime(300)));
+      assertEquals(-200, p.getSize());
+      assertEquals(10000, p.getScaledOpenValue());
+      assertTrue(p.getAveragePrice().compareTo(new BigDecimal("50")) == 0);
+      
+      p.addFilledBlock(new FilledBlock(Direction.LONG, 200, 7000, PriceScale.valueOf(2),
+            new DateTime(400)));
+      assertEquals(0, p.getScaledOpenValue());
+      assertNull(p.getAveragePrice());
+   }
+   
+   /**
+    * Test average price of blocks more precise than the currency of the contract.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testAveragePriceExact() throws ContractException
+   {
+      Position p = new Position(new StockContract("EUR", exchange, Currency.createUsd()));
+      p.addFilledBlock(new FilledBlock(Direction.LONG, 1000, new BigDecimal("1.10523"),
+            new DateTime(100)));
+      assertEquals(new BigDecimal("1.10523"), p.getAveragePrice());
+      assertEquals(PriceScale.valueOf(5), p.getPriceScale());
+      assertEquals(110523000, p.getScaledOpenValue());
+      
+      p.addFilledBlock(new FilledBlock(Direction.LONG, 1000, new BigDecimal("1.1"),
+            new DateTime(200)));
+      assertTrue(p.getAveragePrice().compareTo(new BigDecimal("1.102615")) == 0);
+      assertEquals(220523000, p.getScaledOpenValue());
+   }
+   
+   /**
+    * Test fixed-point value of the position. Overflow is rejected.
+    */
+   @Test(expected = ArithmeticException.class)
+   public void testScaledOpenValueOverflow()
+   {
+      Position p = new Position(c);
+      // Value of each block fits, the total does not.
+      p.addFilledBlock(new FilledBlock(Direction.LONG, 1000000000, 5000000000L,
+            PriceScale.valueOf(0), new DateTime(100)));
+      p.addFilledBlock(new FilledBlock(Direction.LONG, 1000000000, 5000000000L,
+            PriceScale.valueOf(0), new DateTime(200)));
+      p.getScaledOpenValue();
+   }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.contracts;
+
+import static org.junit.Assert.*;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class ContractRegistryTest
+{
+   /**
+    * Test method for {@link ContractRegistry#intern(Contract)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testInternContract() throws ContractException
+   {
+      ContractRegistry registry = new ContractRegistry();
+      Contract a1 = new StockContract("REG-A", Exchange.createNasdaq(), Currency.createUsd());
+      Contract a2 = new StockContract("REG-A", Exchange.createNasdaq(), Currency.createUsd());
+      Contract b = new StockContract("REG-B", Exchange.createNasdaq(), Currency.createUsd());
+      Contract c = new StockContract("REG-A", Exchange.createNyse(), Currency.createUsd());
+      assertEquals(0, registry.size());
+      
+      assertSame(a1, registry.intern(a1));
+      assertEquals(0, a1.getId());
+      assertSame(registry, a1.getRegistry());
+      assertEquals(1, registry.size());
+      assertSame(a1, registry.intern(a2));
+      assertEquals(Contract.NO_ID, a2.getId());
+      assertNull(a2.getRegistry());
+      assertSame(a1, registry.intern(a1));
+      assertEquals(1, registry.size());
+      
+      // Ids are dense
+      registry.intern(b);
+      registry.intern(c);
+      assertEquals(1, b.getId());
+      assertEquals(2, c.getId());
+      assertSame(a1, registry.getContract(0));
+      assertSame(b, registry.getContract(1));
+      assertSame(c, registry.getContract(2));
+      
+      // Interned contracts are compared by identity, others by fields
+      assertFalse(a1.equals(c));
+      assertFalse(a1.equals(b));
+      assertTrue(a1.equals(a2));
+      assertTrue(a2.equals(a1));
+   }
+   
+   /**
+    * Test method for {@link ContractRegistry#intern(Contract)}. Registries are independent.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testInternSeparateRegistries() throws ContractException
+   {
+      ContractRegistry registry1 = new ContractRegistry();
+      ContractRegistry registry2 = new ContractRegistry();
+      Contract a1 = new StockContract("REG-A", Exchange.createNasdaq(), Currency.createUsd());
+      Contract a2 = new StockContract("REG-A", Exchange.createNasdaq(), Currency.createUsd());
+      Contract b = new StockContract("REG-B", Exchange.createNasdaq(), Currency.createUsd());
+      
+      registry1.intern(b);
+      registry1.intern(a1);
+      registry2.intern(a2);
+      assertEquals(1, a1.getId());
+      assertEquals(0, a2.getId());
+      assertEquals(2, registry1.size());
+      assertEquals(1, registry2.size());
+      
+      // Contracts of different registries are compared by fields
+      assertTrue(a1.equals(a2));
+      assertFalse(a1.equals(b));
+      
+      // An equal contract of the other registry is returned
+      assertSame(a2, registry2.intern(a1));
+      assertSame(a1, registry1.intern(a2));
+   }
+   
+   /**
+    * Test method for {@link ContractRegistry#intern(Contract)}. A contract interned by another
+    * registry cannot get a second id.
+    * 
+    * @throws ContractException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testInternOtherRegistry() throws ContractException
+   {
+      Contract a = new StockContract("REG-A", Exchange.createNasdaq(), Currency.createUsd());
+      new ContractRegistry().intern(a);
+      new ContractRegistry().intern(a);
+   }
+   
+   /**
+    * Test method for {@link ContractRegistry#intern(Contract)}. The registry grows beyond its
+    * initial capacity.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testInternMany() throws ContractException
+   {
+      ContractRegistry registry = new ContractRegistry();
+      Contract[] contracts = new Contract[200];
+      for (int i = 0; i < contracts.length; i++)
+      {
+         contracts[i] = registry.intern(new StockContract("MANY" + i, Exchange.createNasdaq(),
+               Currency.createUsd()));
+      }
+      assertEquals(200, registry.size());
+      for (int i = 0; i < contracts.length; i++)
+      {
+         assertEquals(i, contracts[i].getId());
+         assertSame(contracts[i], registry.getContract(i));
+      }
+   }
+   
+   /**
+    * Test method for {@link ContractRegistry#intern(Exchange)}.
+    */
+   @Test
+   public void testInternExchange()
+   {
+      ContractRegistry registry = new ContractRegistry();
+      Exchange e1 = new Exchange("REG-EXCHANGE", DateTimeZone.UTC, new LocalTime(8, 0, 0),
+            new LocalTime(16, 0, 0));
+      Exchange e2 = new Exchange("REG-EXCHANGE", DateTimeZone.UTC, new LocalTime(8, 0, 0),
+            new LocalTime(16, 0, 0));
+      assertSame(e1, registry.intern(e1));
+      assertSame(e1, registry.intern(e2));
+      assertSame(e2, new ContractRegistry().intern(e2));
+   }
+   
+   /**
+    * Test method for {@link ContractRegistry#intern(Currency)}.
+    */
+   @Test
+   public void testInternCurrency()
+   {
+      ContractRegistry registry = new ContractRegistry();
+      Currency c1 = new Currency("REG");
+      Currency c2 = new Currency("REG");
+      assertSame(c1, registry.intern(c1));
+      assertSame(c1, registry.intern(c2));
+      assertSame(c2, new ContractRegistry().intern(c2));
+   }
+   
+   /**
+    * Test method for {@link ContractRegistry#getContract(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetContractInvalidId()
+   {
+      new ContractRegistry().getContract(-1);
+   }
+}
@@ -17,10 +17,14 @@
 
 package lt.norma.crossbow.contracts;
 
+import java.math.BigDecimal;
+
 import lt.norma.crossbow.account.Currency;
 import lt.norma.crossbow.contracts.Contract;
 import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -156,6 +160,66 @@ public class ContractTest
       assertFalse(contract1.equals(null));
    }
    
+   /**
+    * Test of setTickSize and getPriceScale methods, of class Contract.
+    * 
+    * @throws ContractException
+    *            contract is invalid
+    */
+   @Test
+   public void testPriceScale() throws ContractException
+   {
+      Contract contract = new MockContract("AAA", "STOCK", exchange, currency);
+      assertNull(contract.getTickSize());
+      assertEquals(PriceScale.valueOf(2), contract.getPriceScale());
+      
+      contract.setTickSize(new BigDecimal("0.0001"));
+      assertEquals(new BigDecimal("0.0001"), contract.getTickSize());
+      assertEquals(PriceScale.valueOf(4), contract.getPriceScale());
+      
+      contract.setTickSize(new BigDecimal("0.25"));
+      assertEquals(PriceScale.valueOf(2), contract.getPriceScale());
+      contract.setTickSize(new BigDecimal("5"));
+      assertEquals(PriceScale.valueOf(2), contract.getPriceScale());
+      
+      Currency yen = Currency.createJpy();
+      contract = new MockContract("AAA", "STOCK", exchange, yen);
+      assertEquals(PriceScale.valueOf(0), contract.getPriceScale());
+      contract.setTickSize(new BigDecimal("1E+1"));
+      assertEquals(PriceScale.valueOf(0), contract.getPriceScale());
+   }
+   
+   /**
+    * Test of setTickSize method, of class Contract.
+    * 
+    * @throws ContractException
+    *            contract is invalid
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSetTickSize() throws ContractException
+   {
+      new MockContract("AAA", "STOCK", exchange, currency).setTickSize(BigDecimal.ZERO);
+   }
+   
+   /**
+    * Test of getId method, of class Contract.
+    * 
+    * @throws ContractException
+    *            contract is invalid
+    */
+   @Test
+   public void testGetId() throws ContractException
+   {
+      Contract contract = new MockContract("ID1", "STOCK", exchange, currency);
+      assertEquals(Contract.NO_ID, contract.getId());
+      ContractRegistry registry = new ContractRegistry();
+      assertSame(contract, registry.intern(contract));
+      assertEquals(0, contract.getId());
+      assertSame(registry, contract.getRegistry());
+      assertEquals(contract.hashCode(), new MockContract("ID1", "STOCK", exchange, currency)
+            .hashCode());
+   }
+   
    /**
     * Mock contract class.
     */
@@ -20,6 +20,7 @@ package lt.norma.crossbow.contracts;
 import lt.norma.crossbow.contracts.Exchange;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
+import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalTime;
 import org.junit.Test;
@@ -43,6 +44,8 @@ public class ExchangeTest
             new LocalTime(16, 0, 0));
       assertEquals("A", exchange.getName());
       assertEquals(DateTimeZone.forID("America/New_York"), exchange.getTimeZone());
+      assertEquals(new LocalTime(9, 30, 0), exchange.getTradingStarts());
+      assertEquals(new LocalTime(16, 0, 0), exchange.getTradingEnds());
    }
    
    /**
@@ -101,6 +104,7 @@ public class ExchangeTest
       Exchange exchange = Exchange.createNasdaq();
       assertEquals("Nasdaq", exchange.getName());
       assertEquals(DateTimeZone.forID("America/New_York"), exchange.getTimeZone());
+      assertSame(exchange, Exchange.createNasdaq());
    }
    
    /**
@@ -112,6 +116,7 @@ public class ExchangeTest
       Exchange exchange = Exchange.createNyse();
       assertEquals("Nyse", exchange.getName());
       assertEquals(DateTimeZone.forID("America/New_York"), exchange.getTimeZone());
+      assertSame(exchange, Exchange.createNyse());
    }
    
    /**
@@ -250,4 +255,17 @@ public class ExchangeTest
       assertTrue(exchange1.compareTo(exchange3) > 0);
       assertTrue(exchange1.compareTo(exchange4) < 0);
    }
+   
+   /**
+    * Test of getDateTimeFormatter method, of class Exchange.
+    */
+   @Test
+   public void testGetDateTimeFormatter()
+   {
+      Exchange exchange = Exchange.createNasdaq();
+      assertSame(exchange.getDateTimeFormatter(), exchange.getDateTimeFormatter());
+      assertEquals(exchange.getTimeZone(), exchange.getDateTimeFormatter().getZone());
+      assertEquals("2010-01-29 10:00:00", exchange.getDateTimeFormatter().print(
+            new DateTime(2010, 1, 29, 15, 0, 0, 0, DateTimeZone.UTC)));
+   }
 }
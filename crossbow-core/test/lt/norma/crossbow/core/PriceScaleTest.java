@@ -0,0 +1,259 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.core;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class PriceScaleTest
+{
+   /**
+    * Test method for {@link PriceScale#valueOf(int)}.
+    */
+   @Test
+   public void testValueOf()
+   {
+      PriceScale s = PriceScale.valueOf(4);
+      assertEquals(4, s.getDecimalPlaces());
+      assertEquals(10000, s.getMultiplier());
+      assertSame(s, PriceScale.valueOf(4));
+      assertEquals(1, PriceScale.valueOf(0).getMultiplier());
+      assertEquals(1000000000000000000L, PriceScale.valueOf(18).getMultiplier());
+   }
+   
+   /**
+    * Test method for {@link PriceScale#valueOf(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testValueOfNegative()
+   {
+      PriceScale.valueOf(-1);
+   }
+   
+   /**
+    * Test method for {@link PriceScale#valueOf(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testValueOfTooLarge()
+   {
+      PriceScale.valueOf(19);
+   }
+   
+   /**
+    * Test method for {@link PriceScale#toScaled(BigDecimal)}.
+    */
+   @Test
+   public void testToScaled()
+   {
+      PriceScale s = PriceScale.valueOf(2);
+      assertEquals(3025, s.toScaled(new BigDecimal("30.25")));
+      assertEquals(3000, s.toScaled(new BigDecimal("30")));
+      assertEquals(3026, s.toScaled(new BigDecimal("30.255")));
+      assertEquals(3025, s.toScaled(new BigDecimal("30.2549")));
+      assertEquals(-3026, s.toScaled(new BigDecimal("-30.255")));
+      assertEquals(10000, s.toScaled(new BigDecimal("1E+2")));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#toScaled(BigDecimal)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testToScaledOverflow()
+   {
+      PriceScale.valueOf(10).toScaled(new BigDecimal("1000000000"));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#toBigDecimal(long)}.
+    */
+   @Test
+   public void testToBigDecimal()
+   {
+      PriceScale s = PriceScale.valueOf(3);
+      assertEquals(new BigDecimal("8.050"), s.toBigDecimal(8050));
+      assertEquals(new BigDecimal("-0.001"), s.toBigDecimal(-1));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#toDouble(long)}.
+    */
+   @Test
+   public void testToDouble()
+   {
+      assertEquals(80.5, PriceScale.valueOf(2).toDouble(8050), 0);
+      assertEquals(8050, PriceScale.valueOf(0).toDouble(8050), 0);
+   }
+   
+   /**
+    * Test method for {@link PriceScale#rescale(long, PriceScale)}.
+    */
+   @Test
+   public void testRescale()
+   {
+      PriceScale s0 = PriceScale.valueOf(0);
+      PriceScale s2 = PriceScale.valueOf(2);
+      PriceScale s4 = PriceScale.valueOf(4);
+      assertEquals(3025, s2.rescale(3025, s2));
+      assertEquals(302500, s4.rescale(3025, s2));
+      assertEquals(3025, s2.rescale(302450, s4));
+      assertEquals(3024, s2.rescale(302449, s4));
+      assertEquals(-3025, s2.rescale(-302450, s4));
+      assertEquals(-3024, s2.rescale(-302449, s4));
+      assertEquals(30, s0.rescale(3025, s2));
+      assertEquals(31, s0.rescale(3050, s2));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#rescale(long, PriceScale)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testRescaleOverflow()
+   {
+      PriceScale.valueOf(18).rescale(100, PriceScale.valueOf(0));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#forPrice(BigDecimal, PriceScale)}.
+    */
+   @Test
+   public void testForPrice()
+   {
+      PriceScale s2 = PriceScale.valueOf(2);
+      assertSame(s2, PriceScale.forPrice(new BigDecimal("30.25"), s2));
+      assertSame(s2, PriceScale.forPrice(new BigDecimal("30"), s2));
+      assertSame(s2, PriceScale.forPrice(new BigDecimal("30.25000"), s2));
+      assertSame(s2, PriceScale.forPrice(new BigDecimal("0.000"), s2));
+      assertSame(PriceScale.valueOf(5), PriceScale.forPrice(new BigDecimal("1.10523"), s2));
+      assertSame(PriceScale.valueOf(0),
+            PriceScale.forPrice(new BigDecimal("100.00000000000000000"), PriceScale.valueOf(0)));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#forPrice(BigDecimal, PriceScale)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testForPriceTooPrecise()
+   {
+      PriceScale.forPrice(new BigDecimal("0.0000000000000000001"), PriceScale.valueOf(2));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#toScaledExact(BigDecimal)}.
+    */
+   @Test
+   public void testToScaledExact()
+   {
+      PriceScale s = PriceScale.valueOf(2);
+      assertEquals(3025, s.toScaledExact(new BigDecimal("30.25")));
+      assertEquals(3025, s.toScaledExact(new BigDecimal("30.2500")));
+      assertEquals(-3000, s.toScaledExact(new BigDecimal("-30")));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#toScaledExact(BigDecimal)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testToScaledExactLossy()
+   {
+      PriceScale.valueOf(2).toScaledExact(new BigDecimal("30.255"));
+   }
+   
+   /**
+    * Test method for {@link PriceScale#rescaleExact(long, PriceScale)}.
+    */
+   @Test
+   public void testRescaleExact()
+   {
+      PriceScale s2 = PriceScale.valueOf(2);
+      PriceScale s4 = PriceScale.valueOf(4);
+      assertEquals(302500, s4.rescaleExact(3025, s2));
+      assertEquals(3025, s2.rescaleExact(302500, s4));
+      try
+      {
+         s2.rescaleExact(302450, s4);
+         fail("Rounding expected to be rejected.");
+      }
+      catch (InvalidArgumentRuntimeException exception)
+      {
+         // Expected.
+      }
+   }
+   
+   /**
+    * Test method for {@link PriceScale#multiplyExact(long, long)}.
+    */
+   @Test
+   public void testMultiplyExact()
+   {
+      assertEquals(-600, PriceScale.multiplyExact(30, -20));
+      assertEquals(0, PriceScale.multiplyExact(0, Long.MAX_VALUE));
+      assertEquals(Long.MIN_VALUE, PriceScale.multiplyExact(Long.MIN_VALUE, 1));
+      long[][] overflows =
+            { { Long.MAX_VALUE, 2 }, { Long.MIN_VALUE, -1 }, { -1, Long.MIN_VALUE },
+             { 1L << 32, 1L << 31 } };
+      for (long[] arguments : overflows)
+      {
+         try
+         {
+            PriceScale.multiplyExact(arguments[0], arguments[1]);
+            fail("Overflow expected.");
+         }
+         catch (ArithmeticException exception)
+         {
+            // Expected.
+         }
+      }
+   }
+   
+   /**
+    * Test method for {@link PriceScale#addExact(long, long)}.
+    */
+   @Test
+   public void testAddExact()
+   {
+      assertEquals(10, PriceScale.addExact(30, -20));
+      assertEquals(Long.MAX_VALUE, PriceScale.addExact(Long.MAX_VALUE, 0));
+      assertEquals(-1, PriceScale.addExact(Long.MAX_VALUE, Long.MIN_VALUE));
+      try
+      {
+         PriceScale.addExact(Long.MAX_VALUE, 1);
+         fail("Overflow expected.");
+      }
+      catch (ArithmeticException exception)
+      {
+         // Expected.
+      }
+      try
+      {
+         PriceScale.addExact(Long.MIN_VALUE, -1);
+         fail("Overflow expected.");
+      }
+      catch (ArithmeticException exception)
+      {
+         // Expected.
+      }
+   }
+}
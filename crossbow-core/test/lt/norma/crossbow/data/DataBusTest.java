@@ -0,0 +1,324 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class DataBusTest
+{
+   /**
+    * @throws ContractException
+    * @throws InterruptedException
+    */
+   @Test
+   public void testDelivery() throws ContractException, InterruptedException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      DataBus bus = new DataBus(8, WaitStrategy.YIELD, false);
+      RecordingListener listener1 = new RecordingListener();
+      RecordingListener listener2 = new RecordingListener();
+      assertEquals(0, bus.addConsumer(listener1));
+      assertEquals(1, bus.addConsumer(listener2, null));
+      bus.start();
+      
+      for (int i = 0; i < 100; i++)
+      {
+         bus.tradeReceived(new TradeEvent(this, new Trade(contract, 3000 + i, i, 1000L + i)));
+         bus.quoteReceived(new QuoteEvent(this, new Quote(contract, 3002, 5, 3001, 6, 2000L + i)));
+      }
+      bus.stop();
+      
+      assertEquals(200, bus.getPublishedCount());
+      assertEquals(0, bus.getDroppedCount());
+      assertEquals(0, bus.getLag(0));
+      assertEquals(0, bus.getLag(1));
+      assertEquals(100, listener1.trades.size());
+      assertEquals(100, listener1.quotes.size());
+      assertEquals(100, listener2.trades.size());
+      assertEquals(0, listener2.quotes.size());
+      for (int i = 0; i < 100; i++)
+      {
+         Trade trade = listener1.trades.get(i);
+         assertSame(contract, trade.getContract());
+         assertEquals(3000 + i, trade.getScaledPrice());
+         assertEquals(i, trade.getSize());
+         assertEquals(1000L + i, trade.getTimeMillis());
+         Quote quote = listener1.quotes.get(i);
+         assertEquals(new BigDecimal("30.02"), quote.getAskPrice());
+         assertEquals(5, quote.getAskSize());
+         assertEquals(new BigDecimal("30.01"), quote.getBidPrice());
+         assertEquals(6, quote.getBidSize());
+         assertEquals(2000L + i, quote.getTimeMillis());
+         assertEquals(3000 + i, listener2.trades.get(i).getScaledPrice());
+      }
+      assertSame(bus, listener1.lastSender);
+      assertTrue(listener1.flyweight);
+   }
+   
+   /**
+    * @throws ContractException
+    * @throws InterruptedException
+    */
+   @Test
+   public void testDropWhenFull() throws ContractException, InterruptedException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      DataBus bus = new DataBus(4, WaitStrategy.PARK, true);
+      BlockingListener listener = new BlockingListener();
+      bus.addConsumer(listener, null);
+      bus.start();
+      
+      bus.tradeReceived(new TradeEvent(this, new Trade(contract, 3000, 1, 0L)));
+      listener.entered.await();
+      // Consumer is blocked in the first trade, which still occupies a slot
+      for (int i = 0; i < 10; i++)
+      {
+         bus.tradeReceived(new TradeEvent(this, new Trade(contract, 3000, 1, 0L)));
+      }
+      assertEquals(4, bus.getPublishedCount());
+      assertEquals(7, bus.getDroppedCount());
+      assertEquals(4, bus.getLag(0));
+      
+      listener.release.countDown();
+      bus.stop();
+      assertEquals(0, bus.getLag(0));
+      assertEquals(4, listener.count);
+   }
+   
+   /**
+    * @throws ContractException
+    * @throws InterruptedException
+    */
+   @Test
+   public void testWaitWhenFull() throws ContractException, InterruptedException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      DataBus bus = new DataBus(2, WaitStrategy.BUSY_SPIN, false);
+      RecordingListener listener = new RecordingListener();
+      bus.addConsumer(listener);
+      bus.start();
+      
+      for (int i = 0; i < 1000; i++)
+      {
+         bus.tradeReceived(new TradeEvent(this, new Trade(contract, i, 1, 0L)));
+      }
+      bus.stop();
+      
+      assertEquals(1000, bus.getPublishedCount());
+      assertEquals(0, bus.getDroppedCount());
+      assertEquals(1000, listener.trades.size());
+      for (int i = 0; i < 1000; i++)
+      {
+         assertEquals(i, listener.trades.get(i).getScaledPrice());
+      }
+   }
+   
+   /**
+    * @throws ContractException
+    * @throws InterruptedException
+    */
+   @Test
+   public void testRescale() throws ContractException, InterruptedException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      Trade trade = new Trade(contract, 3025, 1, 0L);
+      contract.setTickSize(new BigDecimal("0.0001"));
+      DataBus bus = new DataBus(2, WaitStrategy.BUSY_SPIN, false);
+      RecordingListener listener = new RecordingListener();
+      bus.addConsumer(listener);
+      bus.start();
+      bus.tradeReceived(new TradeEvent(this, trade));
+      bus.stop();
+      assertEquals(302500, listener.trades.get(0).getScaledPrice());
+      assertEquals(new BigDecimal("30.2500"), listener.trades.get(0).getPrice());
+   }
+   
+   /**
+    * Test ticks more precise than the contract.
+    * 
+    * @throws ContractException
+    * @throws InterruptedException
+    */
+   @Test
+   public void testPreciseTicks() throws ContractException, InterruptedException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      DataBus bus = new DataBus(2, WaitStrategy.BUSY_SPIN, false);
+      RecordingListener listener = new RecordingListener();
+      bus.addConsumer(listener);
+      bus.start();
+      bus.tradeReceived(new TradeEvent(this, new Trade(contract, new BigDecimal("30.255"), 1,
+            new DateTime(0))));
+      bus.quoteReceived(new QuoteEvent(this, new Quote(contract, new BigDecimal("30.2575"), 1,
+            new BigDecimal("30.25"), 1, new DateTime(0))));
+      bus.stop();
+      assertEquals(new BigDecimal("30.255"), listener.trades.get(0).getPrice());
+      assertEquals(new BigDecimal("30.2575"), listener.quotes.get(0).getAskPrice());
+      assertEquals(new BigDecimal("30.2500"), listener.quotes.get(0).getBidPrice());
+   }
+   
+   /**
+    * Test a listener throwing exceptions.
+    * 
+    * @throws ContractException
+    * @throws InterruptedException
+    */
+   @Test
+   public void testListenerException() throws ContractException, InterruptedException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      DataBus bus = new DataBus(2, WaitStrategy.YIELD, false);
+      final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+      bus.setExceptionHandler(new Thread.UncaughtExceptionHandler()
+      {
+         @Override
+         public void uncaughtException(Thread thread, Throwable exception)
+         {
+            failures.add(exception);
+         }
+      });
+      FailingListener listener = new FailingListener();
+      bus.addConsumer(listener, null);
+      bus.start();
+      
+      // The bus is smaller than the number of trades, the producer waits for the consumer.
+      for (int i = 0; i < 10; i++)
+      {
+         bus.tradeReceived(new TradeEvent(this, new Trade(contract, i, 1, 0L)));
+      }
+      bus.stop();
+      
+      assertEquals(10, bus.getPublishedCount());
+      assertEquals(0, bus.getDroppedCount());
+      assertEquals(0, bus.getLag(0));
+      assertEquals(5, bus.getFailedCount(0));
+      assertEquals(5, failures.size());
+      assertEquals("Odd price 1.", failures.get(0).getMessage());
+      assertEquals(5, listener.count);
+   }
+   
+   /**
+    * Test adding a consumer to a started bus.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAddConsumerAfterStart()
+   {
+      DataBus bus = new DataBus(2, WaitStrategy.PARK, false);
+      bus.start();
+      bus.addConsumer(new RecordingListener());
+   }
+   
+   /**
+    * Test invalid capacity.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testInvalidCapacity()
+   {
+      new DataBus(6, WaitStrategy.PARK, false);
+   }
+   
+   /**
+    * Test invalid consumer index.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testInvalidConsumer()
+   {
+      new DataBus(8, WaitStrategy.PARK, false).getLag(0);
+   }
+   
+   private class RecordingListener implements DataListener
+   {
+      public List<Trade> trades = new ArrayList<Trade>();
+      public List<Quote> quotes = new ArrayList<Quote>();
+      public Object lastSender;
+      public boolean flyweight;
+      
+      @Override
+      public void tradeReceived(TradeEvent event)
+      {
+         lastSender = event.getSource();
+         flyweight = event.getTrade().isFlyweight();
+         trades.add(event.getTrade().copy());
+      }
+      
+      @Override
+      public void quoteReceived(QuoteEvent event)
+      {
+         quotes.add(event.getQuote().copy());
+      }
+   }
+   
+   private class FailingListener implements TradeListener
+   {
+      public int count;
+      
+      @Override
+      public void tradeReceived(TradeEvent event)
+      {
+         long price = event.getTrade().getScaledPrice();
+         if (price % 2 == 1)
+         {
+            throw new IllegalStateException("Odd price " + price + ".");
+         }
+         count++;
+      }
+   }
+   
+   private class BlockingListener implements TradeListener
+   {
+      public CountDownLatch entered = new CountDownLatch(1);
+      public CountDownLatch release = new CountDownLatch(1);
+      public int count;
+      
+      @Override
+      public void tradeReceived(TradeEvent event)
+      {
+         entered.countDown();
+         try
+         {
+            release.await();
+         }
+         catch (InterruptedException e)
+         {
+            throw new RuntimeException(e);
+         }
+         count++;
+      }
+   }
+}
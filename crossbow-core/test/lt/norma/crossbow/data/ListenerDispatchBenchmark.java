@@ -0,0 +1,152 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.exceptions.ContractException;
+
+/**
+ * Measures cost of dispatching a trade to 1, 10 and 100 listeners. Compares copy-on-write
+ * dispatch of <code>TradeProvider</code>, in normal and flyweight mode, with the former dispatch
+ * under a lock over an <code>ArrayList</code> iterator. Not a unit test, run the main method.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class ListenerDispatchBenchmark
+{
+   private static final int WARMUP_EVENTS = 2000000;
+   private static final int MEASURED_EVENTS = 5000000;
+   private static final int[] LISTENER_COUNTS = { 1, 10, 100 };
+   
+   /**
+    * Runs the benchmark.
+    * 
+    * @param args
+    *           not used
+    * @throws ContractException
+    */
+   public static void main(String[] args) throws ContractException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      System.out.println("listeners  locked list  snapshot  snapshot+flyweight  (ns/event)");
+      for (int listenerCount : LISTENER_COUNTS)
+      {
+         int events = MEASURED_EVENTS / listenerCount;
+         LockedDispatcher locked = new LockedDispatcher();
+         BenchmarkProvider snapshot = new BenchmarkProvider();
+         BenchmarkProvider flyweight = new BenchmarkProvider();
+         flyweight.setFlyweight(true);
+         CountingListener listener = new CountingListener();
+         for (int i = 0; i < listenerCount; i++)
+         {
+            locked.addListener(listener);
+            snapshot.addListener(listener);
+            flyweight.addListener(listener);
+         }
+         
+         runLocked(locked, contract, WARMUP_EVENTS / listenerCount);
+         run(snapshot, contract, WARMUP_EVENTS / listenerCount);
+         run(flyweight, contract, WARMUP_EVENTS / listenerCount);
+         double lockedTime = runLocked(locked, contract, events);
+         double snapshotTime = run(snapshot, contract, events);
+         double flyweightTime = run(flyweight, contract, events);
+         System.out.println(String.format("%9d  %11.1f  %8.1f  %18.1f", listenerCount,
+               lockedTime, snapshotTime, flyweightTime));
+         if (listener.count == 0)
+         {
+            System.out.println("No events received.");
+         }
+      }
+   }
+   
+   private static double run(BenchmarkProvider provider, Contract contract, int events)
+   {
+      long start = System.nanoTime();
+      for (int i = 0; i < events; i++)
+      {
+         provider.fire(contract, 3025 + (i & 7), 100, i);
+      }
+      return (double)(System.nanoTime() - start) / events;
+   }
+   
+   private static double runLocked(LockedDispatcher dispatcher, Contract contract, int events)
+   {
+      long start = System.nanoTime();
+      for (int i = 0; i < events; i++)
+      {
+         dispatcher.fire(new Trade(contract, 3025 + (i & 7), 100, i));
+      }
+      return (double)(System.nanoTime() - start) / events;
+   }
+   
+   private static class BenchmarkProvider extends TradeProvider
+   {
+      public void fire(Contract contract, long scaledPrice, int size, long time)
+      {
+         fireTradeEvent(contract, scaledPrice, size, time);
+      }
+   }
+   
+   /**
+    * Listener dispatch as it was implemented before copy-on-write snapshots.
+    */
+   private static class LockedDispatcher
+   {
+      private final List<TradeListener> listeners = new ArrayList<TradeListener>();
+      private final Object lock = new Object();
+      
+      public void addListener(TradeListener listener)
+      {
+         synchronized (lock)
+         {
+            listeners.add(listener);
+         }
+      }
+      
+      public void fire(Trade trade)
+      {
+         TradeEvent event = new TradeEvent(this, trade);
+         synchronized (lock)
+         {
+            Iterator<TradeListener> iterator = listeners.iterator();
+            while (iterator.hasNext())
+            {
+               iterator.next().tradeReceived(event);
+            }
+         }
+      }
+   }
+   
+   private static class CountingListener implements TradeListener
+   {
+      public long count;
+      
+      @Override
+      public void tradeReceived(TradeEvent event)
+      {
+         count += event.getTrade().getSize();
+      }
+   }
+}
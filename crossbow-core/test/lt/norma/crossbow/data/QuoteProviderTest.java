@@ -26,6 +26,7 @@ import lt.norma.crossbow.contracts.Contract;
 import lt.norma.crossbow.contracts.Exchange;
 import lt.norma.crossbow.contracts.StockContract;
 import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -99,23 +100,163 @@ public class QuoteProviderTest
       assertNull(listener3.lastSender);
    }
    
+   /**
+    * @throws ContractException
+    */
+   @Test
+   public void testFlyweight() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      MockQuoteProvider provider = new MockQuoteProvider();
+      MockQuoteListener listener = new MockQuoteListener();
+      provider.addListener(listener);
+      assertFalse(provider.isFlyweight());
+      
+      // New objects are created for every event.
+      provider.fire(s, 50001, 1, 50000, 10, t.getMillis());
+      Quote first = listener.lastQuote;
+      assertFalse(first.isFlyweight());
+      assertSame(first, first.copy());
+      assertEquals(50001, listener.lastQuote.getScaledAskPrice());
+      assertEquals(10, listener.lastQuote.getBidSize());
+      provider.fire(s, 1510, 2, 1500, 20, t.getMillis() + 1);
+      assertNotSame(first, listener.lastQuote);
+      
+      // Event and quote are reused in flyweight mode.
+      provider.setFlyweight(true);
+      assertTrue(provider.isFlyweight());
+      provider.fire(s, 1510, 2, 1500, 20, t.getMillis() + 1);
+      Quote reused = listener.lastQuote;
+      Object event = listener.lastEvent;
+      assertTrue(reused.isFlyweight());
+      Quote copy = reused.copy();
+      assertNotSame(reused, copy);
+      assertFalse(copy.isFlyweight());
+      provider.fire(s, 1520, 3, 1505, 30, t.getMillis() + 2);
+      assertSame(reused, listener.lastQuote);
+      assertSame(event, listener.lastEvent);
+      assertEquals(t.getMillis() + 2, listener.lastQuote.getTimeMillis());
+      assertEquals(1520, listener.lastQuote.getScaledAskPrice());
+      assertEquals(1505, listener.lastQuote.getScaledBidPrice());
+      assertEquals(new BigDecimal("15.05"), listener.lastQuote.getBidPrice());
+      assertEquals(1510, copy.getScaledAskPrice());
+      assertEquals(2, copy.getAskSize());
+      assertEquals(new BigDecimal("15.00"), copy.getBidPrice());
+      assertEquals(20, copy.getBidSize());
+      assertEquals(t.getMillis() + 1, copy.getTimeMillis());
+   }
+   
+   /**
+    * Listeners added or removed during dispatch take effect from the next event.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testChangeListenersDuringDispatch() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      final MockQuoteProvider provider = new MockQuoteProvider();
+      final MockQuoteListener removed = new MockQuoteListener();
+      final MockQuoteListener added = new MockQuoteListener();
+      QuoteListener changer = new QuoteListener()
+      {
+         @Override
+         public void quoteReceived(QuoteEvent event)
+         {
+            provider.removeListener(removed);
+            provider.addListener(added);
+         }
+      };
+      provider.addListener(changer);
+      provider.addListener(removed);
+      
+      provider.fire(s, 100, 1, 99, 1, 1L);
+      assertNotNull(removed.lastQuote);
+      assertNull(added.lastQuote);
+      removed.lastQuote = null;
+      provider.removeListener(changer);
+      
+      provider.fire(s, 100, 1, 99, 1, 2L);
+      assertNull(removed.lastQuote);
+      assertNotNull(added.lastQuote);
+   }
+   
+   /**
+    * Listeners subscribed to a contract receive only the quotes of the contract.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testContractListeners() throws ContractException
+   {
+      Contract a = new StockContract("A", Exchange.createNasdaq(), Currency.createEur());
+      Contract b = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      MockQuoteProvider provider = new MockQuoteProvider();
+      MockQuoteListener all = new MockQuoteListener();
+      MockQuoteListener listenerA = new MockQuoteListener();
+      MockQuoteListener listenerB = new MockQuoteListener();
+      provider.addListener(all);
+      provider.addListener(listenerA, a);
+      provider.addListener(listenerB, b);
+      
+      provider.fire(a, 100, 1, 99, 1, 1L);
+      assertSame(a, all.lastQuote.getContract());
+      assertSame(a, listenerA.lastQuote.getContract());
+      assertNull(listenerB.lastQuote);
+      
+      provider.fire(b, 100, 1, 99, 1, 1L);
+      assertSame(b, all.lastQuote.getContract());
+      assertSame(a, listenerA.lastQuote.getContract());
+      assertSame(b, listenerB.lastQuote.getContract());
+      
+      // Equal contract instance is routed to the same listeners
+      Contract equalA = new StockContract("A", Exchange.createNasdaq(), Currency.createEur());
+      listenerA.lastQuote = null;
+      provider.fire(equalA, 100, 1, 99, 1, 1L);
+      assertNotNull(listenerA.lastQuote);
+      
+      provider.removeListener(listenerA, b);
+      provider.removeListener(listenerA, a);
+      listenerA.lastQuote = null;
+      provider.fire(a, 100, 1, 99, 1, 1L);
+      assertNull(listenerA.lastQuote);
+   }
+   
+   /**
+    * Test method for {@link QuoteProvider#addListener(QuoteListener, Contract)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAddListenerNullContract()
+   {
+      new MockQuoteProvider().addListener(new MockQuoteListener(), null);
+   }
+   
    private class MockQuoteProvider extends QuoteProvider
    {
       public void fire(Quote quote)
       {
          fireQuoteEvent(quote);
       }
+      
+      public void fire(Contract contract, long scaledAskPrice, int askSize, long scaledBidPrice,
+            int bidSize, long time)
+      {
+         fireQuoteEvent(contract, scaledAskPrice, askSize, scaledBidPrice, bidSize, time);
+      }
    }
    
    private class MockQuoteListener implements QuoteListener
    {
       public Quote lastQuote;
       public Object lastSender;
+      public Object lastEvent;
       
       @Override
       public void quoteReceived(QuoteEvent event)
       {
          lastQuote = event.getQuote();
+         lastEvent = event;
          lastSender = event.getSource();
       }
    }
@@ -23,6 +23,7 @@ import lt.norma.crossbow.account.Currency;
 import lt.norma.crossbow.contracts.Contract;
 import lt.norma.crossbow.contracts.Exchange;
 import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.data.Quote;
 import lt.norma.crossbow.exceptions.ContractException;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
@@ -153,4 +154,48 @@ public class QuoteTest
       Quote q = new Quote(s, new BigDecimal("200.05"), 500, new BigDecimal("200"), 800, t);
       assertEquals("B  ask: 500 @ 200.05  bid: 800 @ 200.00  [2005-01-01 14:00:00]", q.toString());
    }
+   
+   /**
+    * Test fixed-point prices.
+    */
+   @Test
+   public void testScaledPrices()
+   {
+      Quote q = new Quote(s, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800, t);
+      assertEquals(PriceScale.valueOf(2), q.getPriceScale());
+      assertEquals(805, q.getScaledAskPrice());
+      assertEquals(700, q.getScaledBidPrice());
+      assertEquals(105, q.scaledSpread());
+      
+      // Prices more precise than the currency are not rounded.
+      q = new Quote(s, new BigDecimal("8.0525"), 500, new BigDecimal("8.05"), 800, t);
+      assertEquals(PriceScale.valueOf(4), q.getPriceScale());
+      assertEquals(80525, q.getScaledAskPrice());
+      assertEquals(80500, q.getScaledBidPrice());
+      
+      q = new Quote(s, 19502, 500, 20000, 800, t);
+      assertEquals(19502, q.getScaledAskPrice());
+      assertEquals(20000, q.getScaledBidPrice());
+      assertEquals(new BigDecimal("195.02"), q.getAskPrice());
+      assertEquals(new BigDecimal("200.00"), q.getBidPrice());
+      assertEquals(-498, q.scaledSpread());
+      assertTrue(q.spread().compareTo(new BigDecimal("-4.98")) == 0);
+      assertTrue(q.isCrossed());
+      assertEquals(500, q.getAskSize());
+      assertEquals(800, q.getBidSize());
+   }
+   
+   /**
+    * Test time in milliseconds.
+    */
+   @Test
+   public void testTimeMillis()
+   {
+      Quote q = new Quote(s, 805, 500, 700, 800, t.getMillis());
+      assertEquals(t.getMillis(), q.getTimeMillis());
+      assertEquals(t, q.getTime());
+      assertSame(q.getTime(), q.getTime());
+      assertEquals(new Quote(s, new BigDecimal("8.05"), 500, new BigDecimal("7.00"), 800,
+            t.withZone(DateTimeZone.UTC)).toString(), q.toString());
+   }
 }
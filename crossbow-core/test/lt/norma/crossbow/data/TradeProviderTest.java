@@ -18,8 +18,12 @@
 package lt.norma.crossbow.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
 
@@ -28,6 +32,7 @@ import lt.norma.crossbow.contracts.Contract;
 import lt.norma.crossbow.contracts.Exchange;
 import lt.norma.crossbow.contracts.StockContract;
 import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -85,23 +90,161 @@ public class TradeProviderTest
       assertNull(listener3.lastSender);
    }
    
+   /**
+    * @throws ContractException
+    */
+   @Test
+   public void testFlyweight() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      MockTradeProvider provider = new MockTradeProvider();
+      MockTradeListener listener = new MockTradeListener();
+      provider.addListener(listener);
+      assertFalse(provider.isFlyweight());
+      
+      // New objects are created for every event.
+      provider.fire(s, 50001, 1, t.getMillis());
+      Trade first = listener.lastTrade;
+      assertFalse(first.isFlyweight());
+      assertSame(first, first.copy());
+      assertEquals(50001, listener.lastTrade.getScaledPrice());
+      assertEquals(1, listener.lastTrade.getSize());
+      provider.fire(s, 1510, 2, t.getMillis() + 1);
+      assertNotSame(first, listener.lastTrade);
+      
+      // Event and trade are reused in flyweight mode.
+      provider.setFlyweight(true);
+      assertTrue(provider.isFlyweight());
+      provider.fire(s, 1510, 2, t.getMillis() + 1);
+      Trade reused = listener.lastTrade;
+      Object event = listener.lastEvent;
+      assertTrue(reused.isFlyweight());
+      Trade copy = reused.copy();
+      assertNotSame(reused, copy);
+      assertFalse(copy.isFlyweight());
+      provider.fire(s, 1520, 3, t.getMillis() + 2);
+      assertSame(reused, listener.lastTrade);
+      assertSame(event, listener.lastEvent);
+      assertEquals(t.getMillis() + 2, listener.lastTrade.getTimeMillis());
+      assertEquals(1520, listener.lastTrade.getScaledPrice());
+      assertEquals(3, listener.lastTrade.getSize());
+      assertEquals(new BigDecimal("15.20"), listener.lastTrade.getPrice());
+      assertEquals(1510, copy.getScaledPrice());
+      assertEquals(new BigDecimal("15.10"), copy.getPrice());
+      assertEquals(2, copy.getSize());
+      assertEquals(t.getMillis() + 1, copy.getTimeMillis());
+   }
+   
+   /**
+    * Listeners added or removed during dispatch take effect from the next event.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testChangeListenersDuringDispatch() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      final MockTradeProvider provider = new MockTradeProvider();
+      final MockTradeListener removed = new MockTradeListener();
+      final MockTradeListener added = new MockTradeListener();
+      TradeListener changer = new TradeListener()
+      {
+         @Override
+         public void tradeReceived(TradeEvent event)
+         {
+            provider.removeListener(removed);
+            provider.addListener(added);
+         }
+      };
+      provider.addListener(changer);
+      provider.addListener(removed);
+      
+      provider.fire(s, 100, 1, 1L);
+      assertNotNull(removed.lastTrade);
+      assertNull(added.lastTrade);
+      removed.lastTrade = null;
+      provider.removeListener(changer);
+      
+      provider.fire(s, 100, 1, 2L);
+      assertNull(removed.lastTrade);
+      assertNotNull(added.lastTrade);
+   }
+   
+   /**
+    * Listeners subscribed to a contract receive only the trades of the contract.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testContractListeners() throws ContractException
+   {
+      Contract a = new StockContract("A", Exchange.createNasdaq(), Currency.createEur());
+      Contract b = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      MockTradeProvider provider = new MockTradeProvider();
+      MockTradeListener all = new MockTradeListener();
+      MockTradeListener listenerA = new MockTradeListener();
+      MockTradeListener listenerB = new MockTradeListener();
+      provider.addListener(all);
+      provider.addListener(listenerA, a);
+      provider.addListener(listenerB, b);
+      
+      provider.fire(a, 100, 1, 1L);
+      assertSame(a, all.lastTrade.getContract());
+      assertSame(a, listenerA.lastTrade.getContract());
+      assertNull(listenerB.lastTrade);
+      
+      provider.fire(b, 100, 1, 1L);
+      assertSame(b, all.lastTrade.getContract());
+      assertSame(a, listenerA.lastTrade.getContract());
+      assertSame(b, listenerB.lastTrade.getContract());
+      
+      // Equal contract instance is routed to the same listeners
+      Contract equalA = new StockContract("A", Exchange.createNasdaq(), Currency.createEur());
+      listenerA.lastTrade = null;
+      provider.fire(equalA, 100, 1, 1L);
+      assertNotNull(listenerA.lastTrade);
+      
+      provider.removeListener(listenerA, b);
+      provider.removeListener(listenerA, a);
+      listenerA.lastTrade = null;
+      provider.fire(a, 100, 1, 1L);
+      assertNull(listenerA.lastTrade);
+   }
+   
+   /**
+    * Test method for {@link TradeProvider#addListener(TradeListener, Contract)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAddListenerNullContract()
+   {
+      new MockTradeProvider().addListener(new MockTradeListener(), null);
+   }
+   
    private class MockTradeProvider extends TradeProvider
    {
       public void fire(Trade trade)
       {
          fireTradeEvent(trade);
       }
+      
+      public void fire(Contract contract, long scaledPrice, int size, long time)
+      {
+         fireTradeEvent(contract, scaledPrice, size, time);
+      }
    }
    
    private class MockTradeListener implements TradeListener
    {
       public Trade lastTrade;
       public Object lastSender;
+      public Object lastEvent;
       
       @Override
       public void tradeReceived(TradeEvent event)
       {
          lastTrade = event.getTrade();
+         lastEvent = event;
          lastSender = event.getSource();
       }
    }
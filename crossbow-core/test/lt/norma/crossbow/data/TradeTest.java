@@ -23,6 +23,7 @@ import lt.norma.crossbow.account.Currency;
 import lt.norma.crossbow.contracts.Contract;
 import lt.norma.crossbow.contracts.Exchange;
 import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.data.Trade;
 import lt.norma.crossbow.exceptions.ContractException;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
@@ -116,4 +117,44 @@ public class TradeTest
       Trade t = new Trade(s, new BigDecimal("8.05"), 500, time);
       assertEquals("B  500 @ 8.05  [2005-01-01 14:00:00]", t.toString());
    }
+   
+   /**
+    * Test fixed-point price.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testScaledPrice() throws ContractException
+   {
+      Trade t = new Trade(s, new BigDecimal("8.055"), 500, time);
+      assertEquals(PriceScale.valueOf(3), t.getPriceScale());
+      assertEquals(8055, t.getScaledPrice());
+      assertTrue(t.getPrice().compareTo(new BigDecimal("8.055")) == 0);
+      
+      t = new Trade(s, 805, 500, time);
+      assertEquals(805, t.getScaledPrice());
+      assertEquals(new BigDecimal("8.05"), t.getPrice());
+      assertEquals(500, t.getSize());
+      assertEquals(time, t.getTime());
+      assertSame(s, t.getContract());
+   }
+   
+   /**
+    * Test time in milliseconds.
+    */
+   @Test
+   public void testTimeMillis()
+   {
+      Trade t = new Trade(s, 805, 500, time.getMillis());
+      assertEquals(time.getMillis(), t.getTimeMillis());
+      assertEquals(time, t.getTime());
+      assertSame(t.getTime(), t.getTime());
+      assertEquals("B  500 @ 8.05  [2005-01-01 14:00:00]", t.toString());
+      
+      DateTime utc = time.withZone(DateTimeZone.UTC);
+      t = new Trade(s, new BigDecimal("8.05"), 500, utc);
+      assertEquals(time.getMillis(), t.getTimeMillis());
+      assertSame(utc, t.getTime());
+      assertEquals("B  500 @ 8.05  [2005-01-01 14:00:00]", t.toString());
+   }
 }
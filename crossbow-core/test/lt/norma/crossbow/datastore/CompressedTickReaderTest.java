@@ -0,0 +1,231 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class CompressedTickReaderTest
+{
+   private File file;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    */
+   public CompressedTickReaderTest() throws IOException
+   {
+      file = File.createTempFile("crossbow", ".tickz");
+      file.deleteOnExit();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#next()}. Small blocks, rising and falling prices.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testNext() throws IOException
+   {
+      CompressedTickWriter w = new CompressedTickWriter(file, TickType.TRADE, 4, 5, 7);
+      for (int i = 0; i < 1000; i++)
+      {
+         w.writeTrade(1262300000000L + 37L * i, 300000 + (i % 13 - 6) * 5L * i, i % 3 - 1);
+      }
+      w.close();
+      
+      CompressedTickReader r = new CompressedTickReader(file);
+      assertEquals(TickType.TRADE, r.getTickType());
+      assertEquals(4, r.getPriceScale());
+      assertEquals(5, r.getPriceStep());
+      for (int i = 0; i < 1000; i++)
+      {
+         assertTrue(r.next());
+         assertEquals(1262300000000L + 37L * i, r.getTime());
+         assertEquals(300000 + (i % 13 - 6) * 5L * i, r.getPrice());
+         assertEquals(i % 3 - 1, r.getSize());
+      }
+      assertFalse(r.next());
+      assertFalse(r.next());
+      assertEquals(143, r.getBlockCount());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#next()}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testNextQuote() throws IOException
+   {
+      CompressedTickWriter w = new CompressedTickWriter(file, TickType.QUOTE, 2, 1);
+      w.writeQuote(1000, 805, 500, 700, 800);
+      w.writeQuote(1000, 806, 0, 699, Integer.MAX_VALUE);
+      w.writeQuote(5000, Long.MAX_VALUE / 2, 1, -Long.MAX_VALUE / 2, Integer.MIN_VALUE);
+      w.close();
+      
+      CompressedTickReader r = new CompressedTickReader(file);
+      assertEquals(TickType.QUOTE, r.getTickType());
+      assertTrue(r.next());
+      assertEquals(1000, r.getTime());
+      assertEquals(805, r.getAskPrice());
+      assertEquals(500, r.getAskSize());
+      assertEquals(700, r.getBidPrice());
+      assertEquals(800, r.getBidSize());
+      assertTrue(r.next());
+      assertEquals(1000, r.getTime());
+      assertEquals(806, r.getAskPrice());
+      assertEquals(0, r.getAskSize());
+      assertEquals(699, r.getBidPrice());
+      assertEquals(Integer.MAX_VALUE, r.getBidSize());
+      assertTrue(r.next());
+      assertEquals(5000, r.getTime());
+      assertEquals(Long.MAX_VALUE / 2, r.getAskPrice());
+      assertEquals(-Long.MAX_VALUE / 2, r.getBidPrice());
+      assertEquals(Integer.MIN_VALUE, r.getBidSize());
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#next()}. Incomplete trailing block is reported
+    * after the ticks of the complete blocks.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testIncompleteBlock() throws IOException
+   {
+      CompressedTickWriter w = new CompressedTickWriter(file, TickType.TRADE, 0, 1, 2);
+      w.writeTrade(1, 2, 3);
+      w.writeTrade(2, 3, 4);
+      w.close();
+      append(0, 0, 0, 10, 0, 0, 0, 2, 1, 2);
+      
+      CompressedTickReader r = new CompressedTickReader(file);
+      assertTrue(r.next());
+      assertTrue(r.next());
+      r.next();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#next()}. File truncated inside a block header.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testIncompleteBlockHeader() throws IOException
+   {
+      CompressedTickWriter w = new CompressedTickWriter(file, TickType.TRADE, 0, 1, 2);
+      w.writeTrade(1, 2, 3);
+      w.close();
+      append(0, 0, 0);
+      
+      CompressedTickReader r = new CompressedTickReader(file);
+      assertTrue(r.next());
+      r.next();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#next()}. Ticks of the block do not fit into its
+    * payload.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testCorruptBlockTickCount() throws IOException
+   {
+      new CompressedTickWriter(file, TickType.TRADE, 0, 1, 2).close();
+      append(0, 0, 0, 9, 0, 0, 0, 3, 0x81, 1, 2, 2, 1, 2, 2, 1, 2);
+      
+      CompressedTickReader r = new CompressedTickReader(file);
+      assertTrue(r.next());
+      assertTrue(r.next());
+      r.next();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#next()}. Payload of the block is longer than its
+    * ticks.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testCorruptBlockPayloadSize() throws IOException
+   {
+      new CompressedTickWriter(file, TickType.TRADE, 0, 1, 2).close();
+      append(0, 0, 0, 9, 0, 0, 0, 2, 1, 2, 2, 1, 2, 2, 1, 2, 2);
+      
+      CompressedTickReader r = new CompressedTickReader(file);
+      assertTrue(r.next());
+      r.next();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#next()}. Corrupt payload size larger than the
+    * file is not allocated.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testCorruptBlockHugePayload() throws IOException
+   {
+      new CompressedTickWriter(file, TickType.TRADE, 0, 1, 2).close();
+      append(0x7F, 0xFF, 0xFF, 0xFF, 0x10, 0, 0, 0, 1, 2, 2);
+      
+      new CompressedTickReader(file).next();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickReader#CompressedTickReader(File)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testInvalidFile() throws IOException
+   {
+      new TickFileWriter(file, TickType.TRADE, 2).close();
+      new CompressedTickReader(file);
+   }
+   
+   private void append(int... bytes) throws IOException
+   {
+      FileOutputStream stream = new FileOutputStream(file, true);
+      try
+      {
+         for (int b : bytes)
+         {
+            stream.write(b);
+         }
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class CompressedTickWriterTest
+{
+   private File file;
+   private File compressedFile;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    */
+   public CompressedTickWriterTest() throws IOException
+   {
+      file = File.createTempFile("crossbow", ".tick");
+      file.deleteOnExit();
+      compressedFile = File.createTempFile("crossbow", ".tickz");
+      compressedFile.deleteOnExit();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickWriter#writeAll(TickReader)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteAll() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 2);
+      for (int i = 0; i < 10000; i++)
+      {
+         w.writeTrade(1262300000000L + 100L * i, 3000 + i % 10, 100);
+      }
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file);
+      CompressedTickWriter cw = new CompressedTickWriter(compressedFile, TickType.TRADE, 2, 1);
+      assertEquals(10000, cw.writeAll(r));
+      assertEquals(10000, cw.getTickCount());
+      cw.close();
+      r.close();
+      // Time, price and size fit into 1 or 2 bytes each
+      assertTrue(compressedFile.length() * 4 < file.length());
+      
+      r = new TickFileReader(file);
+      CompressedTickReader cr = new CompressedTickReader(compressedFile);
+      while (r.next())
+      {
+         assertTrue(cr.next());
+         assertEquals(r.getTime(), cr.getTime());
+         assertEquals(r.getPrice(), cr.getPrice());
+         assertEquals(r.getSize(), cr.getSize());
+      }
+      assertFalse(cr.next());
+      cr.close();
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link CompressedTickWriter#writeTrade(long, long, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testPriceStep() throws IOException
+   {
+      CompressedTickWriter w = new CompressedTickWriter(compressedFile, TickType.TRADE, 2, 5);
+      try
+      {
+         w.writeTrade(0, 3002, 1);
+      }
+      finally
+      {
+         w.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link CompressedTickWriter#writeQuote(long, long, int, long, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testWrongTickType() throws IOException
+   {
+      CompressedTickWriter w = new CompressedTickWriter(compressedFile, TickType.TRADE, 2, 1);
+      try
+      {
+         w.writeQuote(0, 1, 1, 1, 1);
+      }
+      finally
+      {
+         w.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link CompressedTickWriter#writeTrade(long, long, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testTimeOrder() throws IOException
+   {
+      CompressedTickWriter w = new CompressedTickWriter(compressedFile, TickType.TRADE, 2, 1);
+      try
+      {
+         w.writeTrade(10, 1, 1);
+         w.writeTrade(9, 1, 1);
+      }
+      finally
+      {
+         w.close();
+      }
+   }
+   
+   /**
+    * Test method for
+    * {@link CompressedTickWriter#CompressedTickWriter(File, TickType, int, long, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testInvalidBlockSize() throws IOException
+   {
+      new CompressedTickWriter(compressedFile, TickType.TRADE, 2, 1, 0);
+   }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class CsvTickFormatTest
+{
+   /**
+    * Test method for {@link CsvTickFormat#CsvTickFormat(TickType, int, DateTimeZone)}.
+    */
+   @Test
+   public void testCsvTickFormat()
+   {
+      CsvTickFormat f = new CsvTickFormat(TickType.QUOTE, 4, DateTimeZone.UTC);
+      assertEquals(TickType.QUOTE, f.getTickType());
+      assertEquals(4, f.getPriceScale());
+      assertEquals(DateTimeZone.UTC, f.getTimeZone());
+      assertEquals(',', f.getDelimiter());
+      assertEquals(0, f.getHeaderLines());
+      assertEquals(CsvTimeFormat.DATE_TIME, f.getTimeFormat());
+      assertEquals(5, f.getFieldCount());
+      assertArrayEquals(new Object[] { 0, 1, 2, 3, 4 }, toObjects(f.getColumns()));
+      
+      f = new CsvTickFormat(TickType.TRADE, 0, DateTimeZone.UTC);
+      assertEquals(3, f.getFieldCount());
+      assertArrayEquals(new Object[] { 0, 1, 2 }, toObjects(f.getColumns()));
+   }
+   
+   /**
+    * Test method for {@link CsvTickFormat#setColumns(int...)}.
+    */
+   @Test
+   public void testSetColumns()
+   {
+      CsvTickFormat f = new CsvTickFormat(TickType.TRADE, 2, DateTimeZone.UTC);
+      f.setColumns(4, 0, 2);
+      assertArrayEquals(new Object[] { 4, 0, 2 }, toObjects(f.getColumns()));
+   }
+   
+   /**
+    * Test method for {@link CsvTickFormat#setColumns(int...)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSetColumnsCount()
+   {
+      new CsvTickFormat(TickType.TRADE, 2, DateTimeZone.UTC).setColumns(0, 1);
+   }
+   
+   /**
+    * Test method for {@link CsvTickFormat#setColumns(int...)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSetColumnsDuplicate()
+   {
+      new CsvTickFormat(TickType.TRADE, 2, DateTimeZone.UTC).setColumns(0, 1, 1);
+   }
+   
+   /**
+    * Test method for {@link CsvTickFormat#setDelimiter(char)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSetDelimiter()
+   {
+      CsvTickFormat f = new CsvTickFormat(TickType.TRADE, 2, DateTimeZone.UTC);
+      f.setDelimiter('\t');
+      assertEquals('\t', f.getDelimiter());
+      f.setDelimiter('\n');
+   }
+   
+   private Object[] toObjects(int[] values)
+   {
+      Object[] objects = new Object[values.length];
+      for (int i = 0; i < values.length; i++)
+      {
+         objects[i] = values[i];
+      }
+      return objects;
+   }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class CsvTickReaderTest
+{
+   private File file;
+   private DateTimeZone zone;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    */
+   public CsvTickReaderTest() throws IOException
+   {
+      file = File.createTempFile("crossbow", ".csv");
+      file.deleteOnExit();
+      zone = DateTimeZone.forID("America/New_York");
+   }
+   
+   private void writeFile(String text) throws IOException
+   {
+      FileOutputStream stream = new FileOutputStream(file);
+      stream.write(text.getBytes("US-ASCII"));
+      stream.close();
+   }
+   
+   /**
+    * Test method for {@link CsvTickReader#next()}. Trades in the default layout.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testNextTrade() throws IOException
+   {
+      writeFile("2010-01-29 15:59:58,30.25,100\r\n"
+                + "\n"
+                + "2010-01-29 15:59:58.5,30.2600,200\n"
+                + "2010-01-29 15:59:59.0123,-0.01,300");
+      CsvTickReader r = new CsvTickReader(file, new CsvTickFormat(TickType.TRADE, 2, zone));
+      assertEquals(TickType.TRADE, r.getTickType());
+      assertEquals(2, r.getPriceScale());
+      
+      assertTrue(r.next());
+      assertEquals(new DateTime(2010, 1, 29, 15, 59, 58, 0, zone).getMillis(), r.getTime());
+      assertEquals(3025, r.getPrice());
+      assertEquals(100, r.getSize());
+      assertEquals(1, r.getLineNumber());
+      
+      assertTrue(r.next());
+      assertEquals(new DateTime(2010, 1, 29, 15, 59, 58, 500, zone).getMillis(), r.getTime());
+      assertEquals(3026, r.getPrice());
+      assertEquals(200, r.getSize());
+      assertEquals(3, r.getLineNumber());
+      
+      assertTrue(r.next());
+      assertEquals(new DateTime(2010, 1, 29, 15, 59, 59, 12, zone).getMillis(), r.getTime());
+      assertEquals(-1, r.getPrice());
+      assertEquals(300, r.getSize());
+      
+      assertFalse(r.next());
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link CsvTickReader#next()}. Quotes with header, custom delimiter, column
+    * order and epoch time. Small buffer forces refilling.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testNextQuote() throws IOException
+   {
+      StringBuilder text = new StringBuilder("symbol;bid;bidsize;ask;asksize;time\n");
+      for (int i = 0; i < 100; i++)
+      {
+         text.append("MSFT;\"30.1\";" + i + ";30.2;" + (i + 1) + ";" + (1000L * i) + "\n");
+      }
+      writeFile(text.toString());
+      
+      CsvTickFormat f = new CsvTickFormat(TickType.QUOTE, 3, zone);
+      f.setDelimiter(';');
+      f.setHeaderLines(1);
+      f.setTimeFormat(CsvTimeFormat.EPOCH_MILLIS);
+      f.setColumns(5, 3, 4, 1, 2);
+      CsvTickReader r = new CsvTickReader(file, f, 64);
+      
+      for (int i = 0; i < 100; i++)
+      {
+         assertTrue(r.next());
+         assertEquals(1000L * i, r.getTime());
+         assertEquals(30200, r.getAskPrice());
+         assertEquals(i + 1, r.getAskSize());
+         assertEquals(30100, r.getBidPrice());
+         assertEquals(i, r.getBidSize());
+      }
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link CsvTickReader#next()}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testMissingColumns() throws IOException
+   {
+      writeFile("2010-01-29 15:59:58,30.25\n");
+      CsvTickReader r = new CsvTickReader(file, new CsvTickFormat(TickType.TRADE, 2, zone));
+      try
+      {
+         r.next();
+      }
+      finally
+      {
+         r.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link CsvTickReader#next()}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testInvalidNumber() throws IOException
+   {
+      writeFile("2010-01-29 15:59:58,30.2x,100\n");
+      CsvTickReader r = new CsvTickReader(file, new CsvTickFormat(TickType.TRADE, 2, zone));
+      try
+      {
+         r.next();
+      }
+      finally
+      {
+         r.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link CsvTickReader#next()}. Price has more significant decimals than the
+    * price scale.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testPriceTooPrecise() throws IOException
+   {
+      writeFile("2010-01-29 15:59:58,30.255,100\n");
+      CsvTickReader r = new CsvTickReader(file, new CsvTickFormat(TickType.TRADE, 2, zone));
+      try
+      {
+         r.next();
+      }
+      finally
+      {
+         r.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link CsvTickReader#next()}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testLineTooLong() throws IOException
+   {
+      writeFile("2010-01-29 15:59:58,30.25,100\n");
+      CsvTickReader r = new CsvTickReader(file, new CsvTickFormat(TickType.TRADE, 2, zone), 8);
+      try
+      {
+         r.next();
+      }
+      finally
+      {
+         r.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link TickFileWriter#writeAll(TickReader)}. Converts CSV file into a tick
+    * file.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testConvert() throws IOException
+   {
+      writeFile("2010-01-29 15:59:58,30.25,100\n2010-01-29 15:59:59,30.26,200\n");
+      File tickFile = File.createTempFile("crossbow", ".tick");
+      tickFile.deleteOnExit();
+      
+      CsvTickReader r = new CsvTickReader(file, new CsvTickFormat(TickType.TRADE, 2, zone));
+      TickFileWriter w = new TickFileWriter(tickFile, TickType.TRADE, 2);
+      assertEquals(2, w.writeAll(r));
+      w.close();
+      r.close();
+      
+      TickFileReader t = new TickFileReader(tickFile);
+      assertTrue(t.next());
+      assertEquals(3025, t.getPrice());
+      assertEquals(100, t.getSize());
+      assertTrue(t.next());
+      assertEquals(3026, t.getPrice());
+      assertEquals(200, t.getSize());
+      assertFalse(t.next());
+      t.close();
+   }
+}
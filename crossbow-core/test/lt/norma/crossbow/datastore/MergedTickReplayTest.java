@@ -0,0 +1,250 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.QuoteEvent;
+import lt.norma.crossbow.data.QuoteListener;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.data.TradeEvent;
+import lt.norma.crossbow.data.TradeListener;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class MergedTickReplayTest
+{
+   /**
+    * Test method for {@link MergedTickReplay#replay()}.
+    * 
+    * @throws IOException
+    * @throws ContractException
+    */
+   @Test
+   public void testReplay() throws IOException, ContractException
+   {
+      Contract a = new StockContract("A", Exchange.createNasdaq(), Currency.createUsd());
+      Contract b = new StockContract("B", Exchange.createNasdaq(), Currency.createUsd());
+      Contract c = new StockContract("C", Exchange.createNasdaq(), Currency.createUsd());
+      MergedTickReplay replay = new MergedTickReplay(2);
+      replay.addSource(new MockTickReader(TickType.TRADE, 2, 1, 4, 5, 9), a);
+      replay.addSource(new MockTickReader(TickType.QUOTE, 3, 2, 4, 8), b);
+      replay.addSource(new MockTickReader(TickType.TRADE, 2), c);
+      replay.addSource(new MockTickReader(TickType.TRADE, 2, 3, 6, 7, 10, 11), c);
+      MockListener listener = new MockListener();
+      replay.addTradeListener(listener);
+      replay.addQuoteListener(listener);
+      
+      assertEquals(12, replay.replay());
+      assertEquals(0, replay.replay());
+      
+      // Equal times are ordered by source
+      assertEquals("1A 2B 3C 4A 4B 5A 6C 7C 8B 9A 10C 11C", listener.log.toString().trim());
+      assertEquals(9, listener.trades.size());
+      assertEquals(3, listener.quotes.size());
+      assertEquals(new BigDecimal("0.01"), listener.trades.get(0).getPrice());
+      assertEquals(1, listener.trades.get(0).getSize());
+      // Quote prices keep 3 decimal places of the file
+      Quote quote = listener.quotes.get(0);
+      assertEquals(new BigDecimal("0.200"), quote.getAskPrice());
+      assertEquals(2, quote.getAskSize());
+      assertEquals(new BigDecimal("0.002"), quote.getBidPrice());
+      assertEquals(3, quote.getBidSize());
+      assertEquals(800, listener.quotes.get(2).getScaledAskPrice());
+      assertEquals(8, listener.quotes.get(2).getAskSize());
+   }
+   
+   /**
+    * Test method for {@link MergedTickReplay#replay()}. Prices of a source with a finer scale than
+    * the contract must not be rounded, other sources keep the scale of their contracts.
+    * 
+    * @throws IOException
+    * @throws ContractException
+    */
+   @Test
+   public void testReplayFinerScale() throws IOException, ContractException
+   {
+      Contract a = new StockContract("A", Exchange.createNasdaq(), Currency.createUsd());
+      Contract b = new StockContract("B", Exchange.createNasdaq(), Currency.createUsd());
+      MergedTickReplay replay = new MergedTickReplay(2);
+      replay.addSource(new MockTickReader(TickType.TRADE, 5, 110523, 110529), a);
+      replay.addSource(new MockTickReader(TickType.TRADE, 1, 110525), b);
+      MockListener listener = new MockListener();
+      replay.addTradeListener(listener);
+      
+      assertEquals(3, replay.replay());
+      assertEquals(new BigDecimal("1.10523"), listener.trades.get(0).getPrice());
+      assertEquals(5, listener.trades.get(0).getPriceScale().getDecimalPlaces());
+      assertEquals(new BigDecimal("11052.50"), listener.trades.get(1).getPrice());
+      assertEquals(2, listener.trades.get(1).getPriceScale().getDecimalPlaces());
+      assertEquals(new BigDecimal("1.10529"), listener.trades.get(2).getPrice());
+   }
+   
+   /**
+    * Test method for {@link MergedTickReplay#replay()}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testReplayWithoutSources() throws IOException
+   {
+      assertEquals(0, new MergedTickReplay().replay());
+   }
+   
+   /**
+    * Test method for {@link MergedTickReplay#MergedTickReplay(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testInvalidBufferSize()
+   {
+      new MergedTickReplay(0);
+   }
+   
+   /**
+    * Test method for {@link MergedTickReplay#addSource(TickReader, Contract)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAddNullContract()
+   {
+      new MergedTickReplay().addSource(new MockTickReader(TickType.TRADE, 2), null);
+   }
+   
+   /**
+    * Reader of ticks with the specified times. Prices and sizes equal to the time, ask prices
+    * are multiplied by 100.
+    */
+   private class MockTickReader implements TickReader
+   {
+      private final TickType tickType;
+      private final int priceScale;
+      private final long[] times;
+      private int index;
+      
+      public MockTickReader(TickType tickType, int priceScale, long... times)
+      {
+         this.tickType = tickType;
+         this.priceScale = priceScale;
+         this.times = times;
+         index = -1;
+      }
+      
+      @Override
+      public TickType getTickType()
+      {
+         return tickType;
+      }
+      
+      @Override
+      public int getPriceScale()
+      {
+         return priceScale;
+      }
+      
+      @Override
+      public boolean next()
+      {
+         index++;
+         return index < times.length;
+      }
+      
+      @Override
+      public long getTime()
+      {
+         return times[index];
+      }
+      
+      @Override
+      public long getPrice()
+      {
+         return times[index];
+      }
+      
+      @Override
+      public int getSize()
+      {
+         return (int)times[index];
+      }
+      
+      @Override
+      public long getAskPrice()
+      {
+         return times[index] * 100;
+      }
+      
+      @Override
+      public int getAskSize()
+      {
+         return (int)times[index];
+      }
+      
+      @Override
+      public long getBidPrice()
+      {
+         return times[index];
+      }
+      
+      @Override
+      public int getBidSize()
+      {
+         return (int)times[index] + 1;
+      }
+      
+      @Override
+      public void close()
+      {
+      }
+   }
+   
+   private class MockListener implements TradeListener, QuoteListener
+   {
+      public List<Trade> trades = new ArrayList<Trade>();
+      public List<Quote> quotes = new ArrayList<Quote>();
+      public StringBuilder log = new StringBuilder();
+      
+      @Override
+      public void tradeReceived(TradeEvent event)
+      {
+         Trade trade = event.getTrade();
+         trades.add(trade);
+         log.append(trade.getTimeMillis()).append(trade.getContract().getSymbol()).append(" ");
+      }
+      
+      @Override
+      public void quoteReceived(QuoteEvent event)
+      {
+         Quote quote = event.getQuote();
+         quotes.add(quote);
+         log.append(quote.getTimeMillis()).append(quote.getContract().getSymbol()).append(" ");
+      }
+   }
+}
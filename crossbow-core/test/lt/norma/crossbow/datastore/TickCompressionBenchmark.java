@@ -0,0 +1,98 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares size and decoding throughput of uncompressed and compressed tick files. Trades are
+ * generated as a random walk of one price step at a time with irregular time gaps. Not a unit
+ * test, run the main method. Reading from page cache is measured, the ratio of file sizes shows
+ * the advantage when data is read from disk.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TickCompressionBenchmark
+{
+   private static final int TICKS = 20000000;
+   private static final int RUNS = 5;
+   
+   /**
+    * Runs the benchmark.
+    * 
+    * @param args
+    *           not used
+    * @throws IOException
+    */
+   public static void main(String[] args) throws IOException
+   {
+      File raw = File.createTempFile("crossbow", ".tick");
+      raw.deleteOnExit();
+      File compressed = File.createTempFile("crossbow", ".tickz");
+      compressed.deleteOnExit();
+      
+      Random random = new Random(1);
+      TickFileWriter writer = new TickFileWriter(raw, TickType.TRADE, 2);
+      CompressedTickWriter compressedWriter = new CompressedTickWriter(compressed,
+            TickType.TRADE, 2, 1);
+      long time = 1262300000000L;
+      long price = 3000;
+      for (int i = 0; i < TICKS; i++)
+      {
+         time += random.nextInt(500);
+         price += random.nextInt(3) - 1;
+         int size = 100 * (1 + random.nextInt(10));
+         writer.writeTrade(time, price, size);
+         compressedWriter.writeTrade(time, price, size);
+      }
+      writer.close();
+      compressedWriter.close();
+      
+      System.out.println(String.format("Uncompressed: %,d bytes, %.1f bytes/tick", raw.length(),
+            (double)raw.length() / TICKS));
+      System.out.println(String.format("Compressed:   %,d bytes, %.1f bytes/tick", compressed
+            .length(), (double)compressed.length() / TICKS));
+      for (int run = 0; run < RUNS; run++)
+      {
+         double rawRate = decode(new TickFileReader(raw));
+         double compressedRate = decode(new CompressedTickReader(compressed));
+         System.out.println(String.format("Run %d: uncompressed %.1f, compressed %.1f "
+                                          + "(million ticks/s)", run + 1, rawRate,
+               compressedRate));
+      }
+   }
+   
+   private static double decode(TickReader reader) throws IOException
+   {
+      long checksum = 0;
+      long start = System.nanoTime();
+      while (reader.next())
+      {
+         checksum += reader.getTime() + reader.getPrice() + reader.getSize();
+      }
+      long elapsed = System.nanoTime() - start;
+      reader.close();
+      if (checksum == 0)
+      {
+         System.out.println("Empty file.");
+      }
+      return TICKS * 1000.0 / elapsed;
+   }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TickFileReaderTest
+{
+   private File file;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    */
+   public TickFileReaderTest() throws IOException
+   {
+      file = File.createTempFile("crossbow", ".tick");
+      file.deleteOnExit();
+   }
+   
+   /**
+    * Test method for {@link TickFileReader#next()}. Small window forces remapping.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testNext() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 4);
+      for (int i = 0; i < 1000; i++)
+      {
+         w.writeTrade(1000L * i, 10000 + i, i);
+      }
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file, 3 * TickFileFormat.TRADE_RECORD_SIZE + 7);
+      assertEquals(TickType.TRADE, r.getTickType());
+      assertEquals(4, r.getPriceScale());
+      assertEquals(1000, r.getRecordCount());
+      for (int i = 0; i < 1000; i++)
+      {
+         assertTrue(r.next());
+         assertEquals(1000L * i, r.getTime());
+         assertEquals(10000 + i, r.getPrice());
+         assertEquals(i, r.getSize());
+      }
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link TickFileReader#next()}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testNextQuote() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.QUOTE, 2);
+      w.writeQuote(5, 101, 1, 99, 2);
+      w.writeQuote(6, 102, 3, -98, 4);
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file);
+      assertEquals(TickType.QUOTE, r.getTickType());
+      assertTrue(r.next());
+      assertEquals(5, r.getTime());
+      assertEquals(101, r.getAskPrice());
+      assertEquals(1, r.getAskSize());
+      assertEquals(99, r.getBidPrice());
+      assertEquals(2, r.getBidSize());
+      assertTrue(r.next());
+      assertEquals(6, r.getTime());
+      assertEquals(102, r.getAskPrice());
+      assertEquals(3, r.getAskSize());
+      assertEquals(-98, r.getBidPrice());
+      assertEquals(4, r.getBidSize());
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link TickFileReader#setPosition(long)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testSetPosition() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 0);
+      for (int i = 0; i < 100; i++)
+      {
+         w.writeTrade(i, i, i);
+      }
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file, 10 * TickFileFormat.TRADE_RECORD_SIZE);
+      r.setPosition(55);
+      assertEquals(55, r.getPosition());
+      assertTrue(r.next());
+      assertEquals(55, r.getTime());
+      r.setPosition(51);
+      assertTrue(r.next());
+      assertEquals(51, r.getTime());
+      r.setPosition(3);
+      assertTrue(r.next());
+      assertEquals(3, r.getTime());
+      r.setPosition(100);
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link TickFileReader#seek(long)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testSeek() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 0);
+      for (int i = 0; i < 100; i++)
+      {
+         // Two ticks at every even time
+         w.writeTrade(i / 2 * 2, i, i);
+      }
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file, 10 * TickFileFormat.TRADE_RECORD_SIZE);
+      assertEquals(0, r.seek(-5));
+      assertTrue(r.next());
+      assertEquals(0, r.getSize());
+      assertEquals(40, r.seek(40));
+      assertTrue(r.next());
+      assertEquals(40, r.getTime());
+      assertEquals(40, r.getSize());
+      assertTrue(r.next());
+      assertEquals(41, r.getSize());
+      assertEquals(72, r.seek(71));
+      assertTrue(r.next());
+      assertEquals(72, r.getTime());
+      assertEquals(98, r.seek(98));
+      assertEquals(100, r.seek(99));
+      assertFalse(r.next());
+      assertEquals(2, r.seek(1));
+      assertTrue(r.next());
+      assertEquals(2, r.getSize());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link TickFileReader#TickFileReader(File)}. Incomplete trailing record is
+    * ignored.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testIncompleteRecord() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 0);
+      w.writeTrade(1, 2, 3);
+      w.close();
+      FileOutputStream stream = new FileOutputStream(file, true);
+      stream.write(new byte[] { 1, 2, 3 });
+      stream.close();
+      
+      TickFileReader r = new TickFileReader(file);
+      assertEquals(1, r.getRecordCount());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link TickFileReader#TickFileReader(File)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testInvalidFile() throws IOException
+   {
+      FileOutputStream stream = new FileOutputStream(file);
+      stream.write("time,price,size\n".getBytes("US-ASCII"));
+      stream.close();
+      new TickFileReader(file);
+   }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TickFileWriterTest
+{
+   private File file;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    */
+   public TickFileWriterTest() throws IOException
+   {
+      file = File.createTempFile("crossbow", ".tick");
+      file.deleteOnExit();
+   }
+   
+   /**
+    * Test method for {@link TickFileWriter#writeTrade(long, long, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteTrade() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 2);
+      assertEquals(TickType.TRADE, w.getTickType());
+      assertEquals(2, w.getPriceScale());
+      w.writeTrade(1000, 805, 500);
+      w.writeTrade(1000, 806, 600);
+      w.writeTrade(2000, 700, 1);
+      assertEquals(3, w.getTickCount());
+      w.close();
+      
+      assertEquals(TickFileFormat.HEADER_SIZE + 3 * TickFileFormat.TRADE_RECORD_SIZE,
+            file.length());
+   }
+   
+   /**
+    * Test method for {@link TickFileWriter#write(Trade)} and {@link TickFileWriter#write(Quote)}.
+    * 
+    * @throws IOException
+    * @throws ContractException
+    */
+   @Test
+   public void testWrite() throws IOException, ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      
+      TickFileWriter w = new TickFileWriter(file, TickType.QUOTE, 3);
+      w.write(new Quote(c, new BigDecimal("8.05"), 500, new BigDecimal("7.0005"), 800, t));
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file);
+      assertTrue(r.next());
+      assertEquals(t.getMillis(), r.getTime());
+      assertEquals(8050, r.getAskPrice());
+      assertEquals(500, r.getAskSize());
+      assertEquals(7001, r.getBidPrice());
+      assertEquals(800, r.getBidSize());
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   /**
+    * Test method for {@link TickFileWriter#writeQuote(long, long, int, long, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testWrongTickType() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 2);
+      try
+      {
+         w.writeQuote(1000, 805, 500, 800, 100);
+      }
+      finally
+      {
+         w.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link TickFileWriter#writeTrade(long, long, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testTimeOrder() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 2);
+      try
+      {
+         w.writeTrade(2000, 805, 500);
+         w.writeTrade(1999, 805, 500);
+      }
+      finally
+      {
+         w.close();
+      }
+   }
+   
+   /**
+    * Test method for {@link TickFileWriter#TickFileWriter(File, TickType, int)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testInvalidPriceScale() throws IOException
+   {
+      new TickFileWriter(file, TickType.TRADE, 19);
+   }
+}
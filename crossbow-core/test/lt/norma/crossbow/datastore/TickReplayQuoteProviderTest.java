@@ -0,0 +1,153 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.QuoteEvent;
+import lt.norma.crossbow.data.QuoteListener;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TickReplayQuoteProviderTest
+{
+   private File file;
+   private Contract contract;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    * @throws ContractException
+    */
+   public TickReplayQuoteProviderTest() throws IOException, ContractException
+   {
+      file = File.createTempFile("crossbow", ".tick");
+      file.deleteOnExit();
+      contract = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+   }
+   
+   /**
+    * Test method for {@link TickReplayQuoteProvider#replay()}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testReplay() throws IOException
+   {
+      DateTime t = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      TickFileWriter w = new TickFileWriter(file, TickType.QUOTE, 2);
+      w.writeQuote(t.getMillis(), 805, 500, 700, 800);
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file);
+      TickReplayQuoteProvider p = new TickReplayQuoteProvider(r, contract);
+      MockQuoteListener l = new MockQuoteListener();
+      p.addListener(l);
+      assertEquals(1, p.replay());
+      r.close();
+      
+      assertEquals(1, l.quotes.size());
+      Quote q = l.quotes.get(0);
+      assertEquals(contract, q.getContract());
+      assertEquals(new BigDecimal("8.05"), q.getAskPrice());
+      assertEquals(500, q.getAskSize());
+      assertEquals(new BigDecimal("7.00"), q.getBidPrice());
+      assertEquals(800, q.getBidSize());
+      assertEquals(t, q.getTime());
+   }
+   
+   /**
+    * Test method for {@link TickReplayQuoteProvider#replay()}. Prices of a file with a finer scale
+    * than the contract must not be rounded.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testReplayFinerScale() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.QUOTE, 5);
+      w.writeQuote(1000, 110523, 500, 110518, 800);
+      w.close();
+      
+      for (boolean flyweight : new boolean[] { false, true })
+      {
+         TickFileReader r = new TickFileReader(file);
+         TickReplayQuoteProvider p = new TickReplayQuoteProvider(r, contract);
+         p.setFlyweight(flyweight);
+         MockQuoteListener l = new MockQuoteListener();
+         p.addListener(l);
+         assertEquals(1, p.replay());
+         r.close();
+         
+         Quote q = l.quotes.get(0);
+         assertEquals(new BigDecimal("1.10523"), q.getAskPrice());
+         assertEquals(new BigDecimal("1.10518"), q.getBidPrice());
+         assertEquals(5, q.getPriceScale().getDecimalPlaces());
+      }
+   }
+   
+   /**
+    * Test method for {@link TickReplayQuoteProvider#TickReplayQuoteProvider(TickReader, Contract)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testWrongTickType() throws IOException
+   {
+      new TickFileWriter(file, TickType.TRADE, 2).close();
+      TickFileReader r = new TickFileReader(file);
+      try
+      {
+         new TickReplayQuoteProvider(r, contract);
+      }
+      finally
+      {
+         r.close();
+      }
+   }
+   
+   private class MockQuoteListener implements QuoteListener
+   {
+      public List<Quote> quotes = new ArrayList<Quote>();
+      
+      @Override
+      public void quoteReceived(QuoteEvent event)
+      {
+         quotes.add(event.getQuote().copy());
+      }
+   }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.data.TradeEvent;
+import lt.norma.crossbow.data.TradeListener;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TickReplayTradeProviderTest
+{
+   private File file;
+   private Contract contract;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    * @throws ContractException
+    */
+   public TickReplayTradeProviderTest() throws IOException, ContractException
+   {
+      file = File.createTempFile("crossbow", ".tick");
+      file.deleteOnExit();
+      contract = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+   }
+   
+   /**
+    * Test method for {@link TickReplayTradeProvider#replay()}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testReplay() throws IOException
+   {
+      DateTime t1 = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      DateTime t2 = new DateTime(2010, 1, 1, 14, 0, 1, 0, DateTimeZone.forID("America/New_York"));
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 2);
+      w.writeTrade(t1.getMillis(), 805, 500);
+      w.writeTrade(t2.getMillis(), 1000, 1);
+      w.close();
+      
+      TickFileReader r = new TickFileReader(file);
+      TickReplayTradeProvider p = new TickReplayTradeProvider(r, contract);
+      MockTradeListener l = new MockTradeListener();
+      p.addListener(l);
+      assertEquals(2, p.replay());
+      assertEquals(0, p.replay());
+      r.close();
+      
+      assertEquals(2, l.trades.size());
+      assertEquals(contract, l.trades.get(0).getContract());
+      assertEquals(new BigDecimal("8.05"), l.trades.get(0).getPrice());
+      assertEquals(500, l.trades.get(0).getSize());
+      assertEquals(t1, l.trades.get(0).getTime());
+      assertEquals(new BigDecimal("10.00"), l.trades.get(1).getPrice());
+      assertEquals(1, l.trades.get(1).getSize());
+      assertEquals(t2, l.trades.get(1).getTime());
+   }
+   
+   /**
+    * Test method for {@link TickReplayTradeProvider#replay()}. Prices of a file with a finer scale
+    * than the contract must not be rounded.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testReplayFinerScale() throws IOException
+   {
+      TickFileWriter w = new TickFileWriter(file, TickType.TRADE, 5);
+      w.writeTrade(1000, 110523, 500);
+      w.close();
+      
+      for (boolean flyweight : new boolean[] { false, true })
+      {
+         TickFileReader r = new TickFileReader(file);
+         TickReplayTradeProvider p = new TickReplayTradeProvider(r, contract);
+         p.setFlyweight(flyweight);
+         MockTradeListener l = new MockTradeListener();
+         p.addListener(l);
+         assertEquals(1, p.replay());
+         r.close();
+         
+         Trade t = l.trades.get(0);
+         assertEquals(new BigDecimal("1.10523"), t.getPrice());
+         assertEquals(110523, t.getScaledPrice());
+         assertEquals(5, t.getPriceScale().getDecimalPlaces());
+      }
+   }
+   
+   /**
+    * Test method for {@link TickReplayTradeProvider#TickReplayTradeProvider(TickReader, Contract)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testWrongTickType() throws IOException
+   {
+      new TickFileWriter(file, TickType.QUOTE, 2).close();
+      TickFileReader r = new TickFileReader(file);
+      try
+      {
+         new TickReplayTradeProvider(r, contract);
+      }
+      finally
+      {
+         r.close();
+      }
+   }
+   
+   private class MockTradeListener implements TradeListener
+   {
+      public List<Trade> trades = new ArrayList<Trade>();
+      
+      @Override
+      public void tradeReceived(TradeEvent event)
+      {
+         trades.add(event.getTrade().copy());
+      }
+   }
+}
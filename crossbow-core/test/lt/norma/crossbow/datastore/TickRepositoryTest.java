@@ -0,0 +1,178 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.datastore;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.exceptions.ContractException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TickRepositoryTest
+{
+   private static final DateTimeZone NEW_YORK = DateTimeZone.forID("America/New_York");
+   
+   private File root;
+   private Contract contract;
+   private TickRepository repository;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    * @throws ContractException
+    */
+   public TickRepositoryTest() throws IOException, ContractException
+   {
+      root = File.createTempFile("crossbow", "");
+      root.delete();
+      root.deleteOnExit();
+      contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      repository = new TickRepository(root);
+   }
+   
+   /**
+    * Test method for {@link TickRepository#getPartition(Contract, TickType, LocalDate)}.
+    */
+   @Test
+   public void testGetPartition()
+   {
+      File file = repository.getPartition(contract, TickType.QUOTE, new LocalDate(2010, 1, 4));
+      assertEquals("2010-01-04.quote.tick", file.getName());
+      assertEquals("MSFT", file.getParentFile().getName());
+   }
+   
+   /**
+    * Test method for
+    * {@link TickRepository#openReader(Contract, TickType, DateTime, DateTime)}. Prices of a
+    * partition with a finer scale than the contract must not be rounded.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testOpenReaderFinerScale() throws IOException
+   {
+      LocalDate date1 = new LocalDate(2010, 2, 1);
+      LocalDate date2 = new LocalDate(2010, 2, 2);
+      TickFileWriter w = repository.createWriter(contract, TickType.TRADE, date1);
+      deleteOnExit(repository.getPartition(contract, TickType.TRADE, date1));
+      w.writeTrade(new DateTime(2010, 2, 1, 10, 0, 0, 0, NEW_YORK).getMillis(), 805, 1);
+      w.close();
+      w = new TickFileWriter(repository.getPartition(contract, TickType.TRADE, date2),
+            TickType.TRADE, 5);
+      deleteOnExit(repository.getPartition(contract, TickType.TRADE, date2));
+      w.writeTrade(new DateTime(2010, 2, 2, 10, 0, 0, 0, NEW_YORK).getMillis(), 110523, 1);
+      w.close();
+      
+      TickReader r = repository.openReader(contract, TickType.TRADE,
+            new DateTime(2010, 2, 1, 0, 0, 0, 0, NEW_YORK),
+            new DateTime(2010, 2, 3, 0, 0, 0, 0, NEW_YORK));
+      try
+      {
+         assertEquals(5, r.getPriceScale());
+         assertTrue(r.next());
+         assertEquals(805000, r.getPrice());
+         assertTrue(r.next());
+         assertEquals(110523, r.getPrice());
+         assertFalse(r.next());
+      }
+      finally
+      {
+         r.close();
+      }
+   }
+   
+   /**
+    * Test method for
+    * {@link TickRepository#openReader(Contract, TickType, DateTime, DateTime)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testOpenReader() throws IOException
+   {
+      // Ten ticks per hour from 10:00 to 15:00 on three days
+      for (int day = 4; day <= 6; day++)
+      {
+         LocalDate date = new LocalDate(2010, 1, day);
+         TickFileWriter w = repository.createWriter(contract, TickType.TRADE, date);
+         deleteOnExit(repository.getPartition(contract, TickType.TRADE, date));
+         for (int hour = 10; hour < 15; hour++)
+         {
+            for (int i = 0; i < 10; i++)
+            {
+               DateTime t = new DateTime(2010, 1, day, hour, i, 0, 0, NEW_YORK);
+               w.writeTrade(t.getMillis(), day * 100 + hour, i);
+            }
+         }
+         w.close();
+      }
+      List<LocalDate> dates = repository.getDates(contract, TickType.TRADE);
+      assertEquals(3, dates.size());
+      assertEquals(new LocalDate(2010, 1, 4), dates.get(0));
+      assertEquals(new LocalDate(2010, 1, 6), dates.get(2));
+      assertTrue(repository.getDates(contract, TickType.QUOTE).isEmpty());
+      
+      TickReader r = repository.openReader(contract, TickType.TRADE,
+            new DateTime(2010, 1, 4, 14, 5, 0, 0, NEW_YORK),
+            new DateTime(2010, 1, 5, 11, 0, 0, 0, NEW_YORK));
+      assertEquals(TickType.TRADE, r.getTickType());
+      assertEquals(2, r.getPriceScale());
+      int count = 0;
+      long last = 0;
+      while (r.next())
+      {
+         count++;
+         last = r.getPrice();
+      }
+      r.close();
+      // 5 ticks of 2010-01-04 14:00 and 10 ticks of 2010-01-05 10:00
+      assertEquals(15, count);
+      assertEquals(510, last);
+      
+      // Range without partitions
+      r = repository.openReader(contract, TickType.TRADE, new DateTime(2011, 1, 1, 0, 0, 0, 0,
+            NEW_YORK), new DateTime(2011, 2, 1, 0, 0, 0, 0, NEW_YORK));
+      assertFalse(r.next());
+      r.close();
+   }
+   
+   private void deleteOnExit(File file)
+   {
+      // Files are deleted in the reverse order of registration, directories go first
+      if (!file.equals(root))
+      {
+         deleteOnExit(file.getParentFile());
+      }
+      file.deleteOnExit();
+   }
+}
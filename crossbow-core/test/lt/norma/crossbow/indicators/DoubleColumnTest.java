@@ -0,0 +1,202 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class DoubleColumnTest
+{
+   /**
+    * Test method for {@link DoubleColumn#DoubleColumn(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testDoubleColumnInvalidRetention()
+   {
+      new DoubleColumn(-1);
+   }
+   
+   /**
+    * Test method for {@link DoubleColumn#add(double, boolean)}. Unlimited retention.
+    */
+   @Test
+   public void testAddUnlimited()
+   {
+      DoubleColumn c = new DoubleColumn(PeriodicColumn.UNLIMITED_RETENTION);
+      assertEquals(PeriodicColumn.UNLIMITED_RETENTION, c.getRetention());
+      assertEquals(0, c.size());
+      
+      for (int i = 0; i < 1000; i++)
+      {
+         c.add(i * 0.5, i % 2 == 0);
+      }
+      assertEquals(1000, c.size());
+      assertEquals(1000, c.getPeriodCount());
+      assertEquals(0, c.get(0), 0);
+      assertTrue(c.isSet(0));
+      assertFalse(c.isSet(1));
+      assertEquals(0, c.get(1), 0);
+      assertEquals(499, c.get(998), 0);
+      assertEquals(499, c.getAgo(1), 0);
+      assertFalse(c.isSetAgo(0));
+      assertTrue(c.isSetAgo(1));
+   }
+   
+   /**
+    * Test method for {@link DoubleColumn#add(double, boolean)}. Limited retention.
+    */
+   @Test
+   public void testAddRetention()
+   {
+      DoubleColumn c = new DoubleColumn(100);
+      for (int i = 0; i < 250; i++)
+      {
+         c.add(i, true);
+         assertEquals(Math.min(i + 1, 100), c.size());
+         assertEquals(i, c.getAgo(0), 0);
+         if (i >= 99)
+         {
+            assertEquals(i - 99, c.get(0), 0);
+         }
+      }
+      c.add(250, false);
+      assertEquals(251, c.getPeriodCount());
+      assertEquals(100, c.size());
+      assertEquals(151, c.getAgo(99), 0);
+      assertEquals(151, c.get(0), 0);
+      assertEquals(0, c.get(99), 0);
+      assertFalse(c.isSetAgo(0));
+      assertTrue(c.isSetAgo(1));
+   }
+   
+   /**
+    * Test method for {@link DoubleColumn#get(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetOutOfRange()
+   {
+      DoubleColumn c = new DoubleColumn(3);
+      c.add(1, true);
+      c.add(2, true);
+      c.add(3, true);
+      c.add(4, true);
+      c.get(3);
+   }
+   
+   /**
+    * Test method for {@link DoubleColumn#getAgo(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetAgoOutOfRange()
+   {
+      DoubleColumn c = new DoubleColumn(3);
+      c.add(1, true);
+      c.getAgo(1);
+   }
+   
+   /**
+    * Test method for {@link PeriodicColumn#writeState(java.io.DataOutput)} and
+    * {@link PeriodicColumn#readState(java.io.DataInput)}. Unlimited retention.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteStateUnlimited() throws IOException
+   {
+      DoubleColumn c = new DoubleColumn(PeriodicColumn.UNLIMITED_RETENTION);
+      for (int i = 0; i < 100; i++)
+      {
+         c.add(i * 0.5, i % 3 != 0);
+      }
+      DoubleColumn restored = new DoubleColumn(PeriodicColumn.UNLIMITED_RETENTION);
+      copyState(c, restored);
+      
+      assertEquals(100, restored.getPeriodCount());
+      assertEquals(100, restored.size());
+      for (int i = 0; i < 100; i++)
+      {
+         assertEquals(c.isSet(i), restored.isSet(i));
+         assertEquals(c.get(i), restored.get(i), 0);
+      }
+      restored.add(50, true);
+      assertEquals(101, restored.size());
+      assertEquals(50, restored.getAgo(0), 0);
+   }
+   
+   /**
+    * Test method for {@link PeriodicColumn#writeState(java.io.DataOutput)} and
+    * {@link PeriodicColumn#readState(java.io.DataInput)}. Limited retention.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteStateRetention() throws IOException
+   {
+      DoubleColumn c = new DoubleColumn(100);
+      for (int i = 0; i < 250; i++)
+      {
+         c.add(i, i != 200);
+      }
+      DoubleColumn restored = new DoubleColumn(100);
+      restored.add(-1, true);
+      copyState(c, restored);
+      
+      assertEquals(250, restored.getPeriodCount());
+      assertEquals(100, restored.size());
+      assertEquals(150, restored.get(0), 0);
+      assertEquals(249, restored.getAgo(0), 0);
+      assertFalse(restored.isSetAgo(49));
+      assertEquals(0, restored.getAgo(49), 0);
+      restored.add(250, true);
+      assertEquals(100, restored.size());
+      assertEquals(151, restored.get(0), 0);
+      assertEquals(250, restored.getAgo(0), 0);
+   }
+   
+   /**
+    * Test method for {@link PeriodicColumn#readState(java.io.DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testReadStateInvalidRetention() throws IOException
+   {
+      DoubleColumn c = new DoubleColumn(100);
+      c.add(1, true);
+      copyState(c, new DoubleColumn(50));
+   }
+   
+   private static void copyState(PeriodicColumn from, PeriodicColumn to) throws IOException
+   {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      from.writeState(new DataOutputStream(buffer));
+      to.readState(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+   }
+}
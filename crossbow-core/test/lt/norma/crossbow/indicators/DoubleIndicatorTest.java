@@ -0,0 +1,313 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.exceptions.ValueNotSetRuntimeException;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class DoubleIndicatorTest
+{
+   /**
+    * Test method for {@link DoubleIndicator#getDouble()} and
+    * {@link DoubleIndicator#setDouble(double)}.
+    */
+   @Test
+   public void testSetDouble()
+   {
+      MockIndicator i = new MockIndicator(false);
+      assertFalse(i.isSet());
+      
+      i.setDouble(1.5);
+      assertTrue(i.isSet());
+      assertEquals(1.5, i.getDouble(), 0);
+      assertEquals(Double.valueOf(1.5), i.getValue());
+      
+      i.setValue(2.5);
+      assertEquals(2.5, i.getDouble(), 0);
+      
+      i.unsetValue();
+      assertFalse(i.isSet());
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#getDouble()}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetDoubleNotSet()
+   {
+      new MockIndicator(false).getDouble();
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#getValue()}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetValueNotSet()
+   {
+      new MockIndicator(false).getValue();
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#setValue(Double)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSetValueNull()
+   {
+      new MockIndicator(false).setValue(null);
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#addPeriodicValue()}.
+    */
+   @Test
+   public void testPeriodicData()
+   {
+      MockIndicator i = new MockIndicator(true);
+      assertEquals(0, i.getPeriodicColumn().getPeriodCount());
+      
+      // More periods than the initial capacity
+      for (int n = 0; n < 100; n++)
+      {
+         if (n % 3 == 0)
+         {
+            i.unsetValue();
+         }
+         else
+         {
+            i.setDouble(n);
+         }
+         i.updateEndOfPeriod(new DateTime(0));
+      }
+      assertEquals(100, i.getPeriodicColumn().getPeriodCount());
+      assertEquals(100, i.periodCount);
+      assertFalse(i.isPeriodicValueSet(0));
+      assertTrue(i.isPeriodicValueSet(1));
+      assertFalse(i.isPeriodicValueSet(99));
+      assertTrue(i.isPeriodicValueSet(98));
+      assertEquals(1, i.getPeriodicDouble(98), 0);
+      assertEquals(98, i.getPeriodicDouble(1), 0);
+      assertEquals(Double.valueOf(98), i.getPeriodicValue(1));
+      
+      List<Double> data = i.getPeriodicData();
+      List<Boolean> flags = i.getPeriodicDataFlags();
+      assertEquals(100, data.size());
+      assertEquals(100, flags.size());
+      assertNull(data.get(99));
+      assertFalse(flags.get(99));
+      assertEquals(Double.valueOf(97), data.get(97));
+      assertTrue(flags.get(97));
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#getPeriodicDouble(int)}. Limited retention.
+    */
+   @Test
+   public void testPeriodicDataRetention()
+   {
+      MockIndicator i = new MockIndicator(true, 10);
+      assertEquals(10, i.getRetention());
+      for (int n = 0; n < 25; n++)
+      {
+         i.setDouble(n);
+         i.updateEndOfPeriod(new DateTime(0));
+      }
+      assertEquals(25, i.getPeriodicColumn().getPeriodCount());
+      assertEquals(10, i.getPeriodicColumn().size());
+      assertEquals(24, i.getPeriodicDouble(0), 0);
+      assertEquals(15, i.getPeriodicDouble(9), 0);
+      assertEquals(10, i.getPeriodicData().size());
+      assertEquals(Double.valueOf(15), i.getPeriodicData().get(0));
+      assertEquals(Double.valueOf(24), i.getPeriodicData().get(9));
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#getPeriodicDouble(int)}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetPeriodicDoubleNotSet()
+   {
+      MockIndicator i = new MockIndicator(true);
+      i.updateEndOfPeriod(new DateTime(0));
+      i.getPeriodicDouble(0);
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#getPeriodicDouble(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetPeriodicDoubleOutOfRange()
+   {
+      MockIndicator i = new MockIndicator(true);
+      i.setDouble(1);
+      i.updateEndOfPeriod(new DateTime(0));
+      i.getPeriodicDouble(1);
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#getPeriodicData()} and
+    * {@link DoubleIndicator#getPeriodicDataFlags()}.
+    */
+   @Test
+   public void testGetPeriodicDataNotCollected()
+   {
+      MockIndicator i = new MockIndicator(false);
+      assertNull(i.getPeriodicData());
+      assertNull(i.getPeriodicDataFlags());
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#DoubleIndicator(String, DoubleColumn)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testDoubleIndicatorColumn() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".column");
+      file.deleteOnExit();
+      MappedDoubleColumn column = new MappedDoubleColumn(file, 16);
+      MockIndicator i = new MockIndicator(column);
+      assertTrue(i.hasPeriodicData());
+      assertSame(column, i.getPeriodicColumn());
+      assertEquals(PeriodicColumn.UNLIMITED_RETENTION, i.getRetention());
+      
+      for (int n = 0; n < 100; n++)
+      {
+         i.setDouble(n * 0.5);
+         i.updateEndOfPeriod(new DateTime(0));
+      }
+      assertEquals(100, column.getPeriodCount());
+      assertEquals(49.5, i.getPeriodicDouble(0), 0);
+      assertEquals(0, i.getPeriodicDouble(99), 0);
+      assertEquals(100, i.getPeriodicData().size());
+      assertEquals(Double.valueOf(5.0), i.getPeriodicData().get(10));
+      column.close();
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#DoubleIndicator(String, DoubleColumn)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testDoubleIndicatorColumnNull()
+   {
+      new MockIndicator(null);
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#DoubleIndicator(String, DoubleColumn)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testDoubleIndicatorColumnNotEmpty()
+   {
+      DoubleColumn column = new DoubleColumn(PeriodicColumn.UNLIMITED_RETENTION);
+      column.add(1, true);
+      new MockIndicator(column);
+   }
+   
+   /**
+    * Test method for {@link DoubleIndicator#writeState(java.io.DataOutput)} and
+    * {@link DoubleIndicator#readState(java.io.DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      MockIndicator i1 = new MockIndicator(true, 10);
+      for (int n = 0; n < 25; n++)
+      {
+         i1.setDouble(n * 0.5);
+         if (n == 20)
+         {
+            i1.unsetValue();
+         }
+         i1.updateEndOfPeriod(new DateTime(0));
+      }
+      i1.setDouble(-1.5);
+      
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      i1.writeState(new DataOutputStream(buffer));
+      MockIndicator i2 = new MockIndicator(true, 10);
+      i2.readState(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+      assertTrue(i2.isSet());
+      assertEquals(-1.5, i2.getDouble(), 0);
+      assertEquals(25, i2.getPeriodicColumn().getPeriodCount());
+      assertEquals(10, i2.getPeriodicData().size());
+      assertEquals(12, i2.getPeriodicDouble(0), 0);
+      assertFalse(i2.isPeriodicValueSet(4));
+      assertEquals(7.5, i2.getPeriodicDouble(9), 0);
+   }
+   
+   private class MockIndicator extends DoubleIndicator
+   {
+      public int periodCount;
+      
+      /**
+       * Constructor.
+       * 
+       * @param collectPeriodicData
+       */
+      public MockIndicator(boolean collectPeriodicData)
+      {
+         super("Mock", collectPeriodicData);
+      }
+      
+      /**
+       * Constructor.
+       * 
+       * @param collectPeriodicData
+       * @param retention
+       */
+      public MockIndicator(boolean collectPeriodicData, int retention)
+      {
+         super("Mock", collectPeriodicData, retention);
+      }
+      
+      /**
+       * Constructor.
+       * 
+       * @param periodicColumn
+       */
+      public MockIndicator(DoubleColumn periodicColumn)
+      {
+         super("Mock", periodicColumn);
+      }
+      
+      @Override
+      protected void endOfPeriod(DateTime time)
+      {
+         periodCount++;
+      }
+   }
+}
@@ -19,12 +19,20 @@ package lt.norma.crossbow.indicators;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import lt.norma.crossbow.account.Currency;
 import lt.norma.crossbow.contracts.Contract;
@@ -35,6 +43,7 @@ import lt.norma.crossbow.data.QuoteEvent;
 import lt.norma.crossbow.data.Trade;
 import lt.norma.crossbow.data.TradeEvent;
 import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 import lt.norma.testutilities.Reflection;
 
 import org.joda.time.DateTime;
@@ -156,6 +165,127 @@ public class IndicatorListTest
       assertTrue(l.getIndicators().indexOf(ik) < l.getIndicators().indexOf(if_));
    }
    
+   /**
+    * Test method for {@link IndicatorList#add(Indicator)}. Dependencies added after the owners.
+    */
+   @Test
+   public void testAdd3()
+   {
+      IndicatorList l = new IndicatorList(null);
+      MockIndicator<String> ia = new MockIndicator<String>("A", true);
+      MockIndicator<String> ib = new MockIndicator<String>("B", true);
+      MockIndicator<String> ic = new MockIndicator<String>("C", true);
+      ia.getDependencies().add(ib);
+      ib.getDependencies().add(ic);
+      
+      l.add(ia);
+      l.add(ib);
+      l.add(ic);
+      
+      assertEquals(ic, l.getIndicators().get(0));
+      assertEquals(ib, l.getIndicators().get(1));
+      assertEquals(ia, l.getIndicators().get(2));
+      assertEquals(0, l.getLevel(ic));
+      assertEquals(1, l.getLevel(ib));
+      assertEquals(2, l.getLevel(ia));
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#add(Indicator)}. Circular dependencies.
+    */
+   @Test
+   public void testAddCircular()
+   {
+      IndicatorList l = new IndicatorList(null);
+      MockIndicator<String> ia = new MockIndicator<String>("A", true);
+      MockIndicator<String> ib = new MockIndicator<String>("B", true);
+      MockIndicator<String> ic = new MockIndicator<String>("C", true);
+      ia.getDependencies().add(ib);
+      ib.getDependencies().add(ic);
+      ic.getDependencies().add(ia);
+      
+      try
+      {
+         l.add(ia);
+         fail("InvalidArgumentRuntimeException expected.");
+      }
+      catch (InvalidArgumentRuntimeException e)
+      {
+         assertTrue(e.getMessage().contains("A -> B -> C -> A"));
+      }
+      assertEquals(0, l.getIndicators().size());
+      
+      // Self dependency
+      MockIndicator<String> id = new MockIndicator<String>("D", true);
+      id.getDependencies().add(id);
+      try
+      {
+         l.add(id);
+         fail("InvalidArgumentRuntimeException expected.");
+      }
+      catch (InvalidArgumentRuntimeException e)
+      {
+      }
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#add(Indicator)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAddNull()
+   {
+      new IndicatorList(null).add(null);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#getLevels()}.
+    */
+   @Test
+   public void testGetLevels()
+   {
+      IndicatorList l = new IndicatorList(null);
+      assertEquals(0, l.getLevels().size());
+      
+      MockIndicator<String> ia = new MockIndicator<String>("A", true);
+      MockIndicator<String> ib = new MockIndicator<String>("B", true);
+      MockIndicator<String> ic = new MockIndicator<String>("C", true);
+      MockIndicator<String> id = new MockIndicator<String>("D", true);
+      ib.getDependencies().add(ia);
+      ic.getDependencies().add(ia);
+      id.getDependencies().add(ib);
+      id.getDependencies().add(ic);
+      l.add(id);
+      l.add(ic);
+      l.add(ib);
+      l.add(ia);
+      
+      List<List<Indicator<?>>> levels = l.getLevels();
+      assertEquals(3, levels.size());
+      assertEquals(1, levels.get(0).size());
+      assertEquals(ia, levels.get(0).get(0));
+      assertEquals(2, levels.get(1).size());
+      assertTrue(levels.get(1).contains(ib));
+      assertTrue(levels.get(1).contains(ic));
+      assertEquals(1, levels.get(2).size());
+      assertEquals(id, levels.get(2).get(0));
+      assertSame(levels, l.getLevels());
+      
+      MockIndicator<String> ie = new MockIndicator<String>("E", true);
+      l.add(ie);
+      assertEquals(2, l.getLevels().get(0).size());
+      assertEquals(ia, l.getLevels().get(0).get(0));
+      assertEquals(ie, l.getLevels().get(0).get(1));
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#getLevel(Indicator)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetLevelNotInList()
+   {
+      new IndicatorList(null).getLevel(new MockIndicator<String>("A", true));
+   }
+   
    /**
     * Test method for {@link IndicatorList#tradeReceived(TradeEvent)} and
     * {@link IndicatorList#quoteReceived(QuoteEvent)}.
@@ -314,19 +444,630 @@ public class IndicatorListTest
       assertEquals(-1, ia.tradeOrder);
    }
    
+   /**
+    * Test method for {@link IndicatorList#tradeReceived(TradeEvent, PeriodSplitterResult)} and
+    * {@link IndicatorList#quoteReceived(QuoteEvent, PeriodSplitterResult)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testTradeReceivedWithResult() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      Trade trade = new Trade(s, new BigDecimal("8.05"), 888, t);
+      Quote quote = new Quote(s, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800, t);
+      Object source = new Object();
+      TradeEvent te = new TradeEvent(source, trade);
+      QuoteEvent qe = new QuoteEvent(source, quote);
+      
+      MockPeriodSplitter splitter = new MockPeriodSplitter();
+      IndicatorList l = new IndicatorList(splitter);
+      MockIndicator2<String> ia = new MockIndicator2<String>("A", true);
+      l.add(ia);
+      
+      // The splitter is checked once per event and the result is used by both phases
+      splitter.value =
+            new PeriodSplitterResult(PeriodSplitterAction.RESTART_AFTER, new DateTime());
+      ia.reset();
+      l.tradeReceived(te);
+      assertEquals(1, splitter.checkCount);
+      assertEquals(2, ia.beginningOrder);
+      assertEquals(1, ia.endOrder);
+      l.quoteReceived(qe);
+      assertEquals(2, splitter.checkCount);
+      
+      // Results evaluated by the caller are used as is
+      ia.reset();
+      l.tradeReceived(te, new PeriodSplitterResult(PeriodSplitterAction.END_BEFORE,
+            new DateTime()));
+      assertEquals(2, splitter.checkCount);
+      assertEquals(-1, ia.beginningOrder);
+      assertEquals(0, ia.endOrder);
+      assertEquals(1, ia.tradeOrder);
+      
+      ia.reset();
+      l.quoteReceived(qe, null);
+      assertEquals(2, splitter.checkCount);
+      assertEquals(-1, ia.beginningOrder);
+      assertEquals(-1, ia.endOrder);
+      assertEquals(0, ia.quoteOrder);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#add(Indicator, PeriodSplitter)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testAddTimeframe() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTimeZone zone = DateTimeZone.UTC;
+      MultiTimeframeSplitter splitter = new MultiTimeframeSplitter(zone, 1000, 60000);
+      PeriodSplitter minuteSplitter = splitter.createTimeframe(1);
+      IndicatorList l = new IndicatorList(splitter);
+      MockIndicator2<String> seconds = new MockIndicator2<String>("S", true);
+      MockIndicator2<String> minutes = new MockIndicator2<String>("M", true);
+      MockIndicator2<String> own = new MockIndicator2<String>("O", true);
+      l.add(seconds);
+      l.add(minutes, minuteSplitter);
+      l.add(own, splitter);
+      assertSame(splitter, l.getPeriodSplitter(seconds));
+      assertSame(minuteSplitter, l.getPeriodSplitter(minutes));
+      assertSame(splitter, l.getPeriodSplitter(own));
+      
+      Object source = new Object();
+      l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 0, 30, 0, zone))));
+      assertEquals(0, seconds.beginningOrder);
+      assertEquals(0, minutes.beginningOrder);
+      
+      // A new second starts
+      seconds.reset();
+      minutes.reset();
+      l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 0, 31, 0, zone))));
+      assertEquals(0, seconds.endOrder);
+      assertEquals(1, seconds.beginningOrder);
+      assertEquals(-1, minutes.endOrder);
+      assertEquals(-1, minutes.beginningOrder);
+      assertEquals(0, minutes.tradeOrder);
+      
+      // A new minute starts
+      seconds.reset();
+      minutes.reset();
+      l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 1, 0, 0, zone))));
+      assertEquals(0, seconds.endOrder);
+      assertEquals(0, minutes.endOrder);
+      assertEquals(1, minutes.beginningOrder);
+      assertEquals(2, minutes.tradeOrder);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#add(Indicator, PeriodSplitter)}. A timeframe subscribed
+    * in two lists sharing the timeframes must be checked once per trade.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testAddTimeframeShared() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTimeZone zone = DateTimeZone.UTC;
+      MultiTimeframeSplitter splitter = new MultiTimeframeSplitter(zone, 1000, 60000);
+      PeriodSplitter minuteSplitter = splitter.createTimeframe(1);
+      IndicatorList owner = new IndicatorList(splitter);
+      IndicatorList other = new IndicatorList(splitter, owner);
+      MockIndicator2<String> ownerMinutes = new MockIndicator2<String>("O", true);
+      MockIndicator2<String> otherMinutes = new MockIndicator2<String>("M", true);
+      owner.add(ownerMinutes, minuteSplitter);
+      other.add(otherMinutes, minuteSplitter);
+      
+      Object source = new Object();
+      TradeEvent event = new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 0, 30, 0, zone)));
+      owner.tradeReceived(event);
+      other.tradeReceived(event);
+      assertEquals(0, ownerMinutes.beginningOrder);
+      assertEquals(0, otherMinutes.beginningOrder);
+      
+      // A new minute starts
+      ownerMinutes.reset();
+      otherMinutes.reset();
+      event = new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 1, 0, 0, zone)));
+      owner.tradeReceived(event);
+      other.tradeReceived(event);
+      assertEquals(0, ownerMinutes.endOrder);
+      assertEquals(1, ownerMinutes.beginningOrder);
+      assertEquals(0, otherMinutes.endOrder);
+      assertEquals(1, otherMinutes.beginningOrder);
+      assertEquals(1, ownerMinutes.getPeriodicData().size());
+      assertEquals(1, otherMinutes.getPeriodicData().size());
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#add(Indicator, PeriodSplitter)}. Own splitter of another
+    * list sharing the timeframes may not be subscribed to.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAddTimeframeOtherListSplitter()
+   {
+      MockPeriodSplitter ownerSplitter = new MockPeriodSplitter();
+      IndicatorList owner = new IndicatorList(ownerSplitter);
+      IndicatorList other = new IndicatorList(new MockPeriodSplitter(), owner);
+      other.add(new MockIndicator<String>("I", false), ownerSplitter);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#IndicatorList(PeriodSplitter, IndicatorList)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testIndicatorListTimeframeSplitter()
+   {
+      MockPeriodSplitter timeframe = new MockPeriodSplitter();
+      IndicatorList owner = new IndicatorList(new MockPeriodSplitter());
+      owner.add(new MockIndicator<String>("I", false), timeframe);
+      new IndicatorList(timeframe, owner);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#periodTimerExpired(long)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testPeriodTimerExpired() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTimeZone zone = DateTimeZone.UTC;
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+      try
+      {
+         IndicatorList l =
+               new IndicatorList(new PeriodTimer(new TimePeriodSplitter(60000, zone), executor));
+         MockIndicator2<String> i = new MockIndicator2<String>("I", true);
+         l.add(i);
+         Object source = new Object();
+         l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+               new DateTime(2010, 1, 1, 14, 0, 30, 0, zone))));
+         assertEquals(0, i.beginningOrder);
+         
+         // The timer ends the period
+         i.reset();
+         l.periodTimerExpired(new DateTime(2010, 1, 1, 14, 1, 0, 0, zone).getMillis());
+         assertEquals(0, i.endOrder);
+         assertEquals(-1, i.beginningOrder);
+         
+         // The next trade only starts a new period
+         i.reset();
+         l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+               new DateTime(2010, 1, 1, 14, 1, 10, 0, zone))));
+         assertEquals(-1, i.endOrder);
+         assertEquals(0, i.beginningOrder);
+         assertEquals(1, i.tradeOrder);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#tradeReceived(TradeEvent)}. Periodic data must be
+    * collected whenever a trade crosses a period boundary.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testTradeReceivedPeriodicData() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTimeZone zone = DateTimeZone.UTC;
+      IndicatorList l = new IndicatorList(new TimePeriodSplitter(60000, zone));
+      MockIndicator2<String> collected = new MockIndicator2<String>("C", true);
+      MockIndicator2<String> notCollected = new MockIndicator2<String>("N", false);
+      l.add(collected);
+      l.add(notCollected);
+      Object source = new Object();
+      
+      collected.setValue("first");
+      l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 0, 30, 0, zone))));
+      assertEquals(0, collected.getPeriodicData().size());
+      
+      // A new minute starts
+      collected.reset();
+      notCollected.reset();
+      l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 1, 10, 0, zone))));
+      assertEquals(1, collected.getPeriodicData().size());
+      assertEquals("first", collected.getPeriodicValue(0));
+      assertEquals(0, collected.endOrder);
+      assertEquals(0, notCollected.endOrder);
+      
+      // Trades within the same minute do not add periodic values
+      collected.setValue("second");
+      l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 1, 50, 0, zone))));
+      assertEquals(1, collected.getPeriodicData().size());
+      
+      // Another minute starts
+      l.tradeReceived(new TradeEvent(source, new Trade(s, new BigDecimal("8.05"), 888,
+            new DateTime(2010, 1, 1, 14, 2, 0, 0, zone))));
+      assertEquals(2, collected.getPeriodicData().size());
+      assertEquals("second", collected.getPeriodicValue(0));
+      assertEquals("first", collected.getPeriodicValue(1));
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#add(Indicator, PeriodSplitter)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAddTimeframeNull()
+   {
+      new IndicatorList(null).add(new MockIndicator<String>("A", false), null);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#getPeriodSplitter(Indicator)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetPeriodSplitterNotInList()
+   {
+      new IndicatorList(null).getPeriodSplitter(new MockIndicator<String>("A", false));
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#tradeReceived(TradeEvent)} and
+    * {@link IndicatorList#quoteReceived(QuoteEvent)}. Parallel update.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testTradeReceivedParallel() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      Object source = new Object();
+      
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try
+      {
+         IndicatorList l = new IndicatorList(null, executor, 2);
+         assertEquals(executor, l.getExecutor());
+         assertEquals(2, l.getParallelThreshold());
+         
+         // Wide first level, single indicator on the second and a wide third level
+         List<MockIndicator3<String>> all = new ArrayList<MockIndicator3<String>>();
+         List<MockIndicator3<String>> first = new ArrayList<MockIndicator3<String>>();
+         MockIndicator3<String> middle = new MockIndicator3<String>("M");
+         for (int i = 0; i < 8; i++)
+         {
+            MockIndicator3<String> indicator = new MockIndicator3<String>("F" + i);
+            first.add(indicator);
+            middle.getDependencies().add(indicator);
+         }
+         all.addAll(first);
+         all.add(middle);
+         for (int i = 0; i < 8; i++)
+         {
+            MockIndicator3<String> indicator = new MockIndicator3<String>("T" + i);
+            indicator.getDependencies().add(middle);
+            indicator.getDependencies().add(first.get(i));
+            all.add(indicator);
+         }
+         Collections.shuffle(all);
+         for (MockIndicator3<String> indicator : all)
+         {
+            l.add(indicator);
+         }
+         
+         for (int i = 0; i < 100; i++)
+         {
+            Trade trade = new Trade(s, new BigDecimal(i), 1, t);
+            Quote quote = new Quote(s, new BigDecimal(i), 1, new BigDecimal(i), 1, t);
+            l.tradeReceived(new TradeEvent(source, trade));
+            l.quoteReceived(new QuoteEvent(source, quote));
+            for (MockIndicator3<String> indicator : all)
+            {
+               assertEquals(trade, indicator.lastTrade);
+               assertEquals(quote, indicator.lastQuote);
+               assertTrue(indicator.dependenciesUpdated);
+            }
+         }
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#tradeReceived(TradeEvent)}. Exception thrown by an
+    * indicator updated in parallel.
+    * 
+    * @throws ContractException
+    */
+   @Test(expected = IllegalStateException.class)
+   public void testTradeReceivedParallelException() throws ContractException
+   {
+      Contract s = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      Trade trade = new Trade(s, new BigDecimal("8.05"), 888, new DateTime());
+      
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try
+      {
+         IndicatorList l = new IndicatorList(null, executor, 1);
+         l.add(new MockIndicator<String>("A", true));
+         l.add(new MockIndicator<String>("B", true)
+         {
+            @Override
+            public void tradeReceived(Trade trade)
+            {
+               throw new IllegalStateException();
+            }
+         });
+         l.tradeReceived(new TradeEvent(new Object(), trade));
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#IndicatorList(PeriodSplitter, ExecutorService, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testIndicatorListInvalidThreshold()
+   {
+      new IndicatorList(null, null, 0);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#saveState(File)} and
+    * {@link IndicatorList#restoreState(File)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testSaveState() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".state");
+      file.deleteOnExit();
+      IndicatorList l1 = new IndicatorList(null);
+      MockIndicator<String> ia = new MockIndicator<String>("A", true);
+      MockIndicator<Long> ib = new MockIndicator<Long>("B", false);
+      l1.add(ia);
+      l1.add(ib);
+      ia.setValue("x");
+      ia.updateEndOfPeriod(new DateTime());
+      ia.setValue("y");
+      ib.setValue(15L);
+      l1.saveState(file);
+      
+      IndicatorList l2 = new IndicatorList(null);
+      MockIndicator<String> ra = new MockIndicator<String>("A", true);
+      MockIndicator<Long> rb = new MockIndicator<Long>("B", false);
+      l2.add(ra);
+      l2.add(rb);
+      l2.restoreState(file);
+      assertEquals("y", ra.getValue());
+      assertEquals(1, ra.getPeriodicData().size());
+      assertEquals("x", ra.getPeriodicData().get(0));
+      assertEquals(15L, (long)rb.getValue());
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#restoreState(File)}. Titles of the indicators do not
+    * match.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testRestoreStateInvalidTitle() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".state");
+      file.deleteOnExit();
+      IndicatorList l1 = new IndicatorList(null);
+      l1.add(new MockIndicator<String>("A", false));
+      l1.saveState(file);
+      
+      IndicatorList l2 = new IndicatorList(null);
+      l2.add(new MockIndicator<String>("B", false));
+      l2.restoreState(file);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#restoreState(File)}. Numbers of the indicators do not
+    * match.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testRestoreStateInvalidCount() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".state");
+      file.deleteOnExit();
+      IndicatorList l1 = new IndicatorList(null);
+      l1.add(new MockIndicator<String>("A", false));
+      l1.saveState(file);
+      
+      IndicatorList l2 = new IndicatorList(null);
+      l2.add(new MockIndicator<String>("A", false));
+      l2.add(new MockIndicator<String>("B", false));
+      l2.restoreState(file);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#restoreState(File)}. The file is not a state file.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testRestoreStateInvalidFile() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".state");
+      file.deleteOnExit();
+      FileOutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+      }
+      finally
+      {
+         out.close();
+      }
+      
+      IndicatorList l = new IndicatorList(null);
+      l.add(new MockIndicator<String>("A", false));
+      l.restoreState(file);
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#restoreState(File)}. Title of the last indicator does
+    * not match, none of the indicators may be changed.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testRestoreStateInvalidTitleUnchanged() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".state");
+      file.deleteOnExit();
+      IndicatorList l1 = new IndicatorList(null);
+      MockIndicator<String> ia = new MockIndicator<String>("A", false);
+      ia.setValue("saved");
+      l1.add(ia);
+      l1.add(new MockIndicator<String>("B", false));
+      l1.saveState(file);
+      
+      IndicatorList l2 = new IndicatorList(null);
+      MockIndicator<String> ra = new MockIndicator<String>("A", false);
+      ra.setValue("current");
+      l2.add(ra);
+      l2.add(new MockIndicator<String>("C", false));
+      try
+      {
+         l2.restoreState(file);
+         fail("IOException expected.");
+      }
+      catch (IOException exception)
+      {
+      }
+      assertEquals("current", ra.getValue());
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#restoreState(File)}. The last indicator rejects its
+    * state, the indicators restored before it must be rolled back.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testRestoreStateRollback() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".state");
+      file.deleteOnExit();
+      IndicatorList l1 = new IndicatorList(null);
+      MockIndicator<String> ia = new MockIndicator<String>("A", true);
+      ia.setValue("x");
+      ia.updateEndOfPeriod(new DateTime());
+      ia.setValue("saved");
+      l1.add(ia);
+      l1.add(new MockIndicator<String>("B", false));
+      l1.saveState(file);
+      
+      IndicatorList l2 = new IndicatorList(null);
+      MockIndicator<String> ra = new MockIndicator<String>("A", true);
+      ra.setValue("current");
+      MockIndicator<String> rb = new MockIndicator<String>("B", true);
+      rb.setValue("b");
+      l2.add(ra);
+      l2.add(rb);
+      try
+      {
+         l2.restoreState(file);
+         fail("IOException expected.");
+      }
+      catch (IOException exception)
+      {
+      }
+      assertEquals("current", ra.getValue());
+      assertEquals(0, ra.getPeriodicData().size());
+      assertEquals("b", rb.getValue());
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#saveState(File)}. An existing file is replaced and no
+    * temporary files are left behind.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testSaveStateReplace() throws IOException
+   {
+      File directory = File.createTempFile("crossbow", ".dir");
+      assertTrue(directory.delete());
+      assertTrue(directory.mkdir());
+      File file = new File(directory, "indicators.state");
+      try
+      {
+         IndicatorList l1 = new IndicatorList(null);
+         MockIndicator<String> ia = new MockIndicator<String>("A", false);
+         l1.add(ia);
+         ia.setValue("first");
+         l1.saveState(file);
+         ia.setValue("second");
+         l1.saveState(file);
+         assertEquals(1, directory.listFiles().length);
+         
+         IndicatorList l2 = new IndicatorList(null);
+         MockIndicator<String> ra = new MockIndicator<String>("A", false);
+         l2.add(ra);
+         l2.restoreState(file);
+         assertEquals("second", ra.getValue());
+      }
+      finally
+      {
+         for (File child : directory.listFiles())
+         {
+            child.delete();
+         }
+         directory.delete();
+      }
+   }
+   
+   /**
+    * Test method for {@link IndicatorList#saveState(File)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSaveStateNull() throws IOException
+   {
+      new IndicatorList(null).saveState(null);
+   }
+   
    private class MockPeriodSplitter implements PeriodSplitter
    {
       public PeriodSplitterResult value;
+      public int checkCount;
       
       @Override
       public PeriodSplitterResult checkEndOfPeriod(Trade trade)
       {
+         checkCount++;
          return value;
       }
       
       @Override
       public PeriodSplitterResult checkEndOfPeriod(Quote quote)
       {
+         checkCount++;
          return value;
       }
 
@@ -419,4 +1160,41 @@ public class IndicatorListTest
          lastTrade = trade;
       }
    }
+   
+   private class MockIndicator3<Type> extends Indicator<Type>
+   {
+      public volatile Trade lastTrade;
+      public volatile Quote lastQuote;
+      public volatile boolean dependenciesUpdated = true;
+      
+      /**
+       * Constructor.
+       * 
+       * @param title
+       */
+      public MockIndicator3(String title)
+      {
+         super(title, false);
+      }
+      
+      @Override
+      public void quoteReceived(Quote quote)
+      {
+         for (Indicator<?> dependency : getDependencies())
+         {
+            dependenciesUpdated &= ((MockIndicator3<?>)dependency).lastQuote == quote;
+         }
+         lastQuote = quote;
+      }
+      
+      @Override
+      public void tradeReceived(Trade trade)
+      {
+         for (Indicator<?> dependency : getDependencies())
+         {
+            dependenciesUpdated &= ((MockIndicator3<?>)dependency).lastTrade == trade;
+         }
+         lastTrade = trade;
+      }
+   }
 }
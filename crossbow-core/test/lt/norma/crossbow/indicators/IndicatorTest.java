@@ -19,6 +19,11 @@ package lt.norma.crossbow.indicators;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 
 import lt.norma.crossbow.account.Currency;
@@ -28,6 +33,7 @@ import lt.norma.crossbow.contracts.StockContract;
 import lt.norma.crossbow.data.Quote;
 import lt.norma.crossbow.data.Trade;
 import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 import lt.norma.crossbow.exceptions.ValueNotSetRuntimeException;
 
 import org.joda.time.DateTime;
@@ -191,6 +197,53 @@ public class IndicatorTest
       assertTrue(i1.getPeriodicDataFlags().get(3));
    }
    
+   /**
+    * Test method for {@link Indicator#getPeriodicValue(int)} and
+    * {@link Indicator#isPeriodicValueSet(int)}.
+    */
+   @Test
+   public void testGetPeriodicValue()
+   {
+      MockIndicator<Integer> i1 = new MockIndicator<Integer>("AA", true, 3);
+      assertEquals(3, i1.getRetention());
+      for (int i = 0; i < 5; i++)
+      {
+         i1.setValue(i);
+         i1.updateEndOfPeriod(new DateTime());
+      }
+      i1.unsetValue();
+      i1.updateEndOfPeriod(new DateTime());
+      
+      assertEquals(6, i1.getPeriodicColumn().getPeriodCount());
+      assertEquals(3, i1.getPeriodicData().size());
+      assertFalse(i1.isPeriodicValueSet(0));
+      assertEquals(4, (int)i1.getPeriodicValue(1));
+      assertEquals(3, (int)i1.getPeriodicValue(2));
+      assertEquals(3, (int)i1.getPeriodicData().get(0));
+      assertNull(i1.getPeriodicData().get(2));
+      assertFalse(i1.getPeriodicDataFlags().get(2));
+      try
+      {
+         i1.getPeriodicValue(0);
+         fail("ValueNotSetRuntimeException expected.");
+      }
+      catch (ValueNotSetRuntimeException e)
+      {
+      }
+   }
+   
+   /**
+    * Test method for {@link Indicator#getPeriodicValue(int)}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetPeriodicValueNotCollected()
+   {
+      MockIndicator<Integer> i1 = new MockIndicator<Integer>("AA", false);
+      i1.setValue(1);
+      i1.updateEndOfPeriod(new DateTime());
+      i1.getPeriodicValue(0);
+   }
+   
    /**
     * Test method for {@link Indicator#getPeriodicData()}, {@link Indicator#getPeriodicDataFlags()}
     * and {@link Indicator#hasPeriodicData()}.
@@ -265,6 +318,72 @@ public class IndicatorTest
       assertEquals("null", i1.getDescription());
    }
    
+   /**
+    * Test method for {@link Indicator#writeState(java.io.DataOutput)} and
+    * {@link Indicator#readState(java.io.DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      MockIndicator<Integer> i1 = new MockIndicator<Integer>("AA", true, 2);
+      i1.setValue(18);
+      i1.updateEndOfPeriod(new DateTime());
+      i1.unsetValue();
+      i1.updateEndOfPeriod(new DateTime());
+      i1.setValue(20);
+      i1.updateEndOfPeriod(new DateTime());
+      
+      MockIndicator<Integer> i2 = new MockIndicator<Integer>("AA", true, 2);
+      copyState(i1, i2);
+      assertTrue(i2.isSet());
+      assertEquals(20, (int)i2.getValue());
+      assertEquals(2, i2.getPeriodicData().size());
+      assertNull(i2.getPeriodicData().get(0));
+      assertFalse(i2.getPeriodicDataFlags().get(0));
+      assertEquals(20, (int)i2.getPeriodicData().get(1));
+      assertEquals(3, i2.getPeriodicColumn().getPeriodCount());
+      
+      // Unset value.
+      i1.unsetValue();
+      copyState(i1, i2);
+      assertFalse(i2.isSet());
+   }
+   
+   /**
+    * Test method for {@link Indicator#readState(java.io.DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testReadStateNoPeriodicData() throws IOException
+   {
+      MockIndicator<Integer> i1 = new MockIndicator<Integer>("AA", true);
+      i1.setValue(18);
+      copyState(i1, new MockIndicator<Integer>("AA", false));
+   }
+   
+   /**
+    * Test method for {@link Indicator#writeState(java.io.DataOutput)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testWriteStateUnsupportedType() throws IOException
+   {
+      MockIndicator<Object> i1 = new MockIndicator<Object>("AA", false);
+      i1.setValue(new Object());
+      i1.writeState(new DataOutputStream(new ByteArrayOutputStream()));
+   }
+   
+   private static void copyState(Indicator<?> from, Indicator<?> to) throws IOException
+   {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      from.writeState(new DataOutputStream(buffer));
+      to.readState(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+   }
+   
    private class MockIndicator<Type> extends Indicator<Type>
    {
       public Trade lastTrade;
@@ -282,6 +401,18 @@ public class IndicatorTest
          super(title, collectPeriodicData);
       }
       
+      /**
+       * Constructor.
+       * 
+       * @param title
+       * @param collectPeriodicData
+       * @param retention
+       */
+      public MockIndicator(String title, boolean collectPeriodicData, int retention)
+      {
+         super(title, collectPeriodicData, retention);
+      }
+      
       @Override
       public void quoteReceived(Quote qoute)
       {
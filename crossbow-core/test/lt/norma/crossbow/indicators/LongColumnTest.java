@@ -0,0 +1,80 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class LongColumnTest
+{
+   /**
+    * Test method for {@link LongColumn#add(long, boolean)}.
+    */
+   @Test
+   public void testAdd()
+   {
+      LongColumn c = new LongColumn(20);
+      for (long i = 0; i < 50; i++)
+      {
+         c.add(Long.MAX_VALUE - i, i != 40);
+      }
+      assertEquals(50, c.getPeriodCount());
+      assertEquals(20, c.size());
+      assertEquals(Long.MAX_VALUE - 49, c.getAgo(0));
+      assertEquals(Long.MAX_VALUE - 30, c.get(0));
+      assertFalse(c.isSetAgo(9));
+      assertEquals(0, c.getAgo(9));
+   }
+   
+   /**
+    * Test method for {@link PeriodicColumn#writeState(java.io.DataOutput)} and
+    * {@link PeriodicColumn#readState(java.io.DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      LongColumn c = new LongColumn(20);
+      for (long i = 0; i < 50; i++)
+      {
+         c.add(Long.MAX_VALUE - i, i != 40);
+      }
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      c.writeState(new DataOutputStream(buffer));
+      LongColumn restored = new LongColumn(20);
+      restored.readState(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+      
+      assertEquals(50, restored.getPeriodCount());
+      assertEquals(20, restored.size());
+      assertEquals(Long.MAX_VALUE - 49, restored.getAgo(0));
+      assertEquals(Long.MAX_VALUE - 30, restored.get(0));
+      assertFalse(restored.isSetAgo(9));
+      assertEquals(0, restored.getAgo(9));
+   }
+}
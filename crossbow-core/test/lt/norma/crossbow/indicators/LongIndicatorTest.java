@@ -0,0 +1,275 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.exceptions.ValueNotSetRuntimeException;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class LongIndicatorTest
+{
+   /**
+    * Test method for {@link LongIndicator#getLong()} and
+    * {@link LongIndicator#setLong(long)}.
+    */
+   @Test
+   public void testSetLong()
+   {
+      MockIndicator i = new MockIndicator(false);
+      assertFalse(i.isSet());
+      
+      i.setLong(15);
+      assertTrue(i.isSet());
+      assertEquals(15, i.getLong());
+      assertEquals(Long.valueOf(15L), i.getValue());
+      
+      i.setValue(25L);
+      assertEquals(25, i.getLong());
+      
+      i.unsetValue();
+      assertFalse(i.isSet());
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#getLong()}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetLongNotSet()
+   {
+      new MockIndicator(false).getLong();
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#getValue()}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetValueNotSet()
+   {
+      new MockIndicator(false).getValue();
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#setValue(Long)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSetValueNull()
+   {
+      new MockIndicator(false).setValue(null);
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#addPeriodicValue()}.
+    */
+   @Test
+   public void testPeriodicData()
+   {
+      MockIndicator i = new MockIndicator(true);
+      assertEquals(0, i.getPeriodicColumn().getPeriodCount());
+      
+      // More periods than the initial capacity
+      for (int n = 0; n < 100; n++)
+      {
+         if (n % 3 == 0)
+         {
+            i.unsetValue();
+         }
+         else
+         {
+            i.setLong(n);
+         }
+         i.updateEndOfPeriod(new DateTime(0));
+      }
+      assertEquals(100, i.getPeriodicColumn().getPeriodCount());
+      assertEquals(100, i.periodCount);
+      assertFalse(i.isPeriodicValueSet(0));
+      assertTrue(i.isPeriodicValueSet(1));
+      assertFalse(i.isPeriodicValueSet(99));
+      assertTrue(i.isPeriodicValueSet(98));
+      assertEquals(1, i.getPeriodicLong(98));
+      assertEquals(98, i.getPeriodicLong(1));
+      assertEquals(Long.valueOf(98), i.getPeriodicValue(1));
+      
+      List<Long> data = i.getPeriodicData();
+      List<Boolean> flags = i.getPeriodicDataFlags();
+      assertEquals(100, data.size());
+      assertEquals(100, flags.size());
+      assertNull(data.get(99));
+      assertFalse(flags.get(99));
+      assertEquals(Long.valueOf(97), data.get(97));
+      assertTrue(flags.get(97));
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#getPeriodicLong(int)}. Limited retention.
+    */
+   @Test
+   public void testPeriodicDataRetention()
+   {
+      MockIndicator i = new MockIndicator(true, 10);
+      assertEquals(10, i.getRetention());
+      for (int n = 0; n < 25; n++)
+      {
+         i.setLong(n);
+         i.updateEndOfPeriod(new DateTime(0));
+      }
+      assertEquals(25, i.getPeriodicColumn().getPeriodCount());
+      assertEquals(10, i.getPeriodicColumn().size());
+      assertEquals(24, i.getPeriodicLong(0));
+      assertEquals(15, i.getPeriodicLong(9));
+      assertEquals(10, i.getPeriodicData().size());
+      assertEquals(Long.valueOf(15), i.getPeriodicData().get(0));
+      assertEquals(Long.valueOf(24), i.getPeriodicData().get(9));
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#getPeriodicLong(int)}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetPeriodicLongNotSet()
+   {
+      MockIndicator i = new MockIndicator(true);
+      i.updateEndOfPeriod(new DateTime(0));
+      i.getPeriodicLong(0);
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#getPeriodicLong(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetPeriodicLongOutOfRange()
+   {
+      MockIndicator i = new MockIndicator(true);
+      i.setLong(1);
+      i.updateEndOfPeriod(new DateTime(0));
+      i.getPeriodicLong(1);
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#getPeriodicData()} and
+    * {@link LongIndicator#getPeriodicDataFlags()}.
+    */
+   @Test
+   public void testGetPeriodicDataNotCollected()
+   {
+      MockIndicator i = new MockIndicator(false);
+      assertNull(i.getPeriodicData());
+      assertNull(i.getPeriodicDataFlags());
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#LongIndicator(String, LongColumn)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testLongIndicatorColumn() throws IOException
+   {
+      File file = File.createTempFile("crossbow", ".column");
+      file.deleteOnExit();
+      MappedLongColumn column = new MappedLongColumn(file, 16);
+      MockIndicator i = new MockIndicator(column);
+      assertTrue(i.hasPeriodicData());
+      assertSame(column, i.getPeriodicColumn());
+      assertEquals(PeriodicColumn.UNLIMITED_RETENTION, i.getRetention());
+      
+      for (int n = 0; n < 100; n++)
+      {
+         i.setLong(n * 3);
+         i.updateEndOfPeriod(new DateTime(0));
+      }
+      assertEquals(100, column.getPeriodCount());
+      assertEquals(297, i.getPeriodicLong(0), 0);
+      assertEquals(0, i.getPeriodicLong(99), 0);
+      assertEquals(100, i.getPeriodicData().size());
+      assertEquals(Long.valueOf(30L), i.getPeriodicData().get(10));
+      column.close();
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#LongIndicator(String, LongColumn)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testLongIndicatorColumnNull()
+   {
+      new MockIndicator(null);
+   }
+   
+   /**
+    * Test method for {@link LongIndicator#LongIndicator(String, LongColumn)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testLongIndicatorColumnNotEmpty()
+   {
+      LongColumn column = new LongColumn(PeriodicColumn.UNLIMITED_RETENTION);
+      column.add(1, true);
+      new MockIndicator(column);
+   }
+   
+   private class MockIndicator extends LongIndicator
+   {
+      public int periodCount;
+      
+      /**
+       * Constructor.
+       * 
+       * @param collectPeriodicData
+       */
+      public MockIndicator(boolean collectPeriodicData)
+      {
+         super("Mock", collectPeriodicData);
+      }
+      
+      /**
+       * Constructor.
+       * 
+       * @param collectPeriodicData
+       * @param retention
+       */
+      public MockIndicator(boolean collectPeriodicData, int retention)
+      {
+         super("Mock", collectPeriodicData, retention);
+      }
+      
+      /**
+       * Constructor.
+       * 
+       * @param periodicColumn
+       */
+      public MockIndicator(LongColumn periodicColumn)
+      {
+         super("Mock", periodicColumn);
+      }
+      
+      @Override
+      protected void endOfPeriod(DateTime time)
+      {
+         periodCount++;
+      }
+   }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class MappedLongColumnTest
+{
+   private File file;
+   
+   /**
+    * Constructor.
+    * 
+    * @throws IOException
+    */
+   public MappedLongColumnTest() throws IOException
+   {
+      file = File.createTempFile("crossbow", ".column");
+      file.deleteOnExit();
+   }
+   
+   /**
+    * Deletes the column file.
+    */
+   @After
+   public void tearDown()
+   {
+      file.delete();
+   }
+   
+   /**
+    * Test method for {@link MappedLongColumn#MappedLongColumn(File, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testMappedLongColumnNullFile()
+   {
+      new MappedLongColumn(null, 16);
+   }
+   
+   /**
+    * Test method for {@link MappedLongColumn#MappedLongColumn(File, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testMappedLongColumnInvalidSegmentSize()
+   {
+      new MappedLongColumn(file, 0);
+   }
+   
+   /**
+    * Test method for {@link MappedLongColumn#MappedLongColumn(File, int)}. A segment must fit in
+    * <code>Integer.MAX_VALUE</code> bytes.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testMappedLongColumnSegmentSizeOverflow()
+   {
+      new MappedLongColumn(file, Integer.MAX_VALUE / 8 + 1);
+   }
+   
+   /**
+    * Test method for {@link MappedLongColumn#add(long, boolean)}. Values span several
+    * segments.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testAdd() throws IOException
+   {
+      MappedLongColumn c = new MappedLongColumn(file, 16);
+      assertEquals(file, c.getFile());
+      assertEquals(PeriodicColumn.UNLIMITED_RETENTION, c.getRetention());
+      assertEquals(0, c.size());
+      
+      for (int i = 0; i < 1000; i++)
+      {
+         c.add(i * 3, i % 3 != 0);
+      }
+      assertEquals(1000, c.size());
+      assertEquals(1000, c.getPeriodCount());
+      assertEquals(0, c.getAgo(0), 0);
+      assertEquals(998 * 3, c.getAgo(1), 0);
+      assertEquals(0, c.getAgo(999), 0);
+      assertFalse(c.isSet(0));
+      assertTrue(c.isSet(1));
+      
+      // Reads alternate between old segments and the segment being written
+      assertEquals(3, c.get(1), 0);
+      assertEquals(998 * 3, c.get(998), 0);
+      assertEquals(17 * 3, c.get(17), 0);
+      assertEquals(500 * 3, c.get(500), 0);
+      assertEquals(0, c.get(501), 0);
+      for (int i = 0; i < 1000; i++)
+      {
+         assertEquals(i % 3 != 0 ? i * 3 : 0, c.get(i), 0);
+      }
+      assertEquals(1000 * 8, file.length(), 16 * 8);
+      c.close();
+   }
+   
+   /**
+    * Test method for {@link MappedLongColumn#MappedLongColumn(File, int)}. An existing file is
+    * truncated.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testMappedLongColumnTruncate() throws IOException
+   {
+      MappedLongColumn c = new MappedLongColumn(file, 16);
+      for (int i = 0; i < 100; i++)
+      {
+         c.add(i, true);
+      }
+      c.close();
+      
+      c = new MappedLongColumn(file, 16);
+      assertEquals(0, c.size());
+      c.add(5, true);
+      assertEquals(5, c.get(0), 0);
+      c.close();
+   }
+}
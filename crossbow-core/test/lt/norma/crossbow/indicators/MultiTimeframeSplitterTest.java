@@ -0,0 +1,165 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class MultiTimeframeSplitterTest
+{
+   private static final DateTimeZone NEW_YORK = DateTimeZone.forID("America/New_York");
+   
+   /**
+    * Test method for {@link MultiTimeframeSplitter#checkEndOfPeriod(Trade)} and
+    * {@link MultiTimeframeSplitter#createTimeframe(int)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriod() throws ContractException
+   {
+      MultiTimeframeSplitter s = new MultiTimeframeSplitter(NEW_YORK, 1000, 60000);
+      assertEquals(2, s.getTimeframeCount());
+      assertEquals(1000, s.getPeriodLength(0));
+      assertEquals(60000, s.getPeriodLength(1));
+      PeriodSplitter seconds = s.createTimeframe(0);
+      PeriodSplitter minutes = s.createTimeframe(1);
+      assertNotSame(minutes, s.createTimeframe(1));
+      
+      Trade trade1 = trade(new DateTime(2010, 1, 1, 14, 0, 1, 0, NEW_YORK));
+      Trade trade2 = trade(new DateTime(2010, 1, 1, 14, 0, 1, 500, NEW_YORK));
+      Trade trade3 = trade(new DateTime(2010, 1, 1, 14, 0, 2, 0, NEW_YORK));
+      Trade trade4 = trade(new DateTime(2010, 1, 1, 14, 1, 0, 0, NEW_YORK));
+      
+      PeriodSplitterResult r = s.checkEndOfPeriod(trade1);
+      assertEquals(PeriodSplitterAction.START_BEFORE, r.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 0, 1, 0, NEW_YORK), r.getTime());
+      assertSame(r, s.getLastResult());
+      assertNull(seconds.getLastResult());
+      // Splitters of the same timeframe share results
+      assertSame(r, seconds.checkEndOfPeriod(trade1));
+      r = minutes.checkEndOfPeriod(trade1);
+      assertEquals(PeriodSplitterAction.START_BEFORE, r.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 0, 0, 0, NEW_YORK), r.getTime());
+      
+      // Same period
+      r = s.checkEndOfPeriod(trade2);
+      assertEquals(PeriodSplitterAction.NO_ACTION, r.getAction());
+      assertSame(r, seconds.checkEndOfPeriod(trade2));
+      assertEquals(PeriodSplitterAction.NO_ACTION, minutes.checkEndOfPeriod(trade2).getAction());
+      
+      // Timeframe checked first
+      r = minutes.checkEndOfPeriod(trade3);
+      assertEquals(PeriodSplitterAction.NO_ACTION, r.getAction());
+      r = s.checkEndOfPeriod(trade3);
+      assertEquals(PeriodSplitterAction.RESTART_BEFORE, r.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 0, 2, 0, NEW_YORK), r.getTime());
+      // Another trade of the same time continues the period
+      assertEquals(PeriodSplitterAction.NO_ACTION, s.checkEndOfPeriod(trade3).getAction());
+      
+      // Splitter skipping events detects the change of period on the next check
+      r = s.checkEndOfPeriod(trade4);
+      assertEquals(PeriodSplitterAction.RESTART_BEFORE, r.getAction());
+      r = minutes.checkEndOfPeriod(trade4);
+      assertEquals(PeriodSplitterAction.RESTART_BEFORE, r.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 1, 0, 0, NEW_YORK), r.getTime());
+      r = seconds.checkEndOfPeriod(trade4);
+      assertEquals(PeriodSplitterAction.RESTART_BEFORE, r.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 1, 0, 0, NEW_YORK), r.getTime());
+   }
+   
+   /**
+    * Test method for {@link MultiTimeframeSplitter#checkEndOfPeriod(Quote)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriodQuote() throws ContractException
+   {
+      MultiTimeframeSplitter s = new MultiTimeframeSplitter(DateTimeZone.UTC, 1000, 5000);
+      TimePeriodSplitter t1 = new TimePeriodSplitter(1000, DateTimeZone.UTC);
+      TimePeriodSplitter t2 = new TimePeriodSplitter(5000, DateTimeZone.UTC);
+      PeriodSplitter fiveSeconds = s.createTimeframe(1);
+      
+      // Results match those of time period splitters
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      for (int i = 0; i < 50; i++)
+      {
+         DateTime t = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC).plus(i * 377);
+         Quote q = new Quote(c, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800, t);
+         PeriodSplitterResult expected = t1.checkEndOfPeriod(q);
+         PeriodSplitterResult r = s.checkEndOfPeriod(q);
+         assertEquals(expected.getAction(), r.getAction());
+         assertEquals(expected.getTime(), r.getTime());
+         expected = t2.checkEndOfPeriod(q);
+         r = fiveSeconds.checkEndOfPeriod(q);
+         assertEquals(expected.getAction(), r.getAction());
+         assertEquals(expected.getTime(), r.getTime());
+      }
+   }
+   
+   /**
+    * Test method for {@link MultiTimeframeSplitter#MultiTimeframeSplitter(DateTimeZone, long[])}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testMultiTimeframeSplitterNoTimeframes()
+   {
+      new MultiTimeframeSplitter(DateTimeZone.UTC);
+   }
+   
+   /**
+    * Test method for {@link MultiTimeframeSplitter#MultiTimeframeSplitter(DateTimeZone, long[])}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testMultiTimeframeSplitterInvalidLength()
+   {
+      new MultiTimeframeSplitter(DateTimeZone.UTC, 1000, 0);
+   }
+   
+   /**
+    * Test method for {@link MultiTimeframeSplitter#createTimeframe(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testCreateTimeframeInvalidIndex()
+   {
+      new MultiTimeframeSplitter(DateTimeZone.UTC, 1000).createTimeframe(1);
+   }
+   
+   private Trade trade(DateTime time) throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      return new Trade(c, new BigDecimal("8.05"), 888, time);
+   }
+}
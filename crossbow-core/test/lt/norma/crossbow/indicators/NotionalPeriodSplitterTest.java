@@ -0,0 +1,75 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class NotionalPeriodSplitterTest
+{
+   /**
+    * Test method for {@link NotionalPeriodSplitter#checkEndOfPeriod(Trade)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriod() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC);
+      NotionalPeriodSplitter s = new NotionalPeriodSplitter(1000);
+      assertEquals(1000, s.getNotional(), 0);
+      
+      String[] prices = { "10.00", "10.00", "2.50", "12.50", "1.25" };
+      int[] sizes = { 50, 50, 100, 60, 400 };
+      PeriodSplitterAction[] expected =
+            { PeriodSplitterAction.START_BEFORE, PeriodSplitterAction.RESTART_AFTER,
+             PeriodSplitterAction.NO_ACTION, PeriodSplitterAction.RESTART_AFTER,
+             PeriodSplitterAction.NO_ACTION };
+      for (int i = 0; i < sizes.length; i++)
+      {
+         Trade trade = new Trade(c, new BigDecimal(prices[i]), sizes[i], t.plusSeconds(i));
+         assertEquals(expected[i], s.checkEndOfPeriod(trade).getAction());
+      }
+   }
+   
+   /**
+    * Test method for {@link NotionalPeriodSplitter#NotionalPeriodSplitter(double)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testNotionalPeriodSplitterInvalidNotional()
+   {
+      new NotionalPeriodSplitter(Double.NaN);
+   }
+}
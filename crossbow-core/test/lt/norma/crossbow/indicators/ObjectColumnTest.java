@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class ObjectColumnTest
+{
+   /**
+    * Test method for {@link ObjectColumn#add(Object, boolean)}.
+    */
+   @Test
+   public void testAdd()
+   {
+      ObjectColumn<String> c = new ObjectColumn<String>(2);
+      c.add("A", true);
+      c.add("B", false);
+      assertEquals("A", c.get(0));
+      assertNull(c.get(1));
+      c.add("C", true);
+      assertEquals(3, c.getPeriodCount());
+      assertEquals(2, c.size());
+      assertNull(c.get(0));
+      assertEquals("C", c.getAgo(0));
+      assertTrue(c.isSet(1));
+   }
+   
+   /**
+    * Test method for {@link PeriodicColumn#writeState(java.io.DataOutput)} and
+    * {@link PeriodicColumn#readState(java.io.DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      ObjectColumn<BigDecimal> c = new ObjectColumn<BigDecimal>(2);
+      c.add(new BigDecimal("1.25"), true);
+      c.add(null, false);
+      c.add(new BigDecimal("-0.001"), true);
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      c.writeState(new DataOutputStream(buffer));
+      ObjectColumn<BigDecimal> restored = new ObjectColumn<BigDecimal>(2);
+      restored.readState(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+      
+      assertEquals(3, restored.getPeriodCount());
+      assertEquals(2, restored.size());
+      assertFalse(restored.isSet(0));
+      assertNull(restored.get(0));
+      assertTrue(restored.isSet(1));
+      assertEquals(new BigDecimal("-0.001"), restored.get(1));
+   }
+   
+   /**
+    * Test method for {@link PeriodicColumn#writeState(java.io.DataOutput)}.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testWriteStateUnsupportedType() throws IOException
+   {
+      ObjectColumn<Object> c = new ObjectColumn<Object>(2);
+      c.add(new Object(), true);
+      c.writeState(new DataOutputStream(new ByteArrayOutputStream()));
+   }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class PeriodEngineTest
+{
+   /**
+    * Test method for {@link PeriodEngine#evaluate(Trade)} and {@link PeriodEngine#evaluate(Quote)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testEvaluate() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC);
+      Trade trade = new Trade(c, new BigDecimal("8.05"), 888, t);
+      Quote quote = new Quote(c, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800, t);
+      
+      TimePeriodSplitter s = new TimePeriodSplitter(1000, DateTimeZone.UTC);
+      PeriodEngine e = new PeriodEngine(s);
+      assertSame(s, e.getPeriodSplitter());
+      assertNull(e.getLastResult());
+      
+      PeriodSplitterResult r = e.evaluate(trade);
+      assertEquals(PeriodSplitterAction.START_BEFORE, r.getAction());
+      assertSame(r, e.getLastResult());
+      r = e.evaluate(quote);
+      assertEquals(PeriodSplitterAction.NO_ACTION, r.getAction());
+      assertSame(r, e.getLastResult());
+   }
+   
+   /**
+    * Test method for {@link PeriodEngine#evaluate(Trade)} and {@link PeriodEngine#evaluate(Quote)}.
+    * No period splitter.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testEvaluateNoSplitter() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC);
+      PeriodEngine e = new PeriodEngine(null);
+      assertNull(e.getPeriodSplitter());
+      assertNull(e.evaluate(new Trade(c, new BigDecimal("8.05"), 888, t)));
+      assertNull(e.evaluate(new Quote(c, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800,
+            t)));
+      assertNull(e.getLastResult());
+   }
+   
+   /**
+    * Test method for {@link PeriodEngine#evaluateTime(long)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testEvaluateTime() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      long time = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC).getMillis();
+      
+      // Splitters other than the timer do not end periods by time
+      TimePeriodSplitter s = new TimePeriodSplitter(1000, DateTimeZone.UTC);
+      PeriodEngine e = new PeriodEngine(s);
+      e.evaluate(new Trade(c, 805, 888, time));
+      PeriodSplitterResult last = e.getLastResult();
+      assertNull(e.evaluateTime(time + 1000));
+      assertSame(last, e.getLastResult());
+      assertNull(new PeriodEngine(null).evaluateTime(time));
+      
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+      try
+      {
+         e = new PeriodEngine(new PeriodTimer(s, executor));
+         e.evaluate(new Trade(c, 805, 888, time + 1000));
+         PeriodSplitterResult r = e.evaluateTime(time + 2000);
+         assertEquals(PeriodSplitterAction.END_BEFORE, r.getAction());
+         assertSame(r, e.getLastResult());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+   
+   /**
+    * Test method for {@link PeriodEngine#fireBefore(PeriodSplitterResult, PeriodListener)} and
+    * {@link PeriodEngine#fireAfter(PeriodSplitterResult, PeriodListener)}.
+    */
+   @Test
+   public void testFire()
+   {
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC);
+      MockPeriodListener l = new MockPeriodListener();
+      
+      PeriodEngine.fireBefore(null, l);
+      PeriodEngine.fireAfter(null, l);
+      assertEquals("", l.events);
+      
+      PeriodEngine.fireBefore(new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, t), l);
+      PeriodEngine.fireAfter(new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, t), l);
+      assertEquals("", l.events);
+      
+      PeriodEngine.fireBefore(new PeriodSplitterResult(PeriodSplitterAction.START_BEFORE, t), l);
+      PeriodEngine.fireAfter(new PeriodSplitterResult(PeriodSplitterAction.START_BEFORE, t), l);
+      assertEquals("S", l.events);
+      
+      l.events = "";
+      PeriodEngine.fireBefore(new PeriodSplitterResult(PeriodSplitterAction.RESTART_BEFORE, t), l);
+      assertEquals("ES", l.events);
+      
+      l.events = "";
+      PeriodEngine.fireBefore(new PeriodSplitterResult(PeriodSplitterAction.END_AFTER, t), l);
+      PeriodEngine.fireAfter(new PeriodSplitterResult(PeriodSplitterAction.END_AFTER, t), l);
+      assertEquals("E", l.events);
+      
+      l.events = "";
+      PeriodEngine.fireAfter(new PeriodSplitterResult(PeriodSplitterAction.RESTART_AFTER, t), l);
+      assertEquals("ES", l.events);
+      assertEquals(t, l.time);
+   }
+   
+   private class MockPeriodListener implements PeriodListener
+   {
+      public String events = "";
+      public DateTime time;
+      
+      @Override
+      public void periodStarted(DateTime time)
+      {
+         events += "S";
+         this.time = time;
+      }
+      
+      @Override
+      public void periodEnded(DateTime time)
+      {
+         events += "E";
+         this.time = time;
+      }
+   }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class PeriodTimerTest
+{
+   /**
+    * Test method for {@link PeriodTimer#checkTime(long)} and
+    * {@link PeriodTimer#checkEndOfPeriod(Trade)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckTime() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTimeZone zone = DateTimeZone.UTC;
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+      try
+      {
+         TimePeriodSplitter splitter = new TimePeriodSplitter(60000, zone);
+         PeriodTimer timer = new PeriodTimer(splitter, executor);
+         assertSame(splitter, timer.getSplitter());
+         assertEquals(0, timer.getDelay());
+         assertFalse(timer.isStarted());
+         
+         // No period to end
+         assertEquals(PeriodSplitterAction.NO_ACTION, timer.checkTime(millis(14, 0, 0, 0))
+               .getAction());
+         
+         PeriodSplitterResult r = timer.checkEndOfPeriod(trade(c, 14, 0, 30));
+         assertEquals(PeriodSplitterAction.START_BEFORE, r.getAction());
+         assertSame(r, timer.getLastResult());
+         assertEquals(PeriodSplitterAction.NO_ACTION, timer.checkTime(millis(14, 0, 59, 999))
+               .getAction());
+         
+         // The timer ends the period
+         r = timer.checkTime(millis(14, 1, 0, 0));
+         assertEquals(PeriodSplitterAction.END_BEFORE, r.getAction());
+         assertEquals(millis(14, 1, 0, 0), r.getTime().getMillis());
+         assertSame(r, timer.getLastResult());
+         assertEquals(PeriodSplitterAction.NO_ACTION, timer.checkTime(millis(14, 1, 0, 0))
+               .getAction());
+         
+         // A delayed trade of the ended period
+         assertEquals(PeriodSplitterAction.NO_ACTION, timer.checkEndOfPeriod(trade(c, 14, 0, 59))
+               .getAction());
+         
+         // The next trade starts a period without ending the previous one again
+         r = timer.checkEndOfPeriod(trade(c, 14, 1, 10));
+         assertEquals(PeriodSplitterAction.START_BEFORE, r.getAction());
+         assertEquals(millis(14, 1, 0, 0), r.getTime().getMillis());
+         
+         // A trade ends the period before the timer
+         r = timer.checkEndOfPeriod(trade(c, 14, 2, 5));
+         assertEquals(PeriodSplitterAction.RESTART_BEFORE, r.getAction());
+         assertEquals(PeriodSplitterAction.NO_ACTION, timer.checkTime(millis(14, 2, 0, 0))
+               .getAction());
+         assertEquals(PeriodSplitterAction.END_BEFORE, timer.checkTime(millis(14, 3, 0, 0))
+               .getAction());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+   
+   /**
+    * Test method for {@link PeriodTimer#start(PeriodTimerListener)} and
+    * {@link PeriodTimer#stop()}.
+    * 
+    * @throws ContractException
+    * @throws InterruptedException
+    */
+   @Test
+   public void testStart() throws ContractException, InterruptedException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+      try
+      {
+         final PeriodTimer timer =
+               new PeriodTimer(new TimePeriodSplitter(50, DateTimeZone.UTC), executor);
+         final BlockingQueue<PeriodSplitterResult> results =
+               new LinkedBlockingQueue<PeriodSplitterResult>();
+         timer.checkEndOfPeriod(new Trade(c, 805, 1, System.currentTimeMillis()));
+         timer.start(new PeriodTimerListener()
+         {
+            @Override
+            public void periodTimerExpired(long time)
+            {
+               results.add(timer.checkTime(time));
+            }
+         });
+         assertTrue(timer.isStarted());
+         
+         PeriodSplitterResult r = results.poll(5, TimeUnit.SECONDS);
+         assertNotNull(r);
+         assertEquals(PeriodSplitterAction.END_BEFORE, r.getAction());
+         // The timer keeps running at every boundary
+         r = results.poll(5, TimeUnit.SECONDS);
+         assertNotNull(r);
+         assertEquals(PeriodSplitterAction.NO_ACTION, r.getAction());
+         
+         timer.stop();
+         assertFalse(timer.isStarted());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+   
+   /**
+    * Test method for {@link PeriodTimer#PeriodTimer(TimePeriodSplitter, ScheduledExecutorService)}
+    * .
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testPeriodTimerNullSplitter()
+   {
+      new PeriodTimer(null, Executors.newSingleThreadScheduledExecutor());
+   }
+   
+   /**
+    * Test method for {@link PeriodTimer#PeriodTimer(TimePeriodSplitter, ScheduledExecutorService)}
+    * .
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testPeriodTimerNullExecutor()
+   {
+      new PeriodTimer(new TimePeriodSplitter(1000, DateTimeZone.UTC), null);
+   }
+   
+   /**
+    * Test method for
+    * {@link PeriodTimer#PeriodTimer(TimePeriodSplitter, ScheduledExecutorService, long)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testPeriodTimerInvalidDelay()
+   {
+      new PeriodTimer(new TimePeriodSplitter(1000, DateTimeZone.UTC), Executors
+            .newSingleThreadScheduledExecutor(), -1);
+   }
+   
+   /**
+    * Test method for {@link PeriodTimer#start(PeriodTimerListener)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testStartNull()
+   {
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+      try
+      {
+         new PeriodTimer(new TimePeriodSplitter(1000, DateTimeZone.UTC), executor).start(null);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+   
+   private long millis(int hour, int minute, int second, int millisecond)
+   {
+      return new DateTime(2010, 1, 1, hour, minute, second, millisecond, DateTimeZone.UTC)
+            .getMillis();
+   }
+   
+   private Trade trade(Contract contract, int hour, int minute, int second)
+   {
+      return new Trade(contract, 805, 1, millis(hour, minute, second, 0));
+   }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class SessionPeriodSplitterTest
+{
+   private static final DateTimeZone NEW_YORK = DateTimeZone.forID("America/New_York");
+   
+   /**
+    * Test method for {@link SessionPeriodSplitter#checkEndOfPeriod(Trade)}. Whole sessions.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriod() throws ContractException
+   {
+      Exchange e = Exchange.createNasdaq();
+      SessionPeriodSplitter s = new SessionPeriodSplitter(e);
+      assertSame(e, s.getExchange());
+      assertEquals(SessionPeriodSplitter.WHOLE_SESSION, s.getPeriodLength());
+      
+      // Pre-market
+      check(s, e, new DateTime(2010, 1, 4, 9, 0, 0, 0, NEW_YORK), PeriodSplitterAction.NO_ACTION,
+            null);
+      check(s, e, new DateTime(2010, 1, 4, 9, 30, 0, 0, NEW_YORK),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 1, 4, 9, 30, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 1, 4, 12, 0, 0, 0, NEW_YORK), PeriodSplitterAction.NO_ACTION,
+            new DateTime(2010, 1, 4, 9, 30, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 1, 4, 15, 59, 59, 999, NEW_YORK),
+            PeriodSplitterAction.NO_ACTION, null);
+      // After hours
+      check(s, e, new DateTime(2010, 1, 4, 16, 0, 0, 0, NEW_YORK), PeriodSplitterAction.END_BEFORE,
+            new DateTime(2010, 1, 4, 16, 0, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 1, 4, 20, 0, 0, 0, NEW_YORK), PeriodSplitterAction.NO_ACTION,
+            null);
+      check(s, e, new DateTime(2010, 1, 5, 8, 0, 0, 0, NEW_YORK), PeriodSplitterAction.NO_ACTION,
+            null);
+      check(s, e, new DateTime(2010, 1, 5, 10, 0, 0, 0, NEW_YORK),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 1, 5, 9, 30, 0, 0, NEW_YORK));
+      // Next session without trades between sessions
+      check(s, e, new DateTime(2010, 1, 6, 11, 0, 0, 0, NEW_YORK),
+            PeriodSplitterAction.RESTART_BEFORE, new DateTime(2010, 1, 6, 9, 30, 0, 0, NEW_YORK));
+   }
+   
+   /**
+    * Test method for {@link SessionPeriodSplitter#checkEndOfPeriod(Quote)}. Periods of a fixed
+    * length.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriodIntraday() throws ContractException
+   {
+      Exchange e = Exchange.createNasdaq();
+      SessionPeriodSplitter s = new SessionPeriodSplitter(e, 60 * 60 * 1000);
+      
+      check(s, e, new DateTime(2010, 1, 4, 9, 45, 0, 0, NEW_YORK),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 1, 4, 9, 30, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 1, 4, 10, 29, 0, 0, NEW_YORK),
+            PeriodSplitterAction.NO_ACTION, null);
+      check(s, e, new DateTime(2010, 1, 4, 10, 30, 0, 0, NEW_YORK),
+            PeriodSplitterAction.RESTART_BEFORE, new DateTime(2010, 1, 4, 10, 30, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 1, 4, 15, 59, 0, 0, NEW_YORK),
+            PeriodSplitterAction.RESTART_BEFORE, new DateTime(2010, 1, 4, 15, 30, 0, 0, NEW_YORK));
+      // The last period is cut at the close
+      check(s, e, new DateTime(2010, 1, 4, 16, 0, 0, 0, NEW_YORK), PeriodSplitterAction.END_BEFORE,
+            new DateTime(2010, 1, 4, 16, 0, 0, 0, NEW_YORK));
+   }
+   
+   /**
+    * Test method for {@link SessionPeriodSplitter#checkEndOfPeriod(Trade)}. Sessions ending after
+    * midnight.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriodOvernight() throws ContractException
+   {
+      Exchange e =
+            new Exchange("Globex", DateTimeZone.UTC, new LocalTime(18, 0, 0),
+                  new LocalTime(17, 0, 0));
+      SessionPeriodSplitter s = new SessionPeriodSplitter(e);
+      
+      check(s, e, new DateTime(2010, 1, 4, 17, 30, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.NO_ACTION, null);
+      check(s, e, new DateTime(2010, 1, 4, 18, 0, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 1, 4, 18, 0, 0, 0,
+                  DateTimeZone.UTC));
+      check(s, e, new DateTime(2010, 1, 5, 3, 0, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.NO_ACTION, null);
+      check(s, e, new DateTime(2010, 1, 5, 16, 59, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.NO_ACTION, null);
+      check(s, e, new DateTime(2010, 1, 5, 17, 0, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.END_BEFORE, new DateTime(2010, 1, 5, 17, 0, 0, 0,
+                  DateTimeZone.UTC));
+      check(s, e, new DateTime(2010, 1, 5, 18, 0, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.START_BEFORE, null);
+      
+      // Session ending at midnight
+      e = new Exchange("X", DateTimeZone.UTC, new LocalTime(8, 0, 0), new LocalTime(0, 0, 0));
+      s = new SessionPeriodSplitter(e);
+      check(s, e, new DateTime(2010, 1, 4, 23, 59, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 1, 4, 8, 0, 0, 0,
+                  DateTimeZone.UTC));
+      check(s, e, new DateTime(2010, 1, 5, 0, 0, 0, 0, DateTimeZone.UTC),
+            PeriodSplitterAction.END_BEFORE, null);
+   }
+   
+   /**
+    * Test method for {@link SessionPeriodSplitter#checkEndOfPeriod(Trade)}. Session opening at a
+    * time skipped by the daylight saving transition.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriodSpringForward() throws ContractException
+   {
+      Exchange e = new Exchange("X", NEW_YORK, new LocalTime(2, 30, 0), new LocalTime(16, 0, 0));
+      SessionPeriodSplitter s = new SessionPeriodSplitter(e);
+      
+      check(s, e, new DateTime(2010, 3, 13, 12, 0, 0, 0, NEW_YORK),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 3, 13, 2, 30, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 3, 13, 16, 0, 0, 0, NEW_YORK),
+            PeriodSplitterAction.END_BEFORE, new DateTime(2010, 3, 13, 16, 0, 0, 0, NEW_YORK));
+      // 02:30 does not exist on 2010-03-14, the session opens after the gap
+      check(s, e, new DateTime(2010, 3, 14, 3, 0, 0, 0, NEW_YORK), PeriodSplitterAction.NO_ACTION,
+            null);
+      check(s, e, new DateTime(2010, 3, 14, 3, 30, 0, 0, NEW_YORK),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 3, 14, 3, 30, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 3, 14, 16, 0, 0, 0, NEW_YORK),
+            PeriodSplitterAction.END_BEFORE, new DateTime(2010, 3, 14, 16, 0, 0, 0, NEW_YORK));
+      check(s, e, new DateTime(2010, 3, 15, 2, 30, 0, 0, NEW_YORK),
+            PeriodSplitterAction.START_BEFORE, new DateTime(2010, 3, 15, 2, 30, 0, 0, NEW_YORK));
+   }
+   
+   /**
+    * Test method for {@link SessionPeriodSplitter#SessionPeriodSplitter(Exchange, long)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSessionPeriodSplitterNullExchange()
+   {
+      new SessionPeriodSplitter(null);
+   }
+   
+   /**
+    * Test method for {@link SessionPeriodSplitter#SessionPeriodSplitter(Exchange, long)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSessionPeriodSplitterInvalidLength()
+   {
+      new SessionPeriodSplitter(Exchange.createNasdaq(), -1);
+   }
+   
+   private void check(SessionPeriodSplitter splitter, Exchange exchange, DateTime time,
+         PeriodSplitterAction action, DateTime periodTime) throws ContractException
+   {
+      Contract c = new StockContract("B", exchange, Currency.createEur());
+      Trade trade = new Trade(c, new BigDecimal("8.05"), 100, time);
+      PeriodSplitterResult r = splitter.checkEndOfPeriod(trade);
+      assertEquals(action, r.getAction());
+      assertSame(r, splitter.getLastResult());
+      if (periodTime != null)
+      {
+         assertEquals(periodTime.getMillis(), r.getTime().getMillis());
+      }
+      // A quote of the same time continues the same period
+      Quote quote = new Quote(c, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800, time);
+      assertEquals(PeriodSplitterAction.NO_ACTION, splitter.checkEndOfPeriod(quote).getAction());
+   }
+}
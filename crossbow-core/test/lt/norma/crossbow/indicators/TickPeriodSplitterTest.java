@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TickPeriodSplitterTest
+{
+   /**
+    * Test method for {@link TickPeriodSplitter#checkEndOfPeriod(Trade)} and
+    * {@link TickPeriodSplitter#checkEndOfPeriod(Quote)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriod() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC);
+      Quote quote = new Quote(c, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800, t);
+      TickPeriodSplitter s = new TickPeriodSplitter(3);
+      assertEquals(3, s.getTradeCount());
+      assertNull(s.getLastResult());
+      
+      // Quotes do not start periods
+      PeriodSplitterResult r = s.checkEndOfPeriod(quote);
+      assertEquals(PeriodSplitterAction.NO_ACTION, r.getAction());
+      assertSame(r, s.getLastResult());
+      
+      PeriodSplitterAction[] expected =
+            { PeriodSplitterAction.START_BEFORE, PeriodSplitterAction.NO_ACTION,
+             PeriodSplitterAction.RESTART_AFTER, PeriodSplitterAction.NO_ACTION,
+             PeriodSplitterAction.NO_ACTION, PeriodSplitterAction.RESTART_AFTER,
+             PeriodSplitterAction.NO_ACTION };
+      for (int i = 0; i < expected.length; i++)
+      {
+         Trade trade = new Trade(c, new BigDecimal("8.05"), 100, t.plusSeconds(i));
+         r = s.checkEndOfPeriod(trade);
+         assertEquals(expected[i], r.getAction());
+         assertSame(r, s.getLastResult());
+      }
+      assertEquals(t.plusSeconds(5), r.getTime());
+      assertEquals(PeriodSplitterAction.NO_ACTION, s.checkEndOfPeriod(quote).getAction());
+   }
+   
+   /**
+    * Test method for {@link TickPeriodSplitter#checkEndOfPeriod(Trade)}. Every trade completes a
+    * period.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriodSingleTrade() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC);
+      TickPeriodSplitter s = new TickPeriodSplitter(1);
+      assertEquals(PeriodSplitterAction.START_BEFORE,
+            s.checkEndOfPeriod(new Trade(c, new BigDecimal("8.05"), 100, t)).getAction());
+      assertEquals(PeriodSplitterAction.RESTART_BEFORE,
+            s.checkEndOfPeriod(new Trade(c, new BigDecimal("8.05"), 100, t)).getAction());
+      assertEquals(PeriodSplitterAction.RESTART_BEFORE,
+            s.checkEndOfPeriod(new Trade(c, new BigDecimal("8.05"), 100, t)).getAction());
+   }
+   
+   /**
+    * Test method for {@link TickPeriodSplitter#TickPeriodSplitter(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testTickPeriodSplitterInvalidCount()
+   {
+      new TickPeriodSplitter(0);
+   }
+}
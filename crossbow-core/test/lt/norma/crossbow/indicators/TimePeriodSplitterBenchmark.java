@@ -0,0 +1,174 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Measures per-tick cost of <code>TimePeriodSplitter</code> with one minute periods and 1, 10 and
+ * 100 trades per second. Compares the cached boundary check with the former implementation,
+ * which divided in floating point and allocated a result and a <code>DateTime</code> on every
+ * tick. Not a unit test, run the main method.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TimePeriodSplitterBenchmark
+{
+   private static final int WARMUP_TRADES = 2000000;
+   private static final int MEASURED_TRADES = 5000000;
+   private static final int[] TRADES_PER_SECOND = { 1, 10, 100 };
+   private static final long PERIOD_LENGTH = 60000;
+   
+   /**
+    * Runs the benchmark.
+    * 
+    * @param args
+    *           not used
+    * @throws ContractException
+    */
+   public static void main(String[] args) throws ContractException
+   {
+      Contract contract = new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+      DateTimeZone zone = DateTimeZone.forID("America/New_York");
+      long start = new DateTime(2010, 1, 4, 9, 30, 0, 0, zone).getMillis();
+      System.out.println("trades/s  former  cached  (ns/tick)");
+      for (int tradesPerSecond : TRADES_PER_SECOND)
+      {
+         long step = 1000 / tradesPerSecond;
+         run(new FormerSplitter(PERIOD_LENGTH, zone),
+               createTrades(contract, start, step, WARMUP_TRADES));
+         run(new TimePeriodSplitter(PERIOD_LENGTH, zone),
+               createTrades(contract, start, step, WARMUP_TRADES));
+         double formerTime =
+               run(new FormerSplitter(PERIOD_LENGTH, zone),
+                     createTrades(contract, start, step, MEASURED_TRADES));
+         double cachedTime =
+               run(new TimePeriodSplitter(PERIOD_LENGTH, zone),
+                     createTrades(contract, start, step, MEASURED_TRADES));
+         System.out.println(String.format("%8d  %6.1f  %6.1f", tradesPerSecond, formerTime,
+               cachedTime));
+      }
+   }
+   
+   private static Trade[] createTrades(Contract contract, long start, long step, int count)
+   {
+      Trade[] trades = new Trade[count];
+      for (int i = 0; i < count; i++)
+      {
+         trades[i] = new Trade(contract, 3025 + (i & 7), 100, start + i * step);
+      }
+      return trades;
+   }
+   
+   private static double run(PeriodSplitter splitter, Trade[] trades)
+   {
+      int restarts = 0;
+      long start = System.nanoTime();
+      for (Trade trade : trades)
+      {
+         if (splitter.checkEndOfPeriod(trade).getAction() != PeriodSplitterAction.NO_ACTION)
+         {
+            restarts++;
+         }
+      }
+      double time = (double)(System.nanoTime() - start) / trades.length;
+      if (restarts == 0)
+      {
+         System.out.println("No periods started.");
+      }
+      return time;
+   }
+   
+   /**
+    * Time period splitter as it was implemented before caching the period boundaries.
+    */
+   private static class FormerSplitter implements PeriodSplitter
+   {
+      private final long zeroDate;
+      private final long periodLength;
+      private long previousPeriodTime;
+      private boolean isFirstPeriod;
+      private final DateTimeZone timeZone;
+      private PeriodSplitterResult lastResult;
+      private final Object lock;
+      
+      public FormerSplitter(long periodLength, DateTimeZone timeZone)
+      {
+         this.periodLength = periodLength;
+         this.timeZone = timeZone;
+         zeroDate = (new DateTime(1900, 1, 1, 0, 0, 0, 0, timeZone)).getMillis();
+         isFirstPeriod = true;
+         lock = new Object();
+      }
+      
+      private PeriodSplitterResult checkEndOfPeriod(DateTime time)
+      {
+         synchronized (lock)
+         {
+            long nper = (long)Math.floor((double)(time.getMillis() - zeroDate) / periodLength);
+            long periodTime = zeroDate + nper * periodLength;
+            
+            PeriodSplitterAction action = PeriodSplitterAction.NO_ACTION;
+            if (isFirstPeriod)
+            {
+               action = PeriodSplitterAction.START_BEFORE;
+               previousPeriodTime = periodTime;
+               isFirstPeriod = false;
+            }
+            else if (periodTime != previousPeriodTime)
+            {
+               action = PeriodSplitterAction.RESTART_BEFORE;
+               previousPeriodTime = periodTime;
+            }
+            
+            lastResult = new PeriodSplitterResult(action, new DateTime(periodTime, timeZone));
+            return lastResult;
+         }
+      }
+      
+      @Override
+      public PeriodSplitterResult checkEndOfPeriod(Quote quote)
+      {
+         return checkEndOfPeriod(quote.getTime());
+      }
+      
+      @Override
+      public PeriodSplitterResult checkEndOfPeriod(Trade trade)
+      {
+         return checkEndOfPeriod(trade.getTime());
+      }
+      
+      @Override
+      public PeriodSplitterResult getLastResult()
+      {
+         synchronized (lock)
+         {
+            return lastResult;
+         }
+      }
+   }
+}
@@ -17,7 +17,7 @@
 
 package lt.norma.crossbow.indicators;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
 
@@ -85,4 +85,65 @@ public class TimePeriodSplitterTest
       assertEquals(PeriodSplitterAction.RESTART_BEFORE, r.getAction());
       assertEquals(r, s.getLastResult());
    }
+   
+   /**
+    * Test method for {@link TimePeriodSplitter#checkEndOfPeriod(Trade)}. Checks in the same period
+    * return a shared result.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriodSharedResult() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTimeZone zone = DateTimeZone.forID("America/New_York");
+      TimePeriodSplitter s = new TimePeriodSplitter(60000, zone);
+      assertEquals(60000, s.getPeriodLength());
+      assertEquals(zone, s.getTimeZone());
+      long end = new DateTime(2010, 1, 1, 14, 1, 0, 0, zone).getMillis();
+      assertEquals(end, s.getPeriodEnd(new DateTime(2010, 1, 1, 14, 0, 30, 0, zone).getMillis()));
+      
+      PeriodSplitterResult r1 =
+            s.checkEndOfPeriod(new Trade(c, 805, 1, new DateTime(2010, 1, 1, 14, 0, 30, 0, zone)
+                  .getMillis()));
+      assertEquals(PeriodSplitterAction.START_BEFORE, r1.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 0, 0, 0, zone), r1.getTime());
+      
+      PeriodSplitterResult r2 =
+            s.checkEndOfPeriod(new Trade(c, 805, 1, new DateTime(2010, 1, 1, 14, 0, 40, 0, zone)
+                  .getMillis()));
+      PeriodSplitterResult r3 =
+            s.checkEndOfPeriod(new Trade(c, 805, 1, new DateTime(2010, 1, 1, 14, 0, 59, 999, zone)
+                  .getMillis()));
+      assertEquals(PeriodSplitterAction.NO_ACTION, r2.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 0, 0, 0, zone), r2.getTime());
+      assertSame(r2, r3);
+      assertSame(r3, s.getLastResult());
+      
+      PeriodSplitterResult r4 =
+            s.checkEndOfPeriod(new Trade(c, 805, 1, new DateTime(2010, 1, 1, 14, 1, 0, 0, zone)
+                  .getMillis()));
+      assertEquals(PeriodSplitterAction.RESTART_BEFORE, r4.getAction());
+      assertEquals(new DateTime(2010, 1, 1, 14, 1, 0, 0, zone), r4.getTime());
+   }
+   
+   /**
+    * Test method for {@link TimePeriodSplitter#checkEndOfPeriod(Trade)}. Periods before the zero
+    * date are rounded down.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriodBeforeZeroDate() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      TimePeriodSplitter s = new TimePeriodSplitter(1000, DateTimeZone.UTC);
+      
+      PeriodSplitterResult r =
+            s.checkEndOfPeriod(new Trade(c, 805, 1, new DateTime(1899, 12, 31, 23, 59, 59, 500,
+                  DateTimeZone.UTC).getMillis()));
+      assertEquals(PeriodSplitterAction.START_BEFORE, r.getAction());
+      assertEquals(new DateTime(1899, 12, 31, 23, 59, 59, 0, DateTimeZone.UTC).getMillis(), r
+            .getTime().getMillis());
+   }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class VolumePeriodSplitterTest
+{
+   /**
+    * Test method for {@link VolumePeriodSplitter#checkEndOfPeriod(Trade)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testCheckEndOfPeriod() throws ContractException
+   {
+      Contract c = new StockContract("B", Exchange.createNasdaq(), Currency.createEur());
+      DateTime t = new DateTime(2010, 1, 1, 14, 0, 0, 0, DateTimeZone.UTC);
+      VolumePeriodSplitter s = new VolumePeriodSplitter(1000);
+      assertEquals(1000, s.getVolume());
+      
+      int[] sizes = { 400, 500, 200, 1000, 999, 1 };
+      PeriodSplitterAction[] expected =
+            { PeriodSplitterAction.START_BEFORE, PeriodSplitterAction.NO_ACTION,
+             PeriodSplitterAction.RESTART_AFTER, PeriodSplitterAction.RESTART_AFTER,
+             PeriodSplitterAction.NO_ACTION, PeriodSplitterAction.RESTART_AFTER };
+      for (int i = 0; i < sizes.length; i++)
+      {
+         Trade trade = new Trade(c, new BigDecimal("8.05"), sizes[i], t.plusSeconds(i));
+         assertEquals(expected[i], s.checkEndOfPeriod(trade).getAction());
+      }
+   }
+   
+   /**
+    * Test method for {@link VolumePeriodSplitter#VolumePeriodSplitter(long)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testVolumePeriodSplitterInvalidVolume()
+   {
+      new VolumePeriodSplitter(0);
+   }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class AverageTrueRangeTest
+{
+   /**
+    * Test method for {@link AverageTrueRange#AverageTrueRange(Contract, int)}.
+    * 
+    * @throws ContractException
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testAverageTrueRangeInvalidPeriod() throws ContractException
+   {
+      new AverageTrueRange(TestIndicators.createContract(), 0);
+   }
+   
+   /**
+    * Test method for {@link AverageTrueRange#endOfPeriod(DateTime)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testEndOfPeriod() throws ContractException
+   {
+      Contract c = TestIndicators.createContract();
+      Contract other = new StockContract("IBM", Exchange.createNyse(), Currency.createUsd());
+      AverageTrueRange i = new AverageTrueRange(c, 2);
+      assertEquals(c, i.getContract());
+      assertEquals(2, i.getPeriod());
+      
+      // Range 3
+      i.tradeReceived(TestIndicators.trade(c, "10", 1));
+      i.tradeReceived(TestIndicators.trade(c, "12", 1));
+      i.tradeReceived(TestIndicators.trade(c, "9", 1));
+      i.tradeReceived(TestIndicators.trade(c, "11", 1));
+      i.tradeReceived(TestIndicators.trade(other, "100", 1));
+      i.endOfPeriod(new DateTime(0));
+      assertFalse(i.isSet());
+      
+      // Period without trades is skipped
+      i.endOfPeriod(new DateTime(0));
+      assertFalse(i.isSet());
+      
+      // Range 1, distance of the high from the previous close 2
+      i.tradeReceived(TestIndicators.trade(c, "13", 1));
+      i.tradeReceived(TestIndicators.trade(c, "12", 1));
+      i.endOfPeriod(new DateTime(0));
+      assertEquals(2.5, i.getValue(), 1e-12);
+      
+      // Range 1, distance of the low from the previous close 4
+      i.tradeReceived(TestIndicators.trade(c, "8", 1));
+      i.tradeReceived(TestIndicators.trade(c, "9", 1));
+      i.endOfPeriod(new DateTime(0));
+      assertEquals(3.25, i.getValue(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link AverageTrueRange#writeState(DataOutput)} and
+    * {@link AverageTrueRange#readState(DataInput)}.
+    * 
+    * @throws ContractException
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws ContractException, IOException
+   {
+      Contract c = TestIndicators.createContract();
+      AverageTrueRange i = new AverageTrueRange(c, 2);
+      i.tradeReceived(TestIndicators.trade(c, "10", 1));
+      i.tradeReceived(TestIndicators.trade(c, "12", 1));
+      i.endOfPeriod(new DateTime(0));
+      i.tradeReceived(TestIndicators.trade(c, "13", 1));
+      i.endOfPeriod(new DateTime(0));
+      // Period in progress
+      i.tradeReceived(TestIndicators.trade(c, "8", 1));
+      AverageTrueRange restored = new AverageTrueRange(c, 2);
+      TestIndicators.copyState(i, restored);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      
+      i.tradeReceived(TestIndicators.trade(c, "9", 1));
+      i.endOfPeriod(new DateTime(0));
+      restored.tradeReceived(TestIndicators.trade(c, "9", 1));
+      restored.endOfPeriod(new DateTime(0));
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+   }
+}
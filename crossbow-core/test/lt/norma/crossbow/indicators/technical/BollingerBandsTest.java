@@ -0,0 +1,126 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.exceptions.ValueNotSetRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class BollingerBandsTest
+{
+   /**
+    * Test method for {@link BollingerBands#BollingerBands(DoubleIndicator, int, double)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testBollingerBandsInvalidPeriod()
+   {
+      new BollingerBands(TestIndicators.create(), 0, 2);
+   }
+   
+   /**
+    * Test method for {@link BollingerBands#BollingerBands(DoubleIndicator, int, double)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testBollingerBandsInvalidWidth()
+   {
+      new BollingerBands(TestIndicators.create(), 20, 0);
+   }
+   
+   /**
+    * Test method for {@link BollingerBands#sample(double)}.
+    */
+   @Test
+   public void testSample()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      BollingerBands i = new BollingerBands(source, 3, 2);
+      assertEquals(3, i.getPeriod());
+      assertEquals(2, i.getWidth(), 0);
+      
+      TestIndicators.sample(source, i, 1, 2);
+      assertFalse(i.isSet());
+      TestIndicators.sample(source, i, 3);
+      assertEquals(2, i.getValue(), 1e-12);
+      assertEquals(2 + 2 * Math.sqrt(2 / 3.0), i.getUpper(), 1e-12);
+      assertEquals(2 - 2 * Math.sqrt(2 / 3.0), i.getLower(), 1e-12);
+      TestIndicators.sample(source, i, 3, 3, 3);
+      assertEquals(3, i.getValue(), 1e-12);
+      assertEquals(3, i.getUpper(), 1e-12);
+      assertEquals(3, i.getLower(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link BollingerBands#getUpper()}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetUpperNotSet()
+   {
+      new BollingerBands(TestIndicators.create(), 3, 2).getUpper();
+   }
+   
+   /**
+    * Test method for {@link BollingerBands#sample(double)}. Volatile values followed by constant
+    * ones give bands of zero width, not NaN.
+    */
+   @Test
+   public void testSampleVolatileThenFlat()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      BollingerBands i = new BollingerBands(source, 5, 2);
+      TestIndicators.sample(source, i, 99.45, 98.78, 100.63, 99.29, 100.15, 99.51);
+      TestIndicators.sample(source, i, 100.1, 100.1, 100.1, 100.1, 100.1);
+      assertEquals(100.1, i.getUpper(), 1e-6);
+      assertEquals(100.1, i.getLower(), 1e-6);
+   }
+   
+   /**
+    * Test method for {@link BollingerBands#writeState(DataOutput)} and
+    * {@link BollingerBands#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      DoubleIndicator source = TestIndicators.create();
+      BollingerBands i = new BollingerBands(source, 3, 2);
+      TestIndicators.sample(source, i, 1, 5, 2, 4);
+      DoubleIndicator restoredSource = TestIndicators.create();
+      BollingerBands restored = new BollingerBands(restoredSource, 3, 2);
+      TestIndicators.copyState(i, restored);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      
+      // The restored indicator continues from the same state
+      TestIndicators.sample(source, i, 7, 3, 6);
+      TestIndicators.sample(restoredSource, restored, 7, 3, 6);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      assertEquals(i.getUpper(), restored.getUpper(), 0);
+      assertEquals(i.getLower(), restored.getLower(), 0);
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class ExponentialSmoothingTest
+{
+   /**
+    * Test method for {@link ExponentialSmoothing#add(double)}.
+    */
+   @Test
+   public void testAdd()
+   {
+      ExponentialSmoothing s = new ExponentialSmoothing(0.5, 3);
+      assertFalse(s.isReady());
+      s.add(1);
+      s.add(2);
+      assertFalse(s.isReady());
+      s.add(3);
+      assertTrue(s.isReady());
+      assertEquals(2, s.getValue(), 1e-12);
+      s.add(4);
+      assertEquals(3, s.getValue(), 1e-12);
+      s.add(1);
+      assertEquals(2, s.getValue(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link ExponentialSmoothing#writeState(DataOutput)} and
+    * {@link ExponentialSmoothing#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      ExponentialSmoothing s = new ExponentialSmoothing(0.5, 2);
+      s.add(1);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      s.writeState(new DataOutputStream(bytes));
+      
+      ExponentialSmoothing restored = new ExponentialSmoothing(0.5, 2);
+      restored.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+      assertFalse(restored.isReady());
+      restored.add(3);
+      assertTrue(restored.isReady());
+      assertEquals(2, restored.getValue(), 1e-12);
+      restored.add(4);
+      assertEquals(3, restored.getValue(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link ExponentialSmoothing#readState(DataInput)}. Smaller seed count.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testReadStateInvalidCount() throws IOException
+   {
+      ExponentialSmoothing s = new ExponentialSmoothing(0.5, 3);
+      s.add(1);
+      s.add(2);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      s.writeState(new DataOutputStream(bytes));
+      new ExponentialSmoothing(0.5, 1).readState(new DataInputStream(new ByteArrayInputStream(
+            bytes.toByteArray())));
+   }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class LastPriceTest
+{
+   /**
+    * Test method for {@link LastPrice#LastPrice(Contract)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testLastPriceNull()
+   {
+      new LastPrice(null);
+   }
+   
+   /**
+    * Test method for {@link LastPrice#tradeReceived(lt.norma.crossbow.data.Trade)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testTradeReceived() throws ContractException
+   {
+      Contract c = TestIndicators.createContract();
+      Contract other = new StockContract("IBM", Exchange.createNyse(), Currency.createUsd());
+      LastPrice i = new LastPrice(c);
+      assertEquals(c, i.getContract());
+      assertFalse(i.isSet());
+      
+      i.tradeReceived(TestIndicators.trade(c, "30.25", 100));
+      assertEquals(30.25, i.getValue(), 1e-12);
+      i.tradeReceived(TestIndicators.trade(other, "120.5", 100));
+      assertEquals(30.25, i.getValue(), 1e-12);
+      i.tradeReceived(TestIndicators.trade(c, "30.1", 100));
+      assertEquals(30.1, i.getValue(), 1e-12);
+   }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.exceptions.ValueNotSetRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class MacdTest
+{
+   /**
+    * Test method for {@link Macd#Macd(DoubleIndicator, int, int, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testMacdInvalidPeriods()
+   {
+      new Macd(TestIndicators.create(), 26, 12, 9);
+   }
+   
+   /**
+    * Test method for {@link Macd#sample(double)}.
+    */
+   @Test
+   public void testSample()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      Macd i = new Macd(source, 2, 3, 2);
+      assertEquals(2, i.getFastPeriod());
+      assertEquals(3, i.getSlowPeriod());
+      assertEquals(2, i.getSignalPeriod());
+      assertEquals("MACD (2, 3, 2)", i.getTitle());
+      
+      TestIndicators.sample(source, i, 1, 2);
+      assertFalse(i.isSet());
+      // Fast EMA 2.5, slow EMA 2
+      TestIndicators.sample(source, i, 3);
+      assertEquals(0.5, i.getValue(), 1e-12);
+      assertFalse(i.isSignalSet());
+      // Fast EMA 3.5, slow EMA 3
+      TestIndicators.sample(source, i, 4);
+      assertEquals(0.5, i.getValue(), 1e-12);
+      assertTrue(i.isSignalSet());
+      assertEquals(0.5, i.getSignal(), 1e-12);
+      assertEquals(0, i.getHistogram(), 1e-12);
+      // Fast EMA 7.8333, slow EMA 6.5
+      TestIndicators.sample(source, i, 10);
+      assertEquals(4 / 3.0, i.getValue(), 1e-12);
+      assertEquals(0.5 + 2 / 3.0 * (4 / 3.0 - 0.5), i.getSignal(), 1e-12);
+      assertEquals(i.getValue() - i.getSignal(), i.getHistogram(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link Macd#getSignal()}.
+    */
+   @Test(expected = ValueNotSetRuntimeException.class)
+   public void testGetSignalNotSet()
+   {
+      new Macd(TestIndicators.create(), 12, 26, 9).getSignal();
+   }
+   
+   /**
+    * Test method for {@link Macd#writeState(DataOutput)} and {@link Macd#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      DoubleIndicator source = TestIndicators.create();
+      Macd i = new Macd(source, 2, 3, 2);
+      TestIndicators.sample(source, i, 1, 5, 2, 4);
+      DoubleIndicator restoredSource = TestIndicators.create();
+      Macd restored = new Macd(restoredSource, 2, 3, 2);
+      TestIndicators.copyState(i, restored);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      
+      // The restored indicator continues from the same state
+      TestIndicators.sample(source, i, 7, 3, 6);
+      TestIndicators.sample(restoredSource, restored, 7, 3, 6);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      assertEquals(i.getSignal(), restored.getSignal(), 0);
+   }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Quote;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class MidPriceTest
+{
+   /**
+    * Test method for {@link MidPrice#MidPrice(Contract)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testMidPriceNull()
+   {
+      new MidPrice(null);
+   }
+   
+   /**
+    * Test method for {@link MidPrice#quoteReceived(Quote)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testQuoteReceived() throws ContractException
+   {
+      Contract c = TestIndicators.createContract();
+      Contract other = new StockContract("IBM", Exchange.createNyse(), Currency.createUsd());
+      MidPrice i = new MidPrice(c);
+      assertEquals(c, i.getContract());
+      assertFalse(i.isSet());
+      
+      i.quoteReceived(new Quote(c, new BigDecimal("30.26"), 100, new BigDecimal("30.21"), 200,
+            new DateTime(0)));
+      assertEquals(30.235, i.getValue(), 1e-12);
+      i.quoteReceived(new Quote(other, new BigDecimal("120.5"), 100, new BigDecimal("120.4"),
+            200, new DateTime(0)));
+      assertEquals(30.235, i.getValue(), 1e-12);
+   }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class RelativeStrengthIndexTest
+{
+   /**
+    * Test method for {@link RelativeStrengthIndex#RelativeStrengthIndex(DoubleIndicator, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testRelativeStrengthIndexInvalidPeriod()
+   {
+      new RelativeStrengthIndex(TestIndicators.create(), 0);
+   }
+   
+   /**
+    * Test method for {@link RelativeStrengthIndex#sample(double)}.
+    */
+   @Test
+   public void testSample()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RelativeStrengthIndex i = new RelativeStrengthIndex(source, 2);
+      assertEquals(2, i.getPeriod());
+      assertEquals("RSI (2)", i.getTitle());
+      
+      TestIndicators.sample(source, i, 10, 12);
+      assertFalse(i.isSet());
+      // Average gain 1, average loss 0.5
+      TestIndicators.sample(source, i, 11);
+      assertEquals(100 - 100 / 3.0, i.getValue(), 1e-9);
+      // Average gain 1.5, average loss 0.25
+      TestIndicators.sample(source, i, 13);
+      assertEquals(100 - 100 / 7.0, i.getValue(), 1e-9);
+   }
+   
+   /**
+    * Test method for {@link RelativeStrengthIndex#sample(double)}. No losses.
+    */
+   @Test
+   public void testSampleNoLosses()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RelativeStrengthIndex i = new RelativeStrengthIndex(source, 2);
+      TestIndicators.sample(source, i, 5, 5, 5);
+      assertEquals(50, i.getValue(), 0);
+      TestIndicators.sample(source, i, 6);
+      assertEquals(100, i.getValue(), 0);
+   }
+   
+   /**
+    * Test method for {@link RelativeStrengthIndex#writeState(DataOutput)} and
+    * {@link RelativeStrengthIndex#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RelativeStrengthIndex i = new RelativeStrengthIndex(source, 3);
+      TestIndicators.sample(source, i, 1, 5, 2, 4);
+      DoubleIndicator restoredSource = TestIndicators.create();
+      RelativeStrengthIndex restored = new RelativeStrengthIndex(restoredSource, 3);
+      TestIndicators.copyState(i, restored);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      
+      // The restored indicator continues from the same state
+      TestIndicators.sample(source, i, 7, 3, 6);
+      TestIndicators.sample(restoredSource, restored, 7, 3, 6);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+   }
+}
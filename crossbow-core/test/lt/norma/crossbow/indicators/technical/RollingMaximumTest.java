@@ -0,0 +1,134 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class RollingMaximumTest
+{
+   /**
+    * Test method for {@link RollingMaximum#RollingMaximum(DoubleIndicator, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testRollingMaximumInvalidPeriod()
+   {
+      new RollingMaximum(TestIndicators.create(), 0);
+   }
+   
+   /**
+    * Test method for {@link RollingMaximum#sample(double)}.
+    */
+   @Test
+   public void testSample()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RollingMaximum i = new RollingMaximum(source, 3);
+      assertEquals(3, i.getPeriod());
+      
+      TestIndicators.sample(source, i, 5, 1);
+      assertFalse(i.isSet());
+      TestIndicators.sample(source, i, 3);
+      assertEquals(5, i.getValue(), 0);
+      TestIndicators.sample(source, i, 2);
+      assertEquals(3, i.getValue(), 0);
+      TestIndicators.sample(source, i, 4);
+      assertEquals(4, i.getValue(), 0);
+      TestIndicators.sample(source, i, 1, 0);
+      assertEquals(4, i.getValue(), 0);
+      TestIndicators.sample(source, i, 0);
+      assertEquals(1, i.getValue(), 0);
+      TestIndicators.sample(source, i, 0);
+      assertEquals(0, i.getValue(), 0);
+   }
+   
+   /**
+    * Test method for {@link RollingMaximum#sample(double)}. Compared with a naive calculation.
+    */
+   @Test
+   public void testSampleRandom()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RollingMaximum i = new RollingMaximum(source, 7);
+      Random random = new Random(1);
+      double[] values = new double[1000];
+      for (int n = 0; n < values.length; n++)
+      {
+         values[n] = random.nextInt(20);
+         TestIndicators.sample(source, i, values[n]);
+         if (n >= 6)
+         {
+            double max = values[n];
+            for (int k = n - 6; k < n; k++)
+            {
+               max = Math.max(max, values[k]);
+            }
+            assertEquals(max, i.getValue(), 0);
+         }
+      }
+   }
+   
+   /**
+    * Test method for {@link RollingMaximum#writeState(DataOutput)} and
+    * {@link RollingMaximum#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RollingMaximum i = new RollingMaximum(source, 3);
+      TestIndicators.sample(source, i, 1, 5, 2, 4);
+      DoubleIndicator restoredSource = TestIndicators.create();
+      RollingMaximum restored = new RollingMaximum(restoredSource, 3);
+      TestIndicators.copyState(i, restored);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      
+      // The restored indicator continues from the same state
+      TestIndicators.sample(source, i, 7, 3, 6);
+      TestIndicators.sample(restoredSource, restored, 7, 3, 6);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+   }
+   
+   /**
+    * Test method for {@link RollingMaximum#readState(DataInput)}. Different period.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testReadStateInvalidPeriod() throws IOException
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RollingMaximum i = new RollingMaximum(source, 3);
+      TestIndicators.sample(source, i, 1, 5, 2, 4);
+      TestIndicators.copyState(i, new RollingMaximum(TestIndicators.create(), 4));
+   }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class RollingMinimumTest
+{
+   /**
+    * Test method for {@link RollingMinimum#RollingMinimum(DoubleIndicator, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testRollingMinimumInvalidPeriod()
+   {
+      new RollingMinimum(TestIndicators.create(), 0);
+   }
+   
+   /**
+    * Test method for {@link RollingMinimum#sample(double)}.
+    */
+   @Test
+   public void testSample()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      RollingMinimum i = new RollingMinimum(source, 3);
+      assertEquals(3, i.getPeriod());
+      
+      TestIndicators.sample(source, i, 1, 5);
+      assertFalse(i.isSet());
+      TestIndicators.sample(source, i, 3);
+      assertEquals(1, i.getValue(), 0);
+      TestIndicators.sample(source, i, 4);
+      assertEquals(3, i.getValue(), 0);
+      TestIndicators.sample(source, i, 2);
+      assertEquals(2, i.getValue(), 0);
+      TestIndicators.sample(source, i, 5, 6);
+      assertEquals(2, i.getValue(), 0);
+      TestIndicators.sample(source, i, 6);
+      assertEquals(5, i.getValue(), 0);
+   }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class RollingWindowTest
+{
+   /**
+    * Test method for {@link RollingWindow#RollingWindow(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testRollingWindowInvalidCapacity()
+   {
+      new RollingWindow(0);
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#add(double)} and {@link RollingWindow#get(int)}.
+    */
+   @Test
+   public void testAdd()
+   {
+      RollingWindow w = new RollingWindow(3);
+      assertEquals(3, w.getCapacity());
+      assertEquals(0, w.size());
+      assertFalse(w.isFull());
+      
+      assertTrue(Double.isNaN(w.add(1)));
+      assertTrue(Double.isNaN(w.add(2)));
+      assertEquals(2, w.size());
+      assertFalse(w.isFull());
+      assertTrue(Double.isNaN(w.add(3)));
+      assertTrue(w.isFull());
+      assertEquals(3, w.get(0), 0);
+      assertEquals(1, w.get(2), 0);
+      
+      assertEquals(1, w.add(4), 0);
+      assertEquals(2, w.add(5), 0);
+      assertEquals(3, w.size());
+      assertEquals(5, w.get(0), 0);
+      assertEquals(4, w.get(1), 0);
+      assertEquals(3, w.get(2), 0);
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#get(int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testGetOutOfRange()
+   {
+      RollingWindow w = new RollingWindow(3);
+      w.add(1);
+      w.add(2);
+      w.get(2);
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#getMean()} and {@link RollingWindow#getVariance()}.
+    */
+   @Test
+   public void testGetMean()
+   {
+      RollingWindow w = new RollingWindow(4);
+      assertEquals(0, w.getMean(), 0);
+      assertEquals(0, w.getVariance(), 0);
+      
+      w.add(2);
+      w.add(4);
+      assertEquals(3, w.getMean(), 1e-12);
+      assertEquals(1, w.getVariance(), 1e-12);
+      w.add(4);
+      w.add(4);
+      assertEquals(3.5, w.getMean(), 1e-12);
+      assertEquals(0.75, w.getVariance(), 1e-12);
+      w.add(5);
+      w.add(5);
+      w.add(7);
+      w.add(9);
+      assertEquals(6.5, w.getMean(), 1e-12);
+      assertEquals(2.75, w.getVariance(), 1e-12);
+      
+      // Constant values
+      for (int i = 0; i < 100; i++)
+      {
+         w.add(1000.1);
+      }
+      assertEquals(1000.1, w.getMean(), 1e-9);
+      assertEquals(0, w.getVariance(), 1e-9);
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#getVariance()}. Rounding errors of volatile values
+    * followed by constant ones must not make the variance negative.
+    */
+   @Test
+   public void testGetVarianceVolatileThenFlat()
+   {
+      RollingWindow w = new RollingWindow(5);
+      double[] values = { 99.45, 98.78, 100.63, 99.29, 100.15, 99.51 };
+      for (double value : values)
+      {
+         w.add(value);
+      }
+      for (int i = 0; i < 5; i++)
+      {
+         w.add(100.1);
+         assertTrue(w.getVariance() >= 0);
+      }
+      assertEquals(0, w.getVariance(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#isTurnCompleted()}.
+    */
+   @Test
+   public void testIsTurnCompleted()
+   {
+      RollingWindow w = new RollingWindow(2);
+      assertFalse(w.isTurnCompleted());
+      w.add(1);
+      assertFalse(w.isTurnCompleted());
+      w.add(2);
+      assertTrue(w.isTurnCompleted());
+      w.add(3);
+      assertFalse(w.isTurnCompleted());
+      w.add(4);
+      assertTrue(w.isTurnCompleted());
+      w.clear();
+      assertFalse(w.isTurnCompleted());
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#clear()}.
+    */
+   @Test
+   public void testClear()
+   {
+      RollingWindow w = new RollingWindow(2);
+      w.add(1);
+      w.add(2);
+      w.add(3);
+      w.clear();
+      assertEquals(0, w.size());
+      assertEquals(0, w.getMean(), 0);
+      assertEquals(0, w.getVariance(), 0);
+      w.add(7);
+      assertEquals(7, w.get(0), 0);
+      assertEquals(7, w.getMean(), 0);
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#writeState(DataOutput)} and
+    * {@link RollingWindow#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      RollingWindow w = new RollingWindow(3);
+      RollingWindow restored = new RollingWindow(3);
+      w.add(1);
+      w.add(2);
+      copy(w, restored);
+      assertEquals(2, restored.size());
+      assertEquals(2, restored.get(0), 0);
+      assertEquals(1.5, restored.getMean(), 1e-12);
+      
+      // Full window wrapped around
+      w.add(3);
+      w.add(4);
+      copy(w, restored);
+      assertTrue(restored.isFull());
+      assertEquals(4, restored.get(0), 0);
+      assertEquals(2, restored.get(2), 0);
+      assertEquals(w.getVariance(), restored.getVariance(), 0);
+      assertEquals(2, restored.add(5), 0);
+      assertEquals(4, restored.getMean(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link RollingWindow#readState(DataInput)}. Different capacity.
+    * 
+    * @throws IOException
+    */
+   @Test(expected = IOException.class)
+   public void testReadStateInvalidCapacity() throws IOException
+   {
+      RollingWindow w = new RollingWindow(3);
+      w.add(1);
+      copy(w, new RollingWindow(2));
+   }
+   
+   private void copy(RollingWindow from, RollingWindow to) throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      from.writeState(new DataOutputStream(bytes));
+      to.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class SampledIndicatorTest
+{
+   /**
+    * Test method for {@link SampledIndicator#SampledIndicator(String, DoubleIndicator)}.
+    */
+   @Test
+   public void testSampledIndicator()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      MockIndicator i = new MockIndicator(source);
+      assertEquals(source, i.getSource());
+      assertEquals(1, i.getDependencies().size());
+      assertEquals(source, i.getDependencies().get(0));
+   }
+   
+   /**
+    * Test method for {@link SampledIndicator#SampledIndicator(String, DoubleIndicator)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSampledIndicatorNull()
+   {
+      new MockIndicator(null);
+   }
+   
+   /**
+    * Test method for {@link SampledIndicator#endOfPeriod(DateTime)}.
+    */
+   @Test
+   public void testEndOfPeriod()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      MockIndicator i = new MockIndicator(source);
+      
+      // Source not set, period skipped
+      i.endOfPeriod(new DateTime(0));
+      assertEquals(0, i.count);
+      
+      TestIndicators.sample(source, i, 5, 6);
+      assertEquals(2, i.count);
+      assertEquals(6, i.last, 0);
+   }
+   
+   private class MockIndicator extends SampledIndicator
+   {
+      public int count;
+      public double last;
+      
+      /**
+       * Constructor.
+       * 
+       * @param source
+       */
+      public MockIndicator(DoubleIndicator source)
+      {
+         super("Mock", source);
+      }
+      
+      @Override
+      protected void sample(double value)
+      {
+         count++;
+         last = value;
+      }
+   }
+}
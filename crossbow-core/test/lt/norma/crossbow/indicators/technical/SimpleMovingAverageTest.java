@@ -0,0 +1,88 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class SimpleMovingAverageTest
+{
+   /**
+    * Test method for {@link SimpleMovingAverage#SimpleMovingAverage(DoubleIndicator, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testSimpleMovingAverageInvalidPeriod()
+   {
+      new SimpleMovingAverage(TestIndicators.create(), 0);
+   }
+   
+   /**
+    * Test method for {@link SimpleMovingAverage#sample(double)}.
+    */
+   @Test
+   public void testSample()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      SimpleMovingAverage i = new SimpleMovingAverage(source, 3);
+      assertEquals(3, i.getPeriod());
+      assertEquals("SMA (3)", i.getTitle());
+      
+      TestIndicators.sample(source, i, 1, 2);
+      assertFalse(i.isSet());
+      TestIndicators.sample(source, i, 3);
+      assertEquals(2, i.getValue(), 1e-12);
+      TestIndicators.sample(source, i, 4);
+      assertEquals(3, i.getValue(), 1e-12);
+      TestIndicators.sample(source, i, 11);
+      assertEquals(6, i.getValue(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link SimpleMovingAverage#writeState(DataOutput)} and
+    * {@link SimpleMovingAverage#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      DoubleIndicator source = TestIndicators.create();
+      SimpleMovingAverage i = new SimpleMovingAverage(source, 3);
+      TestIndicators.sample(source, i, 1, 5, 2, 4);
+      DoubleIndicator restoredSource = TestIndicators.create();
+      SimpleMovingAverage restored = new SimpleMovingAverage(restoredSource, 3);
+      TestIndicators.copyState(i, restored);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      
+      // The restored indicator continues from the same state
+      TestIndicators.sample(source, i, 7, 3, 6);
+      TestIndicators.sample(restoredSource, restored, 7, 3, 6);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+   }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.joda.time.DateTime;
+
+/**
+ * Measures update cost of every technical indicator at short and long periods. Every trade closes
+ * a data period, so windowed indicators are updated on every trade. Update cost of the library
+ * indicators does not depend on the period. Not a unit test, run the main method.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class TechnicalIndicatorBenchmark
+{
+   private static final int TRADES = 1000000;
+   private static final int RUNS = 5;
+   private static final int[] PERIODS = { 20, 2000 };
+   
+   /**
+    * Runs the benchmark.
+    * 
+    * @param args
+    *           not used
+    * @throws ContractException
+    */
+   public static void main(String[] args) throws ContractException
+   {
+      Contract contract = TestIndicators.createContract();
+      Random random = new Random(1);
+      Trade[] trades = new Trade[TRADES];
+      long price = 3000;
+      for (int i = 0; i < TRADES; i++)
+      {
+         price = Math.max(1, price + random.nextInt(3) - 1);
+         trades[i] = new Trade(contract, price, 100 * (1 + random.nextInt(10)), i);
+      }
+      DateTime time = new DateTime(0);
+      
+      for (int period : PERIODS)
+      {
+         LastPrice close = new LastPrice(contract);
+         List<DoubleIndicator> indicators = new ArrayList<DoubleIndicator>();
+         indicators.add(new SimpleMovingAverage(close, period));
+         indicators.add(new ExponentialMovingAverage(close, period));
+         indicators.add(new WeightedMovingAverage(close, period));
+         indicators.add(new RelativeStrengthIndex(close, period));
+         indicators.add(new Macd(close, period / 2, period, period / 3));
+         indicators.add(new BollingerBands(close, period, 2));
+         indicators.add(new StandardDeviation(close, period));
+         indicators.add(new RollingMaximum(close, period));
+         indicators.add(new RollingMinimum(close, period));
+         indicators.add(new AverageTrueRange(contract, period));
+         indicators.add(new VolumeWeightedAveragePrice(contract));
+         
+         for (DoubleIndicator indicator : indicators)
+         {
+            double best = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++)
+            {
+               long start = System.nanoTime();
+               for (Trade trade : trades)
+               {
+                  close.tradeReceived(trade);
+                  indicator.tradeReceived(trade);
+                  close(indicator, time);
+               }
+               best = Math.min(best, (double)(System.nanoTime() - start) / TRADES);
+            }
+            System.out.println(String.format("%-32s %6.1f ns/update", indicator.getTitle(), best));
+         }
+      }
+   }
+   
+   private static void close(DoubleIndicator indicator, DateTime time)
+   {
+      if (indicator instanceof SampledIndicator)
+      {
+         ((SampledIndicator)indicator).endOfPeriod(time);
+      }
+      else if (indicator instanceof AverageTrueRange)
+      {
+         ((AverageTrueRange)indicator).endOfPeriod(time);
+      }
+      else
+      {
+         indicator.beginningOfPeriod(time);
+      }
+   }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+import lt.norma.crossbow.indicators.Indicator;
+
+import org.joda.time.DateTime;
+
+/**
+ * Helpers for the tests of technical indicators.
+ * 
+ * @author Vilius Normantas <code@norma.lt>
+ */
+class TestIndicators
+{
+   /**
+    * @return source indicator, the value of which is set by tests
+    */
+   static DoubleIndicator create()
+   {
+      return new DoubleIndicator("Source", false)
+      {
+      };
+   }
+   
+   /**
+    * Sets value of the source and closes the period of the indicator.
+    * 
+    * @param source
+    *           source of the indicator
+    * @param indicator
+    *           indicator to be updated
+    * @param values
+    *           values sampled one per period
+    */
+   static void sample(DoubleIndicator source, SampledIndicator indicator, double... values)
+   {
+      for (double value : values)
+      {
+         source.setDouble(value);
+         indicator.endOfPeriod(new DateTime(0));
+      }
+   }
+   
+   /**
+    * @return test contract
+    * @throws ContractException
+    */
+   static Contract createContract() throws ContractException
+   {
+      return new StockContract("MSFT", Exchange.createNasdaq(), Currency.createUsd());
+   }
+   
+   /**
+    * @param contract
+    *           contract of the trade
+    * @param price
+    *           price of the trade
+    * @param size
+    *           size of the trade
+    * @return trade
+    */
+   static Trade trade(Contract contract, String price, int size)
+   {
+      return new Trade(contract, new BigDecimal(price), size, new DateTime(0));
+   }
+   
+   /**
+    * Copies state of an indicator to another one by <code>writeState</code> and
+    * <code>readState</code>.
+    * 
+    * @param from
+    *           indicator the state of which is written
+    * @param to
+    *           indicator the state is restored to
+    * @throws IOException
+    */
+   static void copyState(Indicator<?> from, Indicator<?> to) throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      from.writeState(out);
+      out.flush();
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      to.readState(in);
+      if (in.available() > 0)
+      {
+         throw new IOException("State is not read completely.");
+      }
+   }
+}
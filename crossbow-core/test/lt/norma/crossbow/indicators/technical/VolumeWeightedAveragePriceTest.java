@@ -0,0 +1,102 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lt.norma.crossbow.account.Currency;
+import lt.norma.crossbow.contracts.Contract;
+import lt.norma.crossbow.contracts.Exchange;
+import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.data.Trade;
+import lt.norma.crossbow.exceptions.ContractException;
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class VolumeWeightedAveragePriceTest
+{
+   /**
+    * Test method for {@link VolumeWeightedAveragePrice#VolumeWeightedAveragePrice(Contract)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testVolumeWeightedAveragePriceNull()
+   {
+      new VolumeWeightedAveragePrice(null);
+   }
+   
+   /**
+    * Test method for {@link VolumeWeightedAveragePrice#tradeReceived(Trade)} and
+    * {@link VolumeWeightedAveragePrice#beginningOfPeriod(DateTime)}.
+    * 
+    * @throws ContractException
+    */
+   @Test
+   public void testTradeReceived() throws ContractException
+   {
+      Contract c = TestIndicators.createContract();
+      Contract other = new StockContract("IBM", Exchange.createNyse(), Currency.createUsd());
+      VolumeWeightedAveragePrice i = new VolumeWeightedAveragePrice(c);
+      assertEquals(c, i.getContract());
+      assertFalse(i.isSet());
+      
+      i.tradeReceived(TestIndicators.trade(c, "10", 100));
+      assertEquals(10, i.getValue(), 1e-12);
+      i.tradeReceived(TestIndicators.trade(c, "11", 300));
+      i.tradeReceived(TestIndicators.trade(other, "100", 300));
+      assertEquals(10.75, i.getValue(), 1e-12);
+      assertEquals(400, i.getVolume());
+      
+      i.beginningOfPeriod(new DateTime(0));
+      assertFalse(i.isSet());
+      assertEquals(0, i.getVolume());
+      i.tradeReceived(TestIndicators.trade(c, "12", 50));
+      assertEquals(12, i.getValue(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link VolumeWeightedAveragePrice#writeState(DataOutput)} and
+    * {@link VolumeWeightedAveragePrice#readState(DataInput)}.
+    * 
+    * @throws ContractException
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws ContractException, IOException
+   {
+      Contract c = TestIndicators.createContract();
+      VolumeWeightedAveragePrice i = new VolumeWeightedAveragePrice(c);
+      i.tradeReceived(TestIndicators.trade(c, "10", 100));
+      i.tradeReceived(TestIndicators.trade(c, "12", 300));
+      VolumeWeightedAveragePrice restored = new VolumeWeightedAveragePrice(c);
+      TestIndicators.copyState(i, restored);
+      assertEquals(400, restored.getVolume());
+      assertEquals(11.5, restored.getDouble(), 1e-12);
+      
+      restored.tradeReceived(TestIndicators.trade(c, "4", 100));
+      assertEquals(10, restored.getDouble(), 1e-12);
+   }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2009, 2010 Vilius Normantas <code@norma.lt>
+ * 
+ * This file is part of Crossbow trading library.
+ * 
+ * Crossbow is free software: you can redistribute it and/or modify it under the terms of the GNU 
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * Crossbow is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU 
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Crossbow.  If not, 
+ * see <http://www.gnu.org/licenses/>.
+ */
+
+package lt.norma.crossbow.indicators.technical;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
+import lt.norma.crossbow.indicators.DoubleIndicator;
+
+import org.junit.Test;
+
+/**
+ * @author Vilius Normantas <code@norma.lt>
+ */
+public class WeightedMovingAverageTest
+{
+   /**
+    * Test method for {@link WeightedMovingAverage#WeightedMovingAverage(DoubleIndicator, int)}.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testWeightedMovingAverageInvalidPeriod()
+   {
+      new WeightedMovingAverage(TestIndicators.create(), 0);
+   }
+   
+   /**
+    * Test method for {@link WeightedMovingAverage#sample(double)}.
+    */
+   @Test
+   public void testSample()
+   {
+      DoubleIndicator source = TestIndicators.create();
+      WeightedMovingAverage i = new WeightedMovingAverage(source, 3);
+      assertEquals(3, i.getPeriod());
+      assertEquals("WMA (3)", i.getTitle());
+      
+      TestIndicators.sample(source, i, 1, 2);
+      assertFalse(i.isSet());
+      TestIndicators.sample(source, i, 3);
+      assertEquals((1 + 2 * 2 + 3 * 3) / 6.0, i.getValue(), 1e-12);
+      TestIndicators.sample(source, i, 4);
+      assertEquals((2 + 3 * 2 + 4 * 3) / 6.0, i.getValue(), 1e-12);
+      TestIndicators.sample(source, i, 10);
+      assertEquals((3 + 4 * 2 + 10 * 3) / 6.0, i.getValue(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link WeightedMovingAverage#sample(double)}. Rounding errors of huge values
+    * must not remain in the sums after the values leave the window.
+    */
+   @Test
+   public void testSampleLongRun()
+   {
+      int period = 10;
+      DoubleIndicator source = TestIndicators.create();
+      WeightedMovingAverage i = new WeightedMovingAverage(source, period);
+      Random random = new Random(1);
+      double[] values = new double[200000];
+      for (int n = 0; n < values.length; n++)
+      {
+         values[n] = n < values.length / 2 ? random.nextDouble() * 1e12 : random.nextDouble();
+         TestIndicators.sample(source, i, values[n]);
+      }
+      
+      double expected = 0;
+      for (int ago = 0; ago < period; ago++)
+      {
+         expected += (period - ago) * values[values.length - 1 - ago];
+      }
+      expected /= period * (period + 1) / 2.0;
+      assertEquals(expected, i.getValue(), 1e-12);
+   }
+   
+   /**
+    * Test method for {@link WeightedMovingAverage#writeState(DataOutput)} and
+    * {@link WeightedMovingAverage#readState(DataInput)}.
+    * 
+    * @throws IOException
+    */
+   @Test
+   public void testWriteState() throws IOException
+   {
+      DoubleIndicator source = TestIndicators.create();
+      WeightedMovingAverage i = new WeightedMovingAverage(source, 3);
+      TestIndicators.sample(source, i, 1, 5, 2, 4);
+      DoubleIndicator restoredSource = TestIndicators.create();
+      WeightedMovingAverage restored = new WeightedMovingAverage(restoredSource, 3);
+      TestIndicators.copyState(i, restored);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+      
+      // The restored indicator continues from the same state
+      TestIndicators.sample(source, i, 7, 3, 6);
+      TestIndicators.sample(restoredSource, restored, 7, 3, 6);
+      assertEquals(i.getDouble(), restored.getDouble(), 0);
+   }
+}
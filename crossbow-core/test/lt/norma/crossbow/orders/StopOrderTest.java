@@ -22,6 +22,7 @@ import java.math.BigDecimal;
 import lt.norma.crossbow.account.Currency;
 import lt.norma.crossbow.contracts.Exchange;
 import lt.norma.crossbow.contracts.StockContract;
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.ContractException;
 import lt.norma.crossbow.exceptions.OrderException;
 import lt.norma.crossbow.orders.Direction;
@@ -55,4 +56,25 @@ public class StopOrderTest
       assertTrue(o.toString().endsWith(" at -5"));
       assertEquals("stop", o.getType());
    }
+   
+   /**
+    * Test fixed-point stop price.
+    * 
+    * @throws ContractException
+    * @throws OrderException
+    */
+   @Test
+   public void testScaledStopPrice() throws ContractException, OrderException
+   {
+      StockContract c = new StockContract("ABC", Exchange.createNasdaq(), Currency.createUsd());
+      StopOrder o = new StopOrder(1, c, Direction.SHORT, 100, new BigDecimal("15.015"));
+      assertEquals(PriceScale.valueOf(3), o.getPriceScale());
+      assertEquals(15015, o.getScaledStopPrice());
+      assertTrue(o.getStopPrice().compareTo(new BigDecimal("15.015")) == 0);
+      
+      o = new StopOrder(2, c, Direction.LONG, 100, 1501L);
+      assertEquals(1501, o.getScaledStopPrice());
+      assertEquals(new BigDecimal("15.01"), o.getStopPrice());
+      assertTrue(o.toString().endsWith(" at 15.01"));
+   }
 }
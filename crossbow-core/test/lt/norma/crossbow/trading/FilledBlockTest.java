@@ -19,6 +19,7 @@ package lt.norma.crossbow.trading;
 
 import java.math.BigDecimal;
 
+import lt.norma.crossbow.core.PriceScale;
 import lt.norma.crossbow.exceptions.InvalidArgumentRuntimeException;
 import lt.norma.crossbow.orders.Direction;
 import lt.norma.crossbow.trading.FilledBlock;
@@ -76,4 +77,70 @@ public class FilledBlockTest
             new FilledBlock(Direction.SHORT, 100, new BigDecimal("8.501"), new DateTime(500));
       assertTrue((new BigDecimal("850.1")).compareTo(p.calculateValue()) == 0);
    }
+   
+   /**
+    * Test fixed-point price.
+    */
+   @Test
+   public void testScaledPrice()
+   {
+      FilledBlock p =
+            new FilledBlock(Direction.SHORT, 100, new BigDecimal("8.501"), new DateTime(500));
+      assertEquals(PriceScale.valueOf(3), p.getPriceScale());
+      assertEquals(8501, p.getScaledAveragePrice());
+      assertEquals(850100, p.calculateScaledValue(PriceScale.valueOf(3)));
+      assertEquals(8501000, p.calculateScaledValue(PriceScale.valueOf(4)));
+      
+      p = new FilledBlock(Direction.LONG, 10, 805, PriceScale.valueOf(2), new DateTime(500));
+      assertEquals(805, p.getScaledAveragePrice());
+      assertEquals(new BigDecimal("8.05"), p.getAveragePrice());
+      assertTrue((new BigDecimal("80.5")).compareTo(p.calculateValue()) == 0);
+      assertEquals(80500, p.calculateScaledValue(PriceScale.valueOf(3)));
+      assertEquals(Direction.LONG, p.getDirection());
+      assertEquals(10, p.getSize());
+   }
+   
+   /**
+    * Test the constructor.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testCreation4()
+   {
+      new FilledBlock(Direction.LONG, 100, 805, null, new DateTime(500));
+   }
+   
+   /**
+    * Test fixed-point price of a price with trailing zeros.
+    */
+   @Test
+   public void testScaledPriceTrailingZeros()
+   {
+      FilledBlock p = new FilledBlock(Direction.LONG, 10, new BigDecimal("100.00000000000000000"),
+            new DateTime(500));
+      assertEquals(PriceScale.valueOf(0), p.getPriceScale());
+      assertEquals(100, p.getScaledAveragePrice());
+      assertEquals(new BigDecimal("100.00000000000000000"), p.getAveragePrice());
+   }
+   
+   /**
+    * Test of calculateScaledValue method, of class FilledBlock. Rounding is rejected.
+    */
+   @Test(expected = InvalidArgumentRuntimeException.class)
+   public void testCalculateScaledValueLossy()
+   {
+      FilledBlock p =
+            new FilledBlock(Direction.SHORT, 100, new BigDecimal("8.501"), new DateTime(500));
+      p.calculateScaledValue(PriceScale.valueOf(2));
+   }
+   
+   /**
+    * Test of calculateScaledValue method, of class FilledBlock. Overflow is rejected.
+    */
+   @Test(expected = ArithmeticException.class)
+   public void testCalculateScaledValueOverflow()
+   {
+      FilledBlock p = new FilledBlock(Direction.LONG, Integer.MAX_VALUE, Long.MAX_VALUE / 1000,
+            PriceScale.valueOf(2), new DateTime(500));
+      p.calculateScaledValue(PriceScale.valueOf(2));
+   }
 }
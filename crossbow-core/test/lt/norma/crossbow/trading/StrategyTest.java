@@ -21,6 +21,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.math.BigDecimal;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import lt.norma.crossbow.account.Currency;
 import lt.norma.crossbow.contracts.Contract;
@@ -301,6 +303,90 @@ public class StrategyTest
       assertEquals(-1, s.tradeOrder);
    }
    
+   /**
+    * Test method for {@link Strategy#tradeReceived(TradeEvent)} and
+    * {@link Strategy#quoteReceived(QuoteEvent)}. Period splitters are checked once per event.
+    * 
+    * @throws Throwable
+    */
+   @Test
+   public void testTradeReceivedSingleCheck() throws Throwable
+   {
+      StockContract c = new StockContract("ABC", Exchange.createNasdaq(), Currency.createJpy());
+      DateTime t = new DateTime(2005, 1, 1, 14, 0, 0, 0, DateTimeZone.forID("America/New_York"));
+      Trade trade = new Trade(c, new BigDecimal("8.05"), 888, t);
+      Quote quote = new Quote(c, new BigDecimal("8.05"), 500, new BigDecimal("7.0"), 800, t);
+      Object source = new Object();
+      TradeEvent te = new TradeEvent(source, trade);
+      QuoteEvent qe = new QuoteEvent(source, quote);
+      
+      // Splitter shared by indicators and measures
+      MockPeriodSplitter tps = new MockPeriodSplitter();
+      tps.value = new PeriodSplitterResult(PeriodSplitterAction.RESTART_BEFORE, new DateTime());
+      MockStrategy2 s = new MockStrategy2(tps, tps, new MockTradeExecutor());
+      MockMeasure m = new MockMeasure("AA", true);
+      s.getMeasures().add(m);
+      s.tradeReceived(te);
+      assertEquals(1, tps.checkCount);
+      assertEquals(0, s.endOrder);
+      assertEquals(1, s.beginningOrder);
+      assertEquals(2, s.tradeOrder);
+      assertEquals(trade, m.lastTrade);
+      s.quoteReceived(qe);
+      assertEquals(2, tps.checkCount);
+      
+      // Separate splitters
+      MockPeriodSplitter tpsI = new MockPeriodSplitter();
+      MockPeriodSplitter tpsM = new MockPeriodSplitter();
+      tpsI.value = new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, new DateTime());
+      tpsM.value = new PeriodSplitterResult(PeriodSplitterAction.NO_ACTION, new DateTime());
+      s = new MockStrategy2(tpsI, tpsM, new MockTradeExecutor());
+      s.tradeReceived(te);
+      s.quoteReceived(qe);
+      assertEquals(2, tpsI.checkCount);
+      assertEquals(2, tpsM.checkCount);
+   }
+   
+   /**
+    * Test method for {@link Strategy#periodTimerExpired(long)}.
+    * 
+    * @throws Throwable
+    */
+   @Test
+   public void testPeriodTimerExpired() throws Throwable
+   {
+      StockContract c = new StockContract("ABC", Exchange.createNasdaq(), Currency.createJpy());
+      DateTimeZone zone = DateTimeZone.UTC;
+      Object source = new Object();
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+      try
+      {
+         PeriodTimer timer = new PeriodTimer(new TimePeriodSplitter(60000, zone), executor);
+         MockStrategy2 s = new MockStrategy2(timer, timer, new MockTradeExecutor());
+         s.tradeReceived(new TradeEvent(source, new Trade(c, new BigDecimal("8.05"), 888,
+               new DateTime(2010, 1, 1, 14, 0, 30, 0, zone))));
+         assertEquals(0, s.beginningOrder);
+         
+         // The timer ends the period
+         s.reset();
+         s.periodTimerExpired(new DateTime(2010, 1, 1, 14, 1, 0, 0, zone).getMillis());
+         assertEquals(0, s.endOrder);
+         assertEquals(-1, s.beginningOrder);
+         
+         // The next trade only starts a new period
+         s.reset();
+         s.tradeReceived(new TradeEvent(source, new Trade(c, new BigDecimal("8.05"), 888,
+               new DateTime(2010, 1, 1, 14, 1, 10, 0, zone))));
+         assertEquals(-1, s.endOrder);
+         assertEquals(0, s.beginningOrder);
+         assertEquals(1, s.tradeOrder);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+   
    /**
     * Test method for {@link lt.norma.crossbow.trading.Strategy#getTitle()}.
     */
@@ -466,16 +552,19 @@ public class StrategyTest
    private class MockPeriodSplitter implements PeriodSplitter
    {
       public PeriodSplitterResult value;
+      public int checkCount;
       
       @Override
       public PeriodSplitterResult checkEndOfPeriod(Trade trade)
       {
+         checkCount++;
          return value;
       }
       
       @Override
       public PeriodSplitterResult checkEndOfPeriod(Quote quote)
       {
+         checkCount++;
          return value;
       }
       
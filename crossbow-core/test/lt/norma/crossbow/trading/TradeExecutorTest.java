@@ -136,6 +136,43 @@ public class TradeExecutorTest
       assertNull(listener3.lastExecutedSender);
    }
    
+   /**
+    * Listeners added or removed during dispatch take effect from the next event.
+    * 
+    * @throws OrderException
+    * @throws ContractException
+    */
+   @Test
+   public void testChangeListenersDuringDispatch() throws OrderException, ContractException
+   {
+      StockContract c = new StockContract("ABC", Exchange.createNasdaq(), Currency.createJpy());
+      MockOrder o = new MockOrder(55, c, "MYORDER", Direction.SHORT, 800);
+      final MockTradeExecutor executor = new MockTradeExecutor();
+      final MockTradeExecutorListener removed = new MockTradeExecutorListener();
+      final MockTradeExecutorListener added = new MockTradeExecutorListener();
+      MockTradeExecutorListener changer = new MockTradeExecutorListener()
+      {
+         @Override
+         public void orderUpdated(OrderUpdatedEvent event)
+         {
+            executor.removeListener(removed);
+            executor.addListener(added);
+         }
+      };
+      executor.addListener(changer);
+      executor.addListener(removed);
+      
+      executor.fireOrderUpdate(o);
+      assertEquals(o, removed.lastOrder);
+      assertNull(added.lastOrder);
+      removed.lastOrder = null;
+      executor.removeListener(changer);
+      
+      executor.fireOrderUpdate(o);
+      assertNull(removed.lastOrder);
+      assertEquals(o, added.lastOrder);
+   }
+   
    /**
     * Mock trade executor listener.
     * 